@@ -1,20 +1,23 @@
 package com.example.iot_backend.config;
 
+import com.example.iot_backend.ingest.PartitionedInboundDispatcher;
+import com.example.iot_backend.service.MqttService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
-import org.springframework.integration.core.MessageProducer;
 import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
 import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
-import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
 import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
-import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
 
+import java.util.List;
+import java.util.UUID;
+
 @Configuration
 public class MqttConfig {
 /// ///////////////////////////////////////////////////
@@ -31,6 +34,24 @@ public class MqttConfig {
     @Value("${mqtt.broker.password}")
     private String password; // 0281
 
+    @Value("${mqtt.dispatch.partitions:0}")
+    private int dispatchPartitions; // 0 = số CPU core
+
+    @Value("${mqtt.dispatch.queue-capacity:1000}")
+    private int dispatchQueueCapacity;
+
+    @Value("${mqtt.dispatch.drain-timeout-ms:5000}")
+    private long dispatchDrainTimeoutMs;
+
+    @Value("${mqtt.broker.instance-id:}")
+    private String instanceId; // để trống = sinh ngẫu nhiên khi khởi động
+
+    @Value("${mqtt.inbound.connections:1}")
+    private int inboundConnections;
+
+    @Value("${mqtt.inbound.shared-group:}")
+    private String sharedGroup; // vd: iot-backend -> $share/iot-backend/home/sensors
+
 //    @Value("${mqtt.topics.sensor-data}")
 //    private String sensorDataTopic;
 /// ///////////////////////////////////////////////////////
@@ -69,7 +90,11 @@ public MqttPahoClientFactory mqttClientFactory() {
 ///Chức năng: Subscribe (đăng ký) nhận tin nhắn từ các MQTT topics
 ///
 /// Topics được Subscribe:
-/// home/sensors: Nhận dữ liệu từ tất cả sensors (temperature, humidity, light)
+/// home/devices/+/sensors: dữ liệu sensor của từng thiết bị (MAC trong topic = device key)
+///
+/// home/devices/+/sensors/+: như trên, chọn format qua topic (json, bin - xem BinarySensorPayloadCodec)
+///
+/// home/sensors, home/sensors/+: topic chung (legacy) của mọi sensor, không biết thiết bị gửi
 ///
 /// home/devices/+/led/+/state: Nhận feedback trạng thái LED từ devices (+ là wildcard)
 ///
@@ -80,24 +105,41 @@ public MqttPahoClientFactory mqttClientFactory() {
 ///
 /// CompletionTimeout = 5000ms: Timeout cho việc xử lý message
 ///
-    @Bean
-    public MessageProducer inbound() {
-        MqttPahoMessageDrivenChannelAdapter adapter = new MqttPahoMessageDrivenChannelAdapter(
-                clientId + "_inbound",
-                mqttClientFactory(),
+/// Scale-out:
+/// mqtt.inbound.connections: số kết nối inbound của instance này (mỗi kết nối có client id riêng)
+///
+/// mqtt.inbound.shared-group: nếu có, subscribe qua $share/<group>/<topic> để broker chia tải
+/// giữa tất cả kết nối của mọi instance cùng group (mỗi message chỉ tới 1 kết nối)
+    public static final List<String> INBOUND_TOPICS = List.of(
 //                nhận dữ liệu từ đèn và cảm biến
-                "home/sensors",
-                "home/devices/+/led/+/state",
+            "home/devices/+/sensors",
+            "home/devices/+/sensors/+", // biến thể theo format: .../sensors/json, .../sensors/bin
+            "home/sensors",             // legacy: topic chung, không có MAC
+            "home/sensors/+",
+            "home/devices/+/led/+/state",
 //                nhận lệnh bật tắt đèn
-                "home/lamps/1",
-                "home/lamps/2",
-                "home/lamps/3"
-        );
-        adapter.setCompletionTimeout(5000);
-        adapter.setConverter(new DefaultPahoMessageConverter());
-        adapter.setQos(1);
-        adapter.setOutputChannel(mqttInputChannel());
-        return adapter;
+            "home/lamps/1",
+            "home/lamps/2",
+            "home/lamps/3"
+    );
+
+    @Bean
+    public MqttInboundConnections inbound() {
+        return new MqttInboundConnections(
+                clientId + "_" + instanceId(),
+                mqttClientFactory(),
+                mqttInputChannel(),
+                INBOUND_TOPICS,
+                inboundConnections,
+                sharedGroup);
+    }
+
+    // Mỗi instance backend cần client id khác nhau, nếu không broker sẽ ngắt kết nối lẫn nhau
+    private String instanceId() {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = UUID.randomUUID().toString().substring(0, 8);
+        }
+        return instanceId;
     }
 
 // kênh tin nhắn cho phần thứ 3:
@@ -120,6 +162,29 @@ public MqttPahoClientFactory mqttClientFactory() {
         return new DirectChannel();
     }
 
+/// /////////////////////////////////////////
+/// xử lý song song tin nhắn nhận được:
+/// Chức năng: mqttInputChannel là DirectChannel nên mọi message chạy trên 1 thread callback của Paho.
+/// Dispatcher chia message vào N partition (mỗi partition 1 thread + queue có giới hạn)
+/// theo device key (MAC trong home/devices/{mac}/..., hoặc topic với home/sensors)
+/// => message của cùng 1 device vẫn đúng thứ tự, các device khác nhau chạy song song.
+///
+/// mqtt.dispatch.partitions: số partition (0 = số CPU core)
+///
+/// mqtt.dispatch.queue-capacity: số message tối đa chờ trong mỗi partition
+    @Bean
+    public PartitionedInboundDispatcher partitionedInboundDispatcher(MqttService mqttService, MeterRegistry meterRegistry) {
+        int partitions = dispatchPartitions > 0 ? dispatchPartitions : Runtime.getRuntime().availableProcessors();
+        return new PartitionedInboundDispatcher(mqttService, meterRegistry,
+                partitions, dispatchQueueCapacity, dispatchDrainTimeoutMs);
+    }
+
+    @Bean
+    @ServiceActivator(inputChannel = "mqttInputChannel")
+    public MessageHandler mqttInboundHandler(PartitionedInboundDispatcher partitionedInboundDispatcher) {
+        return partitionedInboundDispatcher;
+    }
+
 /// /////////////////////////////////////////
 /// gửi tin nhắn:
 /// Chức năng: Xử lý việc publish (gửi) tin nhắn lên MQTT broker
@@ -133,7 +198,7 @@ public MqttPahoClientFactory mqttClientFactory() {
     @ServiceActivator(inputChannel = "mqttOutputChannel")
     public MessageHandler mqttOutbound() {
         MqttPahoMessageHandler messageHandler = new MqttPahoMessageHandler(
-                clientId + "_outbound",
+                clientId + "_" + instanceId() + "_outbound",
                 mqttClientFactory());
 
         messageHandler.setAsync(true);
@@ -160,8 +225,8 @@ public MqttPahoClientFactory mqttClientFactory() {
 //Luồng Hoạt Động Trong Hệ Thống
 //Sensor Data Collection:
 //IoT Device → Publish to "home/sensors" →
-//inbound() → mqttInputChannel →
-//MqttService.handleMessage() → SensorDataService → Database
+//inbound() → mqttInputChannel → PartitionedInboundDispatcher →
+//MqttService.handleInbound() → SensorDataService → Database
 //LED Control:
 //Dashboard → REST API → LedEventService →
 //mqttOutputChannel → mqttOutbound() →
@@ -0,0 +1,139 @@
+package com.example.iot_backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.messaging.MessageChannel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The set of inbound MQTT connections of this instance.
+ *
+ * With a shared-subscription group every connection subscribes to
+ * {@code $share/<group>/<topic>}, so the broker load-balances each topic across all
+ * connections of all backend instances in the group (each message goes to exactly one of them).
+ * Without a group, topics are spread round-robin over the connections, which only splits
+ * load between topics and never duplicates a message. A single filter always stays on one
+ * connection, so all sensor telemetry of {@code home/devices/+/sensors} (or of the legacy
+ * {@code home/sensors}) still arrives over one connection; only a shared-subscription group
+ * spreads the telemetry itself.
+ *
+ * Every connection gets its own client id ({@code <clientId>_<instanceId>_inbound_<n>}),
+ * so several instances never kick each other off the broker.
+ */
+public class MqttInboundConnections implements SmartLifecycle, ApplicationContextAware, InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MqttInboundConnections.class);
+
+    private final List<MqttPahoMessageDrivenChannelAdapter> adapters = new ArrayList<>();
+    private volatile boolean running = false;
+    private ApplicationContext applicationContext;
+
+    public MqttInboundConnections(String clientIdPrefix,
+                                  MqttPahoClientFactory clientFactory,
+                                  MessageChannel outputChannel,
+                                  List<String> topics,
+                                  int connections,
+                                  String sharedGroup) {
+        int count = Math.max(1, connections);
+        boolean shared = sharedGroup != null && !sharedGroup.isBlank();
+
+        if (!shared && count > topics.size()) {
+            logger.warn("⚠️ {} inbound connections requested without a shared-subscription group; "
+                    + "only {} can be used (one per topic)", count, topics.size());
+            count = topics.size();
+        }
+        if (!shared && count > 1) {
+            logger.info("ℹ️ No shared-subscription group: topics are split between {} connections, "
+                    + "but each topic (including all sensor telemetry) stays on one connection", count);
+        }
+
+        for (int i = 0; i < count; i++) {
+            String[] subscriptions = subscriptionsFor(i, count, topics, shared ? sharedGroup.trim() : null);
+            MqttPahoMessageDrivenChannelAdapter adapter = new MqttPahoMessageDrivenChannelAdapter(
+                    clientIdPrefix + "_inbound_" + i, clientFactory, subscriptions);
+            adapter.setCompletionTimeout(5000);
+            DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+            converter.setPayloadAsBytes(true); // giữ nguyên byte[] để decoder đọc trực tiếp, không tạo String
+            adapter.setConverter(converter);
+            adapter.setQos(1);
+            adapter.setOutputChannel(outputChannel);
+            adapters.add(adapter);
+
+            logger.info("🔌 MQTT inbound connection {} ({}): {}", i, clientIdPrefix + "_inbound_" + i,
+                    String.join(", ", subscriptions));
+        }
+    }
+
+    /**
+     * Topic filters for connection {@code index} of {@code count}.
+     */
+    static String[] subscriptionsFor(int index, int count, List<String> topics, String sharedGroup) {
+        List<String> result = new ArrayList<>();
+        for (int t = 0; t < topics.size(); t++) {
+            if (sharedGroup != null) {
+                result.add("$share/" + sharedGroup + "/" + topics.get(t));
+            } else if (t % count == index) {
+                result.add(topics.get(t));
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    public List<MqttPahoMessageDrivenChannelAdapter> getAdapters() {
+        return Collections.unmodifiableList(adapters);
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        // The adapters are not beans themselves, so initialise them like the container would
+        for (int i = 0; i < adapters.size(); i++) {
+            MqttPahoMessageDrivenChannelAdapter adapter = adapters.get(i);
+            adapter.setBeanName("mqttInbound" + i);
+            adapter.setApplicationContext(applicationContext);
+            adapter.setApplicationEventPublisher(applicationContext);
+            adapter.setBeanFactory(applicationContext.getAutowireCapableBeanFactory());
+            adapter.afterPropertiesSet();
+        }
+    }
+
+    // =================== LIFECYCLE ===================
+
+    @Override
+    public void start() {
+        adapters.forEach(MqttPahoMessageDrivenChannelAdapter::start);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        adapters.forEach(MqttPahoMessageDrivenChannelAdapter::stop);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Same phase as a regular inbound adapter: after the dispatcher/writer start, before they stop
+        return 0;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.iot_backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/// Bật @Scheduled cho các job bảo trì (partition/retention, ...)
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,10 +1,19 @@
 package com.example.iot_backend.controller;
 
-import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.ExportQuery;
+import com.example.iot_backend.export.ExportResponses;
+import com.example.iot_backend.dto.LedEventView;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageSize;
 import com.example.iot_backend.service.LedEventService;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,11 +31,48 @@ public class LedEventController {
 
     // EXISTING method (keep for backward compatibility)
     @GetMapping("/recent")
-    public ResponseEntity<List<LedEvent>> getRecentEvents() {
-        List<LedEvent> events = ledEventService.getRecentEvents();
+    public ResponseEntity<List<LedEventView>> getRecentEvents() {
+        List<LedEventView> events = ledEventService.getRecentEvents();
         return ResponseEntity.ok(events);
     }
 
+    // Trạng thái mới nhất mỗi LED cho dashboard: {"1": true, "2": false}; byDevice=true -> theo MAC, kèm thời gian
+    @GetMapping("/latest-states")
+    public ResponseEntity<Map<String, ?>> getLatestStates(@RequestParam(defaultValue = "false") boolean byDevice) {
+        if (byDevice) {
+            return ResponseEntity.ok(ledEventService.getLatestStatesByDevice());
+        }
+        return ResponseEntity.ok(ledEventService.getLatestStates());
+    }
+
+    /**
+     * Streaming export of the action history as NDJSON (default), CSV or a JSON array, in constant
+     * memory. Filters: deviceFilter (LED number), deviceMac, timeFilter (same forms as /paginated)
+     * and from/to (ISO, half-open).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportLedEvents(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "all") String deviceFilter,
+            @RequestParam(required = false) String deviceMac,
+            @RequestParam(required = false) String timeFilter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        ExportQuery query;
+        try {
+            exportFormat = ExportFormat.parse(format);
+            query = ledEventService.exportQuery(deviceFilter, deviceMac, timeFilter, from, to);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+        return ExportResponses.stream(exportFormat, gzip, "led-events",
+                out -> ledEventService.exportLedEvents(query, exportFormat, out));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
         long totalRecords = ledEventService.getTotalRecords();
@@ -45,16 +91,41 @@ public class LedEventController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
             @RequestParam(defaultValue = "all") String deviceFilter,
-            @RequestParam(required = false) String timeFilter) {
+            @RequestParam(required = false) String timeFilter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
 
         try {
-            Page<LedEvent> pageData = ledEventService.getLedEventsPaginated(page, size, search, deviceFilter, timeFilter);
+            PageSize.check(size);
+            // Cursor mode (?cursor= cho trang đầu): keyset theo (created_at, id), chỉ COUNT khi count=true
+            if (cursor != null) {
+                CursorPage<LedEventView> cursorPage = ledEventService.getLedEventsCursorPage(
+                        cursor, size, deviceFilter, timeFilter, count);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", cursorPage.content());
+                response.put("size", cursorPage.size());
+                response.put("nextCursor", cursorPage.nextCursor());
+                response.put("prevCursor", cursorPage.prevCursor());
+                response.put("hasNext", cursorPage.hasNext());
+                response.put("hasPrevious", cursorPage.hasPrevious());
+                if (cursorPage.totalElements() != null) {
+                    response.put("totalElements", cursorPage.totalElements());
+                }
+                response.put("search", search);
+                response.put("deviceFilter", deviceFilter);
+                response.put("timeFilter", timeFilter);
+                return ResponseEntity.ok(response);
+            }
+
+            Page<LedEventView> pageData = ledEventService.getLedEventsPaginated(page, size, search, deviceFilter, timeFilter);
 
             Map<String, Object> response = new HashMap<>();
             response.put("content", pageData.getContent());
             response.put("currentPage", pageData.getNumber());
             response.put("totalPages", pageData.getTotalPages());
             response.put("totalElements", pageData.getTotalElements());
+            response.put("totalEstimated", CountedPage.isEstimated(pageData));
             response.put("size", pageData.getSize());
             response.put("first", pageData.isFirst());
             response.put("last", pageData.isLast());
@@ -63,6 +134,11 @@ public class LedEventController {
             response.put("timeFilter", timeFilter);
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // Cursor, size không hợp lệ hoặc deviceFilter không phải số
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to fetch data: " + e.getMessage());
@@ -76,14 +152,22 @@ public class LedEventController {
             @PathVariable int deviceId,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
+        try {
+            PageSize.check(size);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
 
-        Page<LedEvent> pageData = ledEventService.getLedEventsPaginated(page, size, "", String.valueOf(deviceId), null);
+        Page<LedEventView> pageData = ledEventService.getLedEventsPaginated(page, size, "", String.valueOf(deviceId), null);
 
         Map<String, Object> response = new HashMap<>();
         response.put("content", pageData.getContent());
         response.put("currentPage", pageData.getNumber());
         response.put("totalPages", pageData.getTotalPages());
         response.put("totalElements", pageData.getTotalElements());
+        response.put("totalEstimated", CountedPage.isEstimated(pageData));
         response.put("deviceId", deviceId);
         response.put("deviceName", LedEventService.getDeviceName(deviceId));
 
@@ -1,14 +1,29 @@
 package com.example.iot_backend.controller;
 
+import com.example.iot_backend.dto.ChartDataResponse;
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.ExportResponses;
+import com.example.iot_backend.model.RollupResolution;
 import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageSize;
+import com.example.iot_backend.model.SensorRollup;
 import com.example.iot_backend.service.SensorDataService;
+import com.example.iot_backend.service.SensorRollupService;
+import com.example.iot_backend.store.SensorFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +37,9 @@ public class SensorDataController {
     @Autowired
     private SensorDataService sensorDataService;
 
+    @Autowired
+    private SensorRollupService sensorRollupService;
+
     // =================== MAIN PAGINATION ENDPOINT ===================
 
     @GetMapping("/paginated")
@@ -30,16 +48,41 @@ public class SensorDataController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(required = false) String search,
             @RequestParam(defaultValue = "Auto Detect") String searchType,
-            @RequestParam(required = false) String timeFilter) {
+            @RequestParam(required = false) String timeFilter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count) {
 
         try {
-            Page<SensorData> pageData = sensorDataService.getSensorDataPaginated(page, size, search, searchType, timeFilter);
+            PageSize.check(size);
+            // Cursor mode (?cursor= cho trang đầu): keyset theo (created_at, id), chỉ COUNT khi count=true
+            if (cursor != null) {
+                CursorPage<SensorDataView> cursorPage = sensorDataService.getSensorDataCursorPage(
+                        cursor, size, search, searchType, timeFilter, count);
+
+                Map<String, Object> response = new HashMap<>();
+                response.put("content", cursorPage.content());
+                response.put("size", cursorPage.size());
+                response.put("nextCursor", cursorPage.nextCursor());
+                response.put("prevCursor", cursorPage.prevCursor());
+                response.put("hasNext", cursorPage.hasNext());
+                response.put("hasPrevious", cursorPage.hasPrevious());
+                if (cursorPage.totalElements() != null) {
+                    response.put("totalElements", cursorPage.totalElements());
+                }
+                response.put("search", search);
+                response.put("searchType", searchType);
+                response.put("timeFilter", timeFilter);
+                return ResponseEntity.ok(response);
+            }
+
+            Page<SensorDataView> pageData = sensorDataService.getSensorDataPaginated(page, size, search, searchType, timeFilter);
 
             Map<String, Object> response = new HashMap<>();
             response.put("content", pageData.getContent());
             response.put("currentPage", pageData.getNumber());
             response.put("totalPages", pageData.getTotalPages());
             response.put("totalElements", pageData.getTotalElements());
+            response.put("totalEstimated", CountedPage.isEstimated(pageData));
             response.put("size", pageData.getSize());
             response.put("first", pageData.isFirst());
             response.put("last", pageData.isLast());
@@ -48,6 +91,11 @@ public class SensorDataController {
             response.put("timeFilter", timeFilter);
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            // Cursor hoặc size không hợp lệ
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to fetch data: " + e.getMessage());
@@ -57,20 +105,47 @@ public class SensorDataController {
 
     // =================== COMPATIBILITY ENDPOINTS ===================
 
+    // Stream thẳng từ DB ra JSON array (cùng định dạng như trước), không nạp cả bảng vào heap
     @GetMapping("/all")
-    public ResponseEntity<List<SensorData>> getAllSensorData() {
+    public ResponseEntity<StreamingResponseBody> getAllSensorData(@RequestParam(defaultValue = "false") boolean gzip) {
+        SensorFilter filter = sensorDataService.exportFilter(null, null, null, null, null, null);
+        return ExportResponses.stream(ExportFormat.JSON, gzip, null,
+                out -> sensorDataService.exportSensorData(filter, ExportFormat.JSON, out));
+    }
+
+    /**
+     * Streaming export of the sensor history as NDJSON (default), CSV or a JSON array, in constant
+     * memory. Filters: timeFilter (same forms as /paginated), from/to (ISO, half-open) and value
+     * filters per column ("23.5", ">25", "20..30").
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportSensorData(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String timeFilter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String temperature,
+            @RequestParam(required = false) String humidity,
+            @RequestParam(required = false) String lightLevel,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportFormat exportFormat;
+        SensorFilter filter;
         try {
-            List<SensorData> data = sensorDataService.getAllSensorData();
-            return ResponseEntity.ok(data);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            exportFormat = ExportFormat.parse(format);
+            filter = sensorDataService.exportFilter(timeFilter, from, to, temperature, humidity, lightLevel);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
         }
+        return ExportResponses.stream(exportFormat, gzip, "sensor-data",
+                out -> sensorDataService.exportSensorData(filter, exportFormat, out));
     }
 
     @GetMapping("/recent")
-    public ResponseEntity<List<SensorData>> getRecentData() {
+    public ResponseEntity<List<SensorDataView>> getRecentData() {
         try {
-            List<SensorData> data = sensorDataService.getRecentData();
+            List<SensorDataView> data = sensorDataService.getRecentData();
             return ResponseEntity.ok(data);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
@@ -111,8 +186,9 @@ public class SensorDataController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
+            PageSize.check(size);
             // FIXED: Use correct method signature with all 5 parameters
-            Page<SensorData> pageData = sensorDataService.getSensorDataPaginated(
+            Page<SensorDataView> pageData = sensorDataService.getSensorDataPaginated(
                     page, size, temperature.toString(), "Temperature (°C)", null);
 
             Map<String, Object> response = new HashMap<>();
@@ -120,6 +196,7 @@ public class SensorDataController {
             response.put("currentPage", pageData.getNumber());
             response.put("totalPages", pageData.getTotalPages());
             response.put("totalElements", pageData.getTotalElements());
+            response.put("totalEstimated", CountedPage.isEstimated(pageData));
             response.put("size", pageData.getSize());
             response.put("first", pageData.isFirst());
             response.put("last", pageData.isLast());
@@ -127,6 +204,10 @@ public class SensorDataController {
             response.put("searchType", "Temperature (°C)");
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to search by temperature: " + e.getMessage());
@@ -140,8 +221,9 @@ public class SensorDataController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
+            PageSize.check(size);
             // FIXED: Use correct method signature with all 5 parameters
-            Page<SensorData> pageData = sensorDataService.getSensorDataPaginated(
+            Page<SensorDataView> pageData = sensorDataService.getSensorDataPaginated(
                     page, size, humidity.toString(), "Humidity (%)", null);
 
             Map<String, Object> response = new HashMap<>();
@@ -149,6 +231,7 @@ public class SensorDataController {
             response.put("currentPage", pageData.getNumber());
             response.put("totalPages", pageData.getTotalPages());
             response.put("totalElements", pageData.getTotalElements());
+            response.put("totalEstimated", CountedPage.isEstimated(pageData));
             response.put("size", pageData.getSize());
             response.put("first", pageData.isFirst());
             response.put("last", pageData.isLast());
@@ -156,6 +239,10 @@ public class SensorDataController {
             response.put("searchType", "Humidity (%)");
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to search by humidity: " + e.getMessage());
@@ -169,8 +256,9 @@ public class SensorDataController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
+            PageSize.check(size);
             // FIXED: Use correct method signature with all 5 parameters
-            Page<SensorData> pageData = sensorDataService.getSensorDataPaginated(
+            Page<SensorDataView> pageData = sensorDataService.getSensorDataPaginated(
                     page, size, lightLevel.toString(), "Light Level", null);
 
             Map<String, Object> response = new HashMap<>();
@@ -178,6 +266,7 @@ public class SensorDataController {
             response.put("currentPage", pageData.getNumber());
             response.put("totalPages", pageData.getTotalPages());
             response.put("totalElements", pageData.getTotalElements());
+            response.put("totalEstimated", CountedPage.isEstimated(pageData));
             response.put("size", pageData.getSize());
             response.put("first", pageData.isFirst());
             response.put("last", pageData.isLast());
@@ -185,6 +274,10 @@ public class SensorDataController {
             response.put("searchType", "Light Level");
 
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
         } catch (Exception e) {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Failed to search by light level: " + e.getMessage());
@@ -195,45 +288,137 @@ public class SensorDataController {
     // =================== RANGE SEARCH ENDPOINTS ===================
 
     @GetMapping("/search/temperature-range")
-    public ResponseEntity<List<SensorData>> searchByTemperatureRange(
+    public ResponseEntity<StreamingResponseBody> searchByTemperatureRange(
             @RequestParam Double minTemp,
             @RequestParam Double maxTemp) {
-        try {
-            List<SensorData> data = sensorDataService.getSensorDataByTemperatureRange(minTemp, maxTemp);
-            return ResponseEntity.ok(data);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        SensorFilter filter = sensorDataService.exportFilterBetween("temperature", minTemp, maxTemp);
+        return ExportResponses.stream(ExportFormat.JSON, false, null,
+                out -> sensorDataService.exportSensorData(filter, ExportFormat.JSON, out));
     }
 
     @GetMapping("/search/humidity-range")
-    public ResponseEntity<List<SensorData>> searchByHumidityRange(
+    public ResponseEntity<StreamingResponseBody> searchByHumidityRange(
             @RequestParam Double minHumidity,
             @RequestParam Double maxHumidity) {
-        try {
-            List<SensorData> data = sensorDataService.getSensorDataByHumidityRange(minHumidity, maxHumidity);
-            return ResponseEntity.ok(data);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+        SensorFilter filter = sensorDataService.exportFilterBetween("humidity", minHumidity, maxHumidity);
+        return ExportResponses.stream(ExportFormat.JSON, false, null,
+                out -> sensorDataService.exportSensorData(filter, ExportFormat.JSON, out));
     }
 
+    /**
+     * Raw rows of the days covering [startDate, endDate], or, with {@code resolution} (auto, 1m,
+     * 1h, 1d), the rollup buckets of [startDate, endDate) as returned by {@code /rollups}.
+     */
     @GetMapping("/search/date-range")
-    public ResponseEntity<List<SensorData>> searchByDateRange(
+    public ResponseEntity<?> searchByDateRange(
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String resolution,
+            @RequestParam(defaultValue = "" + SensorRollupService.DEFAULT_POINTS) int points) {
         try {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
             LocalDateTime start = LocalDateTime.parse(startDate, formatter);
             LocalDateTime end = LocalDateTime.parse(endDate, formatter);
 
-            List<SensorData> data = sensorDataService.getSensorDataByDateRange(start, end);
-            return ResponseEntity.ok(data);
+            if (resolution != null) {
+                return rollups(start, end, resolution, points);
+            }
+            SensorFilter filter = sensorDataService.exportFilterForDays(start, end);
+            return ExportResponses.stream(ExportFormat.JSON, false, null,
+                    out -> sensorDataService.exportSensorData(filter, ExportFormat.JSON, out));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    // =================== CHART ENDPOINT ===================
+
+    /**
+     * Dashboard chart: at most {@code points} LTTB-downsampled points for the last {@code range}
+     * (30m, 6h, 24h, 7d, 1y...), as parallel arrays t/temperature/humidity/lightLevel.
+     */
+    @GetMapping("/chart-data")
+    public ResponseEntity<?> getChartData(
+            @RequestParam(defaultValue = "6h") String range,
+            @RequestParam(defaultValue = "" + SensorDataService.DEFAULT_CHART_POINTS) int points) {
+        try {
+            ChartDataResponse chart = sensorDataService.getChartData(range, points);
+            return ResponseEntity.ok(chart);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to fetch chart data: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    // =================== ROLLUP ENDPOINTS ===================
+
+    /**
+     * Aggregated buckets (count/min/max/avg/last) for [from, to).
+     * resolution=auto picks the coarsest table that still gives about {@code points} buckets.
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<Map<String, Object>> getRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "auto") String resolution,
+            @RequestParam(defaultValue = "" + SensorRollupService.DEFAULT_POINTS) int points) {
+        return rollups(from, to, resolution, points);
+    }
+
+    private ResponseEntity<Map<String, Object>> rollups(LocalDateTime from, LocalDateTime to, String resolution, int points) {
+        try {
+            if (!sensorRollupService.isAvailable()) {
+                throw new IllegalArgumentException("Rollups are not available with the configured sensor store");
+            }
+            RollupResolution selected = "auto".equalsIgnoreCase(resolution)
+                    ? sensorRollupService.resolve(from, to, points)
+                    : RollupResolution.fromCode(resolution);
+            if (selected == null) {
+                selected = RollupResolution.MINUTE; // finest rollup available
+            }
+            List<? extends SensorRollup> buckets = sensorRollupService.getRollups(from, to, selected);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("from", from);
+            response.put("to", to);
+            response.put("resolution", selected.getCode());
+            response.put("buckets", buckets);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        } catch (Exception e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", "Failed to fetch rollups: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+
+    /**
+     * Rebuild the rollups of the given days (yyyy-MM-dd, inclusive) from sensor_data.
+     */
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<Map<String, Object>> backfillRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            int days = sensorRollupService.backfill(from, to);
+            Map<String, Object> response = new HashMap<>();
+            response.put("queuedDays", days);
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(errorResponse);
+        }
+    }
+
     // =================== DEBUG ENDPOINTS ===================
 
     @GetMapping("/debug/test-search")
@@ -242,7 +427,7 @@ public class SensorDataController {
             @RequestParam(defaultValue = "Auto Detect") String searchType) {
 
         try {
-            Page<SensorData> result = sensorDataService.getSensorDataPaginated(0, 5, search, searchType, null);
+            Page<SensorDataView> result = sensorDataService.getSensorDataPaginated(0, 5, search, searchType, null);
 
             Map<String, Object> response = new HashMap<>();
             response.put("searchType", searchType);
@@ -2,15 +2,13 @@ package com.example.iot_backend.controller;
 
 import com.example.iot_backend.gateway.MqttGateway;
 import com.example.iot_backend.model.LedEvent;
-import com.example.iot_backend.repository.LedEventRepository;
 import com.example.iot_backend.dto.LedControlRequest;
+import com.example.iot_backend.service.LedEventService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Controller;
 
-import java.time.LocalDateTime;
-
 @Controller
 public class WebSocketController {
 
@@ -18,7 +16,7 @@ public class WebSocketController {
     private MqttGateway mqttGateway;
 
     @Autowired
-    private LedEventRepository ledEventRepository;
+    private LedEventService ledEventService;
 
     @MessageMapping("/led-control")
     @SendTo("/topic/led-status")
@@ -57,12 +55,7 @@ public class WebSocketController {
             }
 
             // Create and save the event
-            LedEvent ledEvent = new LedEvent();
-            ledEvent.setLedNumber(ledNumber);
-            ledEvent.setStateOn(request.isState());
-            ledEvent.setCreatedAt(LocalDateTime.now());
-
-            return ledEventRepository.save(ledEvent);
+            return ledEventService.save(ledNumber, request.isState());
 
         } catch (Exception e) {
             e.printStackTrace();
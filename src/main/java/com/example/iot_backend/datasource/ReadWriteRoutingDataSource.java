@@ -0,0 +1,62 @@
+package com.example.iot_backend.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sends connections of {@code @Transactional(readOnly = true)} work to the replica pool and
+ * everything else (ingest batches, LED events, maintenance, non-transactional JDBC) to the
+ * primary. While {@link ReplicaLagMonitor} reports the replica unusable, read-only work goes to
+ * the primary through a {@link BoundedDataSource}, so it can hold only a few primary connections.
+ *
+ * Service reads use {@code @Transactional(readOnly = true, propagation = SUPPORTS)}: the read-only
+ * flag is published for routing without wrapping the method in one transaction, so a failed
+ * repository call they catch does not turn into an {@code UnexpectedRollbackException}, and
+ * long exports do not hold a transaction open.
+ *
+ * The decision is made when a connection is fetched, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction
+ * manager opens its connection before the read-only flag is published to
+ * {@link TransactionSynchronizationManager}, and the proxy delays the real fetch to the first
+ * statement.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA, PRIMARY_READ }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Map<Route, Counter> routed = new EnumMap<>(Route.class);
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, DataSource primaryRead,
+                                      ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica, Route.PRIMARY_READ, primaryRead));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        for (Route route : Route.values()) {
+            routed.put(route, Counter.builder("iot.datasource.routed")
+                    .tag("route", route.name().toLowerCase()).register(meterRegistry));
+        }
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            route = Route.PRIMARY;
+        } else if (lagMonitor.isReplicaUsable()) {
+            route = Route.REPLICA;
+        } else {
+            route = Route.PRIMARY_READ;
+        }
+        routed.get(route).increment();
+        return route;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.iot_backend.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Decides whether read-only transactions may use the replica, from a periodic
+ * {@code SHOW REPLICA STATUS} ({@code SHOW SLAVE STATUS} before MySQL 8.0.22).
+ *
+ * The replica is usable while it answers and its {@code Seconds_Behind_Source} is at most
+ * {@code datasource.replica.max-lag-seconds}; a stopped SQL thread (lag NULL), a failed check or
+ * too much lag sends reads to the primary until a later check passes. An empty status (the URL
+ * points at a reader endpoint or proxy, not a MySQL replica) counts as no lag. Until the first
+ * check completes reads stay on the primary.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String REPLICA_STATUS = "SHOW REPLICA STATUS";
+    private static final String SLAVE_STATUS = "SHOW SLAVE STATUS";
+    private static final long NOT_REPLICATING = -1;
+    private static final long UNKNOWN = -2;
+
+    private final JdbcTemplate replica;
+    private final long maxLagSeconds;
+
+    private volatile String statusQuery = REPLICA_STATUS;
+    private volatile boolean usable = false;
+    // giây trễ lần kiểm tra gần nhất; NOT_REPLICATING = status rỗng, UNKNOWN = lỗi / SQL thread dừng
+    private volatile long lagSeconds = UNKNOWN;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagSeconds, MeterRegistry meterRegistry) {
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.replica.setQueryTimeout(5);
+        this.maxLagSeconds = maxLagSeconds;
+        Gauge.builder("iot.datasource.replica.lag", this, m -> m.lagSeconds >= 0 ? m.lagSeconds : Double.NaN)
+                .baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("iot.datasource.replica.usable", this, m -> m.usable ? 1 : 0).register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        long lag;
+        try {
+            lag = readLag();
+        } catch (DataAccessException e) {
+            lagSeconds = UNKNOWN;
+            update(false, "replica check failed: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+        lagSeconds = lag;
+        if (lag == UNKNOWN) {
+            update(false, "replication is not running (Seconds_Behind_Source is NULL)");
+        } else if (maxLagSeconds > 0 && lag > maxLagSeconds) {
+            update(false, "replica is " + lag + "s behind (max " + maxLagSeconds + "s)");
+        } else {
+            update(true, lag == NOT_REPLICATING ? "no replication status, treating as current" : "lag " + lag + "s");
+        }
+    }
+
+    private long readLag() {
+        if (maxLagSeconds <= 0) {
+            replica.queryForObject("SELECT 1", Integer.class);
+            return NOT_REPLICATING;
+        }
+        try {
+            return replica.query(statusQuery, LAG);
+        } catch (BadSqlGrammarException e) {
+            if (!REPLICA_STATUS.equals(statusQuery)) {
+                throw e;
+            }
+            // MySQL < 8.0.22 / MariaDB chưa có SHOW REPLICA STATUS
+            statusQuery = SLAVE_STATUS;
+            return replica.query(statusQuery, LAG);
+        }
+    }
+
+    private static final ResultSetExtractor<Long> LAG = rs -> {
+        if (!rs.next()) {
+            return NOT_REPLICATING;
+        }
+        long lag = lagColumn(rs);
+        return rs.wasNull() ? UNKNOWN : lag;
+    };
+
+    private static long lagColumn(ResultSet rs) throws SQLException {
+        try {
+            return rs.getLong("Seconds_Behind_Source");
+        } catch (SQLException e) {
+            return rs.getLong("Seconds_Behind_Master");
+        }
+    }
+
+    private void update(boolean nowUsable, String reason) {
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("📗 Read-only queries now use the replica ({})", reason);
+            } else {
+                logger.warn("📕 Read-only queries fall back to the primary: {}", reason);
+            }
+        }
+        usable = nowUsable;
+    }
+}
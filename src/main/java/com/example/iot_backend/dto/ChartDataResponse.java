@@ -0,0 +1,16 @@
+package com.example.iot_backend.dto;
+
+/**
+ * Downsampled chart series in columnar form: one timestamp array (epoch millis) and one value
+ * array per metric, all the same length. Null marks a missing value.
+ *
+ * @param resolution source of the points: {@code raw}, or the rollup table code ({@code 1m}, {@code 1h}, {@code 1d})
+ */
+public record ChartDataResponse(String range,
+                                String resolution,
+                                int points,
+                                long[] t,
+                                Double[] temperature,
+                                Double[] humidity,
+                                Double[] lightLevel) {
+}
@@ -0,0 +1,27 @@
+package com.example.iot_backend.dto;
+
+import com.example.iot_backend.model.LedEvent;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only LED event for the list, recent and export endpoints; serializes to the same JSON as
+ * {@link LedEvent} (including the derived {@code stateOn}).
+ */
+public record LedEventView(Long id, Integer ledNumber, String state, String deviceMac, LocalDateTime createdAt) {
+
+    // Entity attributes in constructor order
+    public static final List<String> ATTRIBUTES = List.of("id", "ledNumber", "state", "deviceMac", "createdAt");
+
+    public static LedEventView of(LedEvent event) {
+        return new LedEventView(event.getId(), event.getLedNumber(), event.getState(), event.getDeviceMac(),
+                event.getCreatedAt());
+    }
+
+    @JsonProperty("stateOn")
+    public Boolean stateOn() {
+        return "ON".equals(state);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.iot_backend.dto;
+
+import com.example.iot_backend.model.SensorData;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only sensor reading for the list, search, recent and export endpoints; serializes to the
+ * same JSON as {@link SensorData}.
+ *
+ * Loaded with a constructor projection ({@code repository.ProjectionQuery}), so no entity,
+ * dirty-checking snapshot or persistence-context entry is created per row.
+ */
+public record SensorDataView(Long id, Double temperature, Double humidity, Integer lightLevel,
+                             LocalDateTime createdAt, Integer uptime) {
+
+    // Entity attributes in constructor order
+    public static final List<String> ATTRIBUTES =
+            List.of("id", "temperature", "humidity", "lightLevel", "createdAt", "uptime");
+
+    public static SensorDataView of(SensorData data) {
+        return new SensorDataView(data.getId(), data.getTemperature(), data.getHumidity(), data.getLightLevel(),
+                data.getCreatedAt(), data.getUptime());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.iot_backend.export;
+
+import java.util.Locale;
+
+/**
+ * Output formats of the streaming export endpoints.
+ */
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"), // một object JSON mỗi dòng
+    CSV("text/csv", "csv"),
+    JSON("application/json", "json");         // một mảng JSON, như các endpoint trả về List trước đây
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @throws IllegalArgumentException for anything but ndjson, csv or json (any case)
+     */
+    public static ExportFormat parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Unsupported export format: " + value + " (ndjson, csv, json)");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.iot_backend.export;
+
+import com.example.iot_backend.query.NumericFilter;
+import com.example.iot_backend.query.SecondOfDayRange;
+import com.example.iot_backend.query.TimeFilter;
+import com.example.iot_backend.query.TimeRange;
+import com.example.iot_backend.query.TimeRangeResolver;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filters of one export as a plain SQL {@code WHERE} clause with bound arguments.
+ *
+ * The predicates are the same bare-column ranges as {@code TimeRangeSpecification} and
+ * {@code SensorDataSpecification.withValue}, so they use the same indexes; only the row source
+ * differs (a forward-only JDBC cursor instead of Hibernate).
+ */
+public final class ExportQuery {
+
+    private final String table;
+    private final List<String> conditions = new ArrayList<>();
+    private final List<Object> args = new ArrayList<>();
+
+    private ExportQuery(String table) {
+        this.table = table;
+    }
+
+    public static ExportQuery from(String table) {
+        return new ExportQuery(table);
+    }
+
+    /**
+     * {@code created_at} in any of {@code ranges}; no ranges matches nothing.
+     */
+    public ExportQuery createdWithin(List<TimeRange> ranges) {
+        List<String> alternatives = new ArrayList<>();
+        for (TimeRange range : ranges) {
+            alternatives.add("(created_at >= ? AND created_at < ?)");
+            args.add(Timestamp.valueOf(range.start()));
+            args.add(Timestamp.valueOf(range.end()));
+        }
+        return anyOf(alternatives);
+    }
+
+    public ExportQuery createdFrom(LocalDateTime start) {
+        conditions.add("created_at >= ?");
+        args.add(Timestamp.valueOf(start));
+        return this;
+    }
+
+    public ExportQuery createdBefore(LocalDateTime end) {
+        conditions.add("created_at < ?");
+        args.add(Timestamp.valueOf(end));
+        return this;
+    }
+
+    /**
+     * {@code second_of_day} in any of {@code ranges}, on any day.
+     */
+    public ExportQuery secondOfDayWithin(List<SecondOfDayRange> ranges) {
+        List<String> alternatives = new ArrayList<>();
+        for (SecondOfDayRange range : ranges) {
+            alternatives.add("(second_of_day >= ? AND second_of_day < ?)");
+            args.add(range.start());
+            args.add(range.end());
+        }
+        return anyOf(alternatives);
+    }
+
+    /**
+     * {@code column} within the filter's bounds; {@code wholeNumbers} for integer columns.
+     */
+    public ExportQuery value(String column, NumericFilter filter, boolean wholeNumbers) {
+        List<String> bounds = new ArrayList<>();
+        if (!valueBounds(column, filter, wholeNumbers, bounds)) {
+            return matchNothing();
+        }
+        conditions.addAll(bounds);
+        return this;
+    }
+
+    /**
+     * Any of {@code columns} within the filter's bounds (OR); {@code wholeNumberColumns} are the
+     * integer ones.
+     */
+    public ExportQuery anyValue(List<String> columns, Set<String> wholeNumberColumns, NumericFilter filter) {
+        List<String> alternatives = new ArrayList<>();
+        for (String column : columns) {
+            List<String> bounds = new ArrayList<>();
+            if (valueBounds(column, filter, wholeNumberColumns.contains(column), bounds)) {
+                alternatives.add("(" + String.join(" AND ", bounds) + ")");
+            }
+        }
+        return anyOf(alternatives);
+    }
+
+    /**
+     * Date filter as a {@code created_at} range, HH:mm / HH:mm:ss as {@code second_of_day} windows.
+     */
+    public ExportQuery within(TimeFilter filter, TimeRangeResolver resolver) {
+        return filter.isTimeOfDay()
+                ? secondOfDayWithin(resolver.secondsOfDay(filter))
+                : createdWithin(List.of(resolver.resolve(filter)));
+    }
+
+    public ExportQuery matchNothing() {
+        conditions.add("1 = 0");
+        return this;
+    }
+
+    public ExportQuery equal(String column, Object value) {
+        conditions.add(column + " = ?");
+        args.add(value);
+        return this;
+    }
+
+    /**
+     * Newest first, like the paginated endpoints ({@code created_at DESC, id DESC}).
+     */
+    public String toSql(String columns) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.append(" ORDER BY created_at DESC, id DESC").toString();
+    }
+
+    public Object[] getArgs() {
+        return args.toArray();
+    }
+
+    // false = không giá trị nào của cột khớp (vd 23.5 trên cột số nguyên)
+    private boolean valueBounds(String column, NumericFilter filter, boolean wholeNumbers, List<String> bounds) {
+        if (wholeNumbers) {
+            if (!filter.containsWholeNumber()) {
+                return false;
+            }
+            bound(bounds, column, ">=", filter.getWholeLower());
+            bound(bounds, column, "<=", filter.getWholeUpper());
+        } else {
+            bound(bounds, column, filter.isLowerInclusive() ? ">=" : ">",
+                    filter.getLower() == null ? null : filter.getLower().doubleValue());
+            bound(bounds, column, filter.isUpperInclusive() ? "<=" : "<",
+                    filter.getUpper() == null ? null : filter.getUpper().doubleValue());
+        }
+        return true;
+    }
+
+    private void bound(List<String> bounds, String column, String operator, Object value) {
+        if (value != null) {
+            bounds.add(column + " " + operator + " ?");
+            args.add(value);
+        }
+    }
+
+    private ExportQuery anyOf(List<String> alternatives) {
+        if (alternatives.isEmpty()) {
+            return matchNothing();
+        }
+        conditions.add("(" + String.join(" OR ", alternatives) + ")");
+        return this;
+    }
+}
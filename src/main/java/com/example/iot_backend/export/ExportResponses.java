@@ -0,0 +1,53 @@
+package com.example.iot_backend.export;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Builds the {@link StreamingResponseBody} responses of the export endpoints.
+ */
+public final class ExportResponses {
+
+    /**
+     * Writes the rows of one export.
+     */
+    public interface ExportBody {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private ExportResponses() {
+    }
+
+    /**
+     * @param gzip     compress on the fly ({@code Content-Encoding: gzip})
+     * @param fileName download name without extension, or null to return the body inline
+     */
+    public static ResponseEntity<StreamingResponseBody> stream(ExportFormat format, boolean gzip, String fileName,
+                                                               ExportBody body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.parseMediaType(format.getContentType()), StandardCharsets.UTF_8));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if (fileName != null) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION,
+                    "attachment; filename=\"" + fileName + "." + format.getExtension() + "\"");
+        }
+        return response.body(out -> {
+            if (!gzip) {
+                body.writeTo(out);
+                return;
+            }
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            body.writeTo(compressed);
+            compressed.finish();
+        });
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.iot_backend.export;
+
+import com.example.iot_backend.dto.LedEventView;
+import com.example.iot_backend.dto.SensorDataView;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Streams sensor readings and LED events from a forward-only JDBC cursor straight into an
+ * {@link OutputStream} as NDJSON, CSV or a JSON array.
+ *
+ * Only the row being written is in memory: with the default fetch size {@code Integer.MIN_VALUE}
+ * MySQL Connector/J streams the result row by row instead of buffering it (the connection stays
+ * busy until the export ends). A positive {@code export.fetch-size} uses that many rows per round
+ * trip instead, which needs {@code useCursorFetch=true} on the JDBC URL. JSON rows are written by
+ * Spring's {@link ObjectMapper} from the same view records the list endpoints return, so they
+ * look exactly like the rows of those endpoints.
+ */
+@Component
+public class StreamingExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingExporter.class);
+
+    private static final String SENSOR_COLUMNS = "id, temperature, humidity, light_level, uptime, created_at";
+    private static final String LED_COLUMNS = "id, led_number, state_on, device_mac, created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final int fetchSize;
+
+    public StreamingExporter(JdbcTemplate jdbcTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${export.fetch-size:-2147483648}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        // Không flush sau mỗi dòng: để buffer của generator/response gom lại
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long exportSensorData(ExportQuery query, ExportFormat format, OutputStream out) throws IOException {
+        return exportSensorData(sink -> stream(query.toSql(SENSOR_COLUMNS), query.getArgs(), rs -> new SensorDataView(
+                rs.getLong("id"),
+                nullableDouble(rs, "temperature"),
+                nullableDouble(rs, "humidity"),
+                nullableInt(rs, "light_level"),
+                localDateTime(rs, "created_at"),
+                nullableInt(rs, "uptime")), sink), format, out);
+    }
+
+    /**
+     * Readings from a source other than MySQL (the columnar sensor store), same output.
+     *
+     * @return number of rows written
+     */
+    public long exportSensorData(RowSource<SensorDataView> rows, ExportFormat format, OutputStream out) throws IOException {
+        return export(rows, format, out, "id,temperature,humidity,light_level,uptime,created_at",
+                (data, csv) -> {
+                    csv.write(String.valueOf(data.id()));
+                    csvField(csv, data.temperature());
+                    csvField(csv, data.humidity());
+                    csvField(csv, data.lightLevel());
+                    csvField(csv, data.uptime());
+                    csvField(csv, data.createdAt());
+                });
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long exportLedEvents(ExportQuery query, ExportFormat format, OutputStream out) throws IOException {
+        RowSource<LedEventView> rows = sink -> stream(query.toSql(LED_COLUMNS), query.getArgs(), rs -> new LedEventView(
+                rs.getLong("id"),
+                nullableInt(rs, "led_number"),
+                rs.getString("state_on"),
+                rs.getString("device_mac"),
+                localDateTime(rs, "created_at")), sink);
+        return export(rows, format, out, "id,led_number,state,device_mac,created_at",
+                (event, csv) -> {
+                    csv.write(String.valueOf(event.id()));
+                    csvField(csv, event.ledNumber());
+                    csvField(csv, event.state());
+                    csvField(csv, event.deviceMac());
+                    csvField(csv, event.createdAt());
+                });
+    }
+
+    // =================== STREAMING ===================
+
+    /**
+     * Receives the exported rows one at a time.
+     */
+    public interface RowSink<T> {
+        void accept(T row) throws IOException;
+    }
+
+    /**
+     * Pushes every row of one export into the sink, in output order.
+     */
+    public interface RowSource<T> {
+        /**
+         * @return number of rows pushed
+         */
+        long forEach(RowSink<T> sink) throws IOException;
+    }
+
+    private interface RowReader<T> {
+        T read(ResultSet rs) throws SQLException;
+    }
+
+    private interface CsvLine<T> {
+        void write(T row, Writer csv) throws IOException;
+    }
+
+    private <T> long export(RowSource<T> source, ExportFormat format, OutputStream out, String csvHeader,
+                            CsvLine<T> csvLine) throws IOException {
+        long started = System.nanoTime();
+        long rows;
+        if (format == ExportFormat.CSV) {
+            Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            csv.write(csvHeader);
+            csv.write('\n');
+            rows = source.forEach(row -> {
+                csvLine.write(row, csv);
+                csv.write('\n');
+            });
+            csv.flush();
+        } else {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            // NDJSON: mỗi object một dòng, không có mảng bao ngoài
+            json.setRootValueSeparator(null);
+            if (format == ExportFormat.JSON) {
+                json.writeStartArray();
+            }
+            rows = source.forEach(row -> {
+                rowWriter.writeValue(json, row);
+                if (format == ExportFormat.NDJSON) {
+                    json.writeRaw('\n');
+                }
+            });
+            if (format == ExportFormat.JSON) {
+                json.writeEndArray();
+            }
+            json.flush();
+        }
+        logger.info("📤 Exported {} rows as {} in {} ms", rows, format,
+                (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+
+    private <T> long stream(String sql, Object[] args, RowReader<T> reader, RowSink<T> sink) {
+        Long rows = jdbcTemplate.execute(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, (PreparedStatement ps) -> {
+            long count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sink.accept(reader.read(rs));
+                    count++;
+                }
+            } catch (IOException e) {
+                // Client ngắt kết nối giữa chừng: dừng query, đóng cursor
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    private static void csvField(Writer csv, Object value) throws IOException {
+        csv.write(',');
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            csv.write(text);
+        } else {
+            csv.write('"' + text.replace("\"", "\"\"") + '"');
+        }
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Integer nullableInt(ResultSet rs, String column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static LocalDateTime localDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value == null ? null : value.toLocalDateTime();
+    }
+}
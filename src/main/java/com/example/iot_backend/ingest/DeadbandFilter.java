@@ -0,0 +1,179 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deadband (change-based) compression for stored sensor readings.
+ *
+ * A reading is stored only when a metric has moved by more than its threshold since the last
+ * <em>stored</em> reading of that device (so a slow drift is still caught), or when
+ * {@code max-silence} has passed since then. The latter produces a heartbeat row that keeps
+ * charts continuous while the values are flat. Live WebSocket pushes are not filtered.
+ *
+ * State is kept per physical device, keyed by the MAC of {@code home/devices/{mac}/sensors}.
+ * Readings on the shared legacy {@code home/sensors} topic have no device, cannot be compared
+ * with anything and are always stored.
+ *
+ * Per-device thresholds override the defaults, keyed by MAC:
+ * <pre>
+ * ingest.deadband.devices.[a4:cf:12:0b:9e:01].temperature: 0.5
+ * </pre>
+ */
+@Component
+public class DeadbandFilter {
+
+    private final boolean enabled;
+    private final Thresholds defaults;
+    private final Map<String, Thresholds> overrides;
+
+    private final Map<String, DeviceState> lastStored = new ConcurrentHashMap<>();
+
+    private final Counter stored;
+    private final Counter heartbeats;
+    private final Counter suppressed;
+    private final Counter unidentified;
+
+    public DeadbandFilter(MeterRegistry meterRegistry,
+                          Environment environment,
+                          @Value("${ingest.deadband.enabled:true}") boolean enabled,
+                          @Value("${ingest.deadband.temperature:0.2}") double temperature,
+                          @Value("${ingest.deadband.humidity:0.5}") double humidity,
+                          @Value("${ingest.deadband.light-level:2}") int lightLevel,
+                          @Value("${ingest.deadband.max-silence:5m}") Duration maxSilence) {
+        this.enabled = enabled;
+        this.defaults = new Thresholds(temperature, humidity, lightLevel, maxSilence);
+        this.overrides = Binder.get(environment)
+                .bind("ingest.deadband.devices", Bindable.mapOf(String.class, Thresholds.class))
+                .orElse(Collections.emptyMap());
+
+        this.stored = meterRegistry.counter("iot.ingest.deadband", "result", "stored");
+        this.heartbeats = meterRegistry.counter("iot.ingest.deadband", "result", "heartbeat");
+        this.suppressed = meterRegistry.counter("iot.ingest.deadband", "result", "suppressed");
+        this.unidentified = meterRegistry.counter("iot.ingest.deadband", "result", "no-device");
+        Gauge.builder("iot.ingest.deadband.devices", lastStored, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * @param deviceKey MAC of the device, null when the topic does not identify it
+     * @return true if {@code data} should be persisted, false if it is within the deadband
+     */
+    public boolean shouldStore(String deviceKey, SensorData data) {
+        if (!enabled) {
+            return true;
+        }
+        if (deviceKey == null) {
+            unidentified.increment();
+            return true;
+        }
+        Thresholds thresholds = thresholdsFor(deviceKey);
+        DeviceState state = lastStored.computeIfAbsent(deviceKey, k -> new DeviceState());
+
+        // Readings of one device arrive on one partition thread; the lock only guards against misrouting
+        synchronized (state) {
+            Decision decision = state.decide(data, thresholds);
+            switch (decision) {
+                case CHANGED -> stored.increment();
+                case HEARTBEAT -> heartbeats.increment();
+                case SUPPRESSED -> {
+                    suppressed.increment();
+                    state.suppressed.increment();
+                    return false;
+                }
+            }
+            state.remember(data);
+            return true;
+        }
+    }
+
+    Thresholds thresholdsFor(String deviceKey) {
+        Thresholds override = overrides.get(deviceKey);
+        return override == null ? defaults : override.orDefaults(defaults);
+    }
+
+    /**
+     * Suppressed readings per device, for the ingest actuator endpoint.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Long> perDevice = new LinkedHashMap<>();
+        lastStored.forEach((device, state) -> perDevice.put(device, state.suppressed.sum()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("defaults", defaults);
+        stats.put("stored", (long) stored.count());
+        stats.put("heartbeats", (long) heartbeats.count());
+        stats.put("suppressed", (long) suppressed.count());
+        stats.put("storedWithoutDevice", (long) unidentified.count());
+        stats.put("suppressedByDevice", perDevice);
+        return stats;
+    }
+
+    private enum Decision {
+        CHANGED, HEARTBEAT, SUPPRESSED
+    }
+
+    /**
+     * Deadband per metric; null fields in a per-device override fall back to the defaults.
+     */
+    public record Thresholds(Double temperature, Double humidity, Integer lightLevel, Duration maxSilence) {
+
+        Thresholds orDefaults(Thresholds defaults) {
+            return new Thresholds(
+                    temperature != null ? temperature : defaults.temperature,
+                    humidity != null ? humidity : defaults.humidity,
+                    lightLevel != null ? lightLevel : defaults.lightLevel,
+                    maxSilence != null ? maxSilence : defaults.maxSilence);
+        }
+    }
+
+    private static final class DeviceState {
+
+        private boolean initialized;
+        private double temperature;
+        private double humidity;
+        private int lightLevel;
+        private LocalDateTime storedAt;
+        private final LongAdder suppressed = new LongAdder();
+
+        Decision decide(SensorData data, Thresholds t) {
+            if (!initialized
+                    || exceeds(data.getTemperature(), temperature, t.temperature())
+                    || exceeds(data.getHumidity(), humidity, t.humidity())
+                    || (data.getLightLevel() != null && Math.abs(data.getLightLevel() - lightLevel) > t.lightLevel())) {
+                return Decision.CHANGED;
+            }
+            if (!data.getCreatedAt().isBefore(storedAt.plus(t.maxSilence()))) {
+                return Decision.HEARTBEAT;
+            }
+            return Decision.SUPPRESSED;
+        }
+
+        void remember(SensorData data) {
+            initialized = true;
+            temperature = data.getTemperature() != null ? data.getTemperature() : temperature;
+            humidity = data.getHumidity() != null ? data.getHumidity() : humidity;
+            lightLevel = data.getLightLevel() != null ? data.getLightLevel() : lightLevel;
+            storedAt = data.getCreatedAt();
+        }
+
+        private static boolean exceeds(Double value, double last, double threshold) {
+            return value != null && Math.abs(value - last) > threshold;
+        }
+    }
+}
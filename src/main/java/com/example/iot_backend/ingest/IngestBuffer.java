@@ -0,0 +1,255 @@
+package com.example.iot_backend.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded buffer between MQTT ingest and the {@link SensorBatchWriter} with an overload policy.
+ *
+ * Below the high watermark readings are queued FIFO. Once the buffer reaches the high watermark
+ * it starts shedding according to its {@link OverloadPolicy} and keeps doing so until the writer
+ * has drained it back down to the low watermark (hysteresis, so it does not flap on every reading).
+ *
+ * With {@link OverloadPolicy#COALESCE_LATEST} readings that arrive while shedding are kept in a
+ * per-device map holding only the newest one; when the buffer recovers they are appended to the
+ * queue in arrival order, so per-device ordering is preserved. Readings without a device key
+ * (shared legacy topic) cannot be coalesced: they are queued and, above capacity, the oldest
+ * queued reading is dropped.
+ */
+public class IngestBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestBuffer.class);
+
+    private final OverloadPolicy policy;
+    private final int capacity;
+    private final int highWatermark;
+    private final int lowWatermark;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition recovered = lock.newCondition();
+
+    private final ArrayDeque<PendingReading> queue;
+    private final Map<String, PendingReading> latestByDevice = new LinkedHashMap<>();
+    private boolean shedding = false;
+
+    // Told about every reading the policy throws away (dropped or replaced by a newer one)
+    private final Consumer<PendingReading> discarded;
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder sheddingEpisodes = new LongAdder();
+
+    public IngestBuffer(OverloadPolicy policy, int capacity, double highWatermarkRatio, double lowWatermarkRatio) {
+        this(policy, capacity, highWatermarkRatio, lowWatermarkRatio, reading -> {
+        });
+    }
+
+    public IngestBuffer(OverloadPolicy policy, int capacity, double highWatermarkRatio, double lowWatermarkRatio,
+                        Consumer<PendingReading> discarded) {
+        if (lowWatermarkRatio >= highWatermarkRatio || highWatermarkRatio > 1.0 || lowWatermarkRatio < 0) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high <= 1");
+        }
+        this.policy = policy;
+        this.discarded = discarded;
+        this.capacity = Math.max(1, capacity);
+        this.highWatermark = Math.max(1, (int) (this.capacity * highWatermarkRatio));
+        this.lowWatermark = Math.min(this.highWatermark - 1, (int) (this.capacity * lowWatermarkRatio));
+        this.queue = new ArrayDeque<>(Math.min(this.capacity, 4096));
+    }
+
+    /**
+     * Add a reading for {@code deviceKey} (null when the device is unknown). Only blocks with
+     * {@link OverloadPolicy#BLOCK}.
+     */
+    public void offer(String deviceKey, PendingReading data) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            if (!shedding && size() >= highWatermark) {
+                startShedding();
+            }
+
+            if (!shedding) {
+                queue.addLast(data);
+                notEmpty.signal();
+                return;
+            }
+
+            switch (policy) {
+                case BLOCK -> {
+                    while (shedding) {
+                        recovered.await();
+                    }
+                    queue.addLast(data);
+                }
+                case DROP_OLDEST -> {
+                    while (size() >= highWatermark) {
+                        dropOldest();
+                    }
+                    queue.addLast(data);
+                }
+                case COALESCE_LATEST -> {
+                    PendingReading previous = null;
+                    if (deviceKey == null) {
+                        queue.addLast(data); // no device identity, nothing to coalesce with
+                    } else {
+                        previous = latestByDevice.remove(deviceKey);
+                        latestByDevice.put(deviceKey, data); // re-insert so map order follows arrival
+                    }
+                    if (previous != null) {
+                        coalesced.increment();
+                        discarded.accept(previous);
+                    } else if (size() > capacity) {
+                        dropOldest();
+                    }
+                }
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait up to {@code timeout} for a reading.
+     *
+     * @return the oldest pending reading, or null on timeout
+     */
+    public PendingReading poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (size() == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            PendingReading next = takeOldest();
+            afterRemoval();
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move up to {@code max} pending readings into {@code out} without waiting.
+     */
+    public int drainTo(Collection<PendingReading> out, int max) {
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < max && size() > 0) {
+                out.add(takeOldest());
+                n++;
+            }
+            if (n > 0) {
+                afterRemoval();
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size() + latestByDevice.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // =================== STATE ===================
+
+    public OverloadPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+
+    public boolean isShedding() {
+        lock.lock();
+        try {
+            return shedding;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getSheddingEpisodes() {
+        return sheddingEpisodes.sum();
+    }
+
+    // =================== INTERNALS (lock held) ===================
+
+    private PendingReading takeOldest() {
+        PendingReading next = queue.pollFirst();
+        if (next != null) {
+            return next;
+        }
+        Iterator<PendingReading> it = latestByDevice.values().iterator();
+        next = it.next();
+        it.remove();
+        return next;
+    }
+
+    private void dropOldest() {
+        discarded.accept(takeOldest());
+        dropped.increment();
+    }
+
+    private void startShedding() {
+        shedding = true;
+        sheddingEpisodes.increment();
+        logger.warn("⚠️ Sensor ingest buffer reached high watermark ({}/{}), applying {}",
+                size(), capacity, policy);
+    }
+
+    private void afterRemoval() {
+        if (shedding && size() <= lowWatermark) {
+            shedding = false;
+            // Coalesced readings are newer than anything still queued
+            queue.addAll(latestByDevice.values());
+            latestByDevice.clear();
+            recovered.signalAll();
+            logger.info("✅ Sensor ingest buffer back under low watermark ({}/{}), dropped={}, coalesced={}",
+                    size(), capacity, dropped.sum(), coalesced.sum());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.ingest.spool.IngestSpool;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint ({@code /actuator/ingest}) reporting the state of the MQTT ingest path:
+ * overload policy, buffer depth against its watermarks, shed counters, spool backlog, redelivery dedup,
+ * deadband suppression and partition lag.
+ */
+@Component
+@Endpoint(id = "ingest")
+public class IngestEndpoint {
+
+    private final SensorBatchWriter sensorBatchWriter;
+    private final PartitionedInboundDispatcher inboundDispatcher;
+    private final RedeliveryDeduplicator deduplicator;
+    private final DeadbandFilter deadbandFilter;
+    private final SensorRollupBackfill rollupBackfill;
+
+    public IngestEndpoint(SensorBatchWriter sensorBatchWriter,
+                          PartitionedInboundDispatcher inboundDispatcher,
+                          RedeliveryDeduplicator deduplicator,
+                          DeadbandFilter deadbandFilter,
+                          SensorRollupBackfill rollupBackfill) {
+        this.sensorBatchWriter = sensorBatchWriter;
+        this.inboundDispatcher = inboundDispatcher;
+        this.deduplicator = deduplicator;
+        this.deadbandFilter = deadbandFilter;
+        this.rollupBackfill = rollupBackfill;
+    }
+
+    @ReadOperation
+    public Map<String, Object> ingest() {
+        IngestBuffer buffer = sensorBatchWriter.getBuffer();
+
+        Map<String, Object> overload = new LinkedHashMap<>();
+        overload.put("policy", buffer.getPolicy());
+        overload.put("shedding", buffer.isShedding());
+        overload.put("depth", buffer.size());
+        overload.put("capacity", buffer.getCapacity());
+        overload.put("highWatermark", buffer.getHighWatermark());
+        overload.put("lowWatermark", buffer.getLowWatermark());
+        overload.put("dropped", buffer.getDroppedCount());
+        overload.put("coalesced", buffer.getCoalescedCount());
+        overload.put("sheddingEpisodes", buffer.getSheddingEpisodes());
+
+        Map<String, Object> writer = new LinkedHashMap<>();
+        writer.put("running", sensorBatchWriter.isRunning());
+        writer.put("targetBatchSize", sensorBatchWriter.getTargetBatchSize());
+        writer.put("failedRows", sensorBatchWriter.getFailedRows());
+        writer.put("replaying", sensorBatchWriter.isReplaying());
+        writer.put("pendingBackfillDays", rollupBackfill.getPendingDays());
+
+        IngestSpool spool = sensorBatchWriter.getSpool();
+        Map<String, Object> spoolState = new LinkedHashMap<>();
+        spoolState.put("enabled", spool.isEnabled());
+        spoolState.put("directory", spool.getDirectory().toAbsolutePath().toString());
+        spoolState.put("segments", spool.getSegmentCount());
+        spoolState.put("checkpoint", spool.getCheckpoint());
+        spoolState.put("endPosition", spool.getEndPosition());
+        spoolState.put("backlogBytes", spool.getEndPosition() - spool.getCheckpoint());
+        spoolState.put("corruptRecords", sensorBatchWriter.getCorruptSpoolRecords());
+
+        List<Map<String, Object>> partitions = new ArrayList<>();
+        for (int i = 0; i < inboundDispatcher.getPartitionCount(); i++) {
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("partition", i);
+            partition.put("depth", inboundDispatcher.getQueueDepth(i));
+            partition.put("lagMs", inboundDispatcher.getLagMillis(i));
+            partitions.add(partition);
+        }
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("overload", overload);
+        state.put("writer", writer);
+        state.put("spool", spoolState);
+        state.put("dedup", deduplicator.stats());
+        state.put("deadband", deadbandFilter.stats());
+        state.put("partitions", partitions);
+        return state;
+    }
+}
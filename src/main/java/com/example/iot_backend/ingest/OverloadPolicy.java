@@ -0,0 +1,24 @@
+package com.example.iot_backend.ingest;
+
+/**
+ * What the sensor ingest buffer does once it crosses its high watermark
+ * (typically because the database has slowed down or is unavailable).
+ */
+public enum OverloadPolicy {
+
+    /**
+     * Block the producer until the buffer drains back to the low watermark.
+     * Nothing is lost, but MQTT partitions (and eventually the broker) back up.
+     */
+    BLOCK,
+
+    /**
+     * Keep accepting readings and discard the oldest queued ones.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Keep only the newest pending reading per device until the buffer recovers.
+     */
+    COALESCE_LATEST
+}
@@ -0,0 +1,228 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.service.MqttService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partitioned executor stage between the MQTT inbound adapter and {@link MqttService#handleInbound}.
+ *
+ * Each inbound message is hashed on its device key and handed to one of N single-threaded
+ * partitions with a bounded queue. Messages of one device always land on the same partition,
+ * so they are handled in arrival order, while different devices are processed in parallel.
+ *
+ * Device key: the MAC segment of {@code home/devices/{mac}/...}, otherwise the whole topic
+ * (e.g. {@code home/sensors}, {@code home/lamps/1}).
+ */
+public class PartitionedInboundDispatcher implements MessageHandler, SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedInboundDispatcher.class);
+
+    private static final String DEVICE_TOPIC_PREFIX = "home/devices/";
+
+    // Stop after the inbound adapters (phase 0) but before the sensor batch writer
+    private static final int PHASE = Integer.MIN_VALUE + 2000;
+
+    private final MqttService mqttService;
+    private final Partition[] partitions;
+    private final long drainTimeoutMs;
+
+    private volatile boolean running = false;
+
+    public PartitionedInboundDispatcher(MqttService mqttService,
+                                        MeterRegistry meterRegistry,
+                                        int partitionCount,
+                                        int queueCapacity,
+                                        long drainTimeoutMs) {
+        this.mqttService = mqttService;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.partitions = new Partition[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = new Partition(i, queueCapacity, meterRegistry);
+        }
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        String topic = (String) message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
+        Partition partition = partitions[partitionFor(topic, partitions.length)];
+
+        if (!running) {
+            // Late message during shutdown: handle inline rather than losing it
+            partition.process(message);
+            return;
+        }
+
+        try {
+            // Blocks the Paho callback thread when the partition is full (backpressure)
+            partition.queue.put(new Envelope(message, System.nanoTime()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException(message, "Interrupted while dispatching MQTT message", e);
+        }
+    }
+
+    /**
+     * Pick the partition for a topic without allocating: only the device segment is hashed.
+     */
+    static int partitionFor(String topic, int partitionCount) {
+        if (topic == null) {
+            return 0;
+        }
+
+        int start = 0;
+        int end = topic.length();
+        if (topic.startsWith(DEVICE_TOPIC_PREFIX)) {
+            start = DEVICE_TOPIC_PREFIX.length();
+            int slash = topic.indexOf('/', start);
+            if (slash > 0) {
+                end = slash;
+            }
+        }
+
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + topic.charAt(i);
+        }
+        h ^= (h >>> 16);
+        return Math.floorMod(h, partitionCount);
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    public int getQueueDepth(int partition) {
+        return partitions[partition].queue.size();
+    }
+
+    /**
+     * How long the oldest queued message of a partition has been waiting, in milliseconds.
+     */
+    public long getLagMillis(int partition) {
+        return partitions[partition].lagMillis();
+    }
+
+    // =================== LIFECYCLE ===================
+
+    @Override
+    public void start() {
+        running = true;
+        for (Partition partition : partitions) {
+            partition.start();
+        }
+        logger.info("🚀 MQTT inbound dispatcher started with {} partitions", partitions.length);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + drainTimeoutMs;
+        for (Partition partition : partitions) {
+            partition.awaitDrained(deadline);
+        }
+        logger.info("🛑 MQTT inbound dispatcher stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // =================== PARTITION ===================
+
+    private record Envelope(Message<?> message, long enqueuedAt) {
+    }
+
+    private final class Partition implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<Envelope> queue;
+        private final Counter processed;
+        private final Counter failed;
+        private Thread thread;
+
+        Partition(int index, int queueCapacity, MeterRegistry meterRegistry) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+            String tag = String.valueOf(index);
+            Gauge.builder("iot.mqtt.partition.depth", queue, BlockingQueue::size)
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            Gauge.builder("iot.mqtt.partition.lag", this, Partition::lagMillis)
+                    .tag("partition", tag)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            this.processed = meterRegistry.counter("iot.mqtt.partition.processed", "partition", tag);
+            this.failed = meterRegistry.counter("iot.mqtt.partition.failed", "partition", tag);
+        }
+
+        void start() {
+            thread = new Thread(this, "mqtt-partition-" + index);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Envelope envelope = queue.poll(200, TimeUnit.MILLISECONDS);
+                    if (envelope != null) {
+                        process(envelope.message());
+                    }
+                } catch (InterruptedException e) {
+                    logger.warn("⚠️ MQTT partition {} interrupted, {} messages not handled", index, queue.size());
+                    return;
+                }
+            }
+        }
+
+        void process(Message<?> message) {
+            try {
+                mqttService.handleInbound(message);
+                processed.increment();
+            } catch (Exception e) {
+                // Already logged by MqttService; keep the partition alive
+                failed.increment();
+            }
+        }
+
+        long lagMillis() {
+            Envelope head = queue.peek();
+            return head == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - head.enqueuedAt());
+        }
+
+        void awaitDrained(long deadline) {
+            if (thread == null) {
+                return;
+            }
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (thread.isAlive()) {
+                logger.warn("⚠️ MQTT partition {} did not drain in time, {} messages left", index, queue.size());
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.model.SensorData;
+
+/**
+ * A reading waiting in the {@link IngestBuffer}, with the spool positions around its record.
+ *
+ * @param spoolStart    spool end position before its record was appended (checkpointing there keeps
+ *                      it unpersisted), or {@link #NOT_SPOOLED}
+ * @param spoolPosition position right after its spool record, or {@link #NOT_SPOOLED}
+ */
+record PendingReading(SensorData data, long spoolStart, long spoolPosition) {
+
+    static final long NOT_SPOOLED = -1L;
+
+    PendingReading(SensorData data) {
+        this(data, NOT_SPOOLED, NOT_SPOOLED);
+    }
+
+    boolean isSpooled() {
+        return spoolPosition != NOT_SPOOLED;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.iot_backend.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Idempotency check for QoS 1 redeliveries on the ingest path.
+ *
+ * The broker may deliver the same PUBLISH again after a reconnect. Each sensor reading is reduced
+ * to a key of (device MAC, reported uptime, payload hash) and checked against a bounded,
+ * time-expiring concurrent cache before any database or WebSocket work is done. Readings on the
+ * shared legacy topic have no device, so for them the key is only (uptime, payload hash): two
+ * devices would have to send byte-identical payloads at the same uptime to collide.
+ *
+ * All reading entries share one TTL, so insertion order is also expiry order and a FIFO queue is
+ * enough to evict expired (or, above {@code max-entries}, the oldest) keys.
+ *
+ * LED state reports carry nothing unique, so a repeated state only counts as a redelivery within
+ * the short {@code led-window} after the first copy; a genuine repeated report after that is kept.
+ */
+@Component
+public class RedeliveryDeduplicator {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<DedupKey, Long> expiries = new ConcurrentHashMap<>();
+    private final Queue<DedupKey> insertionOrder = new ConcurrentLinkedQueue<>();
+    // Last report per "mac/led"; bounded by the number of LEDs in the fleet, so never evicted
+    private final Map<String, LedReport> ledReports = new ConcurrentHashMap<>();
+    private final long ledWindowNanos;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public RedeliveryDeduplicator(MeterRegistry meterRegistry,
+                                  @Value("${ingest.dedup.enabled:true}") boolean enabled,
+                                  @Value("${ingest.dedup.ttl:5m}") Duration ttl,
+                                  @Value("${ingest.dedup.max-entries:100000}") int maxEntries,
+                                  @Value("${ingest.dedup.led-window:3s}") Duration ledWindow) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.ledWindowNanos = ledWindow.toNanos();
+        this.maxEntries = Math.max(1, maxEntries);
+
+        this.hits = meterRegistry.counter("iot.ingest.dedup", "result", "hit");
+        this.misses = meterRegistry.counter("iot.ingest.dedup", "result", "miss");
+        Gauge.builder("iot.ingest.dedup.size", this, d -> d.expiries.size() + d.ledReports.size()).register(meterRegistry);
+    }
+
+    /**
+     * Sensor reading: the device's uptime counter makes every genuine reading unique.
+     *
+     * @param device MAC of the publishing device, null for the shared legacy topic
+     * @return true if this is a redelivered copy that should be ignored
+     */
+    public boolean isDuplicateReading(String device, long uptime, byte[] payload) {
+        return isDuplicate(new DedupKey(device, uptime, hash(payload)));
+    }
+
+    /**
+     * LED state report: there is no uptime, so a report counts as a duplicate only while it repeats
+     * the last state of that LED within {@code led-window} of its first copy. A different state
+     * replaces the last one, so a genuine ON → OFF → ON sequence is never suppressed.
+     *
+     * @return true if this is a redelivered copy that should be ignored
+     */
+    public boolean isDuplicateLedState(String mac, int ledNumber, boolean state) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.nanoTime();
+        boolean[] duplicate = new boolean[1];
+        ledReports.compute(mac + "/" + ledNumber, (led, last) -> {
+            if (last != null && last.state == state && last.expiresAt - now > 0) {
+                duplicate[0] = true;
+                return last; // the window runs from the first copy
+            }
+            return new LedReport(state, now + ledWindowNanos);
+        });
+        (duplicate[0] ? hits : misses).increment();
+        return duplicate[0];
+    }
+
+    private boolean isDuplicate(DedupKey key) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.nanoTime();
+        long expiresAt = now + ttlNanos;
+
+        boolean[] fresh = new boolean[1];
+        expiries.compute(key, (k, existing) -> {
+            if (existing != null && existing - now > 0) {
+                return existing;
+            }
+            fresh[0] = true;
+            return expiresAt;
+        });
+
+        if (!fresh[0]) {
+            hits.increment();
+            return true;
+        }
+
+        misses.increment();
+        insertionOrder.add(key);
+        evict(now);
+        return false;
+    }
+
+    private void evict(long now) {
+        DedupKey head;
+        while ((head = insertionOrder.peek()) != null) {
+            Long expiresAt = expiries.get(head);
+            boolean expired = expiresAt == null || expiresAt - now <= 0;
+            if (!expired && expiries.size() <= maxEntries) {
+                return;
+            }
+            insertionOrder.poll();
+            if (expiresAt != null) {
+                expiries.remove(head, expiresAt);
+            }
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(enabled, (long) hits.count(), (long) misses.count(), expiries.size() + ledReports.size());
+    }
+
+    // FNV-1a, no allocation
+    private static int hash(byte[] payload) {
+        int h = 0x811c9dc5;
+        for (byte b : payload) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        return h;
+    }
+
+    private record DedupKey(String device, long uptime, int payloadHash) {
+    }
+
+    private record LedReport(boolean state, long expiresAt) {
+    }
+
+    public record Stats(boolean enabled, long hits, long misses, int size) {
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.ingest.codec.SensorCodecRegistry;
+import com.example.iot_backend.ingest.codec.SensorPayloadCodec;
+import com.example.iot_backend.ingest.codec.SensorReading;
+import com.example.iot_backend.ingest.routing.SensorTopics;
+import com.example.iot_backend.ingest.spool.CorruptSpoolRecordException;
+import com.example.iot_backend.ingest.spool.IngestSpool;
+import com.example.iot_backend.ingest.spool.SpoolRecord;
+import com.example.iot_backend.live.RecentRecords;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.store.SensorStore;
+import com.example.iot_backend.storage.RowCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous micro-batching writer for sensor readings.
+ *
+ * MQTT callback threads only {@link #submit(String, SensorData)} into a bounded {@link IngestBuffer};
+ * a single writer thread drains it in batches (bounded by size and age) and appends each batch
+ * to the {@link SensorStore} in one call (one multi-row insert and transaction for MySQL). When
+ * the store slows down or fails, the writer keeps retrying the batch in hand and the buffer's
+ * {@link OverloadPolicy} decides what happens to new readings.
+ *
+ * With the {@link IngestSpool} enabled every reading is written to the local spool first and the
+ * spool checkpoint follows the committed batches. Submitting threads can reach the buffer in a
+ * different order than their spool positions, so the checkpoint only advances to the contiguous
+ * low watermark: never past a reading that is still queued or on its way to the queue. When a batch cannot be written the writer
+ * switches to replay mode: new readings are only spooled, and the writer drains the spool into
+ * the database in {@code max-size} batches until it has caught up, then goes back to the
+ * in-memory path. The same replay runs at startup for anything left over from the last run.
+ * A spool record that fails its checksum is skipped and counted ({@code iot.ingest.spool.corrupt});
+ * other read failures back off like a failed insert.
+ *
+ * With the MySQL store each batch also updates the rollup tables through
+ * {@link SensorRollupUpdater} in the same transaction. Rollup back-fills run on their own
+ * thread ({@link SensorRollupBackfill}).
+ */
+@Component
+public class SensorBatchWriter implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorBatchWriter.class);
+
+    // Stop after the MQTT adapters and the web server so nothing is enqueued while we drain
+    private static final int PHASE = Integer.MIN_VALUE + 1000;
+
+    private final SensorStore sensorStore;
+    private final IngestBuffer queue;
+    private final IngestSpool spool;
+    private final SensorCodecRegistry codecRegistry;
+    private final RecentRecords recentRecords;
+    private final QueryResultCache queryCache;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long maxBatchAgeMs;
+    private final long drainTimeoutMs;
+    private final int maxRetries;
+
+    private volatile int targetBatchSize;
+    private volatile boolean running = false;
+    private Thread writerThread;
+
+    // Guards the switch between live and replay mode against concurrent submits
+    private final Object modeLock = new Object();
+    private volatile boolean replaying = false;
+    private int replayAttempt = 0;
+    // spoolStart of every spooled reading not yet written, replayed or discarded by the overload policy
+    private final ConcurrentSkipListSet<Long> unresolved = new ConcurrentSkipListSet<>();
+
+    private final Counter rowsWritten;
+    private final Counter batchesWritten;
+    private final Counter rowsFailed;
+    private final Counter rowsReplayed;
+    private final Counter recordsCorrupt;
+    private final Counter listenerFailures;
+    private final Timer flushTimer;
+
+    public SensorBatchWriter(SensorStore sensorStore,
+                             MeterRegistry meterRegistry,
+                             IngestSpool spool,
+                             SensorCodecRegistry codecRegistry,
+                             RecentRecords recentRecords,
+                             QueryResultCache queryCache,
+                             @Value("${ingest.batch.queue-capacity:10000}") int queueCapacity,
+                             @Value("${ingest.batch.min-size:50}") int minBatchSize,
+                             @Value("${ingest.batch.max-size:1000}") int maxBatchSize,
+                             @Value("${ingest.batch.max-age-ms:500}") long maxBatchAgeMs,
+                             @Value("${ingest.batch.drain-timeout-ms:10000}") long drainTimeoutMs,
+                             @Value("${ingest.batch.max-retries:-1}") int maxRetries,
+                             @Value("${ingest.overload.policy:BLOCK}") OverloadPolicy overloadPolicy,
+                             @Value("${ingest.overload.high-watermark:0.8}") double highWatermark,
+                             @Value("${ingest.overload.low-watermark:0.5}") double lowWatermark) {
+        this.sensorStore = sensorStore;
+        this.queue = new IngestBuffer(overloadPolicy, queueCapacity, highWatermark, lowWatermark, this::resolve);
+        this.spool = spool;
+        this.codecRegistry = codecRegistry;
+        this.recentRecords = recentRecords;
+        this.queryCache = queryCache;
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.maxBatchAgeMs = maxBatchAgeMs;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.maxRetries = maxRetries;
+        this.targetBatchSize = this.minBatchSize;
+
+        Gauge.builder("iot.ingest.queue.depth", queue, IngestBuffer::size)
+                .description("Sensor readings waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingest.queue.shedding", queue, b -> b.isShedding() ? 1 : 0)
+                .description("1 while the ingest buffer is above its high watermark")
+                .register(meterRegistry);
+        FunctionCounter.builder("iot.ingest.shed", queue, IngestBuffer::getDroppedCount)
+                .tag("reason", "dropped")
+                .register(meterRegistry);
+        FunctionCounter.builder("iot.ingest.shed", queue, IngestBuffer::getCoalescedCount)
+                .tag("reason", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingest.batch.target", this, w -> w.targetBatchSize)
+                .description("Current adaptive batch size")
+                .register(meterRegistry);
+        this.rowsWritten = meterRegistry.counter("iot.ingest.rows.written");
+        this.batchesWritten = meterRegistry.counter("iot.ingest.batches.written");
+        this.rowsFailed = meterRegistry.counter("iot.ingest.rows.failed");
+        this.rowsReplayed = meterRegistry.counter("iot.ingest.rows.replayed");
+        this.recordsCorrupt = meterRegistry.counter("iot.ingest.spool.corrupt");
+        this.listenerFailures = meterRegistry.counter("iot.ingest.notify.failed");
+        Gauge.builder("iot.ingest.spool.replaying", this, w -> w.replaying ? 1 : 0)
+                .description("1 while readings are persisted from the spool instead of memory")
+                .register(meterRegistry);
+        this.flushTimer = meterRegistry.timer("iot.ingest.flush");
+    }
+
+    /**
+     * Spool and queue a reading for persistence. What happens when the buffer is over its high
+     * watermark depends on the configured {@link OverloadPolicy}; in replay mode the reading is
+     * only spooled and reaches the database through the replay.
+     *
+     * @param deviceKey device the reading came from (coalescing key), null when the topic does not identify it
+     * @param topic     MQTT topic the reading came from, so the spool can decode it again
+     * @param payload   raw MQTT payload
+     */
+    public void submit(String deviceKey, SensorData sensorData, String topic, byte[] payload) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Sensor batch writer is not running");
+        }
+        if (!spool.isEnabled()) {
+            queue.offer(deviceKey, new PendingReading(sensorData));
+            return;
+        }
+
+        long start;
+        long position;
+        synchronized (modeLock) {
+            start = spool.getEndPosition();
+            position = spool.append(topic, payload, Timestamp.valueOf(sensorData.getCreatedAt()).getTime());
+            if (replaying) {
+                return;
+            }
+            // Registered with the append, so the checkpoint cannot pass it before it reaches the queue
+            unresolved.add(start);
+        }
+        // Outside the lock so a BLOCK policy cannot stall the mode switch. If this is interrupted the
+        // reading stays unresolved: the checkpoint stops before it and a restart replays it.
+        queue.offer(deviceKey, new PendingReading(sensorData, start, position));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public IngestBuffer getBuffer() {
+        return queue;
+    }
+
+    public long getFailedRows() {
+        return (long) rowsFailed.count();
+    }
+
+    public long getCorruptSpoolRecords() {
+        return (long) recordsCorrupt.count();
+    }
+
+    public int getTargetBatchSize() {
+        return targetBatchSize;
+    }
+
+    public boolean isReplaying() {
+        return replaying;
+    }
+
+    public IngestSpool getSpool() {
+        return spool;
+    }
+
+    // =================== WRITER LOOP ===================
+
+    private void runWriter() {
+        List<PendingReading> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || (!replaying && !queue.isEmpty())) {
+            try {
+                if (replaying) {
+                    replayStep();
+                    continue;
+                }
+                PendingReading first = queue.poll(maxBatchAgeMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Fill the batch until it reaches the target size or gets too old
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBatchAgeMs);
+                int target = targetBatchSize;
+                while (batch.size() < target) {
+                    if (queue.drainTo(batch, target - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        break;
+                    }
+                    PendingReading next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                // stop() only interrupts once the drain timeout has passed
+                logger.warn("⚠️ Sensor batch writer interrupted, {} readings not written", queue.size() + batch.size());
+                break;
+            } catch (Exception e) {
+                logger.error("❌ Unexpected error in sensor batch writer: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        logger.info("🛑 Sensor batch writer stopped");
+    }
+
+    private void flush(List<PendingReading> pending) throws InterruptedException {
+        // Readings queued around a replay may already have been written from the spool
+        // (the checkpoint is contiguous, so everything before it is in the database)
+        long checkpoint = spool.getCheckpoint();
+        List<SensorData> batch = new ArrayList<>(pending.size());
+        long spoolPosition = PendingReading.NOT_SPOOLED;
+        for (PendingReading reading : pending) {
+            if (!reading.isSpooled() || reading.spoolPosition() > checkpoint) {
+                batch.add(reading.data());
+                spoolPosition = Math.max(spoolPosition, reading.spoolPosition());
+            } else {
+                resolve(reading);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long elapsed;
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                sensorStore.append(batch);
+                elapsed = System.nanoTime() - start;
+                break;
+            } catch (Exception e) {
+                if (spool.isEnabled()) {
+                    // The batch is in the spool: stop buffering in memory and replay once the DB is back
+                    logger.warn("⚠️ Batch insert of {} readings failed, switching to spool replay: {}",
+                            batch.size(), e.getMessage());
+                    synchronized (modeLock) {
+                        replaying = true;
+                    }
+                    return;
+                }
+                // maxRetries < 0: keep retrying (also while draining on shutdown, until stop() interrupts
+                // after the drain timeout) and let the overload policy absorb new readings
+                boolean giveUp = maxRetries >= 0 && attempt > maxRetries;
+                if (giveUp) {
+                    rowsFailed.increment(batch.size());
+                    logger.error("❌ Dropping batch of {} sensor readings after {} attempts: {}",
+                            batch.size(), attempt, e.getMessage(), e);
+                    return;
+                }
+                logger.warn("⚠️ Batch insert of {} readings failed (attempt {}): {}", batch.size(), attempt, e.getMessage());
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+
+        // Committed: nothing below may send the batch back to the retry loop above
+        flushTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        rowsWritten.increment(batch.size());
+        batchesWritten.increment();
+        notifyStored(batch);
+        if (spoolPosition != PendingReading.NOT_SPOOLED) {
+            pending.forEach(this::resolve);
+            spool.checkpoint(lowWatermark(spoolPosition));
+        }
+        adaptBatchSize(batch.size(), elapsed);
+        logger.debug("✅ Flushed {} sensor readings in {} ms", batch.size(),
+                TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Highest checkpoint at or below {@code written} with every reading before it resolved: the
+     * start of the oldest reading still queued, or on its way to the queue, if that comes first.
+     */
+    private long lowWatermark(long written) {
+        Long oldest = unresolved.ceiling(Long.MIN_VALUE); // null when nothing is outstanding
+        return oldest == null ? written : Math.min(written, oldest);
+    }
+
+    private void resolve(PendingReading reading) {
+        if (reading.isSpooled()) {
+            unresolved.remove(reading.spoolStart());
+        }
+    }
+
+    // =================== SPOOL REPLAY ===================
+
+    /**
+     * Write the next spool batch after the checkpoint, or go back to live mode once caught up.
+     */
+    private void replayStep() throws InterruptedException {
+        List<SpoolRecord> records;
+        try {
+            records = spool.read(spool.getCheckpoint(), maxBatchSize);
+        } catch (CorruptSpoolRecordException e) {
+            // Everything before it is in the database (it sits at the checkpoint): skip just that record
+            recordsCorrupt.increment();
+            logger.error("❌ Skipping corrupted spool record at {}: {}", e.getPosition(), e.getMessage());
+            checkpointOrBackOff(e.getSkipTo());
+            return;
+        } catch (RuntimeException e) {
+            replayAttempt++;
+            logger.warn("⚠️ Reading the spool failed (attempt {}): {}", replayAttempt, e.getMessage());
+            Thread.sleep(backoffMillis(replayAttempt));
+            return;
+        }
+        if (records.isEmpty()) {
+            synchronized (modeLock) {
+                // No append can slip in between this check and the switch
+                if (spool.read(spool.getCheckpoint(), 1).isEmpty()) {
+                    // Everything spooled so far is in the database, including readings still queued
+                    unresolved.clear();
+                    replaying = false;
+                    replayAttempt = 0;
+                    logger.info("✅ Spool replay caught up, back to live ingest");
+                }
+            }
+            return;
+        }
+
+        List<SensorData> batch = new ArrayList<>(records.size());
+        SensorReading reading = new SensorReading();
+        for (SpoolRecord record : records) {
+            SensorData data = decode(record, reading);
+            if (data != null) {
+                batch.add(data);
+            }
+        }
+        long next = records.get(records.size() - 1).nextPosition();
+
+        long start = System.nanoTime();
+        try {
+            if (!batch.isEmpty()) {
+                sensorStore.append(batch);
+            }
+        } catch (Exception e) {
+            replayAttempt++;
+            logger.warn("⚠️ Spool replay of {} readings failed (attempt {}): {}", batch.size(), replayAttempt, e.getMessage());
+            Thread.sleep(backoffMillis(replayAttempt));
+            return;
+        }
+
+        // Committed: move the checkpoint past the batch whatever the listeners do
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        rowsWritten.increment(batch.size());
+        rowsReplayed.increment(batch.size());
+        batchesWritten.increment();
+        if (replayAttempt > 0) {
+            logger.info("✅ Database reachable again, replaying spool ({} bytes behind)",
+                    spool.getEndPosition() - next);
+        }
+        replayAttempt = 0;
+        if (!batch.isEmpty()) {
+            notifyStored(batch);
+        }
+        checkpointOrBackOff(next);
+    }
+
+    private void checkpointOrBackOff(long position) throws InterruptedException {
+        try {
+            spool.checkpoint(position);
+        } catch (RuntimeException e) {
+            replayAttempt++;
+            logger.warn("⚠️ Spool checkpoint failed (attempt {}): {}", replayAttempt, e.getMessage());
+            Thread.sleep(backoffMillis(replayAttempt));
+        }
+    }
+
+    private static long backoffMillis(int attempt) {
+        return Math.min(5000L, 200L << Math.min(attempt - 1, 5));
+    }
+
+    private SensorData decode(SpoolRecord record, SensorReading reading) {
+        String format = SensorTopics.formatOf(record.topic());
+        SensorPayloadCodec codec = format == null ? codecRegistry.getDefault() : codecRegistry.find(format);
+        if (codec == null) {
+            logger.warn("⚠️ Skipping spooled reading with unknown format: {}", record.topic());
+            return null;
+        }
+        try {
+            codec.decode(record.payload(), reading);
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Skipping unreadable spooled reading at {}: {}", record.position(), e.getMessage());
+            return null;
+        }
+
+        SensorData data = new SensorData();
+        data.setTemperature(reading.getTemperature());
+        data.setHumidity(reading.getHumidity());
+        data.setLightLevel(reading.getLightLevel());
+        data.setUptime((int) reading.getUptime());
+        data.setCreatedAt(new Timestamp(record.receivedAt()).toLocalDateTime());
+        return data;
+    }
+
+    /**
+     * Tell the live buffer and the query cache about a committed batch. Runs after the append
+     * outside any retry: a failure here is logged, never turned into a second append.
+     */
+    private void notifyStored(List<SensorData> batch) {
+        try {
+            recentRecords.sensorDataStored(batch);
+            invalidateCachedPages(batch);
+        } catch (RuntimeException e) {
+            listenerFailures.increment();
+            logger.warn("⚠️ Post-commit notification for {} readings failed: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void invalidateCachedPages(List<SensorData> batch) {
+        LocalDateTime oldest = null;
+        LocalDateTime newest = null;
+        for (SensorData row : batch) {
+            LocalDateTime createdAt = row.getCreatedAt();
+            if (createdAt != null) {
+                oldest = oldest == null || createdAt.isBefore(oldest) ? createdAt : oldest;
+                newest = newest == null || createdAt.isAfter(newest) ? createdAt : newest;
+            }
+        }
+        if (oldest != null) {
+            queryCache.rowsStored(RowCounters.SENSOR_DATA, oldest, newest);
+        }
+    }
+
+    /**
+     * Grow the batch while a backlog builds up (fewer, larger commits),
+     * shrink it again when a single flush takes longer than the batch age budget.
+     */
+    private void adaptBatchSize(int flushedRows, long elapsedNanos) {
+        int target = targetBatchSize;
+        if (queue.size() >= target && flushedRows >= target) {
+            target = Math.min(maxBatchSize, target * 2);
+        } else if (TimeUnit.NANOSECONDS.toMillis(elapsedNanos) > maxBatchAgeMs) {
+            target = Math.max(minBatchSize, target - target / 4);
+        } else if (flushedRows < target / 4) {
+            target = Math.max(minBatchSize, target / 2);
+        }
+        targetBatchSize = target;
+    }
+
+    // =================== LIFECYCLE ===================
+
+    @Override
+    public void start() {
+        running = true;
+        if (spool.hasBacklog()) {
+            replaying = true;
+            logger.info("💾 {} spooled bytes from a previous run, replaying before live ingest",
+                    spool.getEndPosition() - spool.getCheckpoint());
+        }
+        writerThread = new Thread(this::runWriter, "sensor-batch-writer");
+        writerThread.setDaemon(false);
+        writerThread.start();
+        logger.info("🚀 Sensor batch writer started (batch {}-{}, max age {} ms, buffer {} with {})",
+                minBatchSize, maxBatchSize, maxBatchAgeMs, queue.getCapacity(), queue.getPolicy());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writerThread == null) {
+            return;
+        }
+        logger.info("⏳ Draining {} queued sensor readings before shutdown", queue.size());
+        try {
+            writerThread.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            logger.warn("⚠️ Sensor batch writer did not finish draining within {} ms, {} readings left",
+                    drainTimeoutMs, queue.size());
+            writerThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.store.SensorStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the sensor rollups of whole days from {@code sensor_data}.
+ *
+ * Days are queued on request and, on the first run, from the oldest raw row when the rollup
+ * tables are empty (or from the oldest day still without per-metric counts). One day is rebuilt
+ * per run on a dedicated thread, so a long rebuild delays neither the ingest writer nor the
+ * maintenance jobs on the shared scheduler (e.g. the replica lag check). Live batches keep
+ * updating the same buckets meanwhile; see {@link SensorRollupUpdater#rebuildDay(LocalDate)}.
+ */
+@Component
+public class SensorRollupBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SensorRollupBackfill.class);
+
+    private static final long RETRY_DELAY_MS = 30_000L;
+
+    private final SensorStore sensorStore;
+    private final SensorRollupUpdater rollupUpdater;
+    private final TransactionTemplate transactionTemplate;
+    private final long initialDelayMs;
+    private final long intervalMs;
+
+    private final Queue<LocalDate> pendingDays = new ConcurrentLinkedQueue<>();
+    private boolean initialCheckDone = false;
+    private long nextAttempt = 0L;
+    private ScheduledExecutorService executor;
+
+    public SensorRollupBackfill(SensorStore sensorStore,
+                                SensorRollupUpdater rollupUpdater,
+                                TransactionTemplate transactionTemplate,
+                                @Value("${ingest.rollup.backfill.initial-delay-ms:10000}") long initialDelayMs,
+                                @Value("${ingest.rollup.backfill.interval-ms:1000}") long intervalMs) {
+        this.sensorStore = sensorStore;
+        this.rollupUpdater = rollupUpdater;
+        this.transactionTemplate = transactionTemplate;
+        this.initialDelayMs = initialDelayMs;
+        this.intervalMs = Math.max(1, intervalMs);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!sensorStore.hasRollups()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rollup-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::backfillStep, initialDelayMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queue a rebuild of the rollups for the days {@code from}..{@code to} (inclusive).
+     *
+     * @return number of days queued
+     */
+    public int requestBackfill(LocalDate from, LocalDate to) {
+        if (!sensorStore.hasRollups()) {
+            return 0;
+        }
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            pendingDays.add(day);
+            days++;
+        }
+        logger.info("📊 Rollup back-fill queued for {} days ({} .. {})", days, from, to);
+        return days;
+    }
+
+    public int getPendingDays() {
+        return pendingDays.size();
+    }
+
+    /**
+     * Rebuild one queued day; on the first run also queue the days the rollups are missing.
+     */
+    void backfillStep() {
+        if (System.currentTimeMillis() < nextAttempt) {
+            return;
+        }
+        try {
+            if (!initialCheckDone) {
+                LocalDate first = rollupUpdater.firstDayToBackfill();
+                initialCheckDone = true;
+                if (first != null) {
+                    requestBackfill(first, LocalDate.now());
+                }
+            }
+
+            LocalDate day = pendingDays.peek();
+            if (day == null) {
+                return;
+            }
+            Integer rows = transactionTemplate.execute(status -> rollupUpdater.rebuildDay(day));
+            pendingDays.poll();
+            logger.info("📊 Rollups rebuilt for {} ({} rows, {} days left)", day, rows, pendingDays.size());
+        } catch (Exception e) {
+            // Database probably unavailable (or a lock wait with live ingest timed out); try again later
+            nextAttempt = System.currentTimeMillis() + RETRY_DELAY_MS;
+            logger.warn("⚠️ Rollup back-fill failed: {}", e.getMessage());
+        }
+    }
+}
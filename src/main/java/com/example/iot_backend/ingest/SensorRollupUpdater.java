@@ -0,0 +1,247 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.model.RollupResolution;
+import com.example.iot_backend.model.SensorData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the {@code sensor_rollup_1m/1h/1d} tables up to date.
+ *
+ * Every batch written by {@link SensorBatchWriter} is pre-aggregated in memory per bucket and
+ * merged into the rollup tables with one {@code INSERT ... ON DUPLICATE KEY UPDATE} per table,
+ * in the same transaction as the raw rows. Counts and sums add up, min/max use
+ * {@code LEAST}/{@code GREATEST}, and "last" follows the newest {@code last_at}, so the merge
+ * is correct no matter how readings are split into batches (including spool replays).
+ *
+ * {@link #rebuildDay(LocalDate)} recomputes one day from {@code sensor_data} (back-fill, see
+ * {@link SensorRollupBackfill}). It runs next to live ingest and relies on InnoDB locking: the
+ * DELETE locks the day's buckets before the raw rows are read, so a batch that committed
+ * earlier is read and one still in flight waits on those locks and merges after the rebuild.
+ */
+@Component
+public class SensorRollupUpdater {
+
+    private static final String[] METRICS = {"temperature", "humidity", "light_level"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Map<RollupResolution, String> upsertSql = new EnumMap<>(RollupResolution.class);
+
+    public SensorRollupUpdater(JdbcTemplate jdbcTemplate,
+                               @Value("${ingest.rollup.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        for (RollupResolution resolution : RollupResolution.values()) {
+            upsertSql.put(resolution, buildUpsert(resolution.getTableName()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Merge a persisted batch into all rollup tables. Must run inside the batch's transaction.
+     */
+    public void apply(List<SensorData> batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+        for (RollupResolution resolution : RollupResolution.values()) {
+            Map<LocalDateTime, Bucket> buckets = new TreeMap<>();
+            for (SensorData data : batch) {
+                buckets.computeIfAbsent(resolution.bucketOf(data.getCreatedAt()), Bucket::new).add(data);
+            }
+            upsert(resolution, buckets.values());
+        }
+    }
+
+    /**
+     * Recompute every bucket of {@code day} from the raw rows. Must run inside a transaction.
+     *
+     * @return number of raw rows aggregated
+     */
+    public int rebuildDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        for (RollupResolution resolution : RollupResolution.values()) {
+            jdbcTemplate.update("DELETE FROM " + resolution.getTableName() + " WHERE bucket_start >= ? AND bucket_start < ?",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+        }
+
+        Map<RollupResolution, Map<LocalDateTime, Bucket>> buckets = new EnumMap<>(RollupResolution.class);
+        for (RollupResolution resolution : RollupResolution.values()) {
+            buckets.put(resolution, new TreeMap<>());
+        }
+
+        int[] rows = new int[1];
+        jdbcTemplate.query("SELECT temperature, humidity, light_level, created_at FROM sensor_data "
+                        + "WHERE created_at >= ? AND created_at < ? ORDER BY created_at",
+                rs -> {
+                    SensorData data = new SensorData();
+                    data.setTemperature(rs.getObject(1, Double.class));
+                    data.setHumidity(rs.getObject(2, Double.class));
+                    data.setLightLevel(rs.getObject(3, Integer.class));
+                    data.setCreatedAt(rs.getTimestamp(4).toLocalDateTime());
+                    buckets.forEach((resolution, map) ->
+                            map.computeIfAbsent(resolution.bucketOf(data.getCreatedAt()), Bucket::new).add(data));
+                    rows[0]++;
+                },
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+
+        buckets.forEach((resolution, map) -> upsert(resolution, map.values()));
+        return rows[0];
+    }
+
+    /**
+     * @return the day of the oldest raw row when the rollups have never been built, the oldest day
+     * built before the per-metric counts existed, otherwise null
+     */
+    public LocalDate firstDayToBackfill() {
+        if (!enabled) {
+            return null;
+        }
+        Integer rolledUp = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM " + RollupResolution.DAY.getTableName() + " LIMIT 1) t", Integer.class);
+        if (rolledUp != null && rolledUp > 0) {
+            // The upsert keeps a NULL count NULL, so these days stay visible until rebuilt
+            Timestamp withoutCounts = jdbcTemplate.queryForObject("SELECT MIN(bucket_start) FROM "
+                    + RollupResolution.DAY.getTableName() + " WHERE temperature_count IS NULL", Timestamp.class);
+            return withoutCounts == null ? null : withoutCounts.toLocalDateTime().toLocalDate();
+        }
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM sensor_data", Timestamp.class);
+        return oldest == null ? null : oldest.toLocalDateTime().toLocalDate();
+    }
+
+    // =================== SQL ===================
+
+    private void upsert(RollupResolution resolution, Collection<Bucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        List<Bucket> rows = new ArrayList<>(buckets);
+        jdbcTemplate.batchUpdate(upsertSql.get(resolution), rows, rows.size(), (ps, bucket) -> bucket.bind(ps));
+    }
+
+    static String buildUpsert(String table) {
+        StringBuilder columns = new StringBuilder("bucket_start, sample_count");
+        StringBuilder updates = new StringBuilder("sample_count = sample_count + VALUES(sample_count)");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_count, ").append(metric).append("_sum, ")
+                    .append(metric).append("_min, ").append(metric).append("_max, ").append(metric).append("_last");
+            // NULL (bucket from before the counts existed) + n stays NULL until the day is rebuilt
+            updates.append(", ").append(metric).append("_count = ").append(metric).append("_count + VALUES(")
+                    .append(metric).append("_count)");
+            updates.append(", ").append(metric).append("_sum = COALESCE(").append(metric).append("_sum, 0) + COALESCE(VALUES(")
+                    .append(metric).append("_sum), 0)");
+            updates.append(", ").append(merge(metric + "_min", "LEAST"));
+            updates.append(", ").append(merge(metric + "_max", "GREATEST"));
+            // Evaluated before last_at is updated below (MySQL applies assignments left to right)
+            updates.append(", ").append(metric).append("_last = IF(VALUES(last_at) >= last_at, COALESCE(VALUES(")
+                    .append(metric).append("_last), ").append(metric).append("_last), ").append(metric).append("_last)");
+        }
+        columns.append(", last_at");
+        updates.append(", last_at = GREATEST(last_at, VALUES(last_at))");
+
+        String placeholders = "?" + ", ?".repeat(17);
+        return "INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ") ON DUPLICATE KEY UPDATE " + updates;
+    }
+
+    private static String merge(String column, String function) {
+        return column + " = " + function + "(COALESCE(" + column + ", VALUES(" + column + ")), COALESCE(VALUES("
+                + column + "), " + column + "))";
+    }
+
+    /**
+     * In-memory aggregate of one bucket.
+     */
+    private static final class Bucket {
+
+        private final LocalDateTime start;
+        private long count;
+        private final DoubleStats temperature = new DoubleStats();
+        private final DoubleStats humidity = new DoubleStats();
+        private final DoubleStats light = new DoubleStats();
+        private LocalDateTime lastAt;
+
+        Bucket(LocalDateTime start) {
+            this.start = start;
+        }
+
+        void add(SensorData data) {
+            count++;
+            boolean newest = lastAt == null || !data.getCreatedAt().isBefore(lastAt);
+            if (newest) {
+                lastAt = data.getCreatedAt();
+            }
+            temperature.add(data.getTemperature(), newest);
+            humidity.add(data.getHumidity(), newest);
+            light.add(data.getLightLevel() == null ? null : data.getLightLevel().doubleValue(), newest);
+        }
+
+        void bind(PreparedStatement ps) throws SQLException {
+            ps.setTimestamp(1, Timestamp.valueOf(start));
+            ps.setLong(2, count);
+            temperature.bind(ps, 3, false);
+            humidity.bind(ps, 8, false);
+            light.bind(ps, 13, true);
+            ps.setTimestamp(18, Timestamp.valueOf(lastAt));
+        }
+    }
+
+    private static final class DoubleStats {
+
+        private long count;
+        private Double sum;
+        private Double min;
+        private Double max;
+        private Double last;
+
+        void add(Double value, boolean newest) {
+            if (value == null) {
+                return;
+            }
+            count++;
+            sum = sum == null ? value : sum + value;
+            min = min == null ? value : Math.min(min, value);
+            max = max == null ? value : Math.max(max, value);
+            if (newest || last == null) {
+                last = value;
+            }
+        }
+
+        void bind(PreparedStatement ps, int index, boolean integral) throws SQLException {
+            ps.setLong(index, count);
+            setNullable(ps, index + 1, sum, false);
+            setNullable(ps, index + 2, min, integral);
+            setNullable(ps, index + 3, max, integral);
+            setNullable(ps, index + 4, last, integral);
+        }
+
+        private static void setNullable(PreparedStatement ps, int index, Double value, boolean integral) throws SQLException {
+            if (value == null) {
+                ps.setNull(index, integral ? Types.INTEGER : Types.DOUBLE);
+            } else if (integral) {
+                ps.setInt(index, value.intValue());
+            } else {
+                ps.setDouble(index, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.iot_backend.ingest.codec;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Fixed-layout binary sensor payload, published on {@code home/sensors/bin}.
+ *
+ * 12 bytes, little-endian (native ESP32 byte order), instead of ~60 bytes of JSON:
+ *
+ * <pre>
+ * offset  size  field
+ *      0     1  version (= 1)
+ *      1     1  reserved (0)
+ *      2     2  temperature, int16, °C x 100
+ *      4     2  humidity, uint16, % x 100
+ *      6     2  light_raw, uint16, 0-4095
+ *      8     4  uptime, uint32
+ * </pre>
+ *
+ * Values are scaled integers, so {@code 2350 / 100.0} decodes to exactly the same double as the
+ * JSON {@code "temp":23.5} and both formats produce identical {@code SensorData} rows.
+ */
+@Component
+public class BinarySensorPayloadCodec implements SensorPayloadCodec {
+
+    public static final String FORMAT = "bin";
+    public static final int VERSION = 1;
+    public static final int LENGTH = 12;
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public void decode(byte[] payload, SensorReading out) {
+        if (payload.length < LENGTH) {
+            throw new IllegalArgumentException("Malformed binary sensor payload: expected "
+                    + LENGTH + " bytes, got " + payload.length);
+        }
+        if ((payload[0] & 0xFF) != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary sensor payload version: " + (payload[0] & 0xFF));
+        }
+
+        out.reset();
+        out.setTemperature((short) u16(payload, 2) / 100.0);
+        out.setHumidity(u16(payload, 4) / 100.0);
+        out.setLightRaw(u16(payload, 6));
+        out.setUptime(u32(payload, 8));
+    }
+
+    /**
+     * Encode a reading in the same layout (used by tools and tests; firmware does the same in C).
+     */
+    public static byte[] encode(double temperature, double humidity, int lightRaw, long uptime) {
+        byte[] payload = new byte[LENGTH];
+        payload[0] = VERSION;
+        putU16(payload, 2, (int) Math.round(temperature * 100));
+        putU16(payload, 4, (int) Math.round(humidity * 100));
+        putU16(payload, 6, lightRaw);
+        putU16(payload, 8, (int) (uptime & 0xFFFF));
+        putU16(payload, 10, (int) ((uptime >>> 16) & 0xFFFF));
+        return payload;
+    }
+
+    private static int u16(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+
+    private static long u32(byte[] b, int offset) {
+        return (u16(b, offset) | (long) u16(b, offset + 2) << 16) & 0xFFFFFFFFL;
+    }
+
+    private static void putU16(byte[] b, int offset, int value) {
+        b[offset] = (byte) value;
+        b[offset + 1] = (byte) (value >>> 8);
+    }
+}
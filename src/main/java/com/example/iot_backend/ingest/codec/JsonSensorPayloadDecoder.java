@@ -0,0 +1,317 @@
+package com.example.iot_backend.ingest.codec;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-free decoder for the ESP32 JSON sensor payload:
+ * {@code {"temp":23.5,"hum":61.2,"light_raw":1873,"uptime":12345}}.
+ *
+ * Scans the raw MQTT bytes once, matches the known keys byte by byte and parses numbers
+ * directly into a {@link SensorReading}. No String, JsonNode or boxed value is created on
+ * the normal path; unknown keys and non-numeric values are skipped.
+ *
+ * Numbers with at most 15 significant digits and a small exponent are converted exactly
+ * (mantissa and power of ten are both exact doubles, so one multiply/divide is correctly
+ * rounded); anything longer falls back to {@link Double#parseDouble}.
+ */
+@Component
+public final class JsonSensorPayloadDecoder implements SensorPayloadCodec {
+
+    public static final String FORMAT = "json";
+
+    private static final byte[] KEY_TEMP = ascii("temp");
+    private static final byte[] KEY_HUM = ascii("hum");
+    private static final byte[] KEY_LIGHT_RAW = ascii("light_raw");
+    private static final byte[] KEY_UPTIME = ascii("uptime");
+
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    /**
+     * Decode {@code payload} into {@code out}.
+     *
+     * @throws IllegalArgumentException when the payload is not a JSON object or a required
+     *                                  field (temp, hum, light_raw, uptime) is missing
+     */
+    @Override
+    public void decode(byte[] payload, SensorReading out) {
+        out.reset();
+
+        int pos = skipWhitespace(payload, 0);
+        if (pos >= payload.length || payload[pos] != '{') {
+            throw malformed("expected '{'");
+        }
+        pos = skipWhitespace(payload, pos + 1);
+
+        if (pos < payload.length && payload[pos] == '}') {
+            throw malformed("empty object");
+        }
+
+        while (true) {
+            if (pos >= payload.length || payload[pos] != '"') {
+                throw malformed("expected field name");
+            }
+            int keyStart = pos + 1;
+            int keyEnd = keyStart;
+            while (keyEnd < payload.length && payload[keyEnd] != '"') {
+                keyEnd++;
+            }
+            if (keyEnd >= payload.length) {
+                throw malformed("unterminated field name");
+            }
+
+            pos = skipWhitespace(payload, keyEnd + 1);
+            if (pos >= payload.length || payload[pos] != ':') {
+                throw malformed("expected ':'");
+            }
+            pos = skipWhitespace(payload, pos + 1);
+
+            int field = fieldOf(payload, keyStart, keyEnd);
+            if (field != 0 && pos < payload.length && isNumberStart(payload[pos])) {
+                pos = parseNumber(payload, pos, field, out);
+            } else {
+                pos = skipValue(payload, pos);
+            }
+
+            pos = skipWhitespace(payload, pos);
+            if (pos >= payload.length) {
+                throw malformed("unterminated object");
+            }
+            if (payload[pos] == ',') {
+                pos = skipWhitespace(payload, pos + 1);
+            } else if (payload[pos] == '}') {
+                break;
+            } else {
+                throw malformed("expected ',' or '}'");
+            }
+        }
+
+        if (!out.isComplete()) {
+            throw malformed("missing temp/hum/light_raw/uptime");
+        }
+    }
+
+    // =================== FIELDS ===================
+
+    private static int fieldOf(byte[] buf, int start, int end) {
+        if (matches(buf, start, end, KEY_TEMP)) {
+            return SensorReading.TEMPERATURE;
+        }
+        if (matches(buf, start, end, KEY_HUM)) {
+            return SensorReading.HUMIDITY;
+        }
+        if (matches(buf, start, end, KEY_LIGHT_RAW)) {
+            return SensorReading.LIGHT_RAW;
+        }
+        if (matches(buf, start, end, KEY_UPTIME)) {
+            return SensorReading.UPTIME;
+        }
+        return 0;
+    }
+
+    private static boolean matches(byte[] buf, int start, int end, byte[] key) {
+        if (end - start != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buf[start + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void assign(int field, double value, SensorReading out) {
+        switch (field) {
+            case SensorReading.TEMPERATURE -> out.setTemperature(value);
+            case SensorReading.HUMIDITY -> out.setHumidity(value);
+            case SensorReading.LIGHT_RAW -> out.setLightRaw(value);
+            case SensorReading.UPTIME -> out.setUptime((long) value);
+            default -> {
+            }
+        }
+    }
+
+    // =================== NUMBERS ===================
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || (b >= '0' && b <= '9');
+    }
+
+    private static int parseNumber(byte[] buf, int pos, int field, SensorReading out) {
+        int start = pos;
+        boolean negative = false;
+        if (buf[pos] == '-') {
+            negative = true;
+            pos++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean sawDigit = false;
+
+        while (pos < buf.length && buf[pos] >= '0' && buf[pos] <= '9') {
+            sawDigit = true;
+            if (mantissa != 0 || buf[pos] != '0') {
+                mantissa = mantissa * 10 + (buf[pos] - '0');
+                digits++;
+            }
+            pos++;
+            if (digits > 18) {
+                return parseSlow(buf, start, field, out);
+            }
+        }
+
+        if (pos < buf.length && buf[pos] == '.') {
+            pos++;
+            while (pos < buf.length && buf[pos] >= '0' && buf[pos] <= '9') {
+                sawDigit = true;
+                if (mantissa != 0 || buf[pos] != '0') {
+                    mantissa = mantissa * 10 + (buf[pos] - '0');
+                    digits++;
+                }
+                scale++;
+                pos++;
+                if (digits > 18) {
+                    return parseSlow(buf, start, field, out);
+                }
+            }
+        }
+
+        if (!sawDigit) {
+            throw malformed("invalid number");
+        }
+
+        int exponent = 0;
+        if (pos < buf.length && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < buf.length && (buf[pos] == '+' || buf[pos] == '-')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            int expDigits = 0;
+            while (pos < buf.length && buf[pos] >= '0' && buf[pos] <= '9') {
+                exponent = exponent * 10 + (buf[pos] - '0');
+                pos++;
+                if (++expDigits > 4) {
+                    return parseSlow(buf, start, field, out);
+                }
+            }
+            if (expDigits == 0) {
+                throw malformed("invalid exponent");
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+
+        int power = exponent - scale;
+        if (digits > MAX_EXACT_DIGITS || power > 22 || power < -22) {
+            return parseSlow(buf, start, field, out);
+        }
+
+        double value = mantissa;
+        value = power >= 0 ? value * POW10[power] : value / POW10[-power];
+        assign(field, negative ? -value : value, out);
+        return pos;
+    }
+
+    // Rare path: very long mantissa or exponent, let the JDK do correct rounding
+    private static int parseSlow(byte[] buf, int start, int field, SensorReading out) {
+        int end = start;
+        while (end < buf.length && isNumberChar(buf[end])) {
+            end++;
+        }
+        try {
+            double value = Double.parseDouble(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+            assign(field, value, out);
+        } catch (NumberFormatException e) {
+            throw malformed("invalid number");
+        }
+        return end;
+    }
+
+    private static boolean isNumberChar(byte b) {
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E';
+    }
+
+    // =================== SKIPPING ===================
+
+    private static int skipWhitespace(byte[] buf, int pos) {
+        while (pos < buf.length) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Skip one JSON value of any type (string, literal, number, nested object/array).
+     */
+    private static int skipValue(byte[] buf, int pos) {
+        int depth = 0;
+        while (pos < buf.length) {
+            byte b = buf[pos];
+            if (b == '"') {
+                pos = skipString(buf, pos);
+                if (depth == 0) {
+                    return pos;
+                }
+                continue;
+            }
+            if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    return pos;
+                }
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            } else if (b == ',' && depth == 0) {
+                return pos;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipString(byte[] buf, int pos) {
+        pos++; // opening quote
+        while (pos < buf.length) {
+            byte b = buf[pos];
+            if (b == '\\') {
+                pos += 2;
+            } else if (b == '"') {
+                return pos + 1;
+            } else {
+                pos++;
+            }
+        }
+        throw malformed("unterminated string");
+    }
+
+    private static IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed sensor payload: " + reason);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
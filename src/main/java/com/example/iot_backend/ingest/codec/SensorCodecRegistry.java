@@ -0,0 +1,57 @@
+package com.example.iot_backend.ingest.codec;
+
+import com.example.iot_backend.ingest.routing.TopicMatch;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Looks up the {@link SensorPayloadCodec} for a sensor topic variant.
+ *
+ * Add a format by declaring another {@code SensorPayloadCodec} bean; it is then accepted on
+ * {@code home/sensors/<format>} without touching the ingest code.
+ */
+@Component
+public class SensorCodecRegistry {
+
+    private final SensorPayloadCodec[] codecs;
+    private final SensorPayloadCodec defaultCodec;
+
+    public SensorCodecRegistry(List<SensorPayloadCodec> codecs) {
+        this.codecs = codecs.toArray(new SensorPayloadCodec[0]);
+        this.defaultCodec = find(JsonSensorPayloadDecoder.FORMAT);
+        if (defaultCodec == null) {
+            throw new IllegalStateException("No JSON sensor payload codec registered");
+        }
+    }
+
+    /**
+     * Codec for plain {@code home/sensors} (legacy JSON publishers).
+     */
+    public SensorPayloadCodec getDefault() {
+        return defaultCodec;
+    }
+
+    public SensorPayloadCodec find(String format) {
+        for (SensorPayloadCodec codec : codecs) {
+            if (codec.getFormat().equals(format)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Codec named by wildcard level {@code group} of a routed topic, compared in place.
+     *
+     * @return null when no codec has that name
+     */
+    public SensorPayloadCodec find(TopicMatch match, int group) {
+        for (SensorPayloadCodec codec : codecs) {
+            if (match.groupEquals(group, codec.getFormat())) {
+                return codec;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.iot_backend.ingest.codec;
+
+/**
+ * Wire format of a sensor reading published by the devices.
+ *
+ * Codecs are Spring beans collected by {@link SensorCodecRegistry}; a device picks its format
+ * by publishing to {@code home/sensors/<format>} (plain {@code home/sensors} is JSON).
+ */
+public interface SensorPayloadCodec {
+
+    /**
+     * Format name, used as the last level of the sensor topic (e.g. {@code json}, {@code bin}).
+     */
+    String getFormat();
+
+    /**
+     * Decode {@code payload} into {@code out} without allocating.
+     *
+     * @throws IllegalArgumentException when the payload is malformed or incomplete
+     */
+    void decode(byte[] payload, SensorReading out);
+}
@@ -0,0 +1,93 @@
+package com.example.iot_backend.ingest.codec;
+
+/**
+ * Mutable, reusable holder for one decoded sensor payload.
+ *
+ * Decoders write primitives straight into it so the hot path does not allocate;
+ * keep one instance per thread and call {@link #reset()} before each decode.
+ */
+public final class SensorReading {
+
+    static final int TEMPERATURE = 1;
+    static final int HUMIDITY = 1 << 1;
+    static final int LIGHT_RAW = 1 << 2;
+    static final int UPTIME = 1 << 3;
+    static final int ALL = TEMPERATURE | HUMIDITY | LIGHT_RAW | UPTIME;
+
+    private double temperature;
+    private double humidity;
+    private double lightRaw;
+    private long uptime;
+    private int present;
+
+    public void reset() {
+        temperature = 0;
+        humidity = 0;
+        lightRaw = 0;
+        uptime = 0;
+        present = 0;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public void setTemperature(double temperature) {
+        this.temperature = temperature;
+        present |= TEMPERATURE;
+    }
+
+    public double getHumidity() {
+        return humidity;
+    }
+
+    public void setHumidity(double humidity) {
+        this.humidity = humidity;
+        present |= HUMIDITY;
+    }
+
+    /**
+     * Raw ADC value of the light sensor (0-4095, lower means brighter).
+     */
+    public double getLightRaw() {
+        return lightRaw;
+    }
+
+    public void setLightRaw(double lightRaw) {
+        this.lightRaw = lightRaw;
+        present |= LIGHT_RAW;
+    }
+
+    public long getUptime() {
+        return uptime;
+    }
+
+    public void setUptime(long uptime) {
+        this.uptime = uptime;
+        present |= UPTIME;
+    }
+
+    /**
+     * True when temperature, humidity, light and uptime were all present in the payload.
+     */
+    public boolean isComplete() {
+        return (present & ALL) == ALL;
+    }
+
+    /**
+     * Light level as a percentage (0-100) computed from the raw ADC value.
+     */
+    public int getLightLevel() {
+        return (int) ((1.0 - (lightRaw / 4095.0)) * 100);
+    }
+
+    @Override
+    public String toString() {
+        return "SensorReading{" +
+                "temperature=" + temperature +
+                ", humidity=" + humidity +
+                ", lightRaw=" + lightRaw +
+                ", uptime=" + uptime +
+                '}';
+    }
+}
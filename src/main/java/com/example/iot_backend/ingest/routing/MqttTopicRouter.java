@@ -0,0 +1,198 @@
+package com.example.iot_backend.ingest.routing;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes inbound MQTT topics to registered {@link TopicHandler}s.
+ *
+ * Topic filters (with MQTT {@code +} and {@code #} wildcards) are compiled into a trie of
+ * topic levels. Matching walks the received topic level by level using offsets only, so no
+ * {@code split()} arrays or substrings are created, and the cost depends on the topic depth
+ * rather than on the number of registered families. Literal levels win over {@code +},
+ * which wins over {@code #}.
+ *
+ * New device topic families are added with {@link #register(String, TopicHandler)} instead of
+ * another branch in {@code MqttService.handleInbound}.
+ */
+@Component
+public class MqttTopicRouter {
+
+    private final Map<String, TopicHandler> handlers = new LinkedHashMap<>();
+    private final ThreadLocal<TopicMatch> matches = ThreadLocal.withInitial(TopicMatch::new);
+
+    // Rebuilt on every registration and published as a whole, so routing never sees a half-built trie
+    private volatile Node root = new Node();
+
+    public synchronized void register(String filter, TopicHandler handler) {
+        validate(filter);
+        if (handlers.containsKey(filter)) {
+            throw new IllegalStateException("Topic filter already registered: " + filter);
+        }
+        handlers.put(filter, handler);
+
+        Node newRoot = new Node();
+        handlers.forEach((f, h) -> insert(newRoot, f, h));
+        root = newRoot;
+    }
+
+    /**
+     * Registered filters, in registration order (e.g. for building subscriptions).
+     */
+    public synchronized List<String> getFilters() {
+        return Collections.unmodifiableList(new ArrayList<>(handlers.keySet()));
+    }
+
+    /**
+     * Dispatch a message to the handler whose filter matches {@code topic}.
+     *
+     * @return false when no registered filter matches
+     */
+    public boolean route(String topic, byte[] payload) throws Exception {
+        if (topic == null) {
+            return false;
+        }
+        TopicMatch match = matches.get();
+        match.reset(topic);
+
+        TopicHandler handler = match(root, topic, 0, match);
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(match, payload);
+        return true;
+    }
+
+    // =================== MATCHING ===================
+
+    /**
+     * @param levelStart offset of the current level in {@code topic}, or {@code topic.length() + 1}
+     *                   once every level has been consumed
+     */
+    private static TopicHandler match(Node node, String topic, int levelStart, TopicMatch match) {
+        int length = topic.length();
+
+        if (levelStart > length) {
+            if (node.handler != null) {
+                return node.handler;
+            }
+            // "a/#" also matches "a" itself
+            if (node.multiLevel != null) {
+                match.push(length, length);
+                return node.multiLevel;
+            }
+            return null;
+        }
+
+        int levelEnd = topic.indexOf('/', levelStart);
+        if (levelEnd < 0) {
+            levelEnd = length;
+        }
+        int next = levelEnd + 1;
+
+        Node literal = node.literal(topic, levelStart, levelEnd);
+        if (literal != null) {
+            TopicHandler handler = match(literal, topic, next, match);
+            if (handler != null) {
+                return handler;
+            }
+        }
+
+        if (node.singleLevel != null) {
+            int mark = match.mark();
+            match.push(levelStart, levelEnd);
+            TopicHandler handler = match(node.singleLevel, topic, next, match);
+            if (handler != null) {
+                return handler;
+            }
+            match.rewind(mark);
+        }
+
+        if (node.multiLevel != null) {
+            match.push(levelStart, length);
+            return node.multiLevel;
+        }
+        return null;
+    }
+
+    // =================== COMPILING ===================
+
+    private static void insert(Node root, String filter, TopicHandler handler) {
+        Node node = root;
+        String[] levels = filter.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if ("#".equals(level)) {
+                node.multiLevel = handler;
+                return;
+            }
+            if ("+".equals(level)) {
+                if (node.singleLevel == null) {
+                    node.singleLevel = new Node();
+                }
+                node = node.singleLevel;
+            } else {
+                node = node.literalOrCreate(level);
+            }
+        }
+        node.handler = handler;
+    }
+
+    private static void validate(String filter) {
+        if (filter == null || filter.isEmpty()) {
+            throw new IllegalArgumentException("Topic filter must not be empty");
+        }
+        String[] levels = filter.split("/", -1);
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            if (level.contains("#") && (!"#".equals(level) || i != levels.length - 1)) {
+                throw new IllegalArgumentException("'#' must be the whole last level: " + filter);
+            }
+            if (level.contains("+") && !"+".equals(level)) {
+                throw new IllegalArgumentException("'+' must be a whole level: " + filter);
+            }
+        }
+    }
+
+    private static final class Node {
+
+        private String[] literalKeys = new String[0];
+        private Node[] literalChildren = new Node[0];
+        private Node singleLevel;
+        private TopicHandler multiLevel;
+        private TopicHandler handler;
+
+        Node literal(String topic, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < literalKeys.length; i++) {
+                String key = literalKeys[i];
+                if (key.length() == length && topic.regionMatches(start, key, 0, length)) {
+                    return literalChildren[i];
+                }
+            }
+            return null;
+        }
+
+        Node literalOrCreate(String level) {
+            Node existing = literal(level, 0, level.length());
+            if (existing != null) {
+                return existing;
+            }
+            int n = literalKeys.length;
+            String[] keys = new String[n + 1];
+            Node[] children = new Node[n + 1];
+            System.arraycopy(literalKeys, 0, keys, 0, n);
+            System.arraycopy(literalChildren, 0, children, 0, n);
+            keys[n] = level;
+            children[n] = new Node();
+            literalKeys = keys;
+            literalChildren = children;
+            return children[n];
+        }
+    }
+}
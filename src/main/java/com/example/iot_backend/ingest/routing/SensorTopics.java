@@ -0,0 +1,39 @@
+package com.example.iot_backend.ingest.routing;
+
+/**
+ * The sensor topic families and what their levels mean.
+ *
+ * <pre>
+ * home/devices/{mac}/sensors            JSON, published by one device
+ * home/devices/{mac}/sensors/{format}   format json, bin, ... (see SensorCodecRegistry)
+ * home/sensors                          legacy JSON topic shared by the whole fleet
+ * home/sensors/{format}                 legacy, shared, with a format
+ * </pre>
+ *
+ * Neither payload format carries a device id, so only the {@code home/devices/{mac}/...}
+ * family identifies the device; readings on the shared legacy topics have no device key: they
+ * are never coalesced with each other and always pass the deadband filter.
+ */
+public final class SensorTopics {
+
+    public static final String LEGACY = "home/sensors";
+    public static final String LEGACY_WITH_FORMAT = "home/sensors/+";
+    public static final String DEVICE = "home/devices/+/sensors";
+    public static final String DEVICE_WITH_FORMAT = "home/devices/+/sensors/+";
+
+    private static final String SENSORS_LEVEL = "/sensors";
+
+    private SensorTopics() {
+    }
+
+    /**
+     * @return the trailing format level of a sensor topic, or null for the default (JSON) topics
+     */
+    public static String formatOf(String topic) {
+        int sensors = topic.lastIndexOf(SENSORS_LEVEL);
+        if (LEGACY.equals(topic) || (sensors >= 0 && sensors + SENSORS_LEVEL.length() == topic.length())) {
+            return null;
+        }
+        return topic.substring(topic.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.iot_backend.ingest.routing;
+
+/**
+ * Handler for one MQTT topic family registered on the {@link MqttTopicRouter}.
+ */
+@FunctionalInterface
+public interface TopicHandler {
+
+    /**
+     * @param match   wildcard captures of the received topic, only valid during this call
+     * @param payload raw MQTT payload
+     */
+    void handle(TopicMatch match, byte[] payload) throws Exception;
+}
@@ -0,0 +1,89 @@
+package com.example.iot_backend.ingest.routing;
+
+/**
+ * Wildcard captures of a routed topic, stored as offsets into the topic string.
+ *
+ * Group {@code i} is the i-th {@code +} (or the trailing {@code #}) of the filter. Nothing is
+ * copied while matching; {@link #group(int)} creates a String only when a handler asks for one,
+ * and {@link #intGroup(int)} parses numbers in place. Instances are reused per thread, so do
+ * not keep a reference after the handler returns.
+ */
+public final class TopicMatch {
+
+    private static final int MAX_GROUPS = 16;
+
+    private final int[] starts = new int[MAX_GROUPS];
+    private final int[] ends = new int[MAX_GROUPS];
+    private String topic;
+    private int groupCount;
+
+    void reset(String topic) {
+        this.topic = topic;
+        this.groupCount = 0;
+    }
+
+    void push(int start, int end) {
+        if (groupCount == MAX_GROUPS) {
+            throw new IllegalStateException("Too many wildcard levels in topic: " + topic);
+        }
+        starts[groupCount] = start;
+        ends[groupCount] = end;
+        groupCount++;
+    }
+
+    int mark() {
+        return groupCount;
+    }
+
+    void rewind(int mark) {
+        groupCount = mark;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int groupCount() {
+        return groupCount;
+    }
+
+    public String group(int index) {
+        checkIndex(index);
+        return topic.substring(starts[index], ends[index]);
+    }
+
+    /**
+     * Parse a captured level as a non-negative decimal int without allocating.
+     *
+     * @throws NumberFormatException when the level is empty or not all digits
+     */
+    public int intGroup(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        if (start == end || end - start > 9) {
+            throw new NumberFormatException("Invalid number in topic level " + index + ": " + topic);
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = topic.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid number in topic level " + index + ": " + topic);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    public boolean groupEquals(int index, String value) {
+        checkIndex(index);
+        int length = ends[index] - starts[index];
+        return value.length() == length && topic.regionMatches(starts[index], value, 0, length);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= groupCount) {
+            throw new IndexOutOfBoundsException("No group " + index + " in match of " + topic);
+        }
+    }
+}
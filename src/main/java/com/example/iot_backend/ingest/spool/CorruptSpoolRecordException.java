@@ -0,0 +1,30 @@
+package com.example.iot_backend.ingest.spool;
+
+/**
+ * A spool record whose checksum no longer matches (disk error, or the file was changed behind the
+ * spool's back). Recovery on open already cuts a torn tail, so this only happens to records that
+ * were valid when written.
+ */
+public class CorruptSpoolRecordException extends IllegalStateException {
+
+    private final long position;
+    private final long skipTo;
+
+    public CorruptSpoolRecordException(String message, long position, long skipTo) {
+        super(message);
+        this.position = position;
+        this.skipTo = skipTo;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * Where reading can go on: after the record if its length still fits the written data,
+     * otherwise the end of the segment's data.
+     */
+    public long getSkipTo() {
+        return skipTo;
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.iot_backend.ingest.spool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Append-only write-ahead spool for inbound sensor messages on local disk.
+ *
+ * Every accepted sensor message (topic, raw payload, receive time) is appended here before it is
+ * queued for the database. Positions are byte offsets over the whole log; the {@code checkpoint}
+ * file holds the position up to which everything is persisted, and the batch writer advances it
+ * after each committed batch. Whatever lies between the checkpoint and the end of the log is
+ * replayed into the database after an outage or a restart.
+ *
+ * The log is split into memory-mapped segment files named after their start position
+ * ({@code spool-<position>.log}). Segments behind the checkpoint are kept for
+ * {@code retention} as a raw-traffic archive that can be re-read with {@link #read(long, int)};
+ * {@code max-segments} caps disk usage even while the database is down.
+ *
+ * Mapped writes survive a process crash; {@code force-on-append} also syncs every record to the
+ * device (power-loss safe, much slower).
+ */
+@Component
+public class IngestSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngestSpool.class);
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long retentionMillis;
+    private final boolean forceOnAppend;
+
+    private final TreeMap<Long, SpoolSegment> segments = new TreeMap<>();
+    private SpoolSegment active;
+    private FileChannel checkpointChannel;
+    private final ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES);
+
+    private volatile long endPosition;
+    private volatile long checkpoint;
+
+    public IngestSpool(MeterRegistry meterRegistry,
+                       @Value("${ingest.spool.enabled:true}") boolean enabled,
+                       @Value("${ingest.spool.directory:./data/ingest-spool}") String directory,
+                       @Value("${ingest.spool.segment-size-mb:64}") int segmentSizeMb,
+                       @Value("${ingest.spool.max-segments:32}") int maxSegments,
+                       @Value("${ingest.spool.retention:24h}") Duration retention,
+                       @Value("${ingest.spool.force-on-append:false}") boolean forceOnAppend) throws IOException {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, segmentSizeMb) * 1024L * 1024L);
+        this.maxSegments = Math.max(2, maxSegments);
+        this.retentionMillis = retention.toMillis();
+        this.forceOnAppend = forceOnAppend;
+
+        if (enabled) {
+            open();
+        }
+
+        Gauge.builder("iot.ingest.spool.backlog.bytes", this, s -> s.endPosition - s.checkpoint)
+                .description("Spooled bytes not yet persisted to the database")
+                .register(meterRegistry);
+        Gauge.builder("iot.ingest.spool.segments", this, IngestSpool::getSegmentCount)
+                .register(meterRegistry);
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                long base = baseOf(file);
+                segments.put(base, SpoolSegment.open(file, base, segmentSize));
+            }
+        }
+
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpointBuffer.clear();
+        checkpoint = checkpointChannel.read(checkpointBuffer, 0) == Long.BYTES ? checkpointBuffer.getLong(0) : 0L;
+
+        if (segments.isEmpty()) {
+            long base = Math.max(0L, checkpoint);
+            segments.put(base, SpoolSegment.open(segmentPath(base), base, segmentSize));
+        }
+        active = segments.lastEntry().getValue();
+        endPosition = active.getEnd();
+
+        // Segments may have been removed by retention; never point before the oldest one
+        checkpoint = Math.min(Math.max(checkpoint, segments.firstKey()), endPosition);
+
+        logger.info("💾 Ingest spool opened at {} ({} segments, {} bytes pending replay)",
+                directory.toAbsolutePath(), segments.size(), endPosition - checkpoint);
+    }
+
+    // =================== WRITE ===================
+
+    /**
+     * Append one inbound message.
+     *
+     * @return position right after the record (the checkpoint value that marks it persisted)
+     */
+    public synchronized long append(String topic, byte[] payload, long receivedAt) {
+        if (!enabled) {
+            throw new IllegalStateException("Ingest spool is disabled");
+        }
+        byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+        long next = active.append(receivedAt, topicBytes, payload);
+        if (next < 0) {
+            rotate();
+            next = active.append(receivedAt, topicBytes, payload);
+            if (next < 0) {
+                throw new IllegalArgumentException("Message of " + payload.length + " bytes does not fit in a spool segment");
+            }
+        }
+        if (forceOnAppend) {
+            active.force();
+        }
+        endPosition = next;
+        return next;
+    }
+
+    /**
+     * Mark everything before {@code position} as persisted.
+     */
+    public synchronized void checkpoint(long position) {
+        if (!enabled || position <= checkpoint) {
+            return;
+        }
+        checkpoint = position;
+        checkpointBuffer.clear();
+        checkpointBuffer.putLong(0, position);
+        try {
+            checkpointChannel.write(checkpointBuffer, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write spool checkpoint", e);
+        }
+    }
+
+    private void rotate() {
+        active.force();
+        long base = active.getLimit();
+        try {
+            active = SpoolSegment.open(segmentPath(base), base, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create spool segment", e);
+        }
+        segments.put(base, active);
+        logger.debug("💾 Spool rotated to {}", active.getPath().getFileName());
+        enforceRetention();
+    }
+
+    /**
+     * Drop archived segments older than the retention and, above {@code max-segments}, the oldest
+     * ones even if they were never persisted (logged: that data is lost).
+     */
+    private void enforceRetention() {
+        long now = System.currentTimeMillis();
+        while (segments.size() > 1) {
+            SpoolSegment oldest = segments.firstEntry().getValue();
+            SpoolSegment next = segments.higherEntry(oldest.getBase()).getValue();
+            boolean persisted = oldest.getEnd() <= checkpoint;
+            boolean overLimit = segments.size() > maxSegments;
+            if (!overLimit && !(persisted && isOlderThan(oldest, now - retentionMillis))) {
+                return;
+            }
+            if (!persisted) {
+                logger.warn("⚠️ Spool over {} segments, discarding unreplayed segment {}",
+                        maxSegments, oldest.getPath().getFileName());
+                checkpoint(next.getBase());
+            }
+            segments.remove(oldest.getBase());
+            try {
+                oldest.delete();
+            } catch (IOException e) {
+                logger.warn("⚠️ Could not delete spool segment {}: {}", oldest.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isOlderThan(SpoolSegment segment, long cutoffMillis) {
+        try {
+            return Files.getLastModifiedTime(segment.getPath()).toMillis() < cutoffMillis;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    // =================== READ ===================
+
+    /**
+     * Read up to {@code max} records starting at {@code position}. Also usable on archived segments
+     * to reprocess raw traffic. A corrupted record ends the result; reading at its position throws.
+     *
+     * @throws CorruptSpoolRecordException if the record at {@code position} fails its checksum
+     */
+    public List<SpoolRecord> read(long position, int max) {
+        List<SpoolRecord> records = new ArrayList<>(Math.min(max, 1024));
+        long end = endPosition; // volatile read: everything before it is fully written
+        synchronized (this) {
+            Map.Entry<Long, SpoolSegment> entry = segments.floorEntry(position);
+            if (entry == null) {
+                entry = segments.firstEntry();
+                position = entry.getKey();
+            }
+            SpoolSegment segment = entry.getValue();
+            while (records.size() < max && position < end) {
+                SpoolRecord record;
+                try {
+                    record = position < segment.getEnd() ? segment.read(position) : null;
+                } catch (CorruptSpoolRecordException e) {
+                    if (records.isEmpty()) {
+                        throw e;
+                    }
+                    break;
+                }
+                if (record == null) {
+                    Map.Entry<Long, SpoolSegment> next = segments.higherEntry(segment.getBase());
+                    if (next == null) {
+                        break;
+                    }
+                    segment = next.getValue();
+                    position = segment.getBase();
+                    continue;
+                }
+                records.add(record);
+                position = record.nextPosition();
+            }
+        }
+        return records;
+    }
+
+    // =================== STATE ===================
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getEndPosition() {
+        return endPosition;
+    }
+
+    public boolean hasBacklog() {
+        return enabled && checkpoint < endPosition;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (!enabled || checkpointChannel == null) {
+            return;
+        }
+        active.force();
+        checkpointChannel.force(false);
+        checkpointChannel.close();
+        logger.info("💾 Ingest spool closed ({} bytes pending replay)", endPosition - checkpoint);
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    private static long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.iot_backend.ingest.spool;
+
+/**
+ * One inbound message as stored in the spool.
+ *
+ * @param position     spool position of the record
+ * @param nextPosition position right after it (what the checkpoint moves to once it is persisted)
+ * @param receivedAt   epoch millis when the backend received the message
+ */
+public record SpoolRecord(long position, long nextPosition, long receivedAt, String topic, byte[] payload) {
+}
@@ -0,0 +1,162 @@
+package com.example.iot_backend.ingest.spool;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped, fixed-size segment file of the {@link IngestSpool}.
+ *
+ * Record layout (big-endian, as {@link ByteBuffer} defaults):
+ * <pre>
+ * int   bodyLength   (0 = end of data, the file is zero-filled)
+ * int   crc32(body)
+ * body: long receivedAt, short topicLength, topic (UTF-8), payload
+ * </pre>
+ */
+final class SpoolSegment {
+
+    static final int HEADER = 8;
+    private static final int BODY_FIXED = 10;
+
+    private final Path path;
+    private final long base;
+    private final int capacity;
+    private final MappedByteBuffer buffer;
+
+    // Written by the appending thread only; published through IngestSpool's volatile end position
+    private int writeOffset;
+
+    private SpoolSegment(Path path, long base, int capacity, MappedByteBuffer buffer) {
+        this.path = path;
+        this.base = base;
+        this.capacity = capacity;
+        this.buffer = buffer;
+    }
+
+    static SpoolSegment open(Path path, long base, int capacity) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < capacity) {
+                file.setLength(capacity);
+            }
+            int size = (int) Math.min(file.length(), Integer.MAX_VALUE);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            SpoolSegment segment = new SpoolSegment(path, base, size, buffer);
+            segment.writeOffset = segment.recover();
+            return segment;
+        }
+    }
+
+    /**
+     * Find the end of valid data; a torn or corrupted record (crash mid-write) ends the segment.
+     */
+    private int recover() {
+        int offset = 0;
+        while (true) {
+            int length = bodyLengthAt(offset);
+            if (length <= 0 || !checksumMatches(offset, length)) {
+                return offset;
+            }
+            offset += HEADER + length;
+        }
+    }
+
+    /**
+     * @return position after the record, or -1 when the segment is full
+     */
+    long append(long receivedAt, byte[] topic, byte[] payload) {
+        int length = BODY_FIXED + topic.length + payload.length;
+        int offset = writeOffset;
+        if (offset + HEADER + length > capacity) {
+            return -1;
+        }
+
+        ByteBuffer out = buffer.duplicate();
+        out.position(offset + HEADER);
+        out.putLong(receivedAt);
+        out.putShort((short) topic.length);
+        out.put(topic);
+        out.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER, length));
+        out.putInt(offset + 4, (int) crc.getValue());
+        // Length last: a reader (or recovery) never sees a record before its body is complete
+        out.putInt(offset, length);
+
+        writeOffset = offset + HEADER + length;
+        return base + writeOffset;
+    }
+
+    /**
+     * Read the record at {@code position}, or null when there is none (end of segment data).
+     *
+     * @throws CorruptSpoolRecordException if the record fails its checksum
+     */
+    SpoolRecord read(long position) {
+        int offset = (int) (position - base);
+        int length = bodyLengthAt(offset);
+        if (length <= 0) {
+            return null;
+        }
+        if (!checksumMatches(offset, length)) {
+            long skipTo = Math.min(position + HEADER + length, getEnd());
+            throw new CorruptSpoolRecordException("Spool checksum mismatch in " + path.getFileName()
+                    + " at offset " + offset, position, skipTo);
+        }
+
+        ByteBuffer in = buffer.duplicate();
+        in.position(offset + HEADER);
+        long receivedAt = in.getLong();
+        byte[] topic = new byte[in.getShort() & 0xFFFF];
+        in.get(topic);
+        byte[] payload = new byte[length - BODY_FIXED - topic.length];
+        in.get(payload);
+        return new SpoolRecord(position, position + HEADER + length, receivedAt,
+                new String(topic, StandardCharsets.UTF_8), payload);
+    }
+
+    private int bodyLengthAt(int offset) {
+        if (offset + HEADER > capacity) {
+            return 0;
+        }
+        int length = buffer.getInt(offset);
+        return length < BODY_FIXED || offset + HEADER + length > capacity ? 0 : length;
+    }
+
+    private boolean checksumMatches(int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + HEADER, length));
+        return (int) crc.getValue() == buffer.getInt(offset + 4);
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getBase() {
+        return base;
+    }
+
+    long getEnd() {
+        return base + writeOffset;
+    }
+
+    long getLimit() {
+        return base + capacity;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.iot_backend.live;
+
+import com.example.iot_backend.model.LedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest known state of every LED, per device, so the dashboard can load device states without
+ * scanning {@code led_events}.
+ *
+ * Updated after commit by {@code LedEventService.save} (MQTT state reports, REST and WebSocket
+ * control) and rebuilt at startup from one grouped query: the newest row per
+ * {@code (device_mac, led_number)}, read with a loose index scan on
+ * {@code idx_led_events_device_led}. An update only replaces an older state, so the rebuild can
+ * race with live updates, and is simply retried on the next read if the database was down.
+ *
+ * With {@code mqtt.inbound.shared-group} set the broker hands each state report to one instance
+ * only, so the same query is re-run every {@code live.led-states.refresh-interval-ms} and merged
+ * in: states saved by other instances show up here within that interval.
+ */
+@Component
+public class LedStateRegistry implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedStateRegistry.class);
+
+    // Cùng phase với RecentRecords: trước batch writer và inbound adapter
+    private static final int PHASE = Integer.MIN_VALUE + 500;
+    // device_mac NULL: điều khiển qua REST/WebSocket hoặc dòng cũ trước khi có cột device_mac
+    private static final String UNKNOWN_DEVICE = "";
+
+    private static final String LATEST_STATES_SQL =
+            "SELECT e.id, e.device_mac, e.led_number, e.state_on, e.created_at FROM led_events e " +
+            "JOIN (SELECT MAX(id) AS id FROM led_events WHERE led_number IS NOT NULL " +
+            "GROUP BY device_mac, led_number) latest ON e.id = latest.id";
+
+    /**
+     * State of one LED as last reported or commanded.
+     */
+    public record LedState(long eventId, boolean on, LocalDateTime updatedAt) {
+
+        boolean isNewerThan(LedState other) {
+            int byTime = updatedAt.compareTo(other.updatedAt);
+            return byTime != 0 ? byTime > 0 : eventId > other.eventId;
+        }
+    }
+
+    private record Key(String device, int ledNumber) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    // Shared subscription: các instance khác nhận phần còn lại của state report
+    private final boolean shared;
+    private final Map<Key, LedState> states = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded = false;
+    private volatile boolean running = false;
+
+    public LedStateRegistry(JdbcTemplate jdbcTemplate,
+                            @Value("${mqtt.inbound.shared-group:}") String sharedGroup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shared = sharedGroup != null && !sharedGroup.isBlank();
+    }
+
+    public void update(LedEvent event) {
+        if (event.getLedNumber() == null || event.getCreatedAt() == null || event.getId() == null) {
+            return;
+        }
+        put(event.getDeviceMac(), event.getLedNumber(),
+                new LedState(event.getId(), event.getStateOn(), event.getCreatedAt()));
+    }
+
+    /**
+     * On/off per LED number across all devices (the newest report wins), e.g. {@code {"1": true}}.
+     */
+    public Map<String, Boolean> latestStates() {
+        ensureLoaded();
+        Map<Integer, LedState> latest = new TreeMap<>();
+        states.forEach((key, state) -> latest.merge(key.ledNumber(), state,
+                (a, b) -> b.isNewerThan(a) ? b : a));
+
+        Map<String, Boolean> result = new TreeMap<>();
+        latest.forEach((led, state) -> result.put(String.valueOf(led), state.on()));
+        return result;
+    }
+
+    /**
+     * State and timestamp per device and LED; devices without a MAC are listed under {@code ""}.
+     */
+    public Map<String, Map<String, LedState>> latestStatesByDevice() {
+        ensureLoaded();
+        Map<String, Map<String, LedState>> result = new TreeMap<>();
+        states.forEach((key, state) -> result
+                .computeIfAbsent(key.device(), d -> new TreeMap<>())
+                .put(String.valueOf(key.ledNumber()), state));
+        return result;
+    }
+
+    private void put(String device, int ledNumber, LedState state) {
+        Key key = new Key(device == null ? UNKNOWN_DEVICE : device, ledNumber);
+        states.merge(key, state, (current, candidate) -> candidate.isNewerThan(current) ? candidate : current);
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        if (loaded) {
+            return;
+        }
+        try {
+            int rows = loadLatest();
+            loaded = true;
+            logger.info("💡 LED state registry loaded ({} device/LED pairs)", rows);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not load LED states, retrying on next read: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Merge states saved by other instances of a shared subscription group; a no-op otherwise,
+     * where every state report and command of this instance already goes through {@link #update}.
+     */
+    @Scheduled(initialDelayString = "${live.led-states.refresh-interval-ms:10000}",
+            fixedDelayString = "${live.led-states.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (!shared || !running) {
+            return;
+        }
+        if (!loaded) {
+            rebuild();
+            return;
+        }
+        try {
+            loadLatest();
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not refresh LED states: {}", e.getMessage());
+        }
+    }
+
+    private int loadLatest() {
+        int[] rows = {0};
+        jdbcTemplate.query(LATEST_STATES_SQL, (RowCallbackHandler) rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            if (createdAt == null) {
+                return;
+            }
+            put(rs.getString("device_mac"), rs.getInt("led_number"), new LedState(
+                    rs.getLong("id"), "ON".equals(rs.getString("state_on")), createdAt.toLocalDateTime()));
+            rows[0]++;
+        });
+        return rows[0];
+    }
+
+    // =================== LIFECYCLE ===================
+
+    @Override
+    public void start() {
+        running = true;
+        rebuild();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
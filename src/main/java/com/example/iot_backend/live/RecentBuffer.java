@@ -0,0 +1,80 @@
+package com.example.iot_backend.live;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity, lock-free ring of the latest items, newest first on read.
+ *
+ * A writer claims the next sequence number with one {@code getAndIncrement} and stores the item
+ * together with that number in slot {@code sequence % capacity}; writers never wait for each other.
+ * A reader walks back from the last claimed sequence and only takes a slot whose stored number is
+ * the one it expects, so it never mixes an overwritten slot into the result: a slot that was lapped
+ * by faster writers ends the snapshot, and a slot whose writer has claimed but not yet stored is
+ * skipped (it shows up on the next read).
+ */
+public final class RecentBuffer<T> {
+
+    private record Entry<T>(long sequence, T item) {
+    }
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry<T>> slots;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public RecentBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public void add(T item) {
+        long sequence = nextSequence.getAndIncrement();
+        slots.set((int) (sequence % capacity), new Entry<>(sequence, item));
+    }
+
+    /**
+     * Adds in list order, so the last element becomes the newest.
+     */
+    public void addAll(List<? extends T> items) {
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Up to {@code limit} items, newest first.
+     */
+    public List<T> snapshot(int limit) {
+        long last = nextSequence.get() - 1;
+        int wanted = Math.min(limit, capacity);
+        List<T> result = new ArrayList<>(wanted);
+        for (long sequence = last; sequence >= 0 && sequence > last - capacity && result.size() < wanted; sequence--) {
+            Entry<T> entry = slots.get((int) (sequence % capacity));
+            if (entry == null || entry.sequence() < sequence) {
+                continue; // claimed, not stored yet
+            }
+            if (entry.sequence() > sequence) {
+                break;    // lapped: this and everything older was overwritten while reading
+            }
+            result.add(entry.item());
+        }
+        return result;
+    }
+
+    public List<T> snapshot() {
+        return snapshot(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isEmpty() {
+        return nextSequence.get() == 0;
+    }
+}
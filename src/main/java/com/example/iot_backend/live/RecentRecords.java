@@ -0,0 +1,191 @@
+package com.example.iot_backend.live;
+
+import com.example.iot_backend.dto.LedEventView;
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.repository.ProjectionQuery;
+import com.example.iot_backend.store.SensorStore;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Latest sensor readings and LED events in memory, so {@code /recent} and the dashboard poll
+ * never query MySQL.
+ *
+ * Filled after commit by the batch writer and {@code LedEventService.save}, and warmed from the
+ * sensor store and the database once at startup, in a lifecycle phase before the batch writer
+ * and the MQTT inbound adapters start, so live rows always land on top of the warmed ones. If
+ * the database is down at startup the buffers start empty and fill from live traffic.
+ *
+ * With {@code mqtt.inbound.shared-group} set, other instances ingest part of the traffic, so the
+ * newest rows are re-read every {@code live.recent.refresh-interval-ms} and merged into each
+ * read by id: {@code /recent} then lags the other instances by at most that interval.
+ */
+@Component
+public class RecentRecords implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentRecords.class);
+
+    // Trước SensorBatchWriter (MIN_VALUE + 1000) và các inbound adapter
+    private static final int PHASE = Integer.MIN_VALUE + 500;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private final SensorStore sensorStore;
+    private final ProjectionQuery<LedEvent, LedEventView> ledEventViews;
+    private final RecentBuffer<SensorDataView> sensorData;
+    private final RecentBuffer<LedEventView> ledEvents;
+    // Shared subscription: dòng mới nhất của cả nhóm, đọc lại định kỳ từ DB (newest first)
+    private final boolean shared;
+    private volatile List<SensorDataView> storedSensorData = List.of();
+    private volatile List<LedEventView> storedLedEvents = List.of();
+
+    private volatile boolean running = false;
+
+    @Autowired
+    public RecentRecords(SensorStore sensorStore,
+                         EntityManager entityManager,
+                         @Value("${live.recent.capacity:50}") int capacity,
+                         @Value("${mqtt.inbound.shared-group:}") String sharedGroup) {
+        this(sensorStore, new ProjectionQuery<>(entityManager, LedEvent.class, LedEventView.class,
+                LedEventView.ATTRIBUTES), capacity, sharedGroup);
+    }
+
+    RecentRecords(SensorStore sensorStore,
+                  ProjectionQuery<LedEvent, LedEventView> ledEventViews,
+                  int capacity,
+                  String sharedGroup) {
+        this.sensorStore = sensorStore;
+        this.ledEventViews = ledEventViews;
+        this.sensorData = new RecentBuffer<>(capacity);
+        this.ledEvents = new RecentBuffer<>(capacity);
+        this.shared = sharedGroup != null && !sharedGroup.isBlank();
+    }
+
+    /**
+     * Newest first.
+     */
+    public List<SensorDataView> recentSensorData() {
+        List<SensorDataView> local = sensorData.snapshot();
+        return shared ? newestOf(local, storedSensorData, SensorDataView::id, SensorDataView::createdAt,
+                sensorData.getCapacity()) : local;
+    }
+
+    /**
+     * Newest first.
+     */
+    public List<LedEventView> recentLedEvents() {
+        List<LedEventView> local = ledEvents.snapshot();
+        return shared ? newestOf(local, storedLedEvents, LedEventView::id, LedEventView::createdAt,
+                ledEvents.getCapacity()) : local;
+    }
+
+    /**
+     * A committed batch, oldest first.
+     */
+    public void sensorDataStored(List<SensorData> rows) {
+        List<SensorDataView> views = new ArrayList<>(rows.size());
+        for (SensorData row : rows) {
+            views.add(SensorDataView.of(row));
+        }
+        sensorData.addAll(views);
+    }
+
+    public void ledEventStored(LedEvent event) {
+        ledEvents.add(LedEventView.of(event));
+    }
+
+    /**
+     * Re-read the newest rows written by the whole shared subscription group; a no-op without
+     * one, where this instance ingests everything itself.
+     */
+    @Scheduled(initialDelayString = "${live.recent.refresh-interval-ms:5000}",
+            fixedDelayString = "${live.recent.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!shared || !running) {
+            return;
+        }
+        try {
+            storedSensorData = List.copyOf(sensorStore.newest(sensorData.getCapacity()));
+            storedLedEvents = List.copyOf(ledEventViews.find(null, NEWEST_FIRST, 0, ledEvents.getCapacity()));
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not refresh recent records from the database: {}", e.getMessage());
+        }
+    }
+
+    // =================== LIFECYCLE ===================
+
+    @Override
+    public void start() {
+        running = true;
+        try {
+            List<SensorDataView> latestData = oldestFirst(sensorStore.newest(sensorData.getCapacity()));
+            List<LedEventView> latestEvents = oldestFirst(ledEventViews.find(null, NEWEST_FIRST, 0, ledEvents.getCapacity()));
+            sensorData.addAll(latestData);
+            ledEvents.addAll(latestEvents);
+            logger.info("🔥 Recent buffers warmed ({} sensor readings, {} LED events)",
+                    latestData.size(), latestEvents.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not warm recent buffers, filling from live data only: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Both lists newest first; a row in both (this instance wrote it) is kept once.
+     */
+    private static <T> List<T> newestOf(List<T> local, List<T> stored, Function<T, Long> id,
+                                        Function<T, LocalDateTime> createdAt, int limit) {
+        if (stored.isEmpty()) {
+            return local;
+        }
+        Map<Object, T> byId = new LinkedHashMap<>();
+        for (List<T> rows : List.of(local, stored)) {
+            for (T row : rows) {
+                Long key = id.apply(row);
+                byId.putIfAbsent(key == null ? new Object() : key, row);
+            }
+        }
+        List<T> merged = new ArrayList<>(byId.values());
+        merged.sort(Comparator.comparing(createdAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                .thenComparing(id, Comparator.nullsFirst(Comparator.<Long>naturalOrder()))
+                .reversed());
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    private static <T> List<T> oldestFirst(List<T> newestFirst) {
+        List<T> rows = new ArrayList<>(newestFirst);
+        Collections.reverse(rows);
+        return rows;
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.iot_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "led_events")  // Correct table name
+@Table(name = "led_events", indexes = {  // Correct table name
+        @Index(name = "idx_led_events_created_at", columnList = "created_at"),
+        // Lọc theo thiết bị + thời gian: led_number = ? AND created_at trong [start, end)
+        @Index(name = "idx_led_events_led_created", columnList = "led_number, created_at"),
+        // "13:28" trên mọi ngày, có hoặc không kèm lọc thiết bị
+        @Index(name = "idx_led_events_second_of_day", columnList = "second_of_day, created_at"),
+        @Index(name = "idx_led_events_led_second", columnList = "led_number, second_of_day, created_at"),
+        // Trạng thái mới nhất mỗi (thiết bị, LED): MAX(id) GROUP BY device_mac, led_number đọc thẳng từ index
+        @Index(name = "idx_led_events_device_led", columnList = "device_mac, led_number")
+})
 public class LedEvent {
 
     @Id
@@ -17,18 +27,33 @@ public class LedEvent {
     @Column(name = "state_on")  // Correct column name
     private String state;  // Will store "ON" or "OFF"
 
+    // MAC trong topic home/devices/{mac}/led/{n}/state; null khi điều khiển qua REST/WebSocket
+    @Column(name = "device_mac", length = 64)
+    private String deviceMac;
+
     @Column(name = "created_at")  // Correct column name
     private LocalDateTime createdAt;
 
+    // Giây trong ngày của created_at (0..86399), luôn cập nhật cùng setCreatedAt
+    @Column(name = "second_of_day")
+    private Integer secondOfDay;
+
     // Constructors
     public LedEvent() {
-        this.createdAt = LocalDateTime.now();
     }
 
     public LedEvent(Integer ledNumber, String state) {
         this.ledNumber = ledNumber;
         this.state = state;
-        this.createdAt = LocalDateTime.now();
+    }
+
+    // Hibernate gọi constructor không tham số cho mỗi dòng nó load, nên constructor không đọc đồng hồ;
+    // dòng mới chưa set created_at thì lấy thời điểm persist
+    @PrePersist
+    void defaultCreatedAt() {
+        if (createdAt == null) {
+            setCreatedAt(LocalDateTime.now());
+        }
     }
 
     // Getters and Setters
@@ -56,6 +81,14 @@ public class LedEvent {
         this.state = state;
     }
 
+    public String getDeviceMac() {
+        return deviceMac;
+    }
+
+    public void setDeviceMac(String deviceMac) {
+        this.deviceMac = deviceMac;
+    }
+
     // Helper methods for boolean state
     public Boolean getStateOn() {
         return "ON".equals(this.state);
@@ -71,6 +104,12 @@ public class LedEvent {
 
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
+        this.secondOfDay = createdAt == null ? null : createdAt.toLocalTime().toSecondOfDay();
+    }
+
+    @JsonIgnore
+    public Integer getSecondOfDay() {
+        return secondOfDay;
     }
 
     @Override
@@ -79,6 +118,7 @@ public class LedEvent {
                 "id=" + id +
                 ", ledNumber=" + ledNumber +
                 ", state='" + state + '\'' +
+                ", deviceMac='" + deviceMac + '\'' +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -0,0 +1,64 @@
+package com.example.iot_backend.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Time-bucket sizes of the sensor rollup tables, finest first.
+ */
+public enum RollupResolution {
+
+    MINUTE("1m", "sensor_rollup_1m", ChronoUnit.MINUTES),
+    HOUR("1h", "sensor_rollup_1h", ChronoUnit.HOURS),
+    DAY("1d", "sensor_rollup_1d", ChronoUnit.DAYS);
+
+    private final String code;
+    private final String tableName;
+    private final ChronoUnit unit;
+
+    RollupResolution(String code, String tableName, ChronoUnit unit) {
+        this.code = code;
+        this.tableName = tableName;
+        this.unit = unit;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public Duration getBucket() {
+        return unit.getDuration();
+    }
+
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Coarsest resolution whose buckets are no wider than {@code maxBucket}, or null when even
+     * one minute is too coarse (the raw rows are needed).
+     */
+    public static RollupResolution coarsestWithin(Duration maxBucket) {
+        RollupResolution result = null;
+        for (RollupResolution resolution : values()) {
+            if (resolution.getBucket().compareTo(maxBucket) <= 0) {
+                result = resolution;
+            }
+        }
+        return result;
+    }
+
+    public static RollupResolution fromCode(String code) {
+        for (RollupResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code) || resolution.name().equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rollup resolution: " + code);
+    }
+}
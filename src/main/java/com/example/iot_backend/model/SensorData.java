@@ -1,11 +1,21 @@
 // Đảm bảo SensorData entity đúng với database structure
 package com.example.iot_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "sensor_data")  // Correct table name
+@Table(name = "sensor_data", indexes = {  // Correct table name
+        // Lọc theo ngày/khoảng ngày và sắp xếp mới nhất trước đều là range scan trên index này
+        @Index(name = "idx_sensor_data_created_at", columnList = "created_at"),
+        // "13:28" trên mọi ngày: range trên second_of_day
+        @Index(name = "idx_sensor_data_second_of_day", columnList = "second_of_day, created_at"),
+        // Tìm theo giá trị ("23.5", ">25", "20..30"): range scan trên từng cột (Auto Detect: index merge)
+        @Index(name = "idx_sensor_data_temperature", columnList = "temperature"),
+        @Index(name = "idx_sensor_data_humidity", columnList = "humidity"),
+        @Index(name = "idx_sensor_data_light_level", columnList = "light_level")
+})
 public class SensorData {
 
     @Id
@@ -24,12 +34,24 @@ public class SensorData {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Giây trong ngày của created_at (0..86399), luôn cập nhật cùng setCreatedAt
+    @Column(name = "second_of_day")
+    private Integer secondOfDay;
+
     @Column(name = "uptime")  // If you have this field
     private Integer uptime;
 
     // Constructors
     public SensorData() {
-        this.createdAt = LocalDateTime.now();
+    }
+
+    // Hibernate gọi constructor không tham số cho mỗi dòng nó load, nên constructor không đọc đồng hồ;
+    // dòng mới chưa set created_at thì lấy thời điểm persist
+    @PrePersist
+    void defaultCreatedAt() {
+        if (createdAt == null) {
+            setCreatedAt(LocalDateTime.now());
+        }
     }
 
     // Getters and Setters
@@ -71,6 +93,12 @@ public class SensorData {
 
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
+        this.secondOfDay = createdAt == null ? null : createdAt.toLocalTime().toSecondOfDay();
+    }
+
+    @JsonIgnore
+    public Integer getSecondOfDay() {
+        return secondOfDay;
     }
 
     public Integer getUptime() {
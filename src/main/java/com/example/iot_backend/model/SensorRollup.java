@@ -0,0 +1,236 @@
+package com.example.iot_backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates of all sensor readings in one time bucket (count/sum/min/max/last per metric).
+ *
+ * Rows are written by {@code SensorRollupUpdater} with JDBC upserts; JPA only reads them.
+ * The average is derived from sum and count so buckets can be merged by addition. Each metric
+ * has its own count of non-null values ({@code sample_count} counts readings), so a reading
+ * without e.g. humidity does not pull the humidity average down.
+ */
+@MappedSuperclass
+public abstract class SensorRollup {
+
+    @Id
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "temperature_count")
+    private Long temperatureCount;
+
+    @Column(name = "temperature_sum")
+    private Double temperatureSum;
+
+    @Column(name = "temperature_min")
+    private Double temperatureMin;
+
+    @Column(name = "temperature_max")
+    private Double temperatureMax;
+
+    @Column(name = "temperature_last")
+    private Double temperatureLast;
+
+    @Column(name = "humidity_count")
+    private Long humidityCount;
+
+    @Column(name = "humidity_sum")
+    private Double humiditySum;
+
+    @Column(name = "humidity_min")
+    private Double humidityMin;
+
+    @Column(name = "humidity_max")
+    private Double humidityMax;
+
+    @Column(name = "humidity_last")
+    private Double humidityLast;
+
+    @Column(name = "light_level_count")
+    private Long lightLevelCount;
+
+    @Column(name = "light_level_sum")
+    private Double lightLevelSum;
+
+    @Column(name = "light_level_min")
+    private Integer lightLevelMin;
+
+    @Column(name = "light_level_max")
+    private Integer lightLevelMax;
+
+    @Column(name = "light_level_last")
+    private Integer lightLevelLast;
+
+    @Column(name = "last_at")
+    private LocalDateTime lastAt;
+
+    // Derived values
+
+    public Double getTemperatureAvg() {
+        return average(temperatureSum, temperatureCount);
+    }
+
+    public Double getHumidityAvg() {
+        return average(humiditySum, humidityCount);
+    }
+
+    public Double getLightLevelAvg() {
+        return average(lightLevelSum, lightLevelCount);
+    }
+
+    // Buckets written before the per-metric counts existed have none until their day is rebuilt
+    private Double average(Double sum, Long count) {
+        long n = count != null ? count : sampleCount;
+        return sum == null || n == 0 ? null : sum / n;
+    }
+
+    // Getters and Setters
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public Long getTemperatureCount() {
+        return temperatureCount;
+    }
+
+    public void setTemperatureCount(Long temperatureCount) {
+        this.temperatureCount = temperatureCount;
+    }
+
+    public Double getTemperatureSum() {
+        return temperatureSum;
+    }
+
+    public void setTemperatureSum(Double temperatureSum) {
+        this.temperatureSum = temperatureSum;
+    }
+
+    public Double getTemperatureMin() {
+        return temperatureMin;
+    }
+
+    public void setTemperatureMin(Double temperatureMin) {
+        this.temperatureMin = temperatureMin;
+    }
+
+    public Double getTemperatureMax() {
+        return temperatureMax;
+    }
+
+    public void setTemperatureMax(Double temperatureMax) {
+        this.temperatureMax = temperatureMax;
+    }
+
+    public Double getTemperatureLast() {
+        return temperatureLast;
+    }
+
+    public void setTemperatureLast(Double temperatureLast) {
+        this.temperatureLast = temperatureLast;
+    }
+
+    public Long getHumidityCount() {
+        return humidityCount;
+    }
+
+    public void setHumidityCount(Long humidityCount) {
+        this.humidityCount = humidityCount;
+    }
+
+    public Double getHumiditySum() {
+        return humiditySum;
+    }
+
+    public void setHumiditySum(Double humiditySum) {
+        this.humiditySum = humiditySum;
+    }
+
+    public Double getHumidityMin() {
+        return humidityMin;
+    }
+
+    public void setHumidityMin(Double humidityMin) {
+        this.humidityMin = humidityMin;
+    }
+
+    public Double getHumidityMax() {
+        return humidityMax;
+    }
+
+    public void setHumidityMax(Double humidityMax) {
+        this.humidityMax = humidityMax;
+    }
+
+    public Double getHumidityLast() {
+        return humidityLast;
+    }
+
+    public void setHumidityLast(Double humidityLast) {
+        this.humidityLast = humidityLast;
+    }
+
+    public Long getLightLevelCount() {
+        return lightLevelCount;
+    }
+
+    public void setLightLevelCount(Long lightLevelCount) {
+        this.lightLevelCount = lightLevelCount;
+    }
+
+    public Double getLightLevelSum() {
+        return lightLevelSum;
+    }
+
+    public void setLightLevelSum(Double lightLevelSum) {
+        this.lightLevelSum = lightLevelSum;
+    }
+
+    public Integer getLightLevelMin() {
+        return lightLevelMin;
+    }
+
+    public void setLightLevelMin(Integer lightLevelMin) {
+        this.lightLevelMin = lightLevelMin;
+    }
+
+    public Integer getLightLevelMax() {
+        return lightLevelMax;
+    }
+
+    public void setLightLevelMax(Integer lightLevelMax) {
+        this.lightLevelMax = lightLevelMax;
+    }
+
+    public Integer getLightLevelLast() {
+        return lightLevelLast;
+    }
+
+    public void setLightLevelLast(Integer lightLevelLast) {
+        this.lightLevelLast = lightLevelLast;
+    }
+
+    public LocalDateTime getLastAt() {
+        return lastAt;
+    }
+
+    public void setLastAt(LocalDateTime lastAt) {
+        this.lastAt = lastAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.iot_backend.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "sensor_rollup_1h")
+public class SensorRollupHour extends SensorRollup {
+}
@@ -0,0 +1,33 @@
+package com.example.iot_backend.query;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Offset page whose total came from the row counters instead of COUNT(*).
+ *
+ * When the counters cannot answer a filter exactly (text search, HH:mm filters) the total is a
+ * lower bound: the rows up to this page, plus one if there is a further page. Such pages are
+ * flagged with {@link #isTotalEstimated()}.
+ */
+public class CountedPage<T> extends PageImpl<T> {
+
+    private final boolean totalEstimated;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalEstimated) {
+        super(content, pageable, total);
+        this.totalEstimated = totalEstimated;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+
+    /** {@code totalEstimated} for any page; pages from a COUNT(*) are exact. */
+    public static boolean isEstimated(Page<?> page) {
+        return page instanceof CountedPage<?> counted && counted.isTotalEstimated();
+    }
+}
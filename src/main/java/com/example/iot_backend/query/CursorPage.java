@@ -0,0 +1,21 @@
+package com.example.iot_backend.query;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated, newest-first listing.
+ *
+ * @param nextCursor    token for the older rows after this page, null on the last page
+ * @param prevCursor    token for the newer rows before this page, null on the first page
+ * @param totalElements matching row count, only filled in when the client asked for it
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, String prevCursor, Long totalElements) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return prevCursor != null;
+    }
+}
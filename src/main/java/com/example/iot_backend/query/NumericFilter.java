@@ -0,0 +1,203 @@
+package com.example.iot_backend.query;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Value filter typed in the search box of the data-sensor page, matched against numeric columns
+ * (id, temperature, humidity, light level) as a range instead of {@code STR(x) LIKE '%term%'}.
+ *
+ * Supported forms:
+ * <ul>
+ *   <li>{@code 23.5} – every value shown as 23.5x: {@code [23.5, 23.6)}; {@code 23} is {@code [23, 24)},
+ *       {@code -5.2} is {@code (-5.3, -5.2]}</li>
+ *   <li>{@code =23.5} – exactly 23.5</li>
+ *   <li>{@code >25}, {@code >=25}, {@code <25}, {@code <=25}</li>
+ *   <li>{@code 20..30} (also {@code 20-30}) – from 20 to 30, inclusive</li>
+ * </ul>
+ *
+ * A bound is null when that side is open.
+ */
+public final class NumericFilter {
+
+    public enum Type {
+        PRECISION,  // "23.5"
+        EXACT,      // "=23.5"
+        COMPARISON, // ">25", "<=30"
+        RANGE       // "20..30"
+    }
+
+    private static final String NUMBER = "(-?\\d+(?:\\.\\d+)?)";
+    private static final Pattern PRECISION = Pattern.compile(NUMBER);
+    private static final Pattern COMPARISON = Pattern.compile("(>=|<=|>|<|=)\\s*" + NUMBER);
+    private static final Pattern RANGE = Pattern.compile(NUMBER + "\\s*(?:\\.\\.|-)\\s*" + NUMBER);
+
+    private static final BigDecimal LONG_MIN = BigDecimal.valueOf(Long.MIN_VALUE);
+    private static final BigDecimal LONG_MAX = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    private final Type type;
+    private final BigDecimal lower;
+    private final boolean lowerInclusive;
+    private final BigDecimal upper;
+    private final boolean upperInclusive;
+
+    private NumericFilter(Type type, BigDecimal lower, boolean lowerInclusive, BigDecimal upper, boolean upperInclusive) {
+        this.type = type;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * Parse a search term.
+     *
+     * @throws NumberFormatException if the text is not one of the supported forms, or a range ends
+     *                               below its start
+     */
+    public static NumericFilter parse(String text) {
+        String filter = text == null ? "" : text.trim();
+
+        Matcher precision = PRECISION.matcher(filter);
+        if (precision.matches()) {
+            BigDecimal value = new BigDecimal(filter);
+            BigDecimal step = BigDecimal.ONE.movePointLeft(value.scale());
+            // "-5.2" là -5.2x, tức là phía nhỏ hơn của -5.2
+            if (filter.startsWith("-")) {
+                return new NumericFilter(Type.PRECISION, value.subtract(step), false, value, true);
+            }
+            return new NumericFilter(Type.PRECISION, value, true, value.add(step), false);
+        }
+
+        Matcher range = RANGE.matcher(filter);
+        if (range.matches()) {
+            return between(new BigDecimal(range.group(1)), new BigDecimal(range.group(2)));
+        }
+
+        Matcher comparison = COMPARISON.matcher(filter);
+        if (comparison.matches()) {
+            BigDecimal value = new BigDecimal(comparison.group(2));
+            switch (comparison.group(1)) {
+                case ">":  return new NumericFilter(Type.COMPARISON, value, false, null, false);
+                case ">=": return new NumericFilter(Type.COMPARISON, value, true, null, false);
+                case "<":  return new NumericFilter(Type.COMPARISON, null, false, value, false);
+                case "<=": return new NumericFilter(Type.COMPARISON, null, false, value, true);
+                default:   return new NumericFilter(Type.EXACT, value, true, value, true);
+            }
+        }
+
+        throw new NumberFormatException("Unsupported value filter: " + text);
+    }
+
+    /**
+     * {@code [from, to]}, like {@code BETWEEN}.
+     *
+     * @throws NumberFormatException if {@code to} is below {@code from}
+     */
+    public static NumericFilter between(BigDecimal from, BigDecimal to) {
+        if (to.compareTo(from) < 0) {
+            throw new NumberFormatException("Range ends below its start: " + from + ".." + to);
+        }
+        return new NumericFilter(Type.RANGE, from, true, to, true);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public BigDecimal getLower() {
+        return lower;
+    }
+
+    public boolean isLowerInclusive() {
+        return lowerInclusive;
+    }
+
+    public BigDecimal getUpper() {
+        return upper;
+    }
+
+    public boolean isUpperInclusive() {
+        return upperInclusive;
+    }
+
+    /**
+     * Smallest whole number inside the filter, for integer columns (id, light_level); null if open.
+     * Bounds beyond the range of {@code long} are clamped to it, see {@link #containsWholeNumber()}.
+     */
+    public Long getWholeLower() {
+        BigDecimal whole = wholeLower();
+        return whole == null ? null : clamp(whole);
+    }
+
+    /**
+     * Largest whole number inside the filter; null if open. Clamped like {@link #getWholeLower()}.
+     */
+    public Long getWholeUpper() {
+        BigDecimal whole = wholeUpper();
+        return whole == null ? null : clamp(whole);
+    }
+
+    /**
+     * False when no whole number fits, e.g. {@code 23.5} on light_level, or none in the range of
+     * {@code long} does, e.g. {@code >99999999999999999999} on id.
+     */
+    public boolean containsWholeNumber() {
+        BigDecimal from = wholeLower();
+        BigDecimal to = wholeUpper();
+        if (from != null && from.compareTo(LONG_MAX) > 0) {
+            return false;
+        }
+        if (to != null && to.compareTo(LONG_MIN) < 0) {
+            return false;
+        }
+        return from == null || to == null || from.compareTo(to) <= 0;
+    }
+
+    public boolean contains(BigDecimal value) {
+        if (lower != null) {
+            int c = value.compareTo(lower);
+            if (c < 0 || (c == 0 && !lowerInclusive)) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            int c = value.compareTo(upper);
+            if (c > 0 || (c == 0 && !upperInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private BigDecimal wholeLower() {
+        if (lower == null) {
+            return null;
+        }
+        return lowerInclusive
+                ? lower.setScale(0, RoundingMode.CEILING)
+                : lower.setScale(0, RoundingMode.FLOOR).add(BigDecimal.ONE);
+    }
+
+    private BigDecimal wholeUpper() {
+        if (upper == null) {
+            return null;
+        }
+        return upperInclusive
+                ? upper.setScale(0, RoundingMode.FLOOR)
+                : upper.setScale(0, RoundingMode.CEILING).subtract(BigDecimal.ONE);
+    }
+
+    // Ngoài khoảng long: chặn lại thay vì longValueExact() ném ArithmeticException
+    private static long clamp(BigDecimal whole) {
+        return whole.max(LONG_MIN).min(LONG_MAX).longValueExact();
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + (lower == null ? "(-inf" : (lowerInclusive ? "[" : "(") + lower.toPlainString())
+                + ", " + (upper == null ? "+inf)" : upper.toPlainString() + (upperInclusive ? "]" : ")"));
+    }
+}
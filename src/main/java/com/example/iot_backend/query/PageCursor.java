@@ -0,0 +1,51 @@
+package com.example.iot_backend.query;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a newest-first listing, keyed on {@code (created_at, id)}.
+ *
+ * {@link Direction#OLDER} continues with the rows after this key (the next page),
+ * {@link Direction#NEWER} with the rows before it (the previous page). Clients only see the
+ * opaque URL-safe token from {@link #encode()} and must send the same filters with it.
+ */
+public record PageCursor(LocalDateTime createdAt, long id, Direction direction) {
+
+    public enum Direction {
+        OLDER,
+        NEWER
+    }
+
+    private static final String VERSION = "1";
+
+    public PageCursor {
+        if (createdAt == null || direction == null) {
+            throw new IllegalArgumentException("Cursor needs createdAt and direction");
+        }
+    }
+
+    public String encode() {
+        String raw = VERSION + "|" + (direction == Direction.OLDER ? "o" : "n") + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code token} was not produced by {@link #encode()}
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 4 || !VERSION.equals(parts[0]) || !(parts[1].equals("o") || parts[1].equals("n"))) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            Direction direction = parts[1].equals("o") ? Direction.OLDER : Direction.NEWER;
+            return new PageCursor(LocalDateTime.parse(parts[2]), Long.parseLong(parts[3]), direction);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.iot_backend.query;
+
+/**
+ * Bounds of the {@code size} request parameter of the paginated listings.
+ *
+ * Checked before a query is built: a keyset page reads {@code size + 1} rows, which overflows
+ * for {@code Integer.MAX_VALUE}, and a huge page would load that many rows into the heap.
+ */
+public final class PageSize {
+
+    public static final int MAX = 1000;
+
+    private PageSize() {
+    }
+
+    /**
+     * @throws IllegalArgumentException (a 400 in the controllers) unless 1 &lt;= size &lt;= {@link #MAX}
+     */
+    public static int check(int size) {
+        if (size < 1 || size > MAX) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX + ": " + size);
+        }
+        return size;
+    }
+}
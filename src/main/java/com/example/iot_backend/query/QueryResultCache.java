@@ -0,0 +1,309 @@
+package com.example.iot_backend.query;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of paginated history results ({@code /paginated} of sensor data and LED
+ * events), keyed by table, normalized filter, page and size.
+ *
+ * Every entry carries the {@code created_at} window its filter can match (null bounds are open;
+ * no filter, value searches and {@code HH:mm} filters match every day). Writers report committed
+ * rows with {@link #rowsStored} and only entries whose window contains them are evicted, so a
+ * new reading drops "today" and unfiltered pages but not a closed day. Windows that ended before
+ * the entry was loaded live for {@code query.cache.closed-ttl}; the rest for
+ * {@code query.cache.live-ttl}, which also bounds staleness from writes this instance does not
+ * see (another instance, manual SQL). Retention reports purges with {@link #rowsPurged}.
+ *
+ * With {@code datasource.replica.enabled} a page may be read from a replica that has not applied
+ * a write yet, after the write already evicted the entry. Entries loaded while a reported write
+ * that touches their window may still be missing on the replica expire when that write is
+ * surely replicated ({@code max-lag-seconds} plus one lag check later; {@code live-ttl} when the
+ * lag is not checked), instead of staying for {@code closed-ttl}.
+ *
+ * Size is bounded by entry count and by an estimate of the cached rows' heap size
+ * ({@value #ESTIMATED_ROW_BYTES} bytes per row), least recently used first.
+ */
+@Component
+public class QueryResultCache {
+
+    // SensorDataView / LedEventView + các wrapper (Long, Double, LocalDateTime, ...) trên heap, ước lượng
+    static final int ESTIMATED_ROW_BYTES = 256;
+    private static final int ESTIMATED_ENTRY_BYTES = 512;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long liveTtlNanos;
+    private final long closedTtlNanos;
+    // 0 = không có replica: đọc luôn thấy mọi dòng đã commit
+    private final long replicaSettleNanos;
+    private final MeterRegistry meterRegistry;
+
+    // accessOrder = true: LRU; mọi truy cập giữ lock của map
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private long nextSweep;
+    // Tăng mỗi lần table có dòng mới / bị purge; kết quả load trong lúc đó không được cache
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    // Ghi gần đây có thể chưa tới replica, theo thứ tự thời gian; giữ lock của entries
+    private final Map<String, Deque<RecentWrite>> recentWrites = new HashMap<>();
+
+    public QueryResultCache(MeterRegistry meterRegistry,
+                            @Value("${query.cache.enabled:true}") boolean enabled,
+                            @Value("${query.cache.max-entries:1000}") int maxEntries,
+                            @Value("${query.cache.max-memory-mb:64}") long maxMemoryMb,
+                            @Value("${query.cache.live-ttl:30s}") Duration liveTtl,
+                            @Value("${query.cache.closed-ttl:24h}") Duration closedTtl,
+                            @Value("${datasource.replica.enabled:false}") boolean replicaEnabled,
+                            @Value("${datasource.replica.max-lag-seconds:30}") long replicaMaxLagSeconds,
+                            @Value("${datasource.replica.lag-check-interval-ms:5000}") long replicaLagCheckIntervalMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled && maxEntries > 0;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxMemoryMb * 1024 * 1024;
+        this.liveTtlNanos = liveTtl.toNanos();
+        this.closedTtlNanos = closedTtl.toNanos();
+        if (!replicaEnabled) {
+            this.replicaSettleNanos = 0;
+        } else if (replicaMaxLagSeconds > 0) {
+            this.replicaSettleNanos = Duration.ofSeconds(replicaMaxLagSeconds)
+                    .plusMillis(replicaLagCheckIntervalMs).toNanos();
+        } else {
+            this.replicaSettleNanos = liveTtlNanos;
+        }
+        Gauge.builder("iot.query.cache.entries", this, c -> c.size()).register(meterRegistry);
+        Gauge.builder("iot.query.cache.memory", this, c -> c.estimatedBytes()).baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * The cached page for this query, or the loader's result (cached unless rows of the table
+     * were stored or purged while it ran). Exceptions from the loader propagate and nothing is cached.
+     *
+     * @param filter      normalized filter, equal for queries that return the same rows
+     * @param windowStart smallest {@code created_at} the filter matches (storage time), null = unbounded
+     * @param windowEnd   exclusive upper bound of {@code created_at}, null = unbounded
+     */
+    public <T> Page<T> page(String table, String filter, int page, int size,
+                            LocalDateTime windowStart, LocalDateTime windowEnd, Supplier<Page<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Stats tableStats = stats(table);
+        Key key = new Key(table, filter, page, size);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    tableStats.hits.increment();
+                    @SuppressWarnings("unchecked")
+                    Page<T> cached = (Page<T>) entry.page;
+                    return cached;
+                }
+                remove(key, entry, tableStats.expired);
+            }
+        }
+        tableStats.misses.increment();
+
+        long generation = generation(table).get();
+        long loadStart = System.nanoTime();
+        Page<T> loaded = loader.get();
+        boolean closed = windowEnd != null && !windowEnd.isAfter(LocalDateTime.now());
+        long expiresAt = System.nanoTime() + (closed ? closedTtlNanos : liveTtlNanos);
+        synchronized (entries) {
+            if (generation(table).get() == generation) {
+                // Đã qua thì entry hết hạn ngay, tức là không cache
+                Long settledAt = replicatedAt(table, windowStart, windowEnd, loadStart);
+                if (settledAt != null && settledAt - expiresAt < 0) {
+                    expiresAt = settledAt;
+                }
+                Entry entry = new Entry(loaded, windowStart, windowEnd, expiresAt,
+                        ESTIMATED_ENTRY_BYTES + (long) loaded.getNumberOfElements() * ESTIMATED_ROW_BYTES);
+                Entry previous = entries.put(key, entry);
+                if (previous != null) {
+                    bytes -= previous.bytes;
+                }
+                bytes += entry.bytes;
+                trim(System.nanoTime());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Committed rows of {@code table} with {@code created_at} in {@code [oldest, newest]}.
+     */
+    public void rowsStored(String table, LocalDateTime oldest, LocalDateTime newest) {
+        if (!enabled) {
+            return;
+        }
+        generation(table).incrementAndGet();
+        recordWrite(table, oldest, newest);
+        evictIf(table, entry -> (entry.windowStart == null || !entry.windowStart.isAfter(newest))
+                && (entry.windowEnd == null || entry.windowEnd.isAfter(oldest)));
+    }
+
+    /**
+     * Rows of {@code table} with {@code created_at} before {@code cutoff} were dropped or deleted.
+     */
+    public void rowsPurged(String table, LocalDateTime cutoff) {
+        if (!enabled) {
+            return;
+        }
+        generation(table).incrementAndGet();
+        recordWrite(table, null, cutoff);
+        evictIf(table, entry -> entry.windowStart == null || entry.windowStart.isBefore(cutoff));
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long estimatedBytes() {
+        synchronized (entries) {
+            return bytes;
+        }
+    }
+
+    // =================== INTERNALS ===================
+
+    private void evictIf(String table, Predicate<Entry> covers) {
+        Counter invalidated = stats(table).invalidated;
+        synchronized (entries) {
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> candidate = it.next();
+                if (candidate.getKey().table.equals(table) && covers.test(candidate.getValue())) {
+                    it.remove();
+                    bytes -= candidate.getValue().bytes;
+                    invalidated.increment();
+                }
+            }
+        }
+    }
+
+    private void recordWrite(String table, LocalDateTime oldest, LocalDateTime newest) {
+        if (replicaSettleNanos == 0) {
+            return;
+        }
+        synchronized (entries) {
+            recentWrites.computeIfAbsent(table, t -> new ArrayDeque<>())
+                    .addLast(new RecentWrite(oldest, newest, System.nanoTime() + replicaSettleNanos));
+        }
+    }
+
+    // Gọi khi đang giữ lock: lúc mọi ghi chạm vào [windowStart, windowEnd) mà replica có thể chưa có lúc loadStart
+    // chắc chắn đã tới replica; null = không có
+    private Long replicatedAt(String table, LocalDateTime windowStart, LocalDateTime windowEnd, long loadStart) {
+        Deque<RecentWrite> writes = recentWrites.get(table);
+        if (writes == null) {
+            return null;
+        }
+        while (!writes.isEmpty() && loadStart - writes.peekFirst().settledAt() >= 0) {
+            writes.pollFirst();
+        }
+        Long settledAt = null;
+        for (RecentWrite write : writes) {
+            if ((windowStart == null || !windowStart.isAfter(write.newest()))
+                    && (windowEnd == null || write.oldest() == null || windowEnd.isAfter(write.oldest()))) {
+                settledAt = write.settledAt();
+            }
+        }
+        return settledAt;
+    }
+
+    // Gọi khi đang giữ lock: bỏ entry hết hạn (tối đa mỗi live-ttl một lần), rồi LRU theo số entry / bộ nhớ
+    private void trim(long now) {
+        if (now - nextSweep >= 0) {
+            nextSweep = now + liveTtlNanos;
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, Entry> candidate = it.next();
+                if (now - candidate.getValue().expiresAt >= 0) {
+                    it.remove();
+                    bytes -= candidate.getValue().bytes;
+                    stats(candidate.getKey().table).expired.increment();
+                }
+            }
+        }
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            Map.Entry<Key, Entry> candidate = eldest.next();
+            eldest.remove();
+            bytes -= candidate.getValue().bytes;
+            stats(candidate.getKey().table).size.increment();
+        }
+    }
+
+    private void remove(Key key, Entry entry, Counter cause) {
+        entries.remove(key);
+        bytes -= entry.bytes;
+        cause.increment();
+    }
+
+    private AtomicLong generation(String table) {
+        return generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private Stats stats(String table) {
+        return stats.computeIfAbsent(table, t -> new Stats(t, meterRegistry));
+    }
+
+    private record Key(String table, String filter, int page, int size) {
+    }
+
+    // oldest null = purge mọi dòng trước newest
+    private record RecentWrite(LocalDateTime oldest, LocalDateTime newest, long settledAt) {
+    }
+
+    private record Entry(Page<?> page, LocalDateTime windowStart, LocalDateTime windowEnd, long expiresAt, long bytes) {
+    }
+
+    private static final class Stats {
+
+        final Counter hits;
+        final Counter misses;
+        final Counter invalidated;
+        final Counter expired;
+        final Counter size;
+
+        Stats(String table, MeterRegistry registry) {
+            hits = Counter.builder("iot.query.cache.requests").tag("cache", table).tag("result", "hit").register(registry);
+            misses = Counter.builder("iot.query.cache.requests").tag("cache", table).tag("result", "miss").register(registry);
+            invalidated = eviction(registry, table, "invalidated");
+            expired = eviction(registry, table, "expired");
+            size = eviction(registry, table, "size");
+            Gauge.builder("iot.query.cache.hit.ratio", this, Stats::hitRatio).tag("cache", table).register(registry);
+        }
+
+        double hitRatio() {
+            double total = hits.count() + misses.count();
+            return total == 0 ? Double.NaN : hits.count() / total;
+        }
+
+        private static Counter eviction(MeterRegistry registry, String table, String cause) {
+            return Counter.builder("iot.query.cache.evictions").tag("cache", table).tag("cause", cause).register(registry);
+        }
+    }
+}
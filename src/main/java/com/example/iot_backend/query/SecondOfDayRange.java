@@ -0,0 +1,16 @@
+package com.example.iot_backend.query;
+
+/**
+ * Half-open {@code [start, end)} interval of {@code second_of_day} values (0..86400), i.e. a
+ * wall-clock window that matches on every day.
+ */
+public record SecondOfDayRange(int start, int end) {
+
+    public static final int SECONDS_PER_DAY = 86_400;
+
+    public SecondOfDayRange {
+        if (start < 0 || end > SECONDS_PER_DAY || end <= start) {
+            throw new IllegalArgumentException("Invalid second-of-day range: [" + start + ", " + end + ")");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.iot_backend.query;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time filter typed by the user on the data-sensor and action-history pages.
+ *
+ * Supported forms (local wall-clock time of the user):
+ * <ul>
+ *   <li>{@code 13:28} – that minute, on any day</li>
+ *   <li>{@code 13:28:45} – that second, on any day</li>
+ *   <li>{@code 24/09/2025} (also 24-09-2025, 2025-09-24, 2025/09/24) – that whole day</li>
+ *   <li>{@code 24/09/2025-26/09/2025} – every day from the first to the last, inclusive</li>
+ * </ul>
+ *
+ * Only parsing happens here; {@link TimeRangeResolver} turns a date filter into a
+ * {@link TimeRange} and a time-of-day filter into {@link SecondOfDayRange}s, in the storage time zone.
+ */
+public final class TimeFilter {
+
+    public enum Type {
+        HOUR_MINUTE,        // "13:28"
+        HOUR_MINUTE_SECOND, // "13:28:45"
+        FULL_DATE,          // "24/09/2025"
+        DATE_RANGE          // "24/09/2025-26/09/2025"
+    }
+
+    private static final String DATE = "(\\d{1,2}[/-]\\d{1,2}[/-]\\d{4}|\\d{4}[/-]\\d{1,2}[/-]\\d{1,2})";
+    private static final Pattern SINGLE_DATE = Pattern.compile(DATE);
+    private static final Pattern DATE_RANGE = Pattern.compile(DATE + "\\s*-\\s*" + DATE);
+    private static final Pattern TIME = Pattern.compile("(\\d{1,2}):(\\d{2})(?::(\\d{2}))?");
+
+    // 'u' thay cho 'y' để STRICT không đòi era; thử lần lượt cho tới khi khớp
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ofPattern("d/M/uuuu").withResolverStyle(ResolverStyle.STRICT),  // "6/9/2025", "06/09/2025"
+            DateTimeFormatter.ofPattern("d-M-uuuu").withResolverStyle(ResolverStyle.STRICT),  // "6-9-2025"
+            DateTimeFormatter.ofPattern("uuuu/M/d").withResolverStyle(ResolverStyle.STRICT),  // "2025/09/06"
+            DateTimeFormatter.ofPattern("uuuu-M-d").withResolverStyle(ResolverStyle.STRICT)   // "2025-09-06" (ISO)
+    };
+
+    private final Type type;
+    private final LocalDate firstDay;
+    private final LocalDate lastDay;
+    private final LocalTime timeOfDay;
+
+    private TimeFilter(Type type, LocalDate firstDay, LocalDate lastDay, LocalTime timeOfDay) {
+        this.type = type;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.timeOfDay = timeOfDay;
+    }
+
+    /**
+     * Parse a filter string.
+     *
+     * @throws DateTimeParseException if the text is not one of the supported forms, or a
+     *                                component is out of range (e.g. 25:00, 31/02/2025)
+     */
+    public static TimeFilter parse(String text) {
+        String filter = text == null ? "" : text.trim();
+
+        Matcher range = DATE_RANGE.matcher(filter);
+        if (range.matches()) {
+            LocalDate first = parseDate(range.group(1), filter);
+            LocalDate last = parseDate(range.group(2), filter);
+            if (last.isBefore(first)) {
+                throw new DateTimeParseException("End date is before start date: " + filter, filter, 0);
+            }
+            return new TimeFilter(Type.DATE_RANGE, first, last, null);
+        }
+
+        if (SINGLE_DATE.matcher(filter).matches()) {
+            LocalDate day = parseDate(filter, filter);
+            return new TimeFilter(Type.FULL_DATE, day, day, null);
+        }
+
+        Matcher time = TIME.matcher(filter);
+        if (time.matches()) {
+            int hour = Integer.parseInt(time.group(1));
+            int minute = Integer.parseInt(time.group(2));
+            int second = time.group(3) == null ? 0 : Integer.parseInt(time.group(3));
+            if (hour > 23 || minute > 59 || second > 59) {
+                throw new DateTimeParseException("Invalid time: " + filter, filter, 0);
+            }
+            Type type = time.group(3) == null ? Type.HOUR_MINUTE : Type.HOUR_MINUTE_SECOND;
+            return new TimeFilter(type, null, null, LocalTime.of(hour, minute, second));
+        }
+
+        throw new DateTimeParseException(
+                "Unable to parse time/date pattern: " + filter +
+                        ". Supported formats: HH:mm, HH:mm:ss, d/M/yyyy, yyyy-MM-dd, d/M/yyyy-d/M/yyyy",
+                filter, 0);
+    }
+
+    private static LocalDate parseDate(String dateStr, String original) {
+        for (DateTimeFormatter formatter : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(dateStr.trim(), formatter);
+            } catch (DateTimeParseException e) {
+                // thử format tiếp theo
+            }
+        }
+        throw new DateTimeParseException("Unable to parse date: " + dateStr, original, 0);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * True for the "any day" filters ({@code HH:mm}, {@code HH:mm:ss}).
+     */
+    public boolean isTimeOfDay() {
+        return timeOfDay != null;
+    }
+
+    /**
+     * First day (inclusive) of a date filter, null for time-of-day filters.
+     */
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Last day (inclusive) of a date filter, null for time-of-day filters.
+     */
+    public LocalDate getLastDay() {
+        return lastDay;
+    }
+
+    /**
+     * Start of the matched minute/second for time-of-day filters, null for date filters.
+     */
+    public LocalTime getTimeOfDay() {
+        return timeOfDay;
+    }
+
+    /**
+     * Width of the time-of-day window: 60 s for {@code HH:mm}, 1 s for {@code HH:mm:ss}.
+     */
+    public int getWindowSeconds() {
+        return type == Type.HOUR_MINUTE ? 60 : 1;
+    }
+
+    @Override
+    public String toString() {
+        return isTimeOfDay()
+                ? "TimeFilter{" + type + " " + timeOfDay + "}"
+                : "TimeFilter{" + type + " " + firstDay + ".." + lastDay + "}";
+    }
+}
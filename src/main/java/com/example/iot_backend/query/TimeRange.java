@@ -0,0 +1,25 @@
+package com.example.iot_backend.query;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open {@code [start, end)} interval of {@code created_at} values (storage time zone).
+ *
+ * Queries compare the bare column against both bounds, so MySQL can use a range scan on any
+ * index that starts with (or ends with, after equality columns) {@code created_at}.
+ */
+public record TimeRange(LocalDateTime start, LocalDateTime end) {
+
+    public TimeRange {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("Time range bounds must not be null");
+        }
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("Empty time range: [" + start + ", " + end + ")");
+        }
+    }
+
+    public boolean contains(LocalDateTime time) {
+        return !time.isBefore(start) && time.isBefore(end);
+    }
+}
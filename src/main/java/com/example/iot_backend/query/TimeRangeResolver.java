@@ -0,0 +1,130 @@
+package com.example.iot_backend.query;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Turns a parsed {@link TimeFilter} into a half-open {@code created_at} range (dates) or
+ * {@code second_of_day} windows (time of day).
+ *
+ * Filters are read in the user's time zone ({@code query.time-zone}, default: the JVM zone);
+ * {@code created_at} is written with {@code LocalDateTime.now()}, i.e. in the JVM zone. Day
+ * boundaries are computed as instants in the user zone and converted to storage time, so a
+ * day that is 23 or 25 hours long (DST) or a user zone different from the server's gives the
+ * right rows.
+ *
+ * Time-of-day filters are exact only while the two zones are a constant offset apart (same
+ * zone, or zones without DST); see {@link #secondsOfDay(TimeFilter)}.
+ */
+@Component
+public class TimeRangeResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeRangeResolver.class);
+
+    // Older offset changes (e.g. Asia/Ho_Chi_Minh in 1975) predate any stored row
+    private static final Instant OFFSET_HISTORY_START = Instant.parse("2000-01-01T00:00:00Z");
+
+    private final ZoneId userZone;
+    private final ZoneId storageZone;
+
+    public TimeRangeResolver(@Value("${query.time-zone:}") String timeZone) {
+        this(timeZone == null || timeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(timeZone.trim()),
+                ZoneId.systemDefault());
+    }
+
+    public TimeRangeResolver(ZoneId userZone, ZoneId storageZone) {
+        this.userZone = userZone;
+        this.storageZone = storageZone;
+        if (!hasConstantOffset()) {
+            logger.warn("⚠️ query.time-zone {} and storage zone {} are not a constant offset apart: "
+                    + "HH:mm filters use today's offset and miss by the DST shift on days with the other offset",
+                    userZone, storageZone);
+        }
+    }
+
+    /**
+     * True when every instant has the same offset difference between the user and the storage
+     * zone, i.e. a wall-clock time of the user maps to one {@code second_of_day} on every day.
+     */
+    public boolean hasConstantOffset() {
+        return userZone.getRules().equals(storageZone.getRules())
+                || (userZone.getRules().nextTransition(OFFSET_HISTORY_START) == null
+                && storageZone.getRules().nextTransition(OFFSET_HISTORY_START) == null);
+    }
+
+    public ZoneId getUserZone() {
+        return userZone;
+    }
+
+    /**
+     * {@code [start of firstDay, start of the day after lastDay)} in storage time.
+     */
+    public TimeRange days(LocalDate firstDay, LocalDate lastDay) {
+        return new TimeRange(toStorage(firstDay.atStartOfDay(userZone)),
+                toStorage(lastDay.plusDays(1).atStartOfDay(userZone)));
+    }
+
+    /**
+     * A wall-clock time typed by the user (e.g. an export's {@code from}/{@code to}) in storage time.
+     */
+    public LocalDateTime toStorage(LocalDateTime userTime) {
+        return toStorage(userTime.atZone(userZone));
+    }
+
+    /**
+     * Range matching a date filter ({@code d/M/yyyy} or {@code d/M/yyyy-d/M/yyyy}).
+     */
+    public TimeRange resolve(TimeFilter filter) {
+        if (filter.isTimeOfDay()) {
+            throw new IllegalArgumentException("Time-of-day filter has no single time range: " + filter);
+        }
+        return days(filter.getFirstDay(), filter.getLastDay());
+    }
+
+    /**
+     * {@code second_of_day} windows matching a time-of-day filter ({@code HH:mm}, {@code HH:mm:ss}).
+     *
+     * {@code second_of_day} is the wall-clock time of {@code created_at}, i.e. storage time. When
+     * the user zone differs from it the window is shifted by the offset difference and split in
+     * two if it wraps around midnight.
+     *
+     * With the same zone on both sides (the default) no shift is needed and the filter is exact
+     * on every day, DST included: a time skipped by a DST gap is never stored that day, so it
+     * matches nothing on that day. With two different zones of which at least one has DST
+     * ({@link #hasConstantOffset()} false) the shift is today's; on days with the other offset
+     * the window is off by the DST difference. Per-day {@code created_at} windows would be exact
+     * but grow with the history again, so that case is a documented limitation.
+     */
+    public List<SecondOfDayRange> secondsOfDay(TimeFilter filter) {
+        return secondsOfDay(filter, Instant.now());
+    }
+
+    List<SecondOfDayRange> secondsOfDay(TimeFilter filter, Instant at) {
+        if (!filter.isTimeOfDay()) {
+            throw new IllegalArgumentException("Not a time-of-day filter: " + filter);
+        }
+        int shift = userZone.getRules().getOffset(at).getTotalSeconds()
+                - storageZone.getRules().getOffset(at).getTotalSeconds();
+        int start = Math.floorMod(filter.getTimeOfDay().toSecondOfDay() - shift, SecondOfDayRange.SECONDS_PER_DAY);
+        int end = start + filter.getWindowSeconds();
+
+        if (end <= SecondOfDayRange.SECONDS_PER_DAY) {
+            return List.of(new SecondOfDayRange(start, end));
+        }
+        return List.of(new SecondOfDayRange(start, SecondOfDayRange.SECONDS_PER_DAY),
+                new SecondOfDayRange(0, end - SecondOfDayRange.SECONDS_PER_DAY));
+    }
+
+    private LocalDateTime toStorage(ZonedDateTime time) {
+        return time.withZoneSameInstant(storageZone).toLocalDateTime();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.PageSize;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyset ("seek") pagination over {@code (createdAt, id)} for any filter {@link Specification}, returning
+ * view rows ({@link ProjectionQuery}).
+ *
+ * A page is {@code filter AND (created_at, id) < cursor ORDER BY created_at DESC, id DESC LIMIT size + 1}
+ * (or {@code >} / ascending for the previous page). The key is written as
+ * {@code created_at <= ? AND (created_at < ? OR id < ?)} so MySQL range-scans the
+ * {@code created_at} index (InnoDB secondary indexes end with the primary key, so they are
+ * ordered by {@code (created_at, id)}) and stops after {@code size + 1} rows, however deep the
+ * page is. The extra row only tells whether there is a further page; no COUNT runs unless requested.
+ */
+public final class KeysetPaging {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id"));
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * @param cursor null for the first (newest) page
+     * @param size   1..{@link PageSize#MAX}
+     * @param total  supplies totalElements for the filter; null to leave it out
+     */
+    public static <E, V> CursorPage<V> fetch(ProjectionQuery<E, V> query,
+                                             Specification<E> filter,
+                                             PageCursor cursor,
+                                             int size,
+                                             LongSupplier total,
+                                             Function<V, LocalDateTime> createdAt,
+                                             Function<V, Long> id) {
+        PageSize.check(size);
+        boolean newer = cursor != null && cursor.direction() == PageCursor.Direction.NEWER;
+        Specification<E> spec = cursor == null ? filter : filter.and(beyond(cursor));
+
+        List<V> rows = new ArrayList<>(query.find(spec, newer ? OLDEST_FIRST : NEWEST_FIRST, 0, size + 1));
+        boolean more = rows.size() > size;
+        if (more) {
+            rows.remove(rows.size() - 1);
+        }
+        if (newer) {
+            Collections.reverse(rows);
+        }
+
+        String next = null;
+        String prev = null;
+        if (!rows.isEmpty()) {
+            V first = rows.get(0);
+            V last = rows.get(rows.size() - 1);
+            boolean hasOlder = newer || more;
+            boolean hasNewer = newer ? more : cursor != null;
+            if (hasOlder) {
+                next = new PageCursor(createdAt.apply(last), id.apply(last), PageCursor.Direction.OLDER).encode();
+            }
+            if (hasNewer) {
+                prev = new PageCursor(createdAt.apply(first), id.apply(first), PageCursor.Direction.NEWER).encode();
+            }
+        }
+
+        Long totalElements = total != null ? total.getAsLong() : null;
+        return new CursorPage<>(rows, size, next, prev, totalElements);
+    }
+
+    // OLDER: (created_at, id) < key; NEWER: (created_at, id) > key
+    static <T> Specification<T> beyond(PageCursor cursor) {
+        return (root, query, cb) -> {
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Path<Long> id = root.get("id");
+            if (cursor.direction() == PageCursor.Direction.OLDER) {
+                return cb.and(
+                        cb.lessThanOrEqualTo(createdAt, cursor.createdAt()),
+                        cb.or(cb.lessThan(createdAt, cursor.createdAt()), cb.lessThan(id, cursor.id())));
+            }
+            return cb.and(
+                    cb.greaterThanOrEqualTo(createdAt, cursor.createdAt()),
+                    cb.or(cb.greaterThan(createdAt, cursor.createdAt()), cb.greaterThan(id, cursor.id())));
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.model.LedEvent;
+import org.springframework.data.jpa.domain.Specification;
+
+public class LedEventSpecification {
+
+    /**
+     * Only events of {@code ledNumber}; null matches every LED.
+     */
+    public static Specification<LedEvent> withLedNumber(Integer ledNumber) {
+        return (root, query, criteriaBuilder) -> {
+            if (ledNumber == null) {
+                return criteriaBuilder.conjunction();
+            }
+            return criteriaBuilder.equal(root.get("ledNumber"), ledNumber);
+        };
+    }
+}
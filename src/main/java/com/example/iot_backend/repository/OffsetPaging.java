@@ -0,0 +1,37 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.query.CountedPage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * OFFSET/LIMIT page of view rows for a filter {@link Specification} without the COUNT query
+ * that {@code findAll(spec, pageable)} always adds; the caller supplies the total.
+ */
+public final class OffsetPaging {
+
+    private OffsetPaging() {
+    }
+
+    /**
+     * @param exactTotal total from the row counters, or null to report a lower-bound estimate
+     */
+    public static <E, V> CountedPage<V> fetch(ProjectionQuery<E, V> query,
+                                              Specification<E> filter,
+                                              Pageable pageable,
+                                              Long exactTotal) {
+        int size = pageable.getPageSize();
+        if (exactTotal != null) {
+            List<V> content = query.find(filter, pageable.getSort(), pageable.getOffset(), size);
+            return new CountedPage<>(content, pageable, exactTotal, false);
+        }
+        // Thêm 1 dòng để biết còn trang sau hay không
+        List<V> rows = query.find(filter, pageable.getSort(), pageable.getOffset(), size + 1);
+        boolean more = rows.size() > size;
+        List<V> content = more ? rows.subList(0, size) : rows;
+        long lowerBound = pageable.getOffset() + content.size() + (more ? 1 : 0);
+        return new CountedPage<>(content, pageable, lowerBound, true);
+    }
+}
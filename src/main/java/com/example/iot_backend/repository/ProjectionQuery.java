@@ -0,0 +1,70 @@
+package com.example.iot_backend.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+/**
+ * Filter {@link Specification}s of an entity, selected as a read-only view record:
+ * {@code SELECT new View(e.a, e.b, ...) FROM Entity e WHERE <spec> ORDER BY ... LIMIT ... OFFSET ...}.
+ *
+ * The result rows are plain objects built from the JDBC row: Hibernate creates no entity
+ * instances, no loaded-state snapshot for dirty checking and no persistence-context entries, and
+ * does not auto-flush before the query. The same Specifications and sorts as the entity
+ * repositories apply, so the generated SQL and index use do not change.
+ *
+ * @param <E> entity the Specifications are written for
+ * @param <V> view record with a constructor taking {@code attributes} in order
+ */
+public final class ProjectionQuery<E, V> {
+
+    private final EntityManager entityManager;
+    private final Class<E> entityType;
+    private final Class<V> viewType;
+    private final List<String> attributes;
+
+    public ProjectionQuery(EntityManager entityManager, Class<E> entityType, Class<V> viewType, List<String> attributes) {
+        this.entityManager = entityManager;
+        this.entityType = entityType;
+        this.viewType = viewType;
+        this.attributes = attributes;
+    }
+
+    /**
+     * @param filter null for every row
+     * @param limit  maximum rows, or a negative value for no limit
+     */
+    public List<V> find(Specification<E> filter, Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<V> query = cb.createQuery(viewType);
+        Root<E> root = query.from(entityType);
+        query.select(cb.construct(viewType, attributes.stream().map(root::get).toArray(Selection<?>[]::new)));
+        Predicate predicate = filter == null ? null : filter.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        TypedQuery<V> typed = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setFlushMode(FlushModeType.COMMIT);
+        if (offset > 0) {
+            typed.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit >= 0) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+}
@@ -2,65 +2,96 @@
 package com.example.iot_backend.repository;
 
 import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.NumericFilter;
 import org.springframework.data.jpa.domain.Specification;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SensorDataSpecification {
 
-    public static Specification<SensorData> withSearch(String search) {
+    /**
+     * Numeric columns matched by the "Auto Detect" search; each has its own index.
+     */
+    public static final List<String> VALUE_ATTRIBUTES = List.of("id", "temperature", "humidity", "lightLevel");
+
+    /**
+     * {@code attribute} within the filter's bounds: a range scan on the column's index instead of
+     * {@code STR(x) LIKE '%term%'}. Integer columns use the whole numbers inside the bounds.
+     */
+    public static Specification<SensorData> withValue(String attribute, NumericFilter filter) {
         return (root, query, criteriaBuilder) -> {
-            if (search == null || search.trim().isEmpty()) {
-                return criteriaBuilder.conjunction();
-            }
+            Predicate predicate = valuePredicate(root, criteriaBuilder, attribute, filter);
+            return predicate != null ? predicate : criteriaBuilder.disjunction();
+        };
+    }
 
-            String searchPattern = "%" + search.toLowerCase() + "%";
+    /**
+     * Any of {@link #VALUE_ATTRIBUTES} within the filter's bounds (OR; MySQL merges the index ranges).
+     */
+    public static Specification<SensorData> withAnyValue(NumericFilter filter) {
+        return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
-
-            // Search in ID
-            predicates.add(
-                    criteriaBuilder.like(
-                            criteriaBuilder.lower(criteriaBuilder.toString(root.get("id"))),
-                            searchPattern
-                    )
-            );
-
-            // Search in temperature
-            predicates.add(
-                    criteriaBuilder.like(
-                            criteriaBuilder.lower(criteriaBuilder.toString(root.get("temperature"))),
-                            searchPattern
-                    )
-            );
-
-            // Search in humidity
-            predicates.add(
-                    criteriaBuilder.like(
-                            criteriaBuilder.lower(criteriaBuilder.toString(root.get("humidity"))),
-                            searchPattern
-                    )
-            );
-
-            // Search in lightLevel
-            predicates.add(
-                    criteriaBuilder.like(
-                            criteriaBuilder.lower(criteriaBuilder.toString(root.get("lightLevel"))),
-                            searchPattern
-                    )
-            );
-
+            for (String attribute : VALUE_ATTRIBUTES) {
+                Predicate predicate = valuePredicate(root, criteriaBuilder, attribute, filter);
+                if (predicate != null) {
+                    predicates.add(predicate);
+                }
+            }
             return criteriaBuilder.or(predicates.toArray(new Predicate[0]));
         };
     }
 
+    // null = không giá trị nào của cột khớp (vd 23.5 trên cột số nguyên)
+    private static Predicate valuePredicate(Root<SensorData> root, CriteriaBuilder criteriaBuilder,
+                                            String attribute, NumericFilter filter) {
+        Path<Number> column = root.get(attribute);
+        Class<?> javaType = column.getJavaType();
+        boolean whole = javaType == Integer.class || javaType == Long.class
+                || javaType == int.class || javaType == long.class;
+
+        List<Predicate> bounds = new ArrayList<>();
+        if (whole) {
+            if (!filter.containsWholeNumber()) {
+                return null;
+            }
+            Long from = filter.getWholeLower();
+            Long to = filter.getWholeUpper();
+            if (from != null && from.equals(to)) {
+                return criteriaBuilder.equal(column, from);
+            }
+            if (from != null) {
+                bounds.add(criteriaBuilder.ge(column, from));
+            }
+            if (to != null) {
+                bounds.add(criteriaBuilder.le(column, to));
+            }
+        } else {
+            if (filter.getLower() != null) {
+                double from = filter.getLower().doubleValue();
+                bounds.add(filter.isLowerInclusive() ? criteriaBuilder.ge(column, from) : criteriaBuilder.gt(column, from));
+            }
+            if (filter.getUpper() != null) {
+                double to = filter.getUpper().doubleValue();
+                bounds.add(filter.isUpperInclusive() ? criteriaBuilder.le(column, to) : criteriaBuilder.lt(column, to));
+            }
+        }
+        return criteriaBuilder.and(bounds.toArray(new Predicate[0]));
+    }
+
+    // Half-open [start, end) so the bound can use idx_sensor_data_created_at and adjacent ranges never overlap
     public static Specification<SensorData> withDateRange(LocalDateTime start, LocalDateTime end) {
         return (root, query, criteriaBuilder) -> {
             if (start == null || end == null) {
                 return criteriaBuilder.conjunction();
             }
-            return criteriaBuilder.between(root.get("createdAt"), start, end);
+            return criteriaBuilder.and(
+                    criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), start),
+                    criteriaBuilder.lessThan(root.get("createdAt"), end));
         };
     }
 }
@@ -0,0 +1,8 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.model.SensorRollupHour;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SensorRollupHourRepository extends SensorRollupRepository<SensorRollupHour> {
+}
@@ -0,0 +1,8 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.model.SensorRollupMinute;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SensorRollupMinuteRepository extends SensorRollupRepository<SensorRollupMinute> {
+}
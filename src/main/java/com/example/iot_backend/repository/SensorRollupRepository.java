@@ -0,0 +1,17 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.model.SensorRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@NoRepositoryBean
+public interface SensorRollupRepository<T extends SensorRollup> extends JpaRepository<T, LocalDateTime> {
+
+    /**
+     * Buckets starting in [from, to), oldest first - a primary key range scan.
+     */
+    List<T> findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,64 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.query.SecondOfDayRange;
+import com.example.iot_backend.query.TimeRange;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Time predicates shared by the sensor-data and LED-event queries.
+ *
+ * Every range becomes {@code col >= ? AND col < ?} on the bare column (no DATE() or TIME_FORMAT()
+ * wrapper), so the optimizer can range-scan {@code idx_*_created_at} / {@code idx_*_second_of_day}
+ * or, after an equality on {@code led_number}, the matching {@code idx_led_events_led_*} index.
+ */
+public final class TimeRangeSpecification {
+
+    private TimeRangeSpecification() {
+    }
+
+    /**
+     * Rows whose {@code createdAt} falls in any of {@code ranges}; no ranges matches nothing.
+     */
+    public static <T> Specification<T> createdWithin(List<TimeRange> ranges) {
+        return (root, query, cb) -> {
+            if (ranges.isEmpty()) {
+                return cb.disjunction();
+            }
+            Path<LocalDateTime> createdAt = root.get("createdAt");
+            Predicate[] predicates = new Predicate[ranges.size()];
+            for (int i = 0; i < predicates.length; i++) {
+                TimeRange range = ranges.get(i);
+                predicates[i] = cb.and(
+                        cb.greaterThanOrEqualTo(createdAt, range.start()),
+                        cb.lessThan(createdAt, range.end()));
+            }
+            return predicates.length == 1 ? predicates[0] : cb.or(predicates);
+        };
+    }
+
+    /**
+     * Rows whose {@code secondOfDay} (wall-clock time of {@code createdAt}) falls in any of
+     * {@code ranges}, on any day.
+     */
+    public static <T> Specification<T> secondOfDayWithin(List<SecondOfDayRange> ranges) {
+        return (root, query, cb) -> {
+            if (ranges.isEmpty()) {
+                return cb.disjunction();
+            }
+            Path<Integer> secondOfDay = root.get("secondOfDay");
+            Predicate[] predicates = new Predicate[ranges.size()];
+            for (int i = 0; i < predicates.length; i++) {
+                SecondOfDayRange range = ranges.get(i);
+                predicates[i] = cb.and(
+                        cb.greaterThanOrEqualTo(secondOfDay, range.start()),
+                        cb.lessThan(secondOfDay, range.end()));
+            }
+            return predicates.length == 1 ? predicates[0] : cb.or(predicates);
+        };
+    }
+}
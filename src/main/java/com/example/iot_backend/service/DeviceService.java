@@ -1,8 +1,8 @@
 package com.example.iot_backend.service;
 
+import com.example.iot_backend.dto.LedEventView;
 import com.example.iot_backend.gateway.MqttGateway;
 import com.example.iot_backend.model.LedEvent;
-import com.example.iot_backend.repository.LedEventRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -15,11 +15,11 @@ public class DeviceService {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceService.class);
 
-    private final LedEventRepository ledEventRepository;
+    private final LedEventService ledEventService;
     private final MqttGateway mqttGateway;
 
-    public DeviceService(LedEventRepository ledEventRepository, MqttGateway mqttGateway) {
-        this.ledEventRepository = ledEventRepository;
+    public DeviceService(LedEventService ledEventService, MqttGateway mqttGateway) {
+        this.ledEventService = ledEventService;
         this.mqttGateway = mqttGateway;
     }
 
@@ -33,28 +33,21 @@ public class DeviceService {
         logger.info("📤 MQTT command sent: home/lamps/{} -> {}", ledNumber, state ? "1" : "0");
 
         // Create a new LED event
-        LedEvent event = new LedEvent();
-        event.setLedNumber(ledNumber);
-        event.setStateOn(state);
-        return ledEventRepository.save(event);
+        return ledEventService.save(ledNumber, state);
     }
 
-    // Get LED state
-//    public Optional<Boolean> getLedState(int ledNumber) {
-//        List<LedEvent> events = ledEventRepository.findLatestLedState(ledNumber);
-//        if (events.isEmpty()) {
-//            return Optional.empty();
-//        }
-//        return Optional.of(events.get(0).getStateOn());
-//    }
+    // Get LED state (LedStateRegistry, không quét led_events)
+    public Optional<Boolean> getLedState(int ledNumber) {
+        return Optional.ofNullable(ledEventService.getLatestStates().get(String.valueOf(ledNumber)));
+    }
 
     // Get recent LED events
-    public List<LedEvent> getRecentEvents() {
-        return ledEventRepository.findTop50ByOrderByCreatedAtDesc();
+    public List<LedEventView> getRecentEvents() {
+        return ledEventService.getRecentEvents();
     }
 
     // Get events for a specific LED
-    public List<LedEvent> getLedEvents(int ledNumber) {
-        return ledEventRepository.findByLedNumberOrderByCreatedAtDesc(ledNumber);
+    public List<LedEventView> getLedEvents(int ledNumber) {
+        return ledEventService.getEventsByLed(ledNumber);
     }
 }
@@ -1,19 +1,44 @@
 package com.example.iot_backend.service;
 
+import com.example.iot_backend.dto.LedEventView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.ExportQuery;
+import com.example.iot_backend.export.StreamingExporter;
+import com.example.iot_backend.live.LedStateRegistry;
+import com.example.iot_backend.live.RecentRecords;
 import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.query.TimeFilter;
+import com.example.iot_backend.query.TimeRange;
+import com.example.iot_backend.query.TimeRangeResolver;
+import com.example.iot_backend.repository.KeysetPaging;
 import com.example.iot_backend.repository.LedEventRepository;
+import com.example.iot_backend.repository.LedEventSpecification;
+import com.example.iot_backend.repository.OffsetPaging;
+import com.example.iot_backend.repository.ProjectionQuery;
+import com.example.iot_backend.repository.TimeRangeSpecification;
+import com.example.iot_backend.storage.RowCounters;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import java.time.LocalDate;  // ADDED: Missing import
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
 
 @Service
 public class LedEventService {
@@ -21,34 +46,103 @@ public class LedEventService {
     @Autowired
     private LedEventRepository repository;
 
+    @Autowired
+    private TimeRangeResolver timeRangeResolver;
+
+    @Autowired
+    private RowCounters rowCounters;
+
+    @Autowired
+    private RecentRecords recentRecords;
+
+    @Autowired
+    private LedStateRegistry ledStateRegistry;
+
+    @Autowired
+    private StreamingExporter streamingExporter;
+
+    @Autowired
+    private QueryResultCache queryCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
     // =================== BASIC CRUD METHODS ===================
 
+    /**
+     * The only write path for LED events (MQTT state reports, REST and WebSocket control), so the
+     * row counters, the recent buffer and the LED state registry see every insert.
+     */
     @Transactional
     public LedEvent save(int ledNumber, boolean stateOn) {
+        return save(ledNumber, stateOn, null);
+    }
+
+    /**
+     * @param deviceMac MAC from the device's state topic, null for REST/WebSocket control
+     */
+    @Transactional
+    public LedEvent save(int ledNumber, boolean stateOn, String deviceMac) {
         LedEvent event = new LedEvent();
         event.setLedNumber(ledNumber);
+        event.setDeviceMac(deviceMac);
         event.setStateOn(stateOn);
         event.setCreatedAt(LocalDateTime.now());
-        return repository.save(event);
+        LedEvent saved = repository.save(event);
+
+        // Đếm sau khi commit để rollback không làm lệch bộ đếm
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    stored(saved);
+                }
+            });
+        } else {
+            stored(saved);
+        }
+        return saved;
     }
 
-    public List<LedEvent> getRecentEvents() {
-        return repository.findTop50ByOrderByCreatedAtDesc();
+    private void stored(LedEvent event) {
+        rowCounters.recordLedEvent(event);
+        recentRecords.ledEventStored(event);
+        if (event.getCreatedAt() != null) {
+            queryCache.rowsStored(RowCounters.LED_EVENTS, event.getCreatedAt(), event.getCreatedAt());
+        }
+        ledStateRegistry.update(event);
+    }
+
+    // Từ bộ nhớ (RecentRecords), không query DB
+    public List<LedEventView> getRecentEvents() {
+        return recentRecords.recentLedEvents();
+    }
+
+    // {"1": true, "2": false, ...} từ LedStateRegistry, không query DB
+    public Map<String, Boolean> getLatestStates() {
+        return ledStateRegistry.latestStates();
     }
 
-    public List<LedEvent> getEventsByLed(int ledNumber) {
-        return repository.findByLedNumberOrderByCreatedAtDesc(ledNumber);
+    public Map<String, Map<String, LedStateRegistry.LedState>> getLatestStatesByDevice() {
+        return ledStateRegistry.latestStatesByDevice();
+    }
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<LedEventView> getEventsByLed(int ledNumber) {
+        return views().find(LedEventSpecification.withLedNumber(ledNumber), NEWEST_FIRST, 0, -1);
     }
 
     public long getTotalRecords() {
-        return repository.count();
+        return rowCounters.isReady() ? rowCounters.total(RowCounters.LED_EVENTS) : repository.count();
     }
 
     // =================== MAIN PAGINATION METHOD ===================
 
-    public Page<LedEvent> getLedEventsPaginated(int page, int size, String search, String deviceFilter, String timeFilter) {
-        // Use unsorted for native queries to avoid JPA ordering conflicts
-        Pageable pageable = PageRequest.of(page, size, Sort.unsorted());
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Page<LedEventView> getLedEventsPaginated(int page, int size, String search, String deviceFilter, String timeFilter) {
+        Pageable pageable = PageRequest.of(page, size, NEWEST_FIRST);
 
         System.out.println("=== ADVANCED TIME/DATE SEARCH ===");
         System.out.println("Page: " + page + ", Size: " + size);
@@ -56,11 +150,11 @@ public class LedEventService {
         System.out.println("Time Filter: '" + timeFilter + "'");
 
         // Parse time/date pattern if provided
-        TimePattern timePattern = null;
+        TimeFilter parsedFilter = null;
         if (timeFilter != null && !timeFilter.trim().isEmpty()) {
             try {
-                timePattern = parseTimePattern(timeFilter.trim());
-                System.out.println("Parsed Pattern: " + timePattern);
+                parsedFilter = TimeFilter.parse(timeFilter);
+                System.out.println("Parsed Pattern: " + parsedFilter);
             } catch (Exception e) {
                 System.err.println("Failed to parse pattern: " + timeFilter + " - " + e.getMessage());
                 return Page.empty();
@@ -68,21 +162,29 @@ public class LedEventService {
         }
 
         // Apply filters based on pattern type
-        Page<LedEvent> result = null;
+        Page<LedEventView> result = null;
 
         try {
-            if (timePattern != null) {
-                result = searchWithTimePattern(timePattern, deviceFilter, pageable);
-            } else if (deviceFilter != null && !deviceFilter.equals("all")) {
-                // Device filter only
-                Integer ledNumber = Integer.parseInt(deviceFilter);
+            boolean hasDeviceFilter = deviceFilter != null && !deviceFilter.equals("all");
+            Integer ledNumber = hasDeviceFilter ? Integer.parseInt(deviceFilter) : null;
+            if (parsedFilter != null) {
+                System.out.println("Searching for " + parsedFilter +
+                        (hasDeviceFilter ? " on LED " + ledNumber : " on all devices"));
+            } else if (hasDeviceFilter) {
                 System.out.println("Searching by device only: LED " + ledNumber);
-                result = repository.findByLedNumberOrderByCreatedAtDesc(ledNumber, pageable);
             } else {
-                // No filters - return all
                 System.out.println("No filters - returning all records");
-                result = repository.findAllByOrderByCreatedAtDesc(pageable);
             }
+            // HH:mm khớp mọi ngày: không giới hạn created_at
+            TimeFilter countedFilter = parsedFilter;
+            TimeRange window = parsedFilter == null || parsedFilter.isTimeOfDay() ? null : timeRangeResolver.resolve(parsedFilter);
+            String cacheKey = (parsedFilter == null ? "all" : "time " + parsedFilter)
+                    + " led " + (ledNumber == null ? "all" : ledNumber);
+            // Không chạy COUNT(*): tổng lấy từ bộ đếm hoặc ước lượng (totalEstimated)
+            result = queryCache.page(RowCounters.LED_EVENTS, cacheKey, page, size,
+                    window == null ? null : window.start(), window == null ? null : window.end(),
+                    () -> OffsetPaging.fetch(views(), filterSpecification(countedFilter, ledNumber), pageable,
+                            counterTotal(countedFilter, ledNumber)));
 
         } catch (Exception e) {
             System.err.println("Error in search: " + e.getMessage());
@@ -96,206 +198,128 @@ public class LedEventService {
 
             // Print first few results for debugging
             result.getContent().stream().limit(3).forEach(event -> {
-                System.out.println("Result: ID=" + event.getId() +
-                        ", LED=" + event.getLedNumber() +
-                        ", State=" + event.getState() +
-                        ", Time=" + event.getCreatedAt());
+                System.out.println("Result: ID=" + event.id() +
+                        ", LED=" + event.ledNumber() +
+                        ", State=" + event.state() +
+                        ", Time=" + event.createdAt());
             });
         }
 
         return result != null ? result : Page.empty();
     }
 
-    // =================== PRIVATE HELPER METHODS ===================
+    // =================== CURSOR PAGINATION ===================
+
+    /**
+     * Keyset page over the same device/time filters as
+     * {@link #getLedEventsPaginated(int, int, String, String, String)}. Costs the same on page 1 and
+     * page 100 000; {@code count} adds the filter's total (row counters, COUNT(*) as fallback).
+     *
+     * @param cursor null/blank for the newest page, otherwise a nextCursor/prevCursor token
+     * @throws IllegalArgumentException if {@code cursor} is not a valid token
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CursorPage<LedEventView> getLedEventsCursorPage(String cursor, int size, String deviceFilter,
+                                                           String timeFilter, boolean count) {
+        PageCursor position = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+
+        TimeFilter parsedFilter = null;
+        if (timeFilter != null && !timeFilter.trim().isEmpty()) {
+            try {
+                parsedFilter = TimeFilter.parse(timeFilter);
+            } catch (Exception e) {
+                System.err.println("Failed to parse pattern: " + timeFilter + " - " + e.getMessage());
+                return new CursorPage<>(List.of(), size, null, null, count ? 0L : null);
+            }
+        }
 
-    private Page<LedEvent> searchWithTimePattern(TimePattern timePattern, String deviceFilter, Pageable pageable) {
         boolean hasDeviceFilter = deviceFilter != null && !deviceFilter.equals("all");
         Integer ledNumber = hasDeviceFilter ? Integer.parseInt(deviceFilter) : null;
-
-        switch (timePattern.type) {
-            case FULL_DATE:
-                System.out.println("Searching for date: " + timePattern.dateString +
-                        (hasDeviceFilter ? " on LED " + ledNumber : " on all devices"));
-                return hasDeviceFilter
-                        ? repository.findByDateAndLedNumber(timePattern.dateString, ledNumber, pageable)
-                        : repository.findByDate(timePattern.dateString, pageable);
-
-            case DATE_RANGE:
-                System.out.println("Searching for date range: " + timePattern.startDateString + " to " + timePattern.endDateString +
-                        (hasDeviceFilter ? " on LED " + ledNumber : " on all devices"));
-                return hasDeviceFilter
-                        ? repository.findByDateRangeAndLedNumber(timePattern.startDateString, timePattern.endDateString, ledNumber, pageable)
-                        : repository.findByDateRange(timePattern.startDateString, timePattern.endDateString, pageable);
-
-            case HOUR_MINUTE:
-                String timePatternStr = String.format("%02d:%02d", timePattern.hour, timePattern.minute);
-                System.out.println("Searching for time pattern: " + timePatternStr +
-                        (hasDeviceFilter ? " on LED " + ledNumber : " on all devices"));
-                return hasDeviceFilter
-                        ? repository.findByTimePatternAndLedNumber(timePatternStr, ledNumber, pageable)
-                        : repository.findByTimePattern(timePatternStr, pageable);
-
-            case HOUR_MINUTE_SECOND:
-                String exactTimeStr = String.format("%02d:%02d:%02d", timePattern.hour, timePattern.minute, timePattern.second);
-                System.out.println("Searching for exact time: " + exactTimeStr +
-                        (hasDeviceFilter ? " on LED " + ledNumber : " on all devices"));
-                return hasDeviceFilter
-                        ? repository.findByExactTimePatternAndLedNumber(exactTimeStr, ledNumber, pageable)
-                        : repository.findByExactTimePattern(exactTimeStr, pageable);
-
-            default:
-                throw new IllegalArgumentException("Unsupported time pattern type: " + timePattern.type);
-        }
+        Specification<LedEvent> filter = filterSpecification(parsedFilter, ledNumber);
+        TimeFilter countedFilter = parsedFilter;
+        LongSupplier total = !count ? null : () -> {
+            Long counted = counterTotal(countedFilter, ledNumber);
+            return counted != null ? counted : repository.count(filter);
+        };
+        return KeysetPaging.fetch(views(), filter, position, size, total, LedEventView::createdAt, LedEventView::id);
     }
 
-    private TimePattern parseTimePattern(String timeFilter) throws DateTimeParseException {
-        TimePattern pattern = new TimePattern();
-
-        try {
-            // FLEXIBLE DATE RANGE: Support "6/9/2025-8/9/2025", "06/09/2025-08/09/2025", etc.
-            if (timeFilter.contains("-") && timeFilter.matches("\\d{1,2}/\\d{1,2}/\\d{4}\\s*-\\s*\\d{1,2}/\\d{1,2}/\\d{4}")) {
-                String[] dates = timeFilter.split("-");
-                String startDateStr = dates[0].trim();
-                String endDateStr = dates[1].trim();
-
-                // Try multiple date formats for flexibility
-                LocalDate startDate = parseFlexibleDate(startDateStr);
-                LocalDate endDate = parseFlexibleDate(endDateStr);
-
-                DateTimeFormatter sqlFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                pattern.type = TimePatternType.DATE_RANGE;
-                pattern.startDateString = startDate.format(sqlFormatter);
-                pattern.endDateString = endDate.format(sqlFormatter);
-                return pattern;
-            }
-
-            // FLEXIBLE SINGLE DATE: Support "6/9/2025", "06/09/2025", "6/09/2025", etc.
-            if (timeFilter.matches("\\d{1,2}/\\d{1,2}/\\d{4}")) {
-                LocalDate date = parseFlexibleDate(timeFilter);
-                DateTimeFormatter sqlFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-                pattern.type = TimePatternType.FULL_DATE;
-                pattern.dateString = date.format(sqlFormatter);
-                return pattern;
-            }
-
-            // Try time with seconds: "13:28:45"
-            if (timeFilter.matches("\\d{1,2}:\\d{2}:\\d{2}")) {
-                String[] parts = timeFilter.split(":");
-                pattern.type = TimePatternType.HOUR_MINUTE_SECOND;
-                pattern.hour = Integer.parseInt(parts[0]);
-                pattern.minute = Integer.parseInt(parts[1]);
-                pattern.second = Integer.parseInt(parts[2]);
-
-                validateTimeComponents(pattern.hour, pattern.minute, pattern.second, timeFilter);
-                return pattern;
-            }
-
-            // Try time without seconds: "13:28"
-            if (timeFilter.matches("\\d{1,2}:\\d{2}")) {
-                String[] parts = timeFilter.split(":");
-                pattern.type = TimePatternType.HOUR_MINUTE;
-                pattern.hour = Integer.parseInt(parts[0]);
-                pattern.minute = Integer.parseInt(parts[1]);
-
-                validateTimeComponents(pattern.hour, pattern.minute, null, timeFilter);
-                return pattern;
-            }
-
-        } catch (NumberFormatException | DateTimeParseException e) {
-            throw new DateTimeParseException("Invalid format: " + e.getMessage(), timeFilter, 0);
+    // =================== STREAMING EXPORT ===================
+
+    /**
+     * Filters of {@code /export} as one query; every argument may be null.
+     *
+     * @param deviceFilter LED number or "all", as on /paginated
+     * @param from         inclusive, user wall-clock time
+     * @param to           exclusive, user wall-clock time
+     * @throws java.time.format.DateTimeParseException if {@code timeFilter} is not a supported form
+     * @throws NumberFormatException                   if {@code deviceFilter} is not a number
+     */
+    public ExportQuery exportQuery(String deviceFilter, String deviceMac, String timeFilter,
+                                   LocalDateTime from, LocalDateTime to) {
+        ExportQuery query = ExportQuery.from(RowCounters.LED_EVENTS);
+        if (deviceFilter != null && !deviceFilter.isBlank() && !deviceFilter.equals("all")) {
+            query.equal("led_number", Integer.parseInt(deviceFilter.trim()));
         }
-
-        throw new DateTimeParseException(
-                "Unable to parse time/date pattern: " + timeFilter +
-                        ". Supported formats: HH:mm, HH:mm:ss, d/M/yyyy, dd/MM/yyyy, d/M/yyyy-d/M/yyyy",
-                timeFilter, 0);
-    }
-
-    // THÊM helper method để parse flexible date formats
-    private LocalDate parseFlexibleDate(String dateStr) throws DateTimeParseException {
-        dateStr = dateStr.trim();
-
-        // List of possible date formats to try
-        DateTimeFormatter[] formatters = {
-                DateTimeFormatter.ofPattern("d/M/yyyy"),    // "6/9/2025"
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"),  // "06/09/2025"
-                DateTimeFormatter.ofPattern("d/MM/yyyy"),   // "6/09/2025"
-                DateTimeFormatter.ofPattern("dd/M/yyyy"),   // "06/9/2025"
-                DateTimeFormatter.ofPattern("d-M-yyyy"),    // "6-9-2025" (alternative separator)
-                DateTimeFormatter.ofPattern("dd-MM-yyyy"),  // "06-09-2025"
-                DateTimeFormatter.ofPattern("yyyy/MM/dd"),  // "2025/09/06" (ISO-ish)
-                DateTimeFormatter.ofPattern("yyyy-MM-dd")   // "2025-09-06" (ISO standard)
-        };
-
-        // Try each formatter until one works
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                LocalDate date = LocalDate.parse(dateStr, formatter);
-                System.out.println("Successfully parsed '" + dateStr + "' using format: " + formatter.toString());
-                return date;
-            } catch (DateTimeParseException e) {
-                // Continue trying other formats
-                continue;
-            }
+        if (deviceMac != null && !deviceMac.isBlank()) {
+            query.equal("device_mac", deviceMac.trim());
+        }
+        if (timeFilter != null && !timeFilter.isBlank()) {
+            query.within(TimeFilter.parse(timeFilter), timeRangeResolver);
+        }
+        if (from != null) {
+            query.createdFrom(timeRangeResolver.toStorage(from));
         }
+        if (to != null) {
+            query.createdBefore(timeRangeResolver.toStorage(to));
+        }
+        return query;
+    }
 
-        // If no format worked, throw exception
-        throw new DateTimeParseException(
-                "Unable to parse date: " + dateStr +
-                        ". Supported formats: d/M/yyyy, dd/MM/yyyy, d/MM/yyyy, dd/M/yyyy",
-                dateStr, 0);
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public long exportLedEvents(ExportQuery query, ExportFormat format, OutputStream out) throws IOException {
+        return streamingExporter.exportLedEvents(query, format, out);
     }
 
+    // =================== PRIVATE HELPER METHODS ===================
 
-    private void validateTimeComponents(Integer hour, Integer minute, Integer second, String original) throws DateTimeParseException {
-        if (hour < 0 || hour > 23) {
-            throw new DateTimeParseException("Invalid hour: " + hour, original, 0);
+    // Tổng chính xác từ bộ đếm; null khi bộ đếm chưa sẵn sàng hoặc filter là HH:mm / HH:mm:ss
+    private Long counterTotal(TimeFilter filter, Integer ledNumber) {
+        if (!rowCounters.isReady()) {
+            return null;
         }
-        if (minute < 0 || minute > 59) {
-            throw new DateTimeParseException("Invalid minute: " + minute, original, 0);
+        if (filter == null) {
+            return ledNumber == null ? rowCounters.total(RowCounters.LED_EVENTS) : rowCounters.totalForLed(ledNumber);
         }
-        if (second != null && (second < 0 || second > 59)) {
-            throw new DateTimeParseException("Invalid second: " + second, original, 0);
+        if (filter.isTimeOfDay()) {
+            return null;
         }
+        OptionalLong counted = rowCounters.countRange(RowCounters.LED_EVENTS, ledNumber, timeRangeResolver.resolve(filter));
+        return counted.isPresent() ? counted.getAsLong() : null;
     }
 
-    // =================== BACKWARD COMPATIBILITY ===================
-
-    public Page<LedEvent> getLedEventsPaginated(int page, int size, String search) {
-        return getLedEventsPaginated(page, size, search, "all", null);
+    // Đọc danh sách dạng view record: không nạp entity vào persistence context
+    private ProjectionQuery<LedEvent, LedEventView> views() {
+        return new ProjectionQuery<>(entityManager, LedEvent.class, LedEventView.class, LedEventView.ATTRIBUTES);
     }
 
-    // =================== HELPER CLASSES AND ENUMS ===================
-
-    enum TimePatternType {
-        HOUR_MINUTE,        // "13:28"
-        HOUR_MINUTE_SECOND, // "13:28:45"
-        FULL_DATE,          // "24/09/2025"
-        DATE_RANGE          // "24/09/2025-26/09/2025"
+    // HH:mm / HH:mm:ss: second_of_day trên mọi ngày; ngày / khoảng ngày: created_at; ledNumber null = mọi LED
+    private Specification<LedEvent> filterSpecification(TimeFilter filter, Integer ledNumber) {
+        Specification<LedEvent> spec = LedEventSpecification.withLedNumber(ledNumber);
+        if (filter == null) {
+            return spec;
+        }
+        Specification<LedEvent> timeSpec = filter.isTimeOfDay()
+                ? TimeRangeSpecification.secondOfDayWithin(timeRangeResolver.secondsOfDay(filter))
+                : TimeRangeSpecification.createdWithin(List.of(timeRangeResolver.resolve(filter)));
+        return timeSpec.and(spec);
     }
 
-    static class TimePattern {
-        TimePatternType type;
-        Integer hour;
-        Integer minute;
-        Integer second;
-        String dateString;      // For single date searches (YYYY-MM-DD format)
-        String startDateString; // For date range searches
-        String endDateString;   // For date range searches
-
-        @Override
-        public String toString() {
-            return "TimePattern{" +
-                    "type=" + type +
-                    ", hour=" + hour +
-                    ", minute=" + minute +
-                    ", second=" + second +
-                    ", dateString='" + dateString + '\'' +
-                    ", startDateString='" + startDateString + '\'' +
-                    ", endDateString='" + endDateString + '\'' +
-                    '}';
-        }
+    // =================== BACKWARD COMPATIBILITY ===================
+
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Page<LedEventView> getLedEventsPaginated(int page, int size, String search) {
+        return getLedEventsPaginated(page, size, search, "all", null);
     }
 
     // =================== UTILITY METHODS ===================
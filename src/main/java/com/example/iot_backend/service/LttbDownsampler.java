@@ -0,0 +1,109 @@
+package com.example.iot_backend.service;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for several series sharing one time axis.
+ *
+ * The points are split into {@code threshold - 2} buckets (first and last point are always kept)
+ * and from each bucket the point forming the largest triangle with the previously selected point
+ * and the average of the next bucket is kept. Because the chart uses one label axis, the triangle
+ * area is summed over all series, each normalised by its own value range so that light level
+ * (0-100) does not drown out temperature. Missing values (NaN) contribute nothing.
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * @param x         timestamps, ascending
+     * @param series    values per series, each the same length as {@code x}
+     * @param threshold number of points wanted
+     * @return indices of the selected points, ascending
+     */
+    public static int[] select(long[] x, double[][] series, int threshold) {
+        int n = x.length;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        double[] scale = new double[series.length];
+        for (int s = 0; s < series.length; s++) {
+            scale[s] = inverseRange(series[s]);
+        }
+
+        int[] selected = new int[threshold];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        double[] avgY = new double[series.length];
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket (the third triangle corner)
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j] - x[0];
+            }
+            avgX /= Math.max(1, avgEnd - avgStart);
+            for (int s = 0; s < series.length; s++) {
+                avgY[s] = mean(series[s], avgStart, avgEnd);
+            }
+
+            // Point of the current bucket with the largest triangle
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            double ax = x[a] - x[0];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double jx = x[j] - x[0];
+                double area = 0;
+                for (int s = 0; s < series.length; s++) {
+                    double ay = series[s][a];
+                    double jy = series[s][j];
+                    double term = Math.abs((ax - avgX) * (jy - ay) - (ax - jx) * (avgY[s] - ay)) * scale[s];
+                    if (Double.isFinite(term)) {
+                        area += term;
+                    }
+                }
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            selected[i + 1] = next;
+            a = next;
+        }
+
+        selected[threshold - 1] = n - 1;
+        return selected;
+    }
+
+    private static double mean(double[] values, int from, int to) {
+        double sum = 0;
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    private static double inverseRange(double[] values) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : values) {
+            if (!Double.isNaN(v)) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+        }
+        return max > min ? 1.0 / (max - min) : 0.0;
+    }
+}
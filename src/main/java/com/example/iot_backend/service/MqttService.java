@@ -1,17 +1,22 @@
 package com.example.iot_backend.service;
 
+import com.example.iot_backend.ingest.DeadbandFilter;
+import com.example.iot_backend.ingest.RedeliveryDeduplicator;
+import com.example.iot_backend.ingest.SensorBatchWriter;
+import com.example.iot_backend.ingest.codec.SensorCodecRegistry;
+import com.example.iot_backend.ingest.codec.SensorPayloadCodec;
+import com.example.iot_backend.ingest.codec.SensorReading;
+import com.example.iot_backend.ingest.routing.MqttTopicRouter;
+import com.example.iot_backend.ingest.routing.SensorTopics;
 import com.example.iot_backend.model.LedEvent;
 import com.example.iot_backend.model.SensorData;
-import com.example.iot_backend.repository.LedEventRepository;
 import com.example.iot_backend.repository.SensorDataRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 @Service
@@ -19,75 +24,90 @@ public class MqttService {
 
     private static final Logger logger = LoggerFactory.getLogger(MqttService.class);
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // One reusable reading per partition thread, so decoding does not allocate
+    private final ThreadLocal<SensorReading> sensorReadings = ThreadLocal.withInitial(SensorReading::new);
     private final SensorDataRepository sensorDataRepository;
     private final DeviceService deviceService;
     private final SensorDataService sensorDataService;
-    private final LedEventRepository ledEventRepository;
+    private final LedEventService ledEventService;
     private final WebSocketService webSocketService;
+    private final SensorBatchWriter sensorBatchWriter;
+    private final MqttTopicRouter topicRouter;
+    private final RedeliveryDeduplicator deduplicator;
+    private final SensorCodecRegistry codecRegistry;
+    private final DeadbandFilter deadbandFilter;
 
     // FIXED: Constructor with proper closing brace
     public MqttService(DeviceService deviceService,
                        SensorDataService sensorDataService,
                        WebSocketService webSocketService,
-                       LedEventRepository ledEventRepository,
-                       SensorDataRepository sensorDataRepository) {
+                       LedEventService ledEventService,
+                       SensorDataRepository sensorDataRepository,
+                       SensorBatchWriter sensorBatchWriter,
+                       MqttTopicRouter topicRouter,
+                       RedeliveryDeduplicator deduplicator,
+                       SensorCodecRegistry codecRegistry,
+                       DeadbandFilter deadbandFilter) {
         this.deviceService = deviceService;
         this.sensorDataService = sensorDataService;
         this.webSocketService = webSocketService;
-        this.ledEventRepository = ledEventRepository;
+        this.ledEventService = ledEventService;
         this.sensorDataRepository = sensorDataRepository;
+        this.sensorBatchWriter = sensorBatchWriter;
+        this.topicRouter = topicRouter;
+        this.deduplicator = deduplicator;
+        this.codecRegistry = codecRegistry;
+        this.deadbandFilter = deadbandFilter;
+        registerTopicHandlers();
     }
 
-    @ServiceActivator(inputChannel = "mqttInputChannel")
-    public void handleInbound(Message<?> message) throws Exception {
-        String topic = (String) message.getHeaders().get("mqtt_receivedTopic");
-        String payload = (String) message.getPayload(); // FIXED: Cast to String
-        logger.info("📨 MQTT received: topic={}, payload={}", topic, payload);
-
-        try {
-            // Handle sensor data
-            if ("home/sensors".equals(topic)) {
-                processSensorData(payload);
+    // Đăng ký các topic family; thêm loại thiết bị mới bằng cách register thêm filter
+    private void registerTopicHandlers() {
+        // Sensor data theo thiết bị: home/devices/{mac}/sensors (JSON) hoặc .../sensors/{format}
+        topicRouter.register(SensorTopics.DEVICE, (match, payload) ->
+                processSensorData(match.getTopic(), match.group(0), codecRegistry.getDefault(), payload));
+        topicRouter.register(SensorTopics.DEVICE_WITH_FORMAT, (match, payload) -> {
+            SensorPayloadCodec codec = codecRegistry.find(match, 1);
+            if (codec == null) {
+                logger.warn("⚠️ Unknown sensor payload format in topic: {}", match.getTopic());
                 return;
             }
-
-            // Xử lý state message từ ESP32
-            if (topic != null && topic.startsWith("home/devices/") && topic.endsWith("/state")) {
-                // Format: home/devices/{mac}/led/{number}/state
-                String[] parts = topic.split("/");
-                if (parts.length == 6) {
-                    try {
-                        String mac = parts[2];
-                        int ledNumber = Integer.parseInt(parts[4]);
-                        boolean state = "1".equals(payload);
-                        processLedStateMessage(ledNumber, mac, state, payload);
-                    } catch (NumberFormatException e) {
-                        logger.error("Invalid LED number in topic: {}", topic);
-                        throw e;
-                    }
-                }
+            processSensorData(match.getTopic(), match.group(0), codec, payload);
+        });
+
+        // Topic chung (legacy): home/sensors (JSON) hoặc home/sensors/{format}; payload không có MAC
+        topicRouter.register(SensorTopics.LEGACY, (match, payload) ->
+                processSensorData(match.getTopic(), null, codecRegistry.getDefault(), payload));
+        topicRouter.register(SensorTopics.LEGACY_WITH_FORMAT, (match, payload) -> {
+            SensorPayloadCodec codec = codecRegistry.find(match, 0);
+            if (codec == null) {
+                logger.warn("⚠️ Unknown sensor payload format in topic: {}", match.getTopic());
                 return;
             }
+            processSensorData(match.getTopic(), null, codec, payload);
+        });
 
-            // Xử lý command message cho LED control
-            if (topic != null && topic.startsWith("home/lamps/")) {
-                String[] parts = topic.split("/");
-                if (parts.length == 3) {
-                    try {
-                        int ledNumber = Integer.parseInt(parts[2]);
-                        boolean state = "1".equals(payload);
-                        processLedCommandMessage(ledNumber, state);
-                    } catch (NumberFormatException e) {
-                        logger.error("Invalid LED number in topic: {}", topic);
-                        throw e;
-                    }
-                }
-                return;
-            }
+        // State message từ ESP32: home/devices/{mac}/led/{number}/state
+        topicRouter.register("home/devices/+/led/+/state", (match, payload) ->
+                processLedStateMessage(match.intGroup(1), match.group(0), isOnPayload(payload)));
+
+        // Command message cho LED control: home/lamps/{number}
+        topicRouter.register("home/lamps/+", (match, payload) ->
+                processLedCommandMessage(match.intGroup(0), isOnPayload(payload)));
+    }
 
-            logger.warn("⚠️ Unhandled MQTT topic: {}", topic);
+    // Called from PartitionedInboundDispatcher (one thread per partition, per-device ordering)
+    public void handleInbound(Message<?> message) throws Exception {
+        String topic = (String) message.getHeaders().get("mqtt_receivedTopic");
+        byte[] payload = (byte[]) message.getPayload(); // converter is configured with payloadAsBytes
+        if (logger.isDebugEnabled()) {
+            logger.debug("📨 MQTT received: topic={}, payload={}", topic, new String(payload, StandardCharsets.UTF_8));
+        }
 
+        try {
+            if (!topicRouter.route(topic, payload)) {
+                logger.warn("⚠️ Unhandled MQTT topic: {}", topic);
+            }
         } catch (Exception e) {
             logger.error("❌ Error handling MQTT message: {}", e.getMessage(), e);
             throw e; // Re-throw để Spring Integration có thể xử lý
@@ -95,17 +115,18 @@ public class MqttService {
     }
 
     @Transactional
-    protected void processLedStateMessage(int ledNumber, String mac, boolean state, String payload) throws Exception {
+    protected void processLedStateMessage(int ledNumber, String mac, boolean state) throws Exception {
         try {
+            // QoS 1: broker có thể gửi lại message sau khi reconnect
+            if (deduplicator.isDuplicateLedState(mac, ledNumber, state)) {
+                logger.debug("🔁 Duplicate LED {} state from {} ignored", ledNumber, mac);
+                return;
+            }
+
             logger.info("🔄 Processing LED {} STATE - State: {}", ledNumber, state ? "ON" : "OFF");
 
             // Create and save LED event with only essential information
-            LedEvent stateEvent = new LedEvent();
-            stateEvent.setLedNumber(ledNumber);
-            stateEvent.setStateOn(state);
-            stateEvent.setCreatedAt(LocalDateTime.now()); // ADDED: Ensure timestamp is set
-
-            LedEvent savedStateEvent = ledEventRepository.save(stateEvent);
+            LedEvent savedStateEvent = ledEventService.save(ledNumber, state, mac);
             logger.info("✅ ESP32 LED {} STATE saved: ID={}", ledNumber, savedStateEvent.getId());
 
             // Send WebSocket update
@@ -136,35 +157,54 @@ public class MqttService {
         }
     }
 
-    @Transactional
-    protected void processSensorData(String payload) throws Exception {
+    // device: MAC từ home/devices/{mac}/sensors..., null với topic chung home/sensors (không biết thiết bị)
+    protected void processSensorData(String topic, String device, SensorPayloadCodec codec, byte[] payload) throws Exception {
         try {
-            JsonNode node = objectMapper.readTree(payload);
+            SensorReading reading = sensorReadings.get();
+            codec.decode(payload, reading);
+
+            // QoS 1 redelivery: cùng device + uptime + payload thì bỏ qua trước khi ghi DB/WebSocket
+            if (deduplicator.isDuplicateReading(device, reading.getUptime(), payload)) {
+                logger.debug("🔁 Duplicate sensor reading ignored (uptime={})", reading.getUptime());
+                return;
+            }
 
             // Create new sensor data object with only essential fields
             SensorData sensorData = new SensorData();
-            sensorData.setTemperature(node.get("temp").asDouble());
-            sensorData.setHumidity(node.get("hum").asDouble());
+            sensorData.setTemperature(reading.getTemperature());
+            sensorData.setHumidity(reading.getHumidity());
 
             // Calculate light level from raw value (0-4095) to percentage (0-100)
-            int lightLevel = (int) ((1.0 - (node.get("light_raw").asDouble() / 4095.0)) * 100);
-            sensorData.setLightLevel(lightLevel);
-            sensorData.setUptime(node.get("uptime").asInt());
+            sensorData.setLightLevel(reading.getLightLevel());
+            sensorData.setUptime((int) reading.getUptime());
             sensorData.setCreatedAt(LocalDateTime.now());
 
-            // Save to database
-            sensorDataRepository.save(sensorData);
-
-            // Send update via WebSocket
+            // Send update via WebSocket (luôn gửi, dashboard realtime không bị lọc).
+            // Chưa có id: row được ghi sau bởi batch writer, live payload không mang id
             if (webSocketService != null) {
                 webSocketService.sendSensorUpdate(sensorData);
             }
 
-            logger.info("✅ Sensor data processed and saved successfully");
+            // Deadband theo từng thiết bị: chỉ lưu khi giá trị thay đổi đủ lớn hoặc đã quá max-silence (heartbeat);
+            // topic chung (device null) luôn lưu vì không so sánh được giữa các thiết bị
+            if (!deadbandFilter.shouldStore(device, sensorData)) {
+                logger.debug("〰️ Sensor reading within deadband, not stored");
+                return;
+            }
+
+            // Spool + queue for the batch writer instead of a per-row save/commit
+            sensorBatchWriter.submit(device, sensorData, topic, payload);
+
+            logger.info("✅ Sensor data processed and queued for saving");
 
         } catch (Exception e) {
             logger.error("❌ Error processing sensor data: {}", e.getMessage(), e);
-            throw e; // Re-throw để transaction rollback
+            throw e; // Re-throw để Spring Integration có thể xử lý
         }
     }
+
+    // ESP32 gửi "1" (ON) hoặc "0" (OFF)
+    private static boolean isOnPayload(byte[] payload) {
+        return payload.length == 1 && payload[0] == '1';
+    }
 }
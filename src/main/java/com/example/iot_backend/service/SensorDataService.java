@@ -1,58 +1,119 @@
 package com.example.iot_backend.service;
 
+import com.example.iot_backend.dto.ChartDataResponse;
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.live.RecentRecords;
+import com.example.iot_backend.model.RollupResolution;
 import com.example.iot_backend.model.SensorData;
-import com.example.iot_backend.repository.SensorDataRepository;
+import com.example.iot_backend.model.SensorRollup;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.NumericFilter;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.query.TimeFilter;
+import com.example.iot_backend.query.TimeRangeResolver;
+import com.example.iot_backend.store.SensorFilter;
+import com.example.iot_backend.store.SensorStore;
+import com.example.iot_backend.storage.RowCounters;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import java.time.LocalDate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class SensorDataService {
 
     @Autowired
-    private SensorDataRepository repository;
+    private SensorStore sensorStore;
+
+    @Autowired
+    private SensorRollupService rollupService;
+
+    @Autowired
+    private TimeRangeResolver timeRangeResolver;
+
+    @Autowired
+    private RecentRecords recentRecords;
+
+    @Autowired
+    private QueryResultCache queryCache;
+
+    public static final int DEFAULT_CHART_POINTS = 300;
+    private static final int MAX_CHART_POINTS = 2000;
+    // Read up to this many source points per output point so LTTB has something to choose from
+    private static final int CHART_OVERSAMPLING = 4;
+    private static final Pattern CHART_RANGE = Pattern.compile("(\\d{1,4})([mhdwy])");
 
     // =================== NEW PAGINATION METHOD ===================
 
-    public Page<SensorData> getSensorDataPaginated(int page, int size, String search, String searchType, String timeFilter) {
-        Pageable pageable = PageRequest.of(page, size, Sort.unsorted());
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Page<SensorDataView> getSensorDataPaginated(int page, int size, String search, String searchType, String timeFilter) {
+        Pageable pageable = PageRequest.of(page, size);
 
         System.out.println("=== SENSOR DATA TIME/DATE SEARCH ===");
         System.out.println("Page: " + page + ", Size: " + size);
         System.out.println("Search: '" + search + "', Type: " + searchType);
         System.out.println("Time Filter: '" + timeFilter + "'");
 
-        TimePattern timePattern = null;
+        TimeFilter parsedFilter = null;
         if (timeFilter != null && !timeFilter.trim().isEmpty()) {
             try {
-                timePattern = parseTimePattern(timeFilter.trim());
-                System.out.println("Parsed Pattern: " + timePattern);
+                parsedFilter = TimeFilter.parse(timeFilter);
+                System.out.println("Parsed Pattern: " + parsedFilter);
             } catch (Exception e) {
                 System.err.println("Failed to parse time pattern: " + timeFilter + " - " + e.getMessage());
                 return Page.empty();
             }
         }
 
-        Page<SensorData> result = null;
+        NumericFilter parsedSearch = null;
+        if (parsedFilter == null && search != null && !search.trim().isEmpty()) {
+            try {
+                parsedSearch = NumericFilter.parse(search);
+                System.out.println("Parsed Search: " + parsedSearch);
+            } catch (NumberFormatException e) {
+                // Mọi cột đều là số: chuỗi không phải số không khớp dòng nào
+                System.err.println("Failed to parse search value: " + search + " - " + e.getMessage());
+                return Page.empty();
+            }
+        }
+
+        Page<SensorDataView> result = null;
 
         try {
-            if (timePattern != null) {
-                result = searchWithTimePattern(timePattern, pageable);
-            } else if (search != null && !search.trim().isEmpty()) {
-                result = searchWithGeneralQuery(search.trim(), searchType, pageable);
+            SensorFilter filter;
+            String cacheKey;
+            if (parsedFilter != null) {
+                System.out.println("Searching sensor data for " + parsedFilter);
+                filter = timeRangeFilter(parsedFilter);
+                cacheKey = "time " + parsedFilter;
+            } else if (parsedSearch != null) {
+                String attribute = searchAttribute(searchType);
+                filter = searchFilter(parsedSearch, searchType);
+                cacheKey = "search " + parsedSearch + " in " + (attribute == null ? "any" : attribute);
             } else {
                 System.out.println("No filters - returning all sensor data");
-                result = repository.findAllByOrderByCreatedAtDesc(pageable);
+                filter = SensorFilter.all();
+                cacheKey = "all";
             }
+            // Không chạy COUNT(*): tổng lấy từ bộ đếm / index của store hoặc ước lượng (totalEstimated)
+            result = queryCache.page(RowCounters.SENSOR_DATA, cacheKey, page, size,
+                    filter.lowerTimeBound(), filter.upperTimeBound(), () -> sensorStore.page(filter, pageable));
 
         } catch (Exception e) {
             System.err.println("Error in sensor data search: " + e.getMessage());
@@ -67,233 +128,303 @@ public class SensorDataService {
         return result != null ? result : Page.empty();
     }
 
-    // =================== COMPATIBILITY METHODS (ADDED) ===================
+    // =================== CURSOR PAGINATION ===================
 
     /**
-     * Get all sensor data without pagination - FOR COMPATIBILITY
+     * Keyset page over the same filters as {@link #getSensorDataPaginated(int, int, String, String, String)}.
+     * Costs the same on page 1 and page 100 000; {@code count} adds a COUNT(*) for the filter.
+     *
+     * @param cursor null/blank for the newest page, otherwise a nextCursor/prevCursor token
+     * @throws IllegalArgumentException if {@code cursor} is not a valid token
      */
-    public List<SensorData> getAllSensorData() {
-        return repository.findAllByOrderByCreatedAtDesc();
-    }
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public CursorPage<SensorDataView> getSensorDataCursorPage(String cursor, int size, String search, String searchType,
+                                                          String timeFilter, boolean count) {
+        PageCursor position = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
 
-    /**
-     * Get sensor data by date range - FOR COMPATIBILITY
-     */
-    public List<SensorData> getSensorDataByDateRange(LocalDateTime start, LocalDateTime end) {
-        DateTimeFormatter sqlFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        String startDate = start.toLocalDate().format(sqlFormatter);
-        String endDate = end.toLocalDate().format(sqlFormatter);
+        TimeFilter parsedFilter = null;
+        if (timeFilter != null && !timeFilter.trim().isEmpty()) {
+            try {
+                parsedFilter = TimeFilter.parse(timeFilter);
+            } catch (Exception e) {
+                System.err.println("Failed to parse time pattern: " + timeFilter + " - " + e.getMessage());
+                return new CursorPage<>(List.of(), size, null, null, count ? 0L : null);
+            }
+        }
 
-        Pageable unpaged = PageRequest.of(0, Integer.MAX_VALUE, Sort.unsorted());
-        Page<SensorData> page = repository.findByDateRange(startDate, endDate, unpaged);
+        boolean hasSearch = parsedFilter == null && search != null && !search.trim().isEmpty();
+        NumericFilter parsedSearch = null;
+        if (hasSearch) {
+            try {
+                parsedSearch = NumericFilter.parse(search);
+            } catch (NumberFormatException e) {
+                System.err.println("Failed to parse search value: " + search + " - " + e.getMessage());
+                return new CursorPage<>(List.of(), size, null, null, count ? 0L : null);
+            }
+        }
 
-        return page.getContent();
+        SensorFilter filter;
+        if (parsedFilter != null) {
+            filter = timeRangeFilter(parsedFilter);
+        } else if (hasSearch) {
+            filter = searchFilter(parsedSearch, searchType);
+        } else {
+            filter = SensorFilter.all();
+        }
+        return sensorStore.cursorPage(filter, position, size, count);
     }
 
+    // =================== STREAMING EXPORT ===================
+    // /export, /all và các endpoint range: stream thẳng từ store ra response, không dựng List
+
     /**
-     * Get sensor data by ID - FOR COMPATIBILITY
+     * Filters of {@code /export}; every argument may be null.
+     *
+     * @param from        inclusive, user wall-clock time
+     * @param to          exclusive, user wall-clock time
+     * @param temperature value filter as typed in the search box ("23.5", ">25", "20..30")
+     * @throws java.time.format.DateTimeParseException if {@code timeFilter} is not a supported form
+     * @throws NumberFormatException                   if a value filter is not a supported form
      */
-    public Optional<SensorData> getSensorDataById(Long id) {
-        return repository.findById(id);
+    public SensorFilter exportFilter(String timeFilter, LocalDateTime from, LocalDateTime to,
+                                     String temperature, String humidity, String lightLevel) {
+        SensorFilter filter = SensorFilter.all();
+        if (timeFilter != null && !timeFilter.isBlank()) {
+            filter = timeRangeFilter(TimeFilter.parse(timeFilter));
+        }
+        if (from != null) {
+            filter.createdFrom(timeRangeResolver.toStorage(from));
+        }
+        if (to != null) {
+            filter.createdBefore(timeRangeResolver.toStorage(to));
+        }
+        if (temperature != null && !temperature.isBlank()) {
+            filter.value("temperature", NumericFilter.parse(temperature));
+        }
+        if (humidity != null && !humidity.isBlank()) {
+            filter.value("humidity", NumericFilter.parse(humidity));
+        }
+        if (lightLevel != null && !lightLevel.isBlank()) {
+            filter.value("lightLevel", NumericFilter.parse(lightLevel));
+        }
+        return filter;
     }
 
     /**
-     * Get sensor data by temperature range - FOR COMPATIBILITY
+     * Every reading whose day is between {@code start}'s and {@code end}'s, inclusive (the old
+     * {@code DATE(created_at) BETWEEN}, as an index range).
      */
-    public List<SensorData> getSensorDataByTemperatureRange(Double minTemp, Double maxTemp) {
-        Pageable unpaged = PageRequest.of(0, Integer.MAX_VALUE, Sort.unsorted());
-        Page<SensorData> page = repository.findByTemperatureRange(minTemp, maxTemp, unpaged);
-        return page.getContent();
+    public SensorFilter exportFilterForDays(LocalDateTime start, LocalDateTime end) {
+        if (end.toLocalDate().isBefore(start.toLocalDate())) {
+            return SensorFilter.all().matchNothing();
+        }
+        return SensorFilter.all().createdWithin(List.of(timeRangeResolver.days(start.toLocalDate(), end.toLocalDate())));
     }
 
     /**
-     * Get sensor data by humidity range - FOR COMPATIBILITY
+     * {@code attribute BETWEEN min AND max}; an inverted range matches nothing, as before.
      */
-    public List<SensorData> getSensorDataByHumidityRange(Double minHumidity, Double maxHumidity) {
-        Pageable unpaged = PageRequest.of(0, Integer.MAX_VALUE, Sort.unsorted());
-        Page<SensorData> page = repository.findByHumidityRange(minHumidity, maxHumidity, unpaged);
-        return page.getContent();
-    }
-
-    // =================== EXISTING METHODS ===================
-
-    public List<SensorData> getRecentData() {
-        return repository.findTop50ByOrderByCreatedAtDesc();
+    public SensorFilter exportFilterBetween(String attribute, Double min, Double max) {
+        if (max < min) {
+            return SensorFilter.all().matchNothing();
+        }
+        return SensorFilter.all().value(attribute, NumericFilter.between(BigDecimal.valueOf(min), BigDecimal.valueOf(max)));
     }
 
-    public long getTotalRecords() {
-        return repository.count();
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public long exportSensorData(SensorFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        return sensorStore.export(filter, format, out);
     }
 
-    public Page<SensorData> getSensorDataPaginated(int page, int size, String search) {
-        return getSensorDataPaginated(page, size, search, "Auto Detect", null);
+    /**
+     * Get sensor data by ID - FOR COMPATIBILITY
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Optional<SensorData> getSensorDataById(Long id) {
+        return sensorStore.findById(id);
     }
 
-    // =================== HELPER METHODS ===================
-
-    private Page<SensorData> searchWithTimePattern(TimePattern timePattern, Pageable pageable) {
-        switch (timePattern.type) {
-            case FULL_DATE:
-                System.out.println("Searching sensor data for date: " + timePattern.dateString);
-                return repository.findByDate(timePattern.dateString, pageable);
+    // =================== CHART DATA ===================
 
-            case DATE_RANGE:
-                System.out.println("Searching sensor data for date range: " + timePattern.startDateString + " to " + timePattern.endDateString);
-                return repository.findByDateRange(timePattern.startDateString, timePattern.endDateString, pageable);
-
-            case HOUR_MINUTE:
-                String timePatternStr = String.format("%02d:%02d", timePattern.hour, timePattern.minute);
-                System.out.println("Searching sensor data for time pattern: " + timePatternStr);
-                return repository.findByTimePattern(timePatternStr, pageable);
-
-            case HOUR_MINUTE_SECOND:
-                String exactTimeStr = String.format("%02d:%02d:%02d", timePattern.hour, timePattern.minute, timePattern.second);
-                System.out.println("Searching sensor data for exact time: " + exactTimeStr);
-                return repository.findByExactTimePattern(exactTimeStr, pageable);
+    /**
+     * Chart series for the last {@code range} (e.g. 30m, 6h, 7d, 1y), downsampled to at most
+     * {@code points} points with LTTB.
+     *
+     * The source is the coarsest rollup table that still has {@code points * 4} buckets in the
+     * range, else the minute rollup as long as it has {@code points} buckets (a 6h chart reads
+     * 360 rows, not every reading), and the raw rows only for ranges shorter than that, so the
+     * work and the payload stay about the same whether the range is an hour or a year.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public ChartDataResponse getChartData(String range, int points) {
+        Duration duration = parseChartRange(range);
+        int threshold = Math.max(3, Math.min(points, MAX_CHART_POINTS));
+        LocalDateTime to = LocalDateTime.now();
+        LocalDateTime from = to.minus(duration);
+
+        // Store không có rollup (columnar) tự gộp theo block khi khoảng quá dài
+        RollupResolution resolution = sensorStore.hasRollups() ? chartResolution(duration, threshold) : null;
+        ChartSource source;
+        String resolutionCode;
+        if (resolution == null) {
+            source = new ChartSource(256);
+            resolutionCode = sensorStore.chart(from, to, threshold * CHART_OVERSAMPLING, source::add);
+            source.trim();
+        } else {
+            source = loadRollupChartSource(from, to, resolution);
+            resolutionCode = resolution.getCode();
+        }
 
-            default:
-                throw new IllegalArgumentException("Unsupported time pattern type: " + timePattern.type);
+        int[] selected = LttbDownsampler.select(source.t, new double[][]{source.temperature, source.humidity, source.light}, threshold);
+
+        long[] t = new long[selected.length];
+        Double[] temperature = new Double[selected.length];
+        Double[] humidity = new Double[selected.length];
+        Double[] light = new Double[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            int j = selected[i];
+            t[i] = source.t[j];
+            temperature[i] = boxed(source.temperature[j]);
+            humidity[i] = boxed(source.humidity[j]);
+            light[i] = boxed(source.light[j]);
         }
+        return new ChartDataResponse(range, resolutionCode,
+                selected.length, t, temperature, humidity, light);
     }
 
-    private Page<SensorData> searchWithGeneralQuery(String search, String searchType, Pageable pageable) {
-        if (searchType == null || "Auto Detect".equals(searchType)) {
-            return repository.findByMultiFieldSearch(search, pageable);
-        }
+    /**
+     * @return the rollup to chart {@code range} from with at least {@code points} buckets, or null for raw rows
+     */
+    static RollupResolution chartResolution(Duration range, int points) {
+        RollupResolution oversampled = RollupResolution.coarsestWithin(range.dividedBy(points * CHART_OVERSAMPLING));
+        return oversampled != null ? oversampled : RollupResolution.coarsestWithin(range.dividedBy(points));
+    }
 
-        switch (searchType) {
-            case "ID":
-                return repository.findByIdContaining(search, pageable);
-            case "Temperature (°C)":
-                return repository.findByTemperatureContaining(search, pageable);
-            case "Humidity (%)":
-                return repository.findByHumidityContaining(search, pageable);
-            case "Light Level":
-                return repository.findByLightLevelContaining(search, pageable);
-            default:
-                return repository.findByMultiFieldSearch(search, pageable);
+    static Duration parseChartRange(String range) {
+        Matcher matcher = CHART_RANGE.matcher(range == null ? "" : range.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid chart range: " + range + " (expected e.g. 30m, 6h, 7d, 1y)");
         }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration duration = switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            case "d" -> Duration.ofDays(amount);
+            case "w" -> Duration.ofDays(amount * 7);
+            default -> Duration.ofDays(amount * 365);
+        };
+        if (duration.isZero()) {
+            throw new IllegalArgumentException("Chart range must be positive: " + range);
+        }
+        return duration;
     }
 
-    private TimePattern parseTimePattern(String timeFilter) throws DateTimeParseException {
-        TimePattern pattern = new TimePattern();
-
-        try {
-            if (timeFilter.contains("-") && timeFilter.matches("\\d{1,2}/\\d{1,2}/\\d{4}\\s*-\\s*\\d{1,2}/\\d{1,2}/\\d{4}")) {
-                String[] dates = timeFilter.split("-");
-                LocalDate startDate = parseFlexibleDate(dates[0].trim());
-                LocalDate endDate = parseFlexibleDate(dates[1].trim());
-
-                DateTimeFormatter sqlFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                pattern.type = TimePatternType.DATE_RANGE;
-                pattern.startDateString = startDate.format(sqlFormatter);
-                pattern.endDateString = endDate.format(sqlFormatter);
-                return pattern;
-            }
-
-            if (timeFilter.matches("\\d{1,2}/\\d{1,2}/\\d{4}")) {
-                LocalDate date = parseFlexibleDate(timeFilter);
-                DateTimeFormatter sqlFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-                pattern.type = TimePatternType.FULL_DATE;
-                pattern.dateString = date.format(sqlFormatter);
-                return pattern;
-            }
-
-            if (timeFilter.matches("\\d{1,2}:\\d{2}:\\d{2}")) {
-                String[] parts = timeFilter.split(":");
-                pattern.type = TimePatternType.HOUR_MINUTE_SECOND;
-                pattern.hour = Integer.parseInt(parts[0]);
-                pattern.minute = Integer.parseInt(parts[1]);
-                pattern.second = Integer.parseInt(parts[2]);
+    private ChartSource loadRollupChartSource(LocalDateTime from, LocalDateTime to, RollupResolution resolution) {
+        List<? extends SensorRollup> buckets = rollupService.getRollups(from, to, resolution);
+        ChartSource source = new ChartSource(buckets.size());
+        ZoneId zone = ZoneId.systemDefault();
+        for (SensorRollup bucket : buckets) {
+            source.add(bucket.getBucketStart().atZone(zone).toInstant().toEpochMilli(),
+                    bucket.getTemperatureAvg(), bucket.getHumidityAvg(), bucket.getLightLevelAvg());
+        }
+        return source.trim();
+    }
 
-                validateTimeComponents(pattern.hour, pattern.minute, pattern.second, timeFilter);
-                return pattern;
-            }
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
 
-            if (timeFilter.matches("\\d{1,2}:\\d{2}")) {
-                String[] parts = timeFilter.split(":");
-                pattern.type = TimePatternType.HOUR_MINUTE;
-                pattern.hour = Integer.parseInt(parts[0]);
-                pattern.minute = Integer.parseInt(parts[1]);
+    /**
+     * Growable primitive columns; missing values are NaN.
+     */
+    private static final class ChartSource {
+
+        long[] t;
+        double[] temperature;
+        double[] humidity;
+        double[] light;
+        int size;
+
+        ChartSource(int capacity) {
+            int initial = Math.max(16, capacity);
+            t = new long[initial];
+            temperature = new double[initial];
+            humidity = new double[initial];
+            light = new double[initial];
+        }
 
-                validateTimeComponents(pattern.hour, pattern.minute, null, timeFilter);
-                return pattern;
+        void add(long time, Double temperatureValue, Double humidityValue, Double lightValue) {
+            if (size == t.length) {
+                int grown = size * 2;
+                t = Arrays.copyOf(t, grown);
+                temperature = Arrays.copyOf(temperature, grown);
+                humidity = Arrays.copyOf(humidity, grown);
+                light = Arrays.copyOf(light, grown);
             }
-
-        } catch (NumberFormatException | DateTimeParseException e) {
-            throw new DateTimeParseException("Invalid format: " + e.getMessage(), timeFilter, 0);
+            t[size] = time;
+            temperature[size] = temperatureValue == null ? Double.NaN : temperatureValue;
+            humidity[size] = humidityValue == null ? Double.NaN : humidityValue;
+            light[size] = lightValue == null ? Double.NaN : lightValue;
+            size++;
         }
 
-        throw new DateTimeParseException(
-                "Unable to parse time/date pattern: " + timeFilter +
-                        ". Supported formats: HH:mm, HH:mm:ss, d/M/yyyy, d/M/yyyy-d/M/yyyy",
-                timeFilter, 0);
+        ChartSource trim() {
+            t = Arrays.copyOf(t, size);
+            temperature = Arrays.copyOf(temperature, size);
+            humidity = Arrays.copyOf(humidity, size);
+            light = Arrays.copyOf(light, size);
+            return this;
+        }
     }
 
-    private LocalDate parseFlexibleDate(String dateStr) throws DateTimeParseException {
-        dateStr = dateStr.trim();
+    // =================== EXISTING METHODS ===================
 
-        DateTimeFormatter[] formatters = {
-                DateTimeFormatter.ofPattern("d/M/yyyy"),
-                DateTimeFormatter.ofPattern("dd/MM/yyyy"),
-                DateTimeFormatter.ofPattern("d/MM/yyyy"),
-                DateTimeFormatter.ofPattern("dd/M/yyyy"),
-                DateTimeFormatter.ofPattern("yyyy-MM-dd")
-        };
+    // Từ bộ nhớ (RecentRecords), không query DB
+    public List<SensorDataView> getRecentData() {
+        return recentRecords.recentSensorData();
+    }
 
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                return LocalDate.parse(dateStr, formatter);
-            } catch (DateTimeParseException e) {
-                continue;
-            }
-        }
+    public long getTotalRecords() {
+        return sensorStore.count();
+    }
 
-        throw new DateTimeParseException("Unable to parse date: " + dateStr, dateStr, 0);
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Page<SensorDataView> getSensorDataPaginated(int page, int size, String search) {
+        return getSensorDataPaginated(page, size, search, "Auto Detect", null);
     }
 
-    private void validateTimeComponents(Integer hour, Integer minute, Integer second, String original) throws DateTimeParseException {
-        if (hour < 0 || hour > 23) {
-            throw new DateTimeParseException("Invalid hour: " + hour, original, 0);
-        }
-        if (minute < 0 || minute > 59) {
-            throw new DateTimeParseException("Invalid minute: " + minute, original, 0);
-        }
-        if (second != null && (second < 0 || second > 59)) {
-            throw new DateTimeParseException("Invalid second: " + second, original, 0);
+    // =================== HELPER METHODS ===================
+
+    // HH:mm / HH:mm:ss: second_of_day trên mọi ngày; ngày / khoảng ngày: created_at
+    private SensorFilter timeRangeFilter(TimeFilter filter) {
+        if (filter.isTimeOfDay()) {
+            return SensorFilter.all().secondOfDayWithin(timeRangeResolver.secondsOfDay(filter));
         }
+        return SensorFilter.all().createdWithin(List.of(timeRangeResolver.resolve(filter)));
     }
 
-    // =================== TIME PATTERN CLASSES ===================
-
-    enum TimePatternType {
-        HOUR_MINUTE,
-        HOUR_MINUTE_SECOND,
-        FULL_DATE,
-        DATE_RANGE
+    // Auto Detect: mọi cột số (OR); còn lại: đúng cột được chọn. Giá trị là khoảng trên cột có index
+    private SensorFilter searchFilter(NumericFilter search, String searchType) {
+        String attribute = searchAttribute(searchType);
+        return attribute == null ? SensorFilter.all().anyValue(search) : SensorFilter.all().value(attribute, search);
     }
 
-    static class TimePattern {
-        TimePatternType type;
-        Integer hour;
-        Integer minute;
-        Integer second;
-        String dateString;
-        String startDateString;
-        String endDateString;
-
-        @Override
-        public String toString() {
-            return "TimePattern{" +
-                    "type=" + type +
-                    ", hour=" + hour +
-                    ", minute=" + minute +
-                    ", second=" + second +
-                    ", dateString='" + dateString + '\'' +
-                    ", startDateString='" + startDateString + '\'' +
-                    ", endDateString='" + endDateString + '\'' +
-                    '}';
+    // Thuộc tính của lựa chọn searchType trên trang data-sensor; null = Auto Detect
+    private static String searchAttribute(String searchType) {
+        if (searchType == null) {
+            return null;
+        }
+        switch (searchType) {
+            case "ID":
+                return "id";
+            case "Temperature (°C)":
+                return "temperature";
+            case "Humidity (%)":
+                return "humidity";
+            case "Light Level":
+                return "lightLevel";
+            default:
+                return null;
         }
     }
 }
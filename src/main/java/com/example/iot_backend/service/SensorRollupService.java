@@ -0,0 +1,86 @@
+package com.example.iot_backend.service;
+
+import com.example.iot_backend.ingest.SensorRollupBackfill;
+import com.example.iot_backend.model.RollupResolution;
+import com.example.iot_backend.model.SensorRollup;
+import com.example.iot_backend.repository.SensorRollupDayRepository;
+import com.example.iot_backend.repository.SensorRollupHourRepository;
+import com.example.iot_backend.repository.SensorRollupMinuteRepository;
+import com.example.iot_backend.store.SensorStore;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reads the sensor rollup tables, choosing the coarsest table that still gives the requested detail.
+ *
+ * A multi-month range at a few hundred points resolves to the day or hour table and reads a
+ * few hundred rows by primary key instead of scanning {@code sensor_data}.
+ */
+@Service
+public class SensorRollupService {
+
+    public static final int DEFAULT_POINTS = 500;
+
+    private final SensorRollupMinuteRepository minuteRepository;
+    private final SensorRollupHourRepository hourRepository;
+    private final SensorRollupDayRepository dayRepository;
+    private final SensorStore sensorStore;
+    private final SensorRollupBackfill rollupBackfill;
+
+    public SensorRollupService(SensorRollupMinuteRepository minuteRepository,
+                               SensorRollupHourRepository hourRepository,
+                               SensorRollupDayRepository dayRepository,
+                               SensorStore sensorStore,
+                               SensorRollupBackfill rollupBackfill) {
+        this.minuteRepository = minuteRepository;
+        this.hourRepository = hourRepository;
+        this.dayRepository = dayRepository;
+        this.sensorStore = sensorStore;
+        this.rollupBackfill = rollupBackfill;
+    }
+
+    /**
+     * @return false when the sensor store keeps no rollup tables (columnar store, or rollups disabled)
+     */
+    public boolean isAvailable() {
+        return sensorStore.hasRollups();
+    }
+
+    /**
+     * Coarsest resolution that still yields at least {@code points} buckets over [from, to),
+     * or null when the range is so short that only raw rows give that many points.
+     */
+    public RollupResolution resolve(LocalDateTime from, LocalDateTime to, int points) {
+        Duration range = Duration.between(from, to);
+        Duration maxBucket = range.dividedBy(Math.max(1, points));
+        return RollupResolution.coarsestWithin(maxBucket);
+    }
+
+    /**
+     * Buckets starting in [from, to), oldest first.
+     */
+    public List<? extends SensorRollup> getRollups(LocalDateTime from, LocalDateTime to, RollupResolution resolution) {
+        LocalDateTime start = resolution.bucketOf(from);
+        return switch (resolution) {
+            case MINUTE -> minuteRepository.findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(start, to);
+            case HOUR -> hourRepository.findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(start, to);
+            case DAY -> dayRepository.findByBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(start, to);
+        };
+    }
+
+    /**
+     * Rebuild the rollups of the given days from the raw rows (runs on the back-fill thread).
+     *
+     * @return number of days queued
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Back-fill end date is before start date");
+        }
+        return rollupBackfill.requestBackfill(from, to);
+    }
+}
@@ -18,10 +18,12 @@ public class WebSocketService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    // Gửi cập nhật sensor data realtime
+    // Gửi cập nhật sensor data realtime.
+    // Gửi ngay khi nhận (trước khi batch writer ghi DB và gán id, kể cả reading bị deadband bỏ qua),
+    // nên payload cố ý không có id: dashboard chỉ cần giá trị mới nhất
     public void sendSensorUpdate(SensorData sensorData) {
         try {
-            logger.info("📡 Sending sensor update via WebSocket: {}", sensorData.getId());
+            logger.debug("📡 Sending sensor update via WebSocket: {}", sensorData.getCreatedAt());
 
             // Tạo object theo định dạng mới cho dashboard
             String dashboardData = String.format(
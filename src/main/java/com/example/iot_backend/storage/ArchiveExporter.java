@@ -0,0 +1,145 @@
+package com.example.iot_backend.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports rows that are about to be purged to gzip-compressed CSV files
+ * ({@code <directory>/<table>/<name>.csv.gz}).
+ *
+ * Rows are streamed from MySQL (fetch size {@code Integer.MIN_VALUE}) straight into the gzip
+ * stream, so a partition of any size is exported in constant memory. The file is written under
+ * a temporary name and renamed once complete, so a crash never leaves a truncated archive behind
+ * with the data already dropped.
+ */
+@Component
+public class ArchiveExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveExporter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Path directory;
+
+    public ArchiveExporter(JdbcTemplate jdbcTemplate,
+                           @Value("${storage.archive.enabled:true}") boolean enabled,
+                           @Value("${storage.archive.directory:./data/archive}") String directory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stream the result of {@code sql} to {@code <table>/<name>.csv.gz}.
+     *
+     * @return number of rows exported
+     */
+    public long export(String table, String name, String sql, Object... args) {
+        return export(table, name, out -> {
+            Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            long rows = writeCsv(csv, sql, args);
+            csv.flush();
+            return rows;
+        });
+    }
+
+    /**
+     * Archive rows that do not come from MySQL (the columnar sensor store): {@code content}
+     * writes the CSV into the gzip stream of {@code <table>/<name>.csv.gz}.
+     *
+     * @return number of rows exported
+     */
+    public long export(String table, String name, ArchiveContent content) {
+        Path target = directory.resolve(table).resolve(name + ".csv.gz");
+        Path temp = target.resolveSibling(name + ".csv.gz.part");
+        try {
+            Files.createDirectories(target.getParent());
+            long rows;
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024)) {
+                rows = content.write(out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("📦 Archived {} rows of {} to {}", rows, table, target.toAbsolutePath());
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to archive " + table + "/" + name, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ArchiveContent {
+        /**
+         * @return number of rows written
+         */
+        long write(OutputStream out) throws IOException;
+    }
+
+    private long writeCsv(Writer out, String sql, Object[] args) {
+        Long rows = jdbcTemplate.execute(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the whole result
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            return ps;
+        }, (PreparedStatement ps) -> {
+            long count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                for (int c = 1; c <= columns; c++) {
+                    out.write(c > 1 ? "," : "");
+                    out.write(meta.getColumnLabel(c));
+                }
+                out.write('\n');
+                while (rs.next()) {
+                    for (int c = 1; c <= columns; c++) {
+                        if (c > 1) {
+                            out.write(',');
+                        }
+                        String value = rs.getString(c);
+                        if (value != null) {
+                            out.write(escape(value));
+                        }
+                    }
+                    out.write('\n');
+                    count++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    static String escape(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.iot_backend.storage;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Width of one {@code created_at} range partition.
+ */
+public enum PartitionGranularity {
+
+    DAY(DateTimeFormatter.ofPattern("'p'yyyyMMdd")),
+    MONTH(DateTimeFormatter.ofPattern("'p'yyyyMM"));
+
+    private final DateTimeFormatter nameFormat;
+
+    PartitionGranularity(DateTimeFormatter nameFormat) {
+        this.nameFormat = nameFormat;
+    }
+
+    /**
+     * First day of the period containing {@code day}.
+     */
+    public LocalDate floor(LocalDate day) {
+        return this == DAY ? day : day.withDayOfMonth(1);
+    }
+
+    /**
+     * First day of the period after the one starting at {@code start}.
+     */
+    public LocalDate next(LocalDate start) {
+        return this == DAY ? start.plusDays(1) : start.plusMonths(1);
+    }
+
+    /**
+     * Partition name for the period starting at {@code start}, e.g. {@code p20240131} or {@code p202401}.
+     */
+    public String partitionName(LocalDate start) {
+        return nameFormat.format(start);
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.iot_backend.storage;
+
+import com.example.iot_backend.query.QueryResultCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application-managed time partitioning and retention for {@code sensor_data} and {@code led_events}.
+ *
+ * With partitioning enabled, each table is converted once to {@code RANGE COLUMNS(created_at)}
+ * partitions of one day or one month (MySQL requires the partition column in every unique key,
+ * so the primary key becomes {@code (id, created_at)}; {@code id} stays auto-increment and unique).
+ * Every run then keeps {@code ahead} future partitions ready by splitting the catch-all
+ * {@code pmax} partition.
+ *
+ * Retention is per table. Partitions entirely older than the retention are exported to a gzip CSV
+ * archive (optional) and removed with {@code DROP PARTITION}, which costs the same however many
+ * rows they hold. Tables that are not partitioned fall back to chunked {@code DELETE}s.
+ */
+@Component
+public class PartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionManager.class);
+
+    private static final String MAX_PARTITION = "pmax";
+    private static final int DELETE_CHUNK = 10_000;
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveExporter archiveExporter;
+    private final RowCounters rowCounters;
+    private final QueryResultCache queryCache;
+    private final boolean partitioningEnabled;
+    private final PartitionGranularity granularity;
+    private final int ahead;
+    private final List<ManagedTable> tables;
+
+    public PartitionManager(JdbcTemplate jdbcTemplate,
+                            ArchiveExporter archiveExporter,
+                            RowCounters rowCounters,
+                            QueryResultCache queryCache,
+                            @Value("${storage.partitioning.enabled:false}") boolean partitioningEnabled,
+                            @Value("${storage.partitioning.granularity:DAY}") PartitionGranularity granularity,
+                            @Value("${storage.partitioning.ahead:7}") int ahead,
+                            @Value("${storage.retention.sensor-data:0}") Duration sensorDataRetention,
+                            @Value("${storage.retention.led-events:0}") Duration ledEventsRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveExporter = archiveExporter;
+        this.rowCounters = rowCounters;
+        this.queryCache = queryCache;
+        this.partitioningEnabled = partitioningEnabled;
+        this.granularity = granularity;
+        this.ahead = Math.max(1, ahead);
+        this.tables = List.of(
+                new ManagedTable("sensor_data", sensorDataRetention),
+                new ManagedTable("led_events", ledEventsRetention));
+    }
+
+    @Scheduled(initialDelayString = "${storage.maintenance.initial-delay-ms:60000}",
+            fixedDelayString = "${storage.maintenance.interval-ms:3600000}")
+    public void maintain() {
+        for (ManagedTable table : tables) {
+            try {
+                maintain(table);
+            } catch (Exception e) {
+                logger.error("❌ Storage maintenance of {} failed: {}", table.name(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void maintain(ManagedTable table) {
+        if (!tableExists(table.name())) {
+            return;
+        }
+        List<PartitionInfo> partitions = partitions(table.name());
+
+        if (partitioningEnabled) {
+            if (partitions.isEmpty()) {
+                convert(table.name());
+            } else {
+                createAhead(table.name(), partitions);
+            }
+            partitions = partitions(table.name());
+        }
+
+        LocalDateTime cutoff = retentionCutoff(table.retention(), LocalDateTime.now());
+        if (cutoff != null) {
+            if (partitions.isEmpty()) {
+                purgeRows(table.name(), cutoff);
+            } else {
+                purgePartitions(table.name(), partitions, cutoff);
+            }
+        }
+    }
+
+    // =================== PARTITIONING ===================
+
+    private void convert(String table) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM " + table, Timestamp.class);
+        LocalDate today = LocalDate.now();
+        LocalDate first = granularity.floor(oldest == null ? today : oldest.toLocalDateTime().toLocalDate());
+
+        List<String> definitions = new ArrayList<>();
+        LocalDate start = first;
+        for (LocalDate end = horizon(today); start.isBefore(end); start = granularity.next(start)) {
+            definitions.add(definition(start));
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+
+        logger.warn("⚠️ Converting {} to {} partitions ({} partitions, rebuilds the table)",
+                table, granularity, definitions.size());
+        jdbcTemplate.update("UPDATE " + table + " SET created_at = NOW() WHERE created_at IS NULL");
+        jdbcTemplate.execute("ALTER TABLE " + table
+                + " MODIFY created_at DATETIME(6) NOT NULL, DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)"
+                + " PARTITION BY RANGE COLUMNS(created_at) (" + String.join(", ", definitions) + ")");
+        logger.info("✅ {} is now partitioned by created_at", table);
+    }
+
+    private void createAhead(String table, List<PartitionInfo> partitions) {
+        LocalDate next = partitions.stream()
+                .filter(p -> p.upperBound() != null)
+                .map(p -> p.upperBound().toLocalDate())
+                .max(LocalDate::compareTo)
+                .orElse(granularity.floor(LocalDate.now()));
+
+        List<String> definitions = new ArrayList<>();
+        for (LocalDate end = horizon(LocalDate.now()); next.isBefore(end); next = granularity.next(next)) {
+            definitions.add(definition(next));
+        }
+        if (definitions.isEmpty()) {
+            return;
+        }
+        definitions.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + MAX_PARTITION
+                + " INTO (" + String.join(", ", definitions) + ")");
+        logger.info("📅 Created {} new partitions for {}", definitions.size() - 1, table);
+    }
+
+    /**
+     * End (exclusive) of the last partition to create: the current period plus {@code ahead} more.
+     */
+    LocalDate horizon(LocalDate today) {
+        LocalDate end = granularity.next(granularity.floor(today));
+        for (int i = 0; i < ahead; i++) {
+            end = granularity.next(end);
+        }
+        return end;
+    }
+
+    String definition(LocalDate start) {
+        LocalDateTime bound = granularity.next(start).atStartOfDay();
+        return "PARTITION " + granularity.partitionName(start) + " VALUES LESS THAN ('" + BOUND_FORMAT.format(bound) + "')";
+    }
+
+    // =================== RETENTION ===================
+
+    /**
+     * Rows created before the returned time are past {@code retention}; null when retention is off (0).
+     */
+    static LocalDateTime retentionCutoff(Duration retention, LocalDateTime now) {
+        if (retention.isZero() || retention.isNegative()) {
+            return null;
+        }
+        return now.minus(retention);
+    }
+
+    /**
+     * Partitions holding only rows older than {@code cutoff}; never {@code pmax}.
+     */
+    static List<PartitionInfo> expired(List<PartitionInfo> partitions, LocalDateTime cutoff) {
+        return partitions.stream()
+                .filter(p -> p.upperBound() != null && !p.upperBound().isAfter(cutoff))
+                .toList();
+    }
+
+    private void purgePartitions(String table, List<PartitionInfo> partitions, LocalDateTime cutoff) {
+        for (PartitionInfo partition : expired(partitions, cutoff)) {
+            if (archiveExporter.isEnabled()) {
+                archiveExporter.export(table, partition.name(),
+                        "SELECT * FROM " + table + " PARTITION (" + partition.name() + ")");
+            }
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition.name());
+            rowCounters.purged(table, partition.upperBound());
+            queryCache.rowsPurged(table, partition.upperBound());
+            logger.info("🗑️ Dropped partition {}.{} (older than {})", table, partition.name(), cutoff);
+        }
+    }
+
+    private void purgeRows(String table, LocalDateTime cutoff) {
+        Timestamp bound = Timestamp.valueOf(cutoff);
+        // Fix the id bound first so rows arriving late are neither deleted unarchived nor archived twice
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table + " WHERE created_at < ?", Long.class, bound);
+        if (maxId == null) {
+            return;
+        }
+        if (archiveExporter.isEnabled()) {
+            archiveExporter.export(table, "before-" + cutoff.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")),
+                    "SELECT * FROM " + table + " WHERE created_at < ? AND id <= ? ORDER BY id", bound, maxId);
+        }
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = jdbcTemplate.update("DELETE FROM " + table + " WHERE created_at < ? AND id <= ? ORDER BY id LIMIT "
+                    + DELETE_CHUNK, bound, maxId);
+            deleted += chunk;
+        } while (chunk == DELETE_CHUNK);
+        rowCounters.purged(table, cutoff);
+        queryCache.rowsPurged(table, cutoff);
+        logger.info("🗑️ Deleted {} rows of {} older than {}", deleted, table, cutoff);
+    }
+
+    // =================== METADATA ===================
+
+    private boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.TABLES "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?", Integer.class, table);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Partitions in order, upper bound null for {@code MAXVALUE}; empty when not partitioned.
+     */
+    List<PartitionInfo> partitions(String table) {
+        return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                        + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+                        + "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, i) -> new PartitionInfo(rs.getString(1), parseBound(rs.getString(2))), table);
+    }
+
+    static LocalDateTime parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return LocalDateTime.parse(value.substring(0, Math.min(19, value.length())), BOUND_FORMAT);
+    }
+
+    record PartitionInfo(String name, LocalDateTime upperBound) {
+    }
+
+    private record ManagedTable(String name, Duration retention) {
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.iot_backend.storage;
+
+import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.TimeRange;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory row counts for {@code sensor_data} and {@code led_events}, so totals and page
+ * metadata do not need {@code SELECT COUNT(*)} (a full index scan on InnoDB).
+ *
+ * Counts are kept per table, per day of {@code created_at} (storage time) and, for LED events,
+ * per LED; totals and per-LED counts are sums over those cells (a few hundred per year).
+ * Writers report rows after commit ({@link #recordSensorData}, {@link #recordLedEvent}) and
+ * retention reports purges ({@link #purged}).
+ *
+ * {@link #reconcile()} rebuilds everything from one {@code GROUP BY DATE(created_at)} per table at
+ * startup and then every {@code storage.counters.reconcile-interval-ms}, which also repairs any
+ * drift (a crash between commit and report, manual SQL). Rows reported while the query runs are
+ * added on top of its result only if their id is above the highest id the query saw: rows are
+ * reported after commit, so a row committed just before the query started is already in its
+ * result. Until the first reconcile finishes {@link #isReady()} is false and callers fall back
+ * to COUNT(*).
+ *
+ * With {@code mqtt.inbound.shared-group} set, other instances store part of the rows and only
+ * report them to their own counters, so yesterday and today are re-counted every
+ * {@code storage.counters.shared-refresh-interval-ms}: totals then trail the group by at most
+ * that interval instead of until the next reconcile.
+ *
+ * With {@code sensor.store=columnar} readings are not in {@code sensor_data} and the store counts
+ * them itself, so only {@code led_events} is queried.
+ */
+@Component
+public class RowCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowCounters.class);
+
+    public static final String SENSOR_DATA = "sensor_data";
+    public static final String LED_EVENTS = "led_events";
+
+    // led = NO_LED cho sensor_data; day = null cho dòng không có created_at
+    private static final int NO_LED = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    // Shared subscription: các instance khác cũng ghi, chỉ DB biết tổng đúng
+    private final boolean shared;
+    // sensor.store=columnar: reading không nằm trong bảng sensor_data, store tự đếm
+    private final boolean countSensorData;
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, Map<Cell, LongAdder>> counts = Map.of();
+    // Dòng ghi nhận trong lúc reconcile đang chạy; chỉ dòng có id mới hơn kết quả GROUP BY được cộng thêm
+    private volatile Map<String, Queue<Reported>> pending;
+    private volatile boolean ready = false;
+
+    public RowCounters(JdbcTemplate jdbcTemplate,
+                       MeterRegistry meterRegistry,
+                       @Value("${storage.counters.enabled:true}") boolean enabled,
+                       @Value("${mqtt.inbound.shared-group:}") String sharedGroup,
+                       @Value("${sensor.store:jdbc}") String sensorStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.shared = sharedGroup != null && !sharedGroup.isBlank();
+        this.countSensorData = "jdbc".equals(sensorStore);
+        Gauge.builder("iot.storage.rows", this, c -> c.isReady() ? c.total(SENSOR_DATA) : Double.NaN)
+                .tag("table", SENSOR_DATA).register(meterRegistry);
+        Gauge.builder("iot.storage.rows", this, c -> c.isReady() ? c.total(LED_EVENTS) : Double.NaN)
+                .tag("table", LED_EVENTS).register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    // =================== WRITES ===================
+
+    /**
+     * Rows committed by the batch writer.
+     */
+    public void recordSensorData(List<SensorData> rows) {
+        swapLock.readLock().lock();
+        try {
+            for (SensorData row : rows) {
+                add(SENSOR_DATA, new Cell(dayOf(row.getCreatedAt()), NO_LED), row.getId());
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One LED event committed.
+     */
+    public void recordLedEvent(LedEvent event) {
+        swapLock.readLock().lock();
+        try {
+            int led = event.getLedNumber() == null ? NO_LED : event.getLedNumber();
+            add(LED_EVENTS, new Cell(dayOf(event.getCreatedAt()), led), event.getId());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void add(String table, Cell cell, Long id) {
+        Map<Cell, LongAdder> current = counts.get(table);
+        if (current != null) {
+            cell(current, cell).increment();
+        }
+        Map<String, Queue<Reported>> capturing = pending;
+        if (capturing != null) {
+            capturing.get(table).add(new Reported(cell, id));
+        }
+    }
+
+    /**
+     * Retention removed every row of {@code table} with {@code created_at < cutoff}. Whole days
+     * are dropped; a cutoff inside a day re-counts that day with an index range COUNT, run before
+     * the lock is taken so writers are not blocked on the query. A row of that (past) day
+     * reported in between is lost from the count until the next reconcile.
+     */
+    public void purged(String table, LocalDateTime cutoff) {
+        if (!isReady()) {
+            return;
+        }
+        LocalDate cutoffDay = cutoff.toLocalDate();
+        boolean partialDay = !cutoff.toLocalTime().equals(LocalTime.MIDNIGHT);
+        Map<Cell, LongAdder> recounted = new HashMap<>();
+        if (partialDay) {
+            countDay(table, cutoffDay, recounted);
+        }
+        swapLock.writeLock().lock();
+        try {
+            Map<Cell, LongAdder> cells = counts.get(table);
+            cells.keySet().removeIf(cell -> cell.day() != null && cell.day().isBefore(cutoffDay));
+            if (partialDay) {
+                cells.keySet().removeIf(cell -> cutoffDay.equals(cell.day()));
+                cells.putAll(recounted);
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private void countDay(String table, LocalDate day, Map<Cell, LongAdder> into) {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        if (SENSOR_DATA.equals(table)) {
+            Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sensor_data WHERE created_at >= ? AND created_at < ?",
+                    Long.class, from, to);
+            cell(into, new Cell(day, NO_LED)).add(count == null ? 0 : count);
+        } else {
+            jdbcTemplate.query("SELECT led_number, COUNT(*) FROM led_events WHERE created_at >= ? AND created_at < ? GROUP BY led_number",
+                    (RowCallbackHandler) rs -> cell(into, new Cell(day, ledOf(rs.getObject(1, Integer.class)))).add(rs.getLong(2)),
+                    from, to);
+        }
+    }
+
+    // =================== READS ===================
+
+    public long total(String table) {
+        return sum(table, null, null, null);
+    }
+
+    /**
+     * Events of one LED.
+     */
+    public long totalForLed(int ledNumber) {
+        return sum(LED_EVENTS, ledNumber, null, null);
+    }
+
+    /**
+     * Rows in {@code range}, optionally of one LED. Empty unless the range starts and ends at
+     * midnight (storage time), because only whole days are counted.
+     */
+    public OptionalLong countRange(String table, Integer ledNumber, TimeRange range) {
+        if (!range.start().toLocalTime().equals(LocalTime.MIDNIGHT) || !range.end().toLocalTime().equals(LocalTime.MIDNIGHT)) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(sum(table, ledNumber, range.start().toLocalDate(), range.end().toLocalDate()));
+    }
+
+    // firstDay inclusive, endDay exclusive; null = không giới hạn
+    private long sum(String table, Integer ledNumber, LocalDate firstDay, LocalDate endDay) {
+        Map<Cell, LongAdder> cells = counts.get(table);
+        if (cells == null) {
+            return 0;
+        }
+        long total = 0;
+        for (Map.Entry<Cell, LongAdder> entry : cells.entrySet()) {
+            Cell cell = entry.getKey();
+            if (ledNumber != null && cell.led() != ledNumber) {
+                continue;
+            }
+            if (firstDay != null && (cell.day() == null || cell.day().isBefore(firstDay) || !cell.day().isBefore(endDay))) {
+                continue;
+            }
+            total += entry.getValue().sum();
+        }
+        return total;
+    }
+
+    // =================== RECONCILIATION ===================
+
+    @Scheduled(initialDelayString = "${storage.counters.initial-delay-ms:5000}",
+            fixedDelayString = "${storage.counters.reconcile-interval-ms:21600000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try {
+            load(null);
+            logger.info("🔢 Row counters reconciled in {} ms: sensor_data={}, led_events={}",
+                    System.currentTimeMillis() - started, total(SENSOR_DATA), total(LED_EVENTS));
+        } catch (Exception e) {
+            logger.error("❌ Row counter reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Under a shared subscription the other instances' rows are never reported here: re-count
+     * yesterday and today (where {@code created_at}, the storage time, puts new rows) every
+     * {@code storage.counters.shared-refresh-interval-ms}, one index range scan per table.
+     */
+    @Scheduled(initialDelayString = "${storage.counters.shared-refresh-interval-ms:10000}",
+            fixedDelayString = "${storage.counters.shared-refresh-interval-ms:10000}")
+    public void refreshRecentDays() {
+        if (!shared || !isReady()) {
+            return;
+        }
+        try {
+            load(LocalDate.now().minusDays(1));
+        } catch (Exception e) {
+            logger.warn("⚠️ Row counter refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Count the days from {@code firstDay} (null = the whole table) and swap them in. Only one
+     * load runs at a time, so the capture of reported rows belongs to a single query.
+     */
+    synchronized void load(LocalDate firstDay) {
+        Map<String, Queue<Reported>> capturing = Map.of(
+                SENSOR_DATA, new ConcurrentLinkedQueue<>(), LED_EVENTS, new ConcurrentLinkedQueue<>());
+        pending = capturing;
+        try {
+            String where = firstDay == null ? "" : " WHERE created_at >= ?";
+            Object[] args = firstDay == null ? new Object[0] : new Object[]{Timestamp.valueOf(firstDay.atStartOfDay())};
+
+            // MAX(id) comes from the same statement, i.e. the same snapshot as the counts
+            long[] sensorMaxId = {Long.MIN_VALUE};
+            Map<Cell, LongAdder> sensor = new ConcurrentHashMap<>();
+            if (countSensorData) {
+                query("SELECT DATE(created_at), COUNT(*), MAX(id) FROM sensor_data" + where + " GROUP BY DATE(created_at)",
+                        rs -> {
+                            cell(sensor, new Cell(toDay(rs.getDate(1)), NO_LED)).add(rs.getLong(2));
+                            sensorMaxId[0] = Math.max(sensorMaxId[0], rs.getLong(3));
+                        }, args);
+            }
+
+            long[] ledMaxId = {Long.MIN_VALUE};
+            Map<Cell, LongAdder> led = new ConcurrentHashMap<>();
+            query("SELECT DATE(created_at), led_number, COUNT(*), MAX(id) FROM led_events" + where
+                            + " GROUP BY DATE(created_at), led_number",
+                    rs -> {
+                        cell(led, new Cell(toDay(rs.getDate(1)), ledOf(rs.getObject(2, Integer.class)))).add(rs.getLong(3));
+                        ledMaxId[0] = Math.max(ledMaxId[0], rs.getLong(4));
+                    }, args);
+
+            swapLock.writeLock().lock();
+            try {
+                mergeNewer(capturing.get(SENSOR_DATA), sensorMaxId[0], firstDay, sensor);
+                mergeNewer(capturing.get(LED_EVENTS), ledMaxId[0], firstDay, led);
+                if (firstDay == null) {
+                    if (ready) {
+                        logDrift(SENSOR_DATA, sensor);
+                        logDrift(LED_EVENTS, led);
+                    }
+                    counts = Map.of(SENSOR_DATA, sensor, LED_EVENTS, led);
+                    ready = true;
+                } else {
+                    replaceFrom(counts.get(SENSOR_DATA), firstDay, sensor);
+                    replaceFrom(counts.get(LED_EVENTS), firstDay, led);
+                }
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        } finally {
+            pending = null;
+        }
+    }
+
+    private void query(String sql, RowCallbackHandler handler, Object[] args) {
+        if (args.length == 0) {
+            jdbcTemplate.query(sql, handler);
+        } else {
+            jdbcTemplate.query(sql, handler, args);
+        }
+    }
+
+    /**
+     * Add the rows reported during the count query that its result does not contain yet (only
+     * those of the counted days). With a single writer per table, "id above the query's MAX(id)"
+     * is exact for sensor_data, which the batch writer commits in id order. LED events from
+     * concurrent requests, and every table under a shared subscription (several instances
+     * writing), may commit out of id order; a row missed that way is repaired by the next
+     * reconcile, or within {@code shared-refresh-interval-ms} for recent days.
+     */
+    private static void mergeNewer(Queue<Reported> reported, long maxId, LocalDate firstDay, Map<Cell, LongAdder> into) {
+        for (Reported row : reported) {
+            if (firstDay != null && !counted(row.cell(), firstDay)) {
+                continue; // day not re-counted: already in the live cells
+            }
+            if (row.id() == null || row.id() > maxId) {
+                cell(into, row.cell()).increment();
+            }
+        }
+    }
+
+    private static void replaceFrom(Map<Cell, LongAdder> cells, LocalDate firstDay, Map<Cell, LongAdder> fresh) {
+        cells.keySet().removeIf(cell -> counted(cell, firstDay));
+        cells.putAll(fresh);
+    }
+
+    private static boolean counted(Cell cell, LocalDate firstDay) {
+        return cell.day() != null && !cell.day().isBefore(firstDay);
+    }
+
+    private void logDrift(String table, Map<Cell, LongAdder> fresh) {
+        long before = total(table);
+        long after = fresh.values().stream().mapToLong(LongAdder::sum).sum();
+        if (before != after) {
+            logger.warn("⚠️ Row counter drift on {}: {} counted, {} in database", table, before, after);
+        }
+    }
+
+    private static LongAdder cell(Map<Cell, LongAdder> cells, Cell cell) {
+        return cells.computeIfAbsent(cell, c -> new LongAdder());
+    }
+
+    private static LocalDate dayOf(LocalDateTime createdAt) {
+        return createdAt == null ? null : createdAt.toLocalDate();
+    }
+
+    private static LocalDate toDay(Date date) {
+        return date == null ? null : date.toLocalDate();
+    }
+
+    private static int ledOf(Integer ledNumber) {
+        return ledNumber == null ? NO_LED : ledNumber;
+    }
+
+    private record Cell(LocalDate day, int led) {
+    }
+
+    private record Reported(Cell cell, Long id) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.iot_backend.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fills {@code second_of_day} for rows written before the column existed.
+ *
+ * New rows get it on insert (entity setter / batch writer INSERT). Old rows are updated in
+ * small chunks, one chunk per table per run, so the back-fill never holds long row locks or
+ * blocks the other maintenance tasks on the scheduler thread. {@code second_of_day IS NULL} is
+ * a range on {@code idx_*_second_of_day}, so every chunk finds its rows without a table scan.
+ * Until a table is done, its old rows do not match HH:mm / HH:mm:ss filters.
+ */
+@Component
+public class SecondOfDayBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecondOfDayBackfill.class);
+
+    private static final String[] TABLES = {"sensor_data", "led_events"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int chunkSize;
+    private final Map<String, Long> updatedRows = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> done = new ConcurrentHashMap<>();
+
+    public SecondOfDayBackfill(JdbcTemplate jdbcTemplate,
+                               @Value("${storage.second-of-day-backfill.enabled:true}") boolean enabled,
+                               @Value("${storage.second-of-day-backfill.chunk-size:10000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Scheduled(initialDelayString = "${storage.second-of-day-backfill.initial-delay-ms:30000}",
+            fixedDelayString = "${storage.second-of-day-backfill.interval-ms:1000}")
+    public void backfillStep() {
+        if (!enabled) {
+            return;
+        }
+        for (String table : TABLES) {
+            if (done.containsKey(table)) {
+                continue;
+            }
+            try {
+                int updated = backfillChunk(table);
+                long total = updatedRows.merge(table, (long) updated, Long::sum);
+                if (updated < chunkSize) {
+                    done.put(table, Boolean.TRUE);
+                    if (total > 0) {
+                        logger.info("✅ second_of_day back-fill of {} finished: {} rows", table, total);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("❌ second_of_day back-fill of {} failed: {}", table, e.getMessage(), e);
+            }
+        }
+    }
+
+    int backfillChunk(String table) {
+        return jdbcTemplate.update("UPDATE " + table
+                + " SET second_of_day = HOUR(created_at) * 3600 + MINUTE(created_at) * 60 + SECOND(created_at)"
+                + " WHERE second_of_day IS NULL AND created_at IS NOT NULL LIMIT " + chunkSize);
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.iot_backend.store;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.ExportQuery;
+import com.example.iot_backend.export.StreamingExporter;
+import com.example.iot_backend.ingest.SensorRollupUpdater;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.TimeRange;
+import com.example.iot_backend.repository.KeysetPaging;
+import com.example.iot_backend.repository.OffsetPaging;
+import com.example.iot_backend.repository.ProjectionQuery;
+import com.example.iot_backend.repository.SensorDataRepository;
+import com.example.iot_backend.repository.SensorDataSpecification;
+import com.example.iot_backend.repository.TimeRangeSpecification;
+import com.example.iot_backend.storage.RowCounters;
+import jakarta.persistence.EntityManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link SensorStore} on the {@code sensor_data} table in MySQL (the default).
+ *
+ * Hibernate cannot batch inserts for {@code GenerationType.IDENTITY} entities, so
+ * {@link #append(List)} goes through {@link JdbcTemplate} directly. With
+ * {@code rewriteBatchedStatements=true} on the MySQL URL the driver turns the batch into a single
+ * {@code INSERT ... VALUES (...), (...)}; the rollup tables are updated in the same transaction.
+ * Reads use the Specifications and paging helpers in {@code repository}, selecting
+ * {@link SensorDataView}s instead of entities, with totals from {@link RowCounters}.
+ */
+@Component
+@ConditionalOnProperty(name = "sensor.store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcSensorStore implements SensorStore {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sensor_data (temperature, humidity, light_level, uptime, created_at, second_of_day) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    // Tên thuộc tính entity -> cột
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "id", "temperature", "temperature", "humidity", "humidity", "lightLevel", "light_level");
+    private static final Set<String> WHOLE_NUMBER_COLUMNS = Set.of("id", "light_level");
+
+    private final SensorDataRepository repository;
+    private final ProjectionQuery<SensorData, SensorDataView> views;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SensorRollupUpdater rollupUpdater;
+    private final RowCounters rowCounters;
+    private final StreamingExporter streamingExporter;
+
+    public JdbcSensorStore(SensorDataRepository repository,
+                           EntityManager entityManager,
+                           JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           SensorRollupUpdater rollupUpdater,
+                           RowCounters rowCounters,
+                           StreamingExporter streamingExporter) {
+        this.repository = repository;
+        this.views = new ProjectionQuery<>(entityManager, SensorData.class, SensorDataView.class, SensorDataView.ATTRIBUTES);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rollupUpdater = rollupUpdater;
+        this.rowCounters = rowCounters;
+        this.streamingExporter = streamingExporter;
+    }
+
+    // =================== WRITES ===================
+
+    @Override
+    public void append(List<SensorData> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(
+                    con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            SensorData data = batch.get(i);
+                            setNullableDouble(ps, 1, data.getTemperature());
+                            setNullableDouble(ps, 2, data.getHumidity());
+                            setNullableInt(ps, 3, data.getLightLevel());
+                            setNullableInt(ps, 4, data.getUptime());
+                            ps.setTimestamp(5, Timestamp.valueOf(data.getCreatedAt()));
+                            ps.setInt(6, data.getSecondOfDay());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    },
+                    keyHolder);
+            rollupUpdater.apply(batch);
+        });
+
+        // Hand the generated ids back so downstream consumers see persisted rows
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < keys.size() && i < batch.size(); i++) {
+            Object key = keys.get(i).values().stream().findFirst().orElse(null);
+            if (key instanceof Number number) {
+                batch.get(i).setId(number.longValue());
+            }
+        }
+        rowCounters.recordSensorData(batch);
+    }
+
+    private static void setNullableDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    // =================== READS ===================
+
+    @Override
+    public Optional<SensorData> findById(long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public long count() {
+        return rowCounters.isReady() ? rowCounters.total(RowCounters.SENSOR_DATA) : repository.count();
+    }
+
+    // Không chạy COUNT(*): tổng lấy từ bộ đếm hoặc ước lượng (totalEstimated)
+    @Override
+    public CountedPage<SensorDataView> page(SensorFilter filter, Pageable pageable) {
+        Pageable newestFirst = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), NEWEST_FIRST);
+        return OffsetPaging.fetch(views, toSpecification(filter), newestFirst, counterTotal(filter));
+    }
+
+    @Override
+    public CursorPage<SensorDataView> cursorPage(SensorFilter filter, PageCursor cursor, int size, boolean count) {
+        Specification<SensorData> spec = toSpecification(filter);
+        LongSupplier total = !count ? null : () -> {
+            Long counted = counterTotal(filter);
+            return counted != null ? counted : repository.count(spec);
+        };
+        return KeysetPaging.fetch(views, spec, cursor, size, total, SensorDataView::createdAt, SensorDataView::id);
+    }
+
+    @Override
+    public List<SensorDataView> newest(int limit) {
+        return views.find(null, NEWEST_FIRST, 0, limit);
+    }
+
+    @Override
+    public long export(SensorFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        return streamingExporter.exportSensorData(toExportQuery(filter), format, out);
+    }
+
+    // Dài hạn đọc từ bảng rollup (hasRollups); không có rollup thì quá maxRawPoints dòng sẽ gộp trung bình trong SQL
+    @Override
+    public String chart(LocalDateTime from, LocalDateTime to, int maxRawPoints, ChartSink sink) {
+        Timestamp start = Timestamp.valueOf(from);
+        Timestamp end = Timestamp.valueOf(to);
+        // LIMIT: chỉ đếm tới maxRawPoints + 1 entry của index created_at
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM sensor_data "
+                + "WHERE created_at >= ? AND created_at < ? LIMIT ?) capped", Long.class, start, end, maxRawPoints + 1);
+        if (rows == null || rows <= maxRawPoints) {
+            jdbcTemplate.query("SELECT created_at, temperature, humidity, light_level FROM sensor_data "
+                            + "WHERE created_at >= ? AND created_at < ? ORDER BY created_at",
+                    (RowCallbackHandler) rs -> sink.accept(rs.getTimestamp(1).getTime(),
+                            rs.getObject(2, Double.class), rs.getObject(3, Double.class), rs.getObject(4, Double.class)),
+                    start, end);
+            return "raw";
+        }
+
+        long bucketSeconds = chartBucketSeconds(from, to, maxRawPoints);
+        long startMillis = start.getTime();
+        jdbcTemplate.query("SELECT TIMESTAMPDIFF(SECOND, ?, created_at) DIV ? AS bucket, "
+                        + "AVG(temperature), AVG(humidity), AVG(light_level) FROM sensor_data "
+                        + "WHERE created_at >= ? AND created_at < ? GROUP BY bucket ORDER BY bucket",
+                (RowCallbackHandler) rs -> sink.accept(startMillis + rs.getLong(1) * bucketSeconds * 1000,
+                        rs.getObject(2, Double.class), rs.getObject(3, Double.class), rs.getObject(4, Double.class)),
+                start, bucketSeconds, start, end);
+        return bucketSeconds + "s";
+    }
+
+    /**
+     * Width of the buckets that split {@code [from, to)} into at most {@code maxPoints} chart points.
+     */
+    static long chartBucketSeconds(LocalDateTime from, LocalDateTime to, int maxPoints) {
+        long seconds = Duration.between(from, to).getSeconds();
+        return Math.max(1, (seconds + maxPoints - 1) / maxPoints);
+    }
+
+    @Override
+    public boolean hasRollups() {
+        return rollupUpdater.isEnabled();
+    }
+
+    // =================== FILTERS ===================
+
+    // Tổng chính xác từ bộ đếm; null khi bộ đếm chưa sẵn sàng hoặc không trả lời được filter này (search, HH:mm)
+    private Long counterTotal(SensorFilter filter) {
+        if (!rowCounters.isReady() || !filter.isTimeOnly()) {
+            return null;
+        }
+        if (filter.isMatchNothing()) {
+            return 0L;
+        }
+        List<TimeRange> ranges = filter.getCreatedWithin();
+        LocalDateTime from = filter.getCreatedFrom();
+        LocalDateTime before = filter.getCreatedBefore();
+        TimeRange range;
+        if (ranges == null && from == null && before == null) {
+            return rowCounters.total(RowCounters.SENSOR_DATA);
+        } else if (ranges != null && ranges.size() == 1 && from == null && before == null) {
+            range = ranges.get(0);
+        } else if (ranges == null && from != null && before != null) {
+            if (!before.isAfter(from)) {
+                return 0L;
+            }
+            range = new TimeRange(from, before);
+        } else {
+            return null;
+        }
+        OptionalLong counted = rowCounters.countRange(RowCounters.SENSOR_DATA, null, range);
+        return counted.isPresent() ? counted.getAsLong() : null;
+    }
+
+    // created_at / second_of_day / giá trị: range trên cột có index, như TimeRangeSpecification và SensorDataSpecification
+    static Specification<SensorData> toSpecification(SensorFilter filter) {
+        if (filter.isMatchNothing()) {
+            return (root, query, criteriaBuilder) -> criteriaBuilder.disjunction();
+        }
+        Specification<SensorData> spec = Specification.where(null);
+        if (filter.getCreatedWithin() != null) {
+            spec = spec.and(TimeRangeSpecification.createdWithin(filter.getCreatedWithin()));
+        }
+        LocalDateTime from = filter.getCreatedFrom();
+        if (from != null) {
+            spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("createdAt"), from));
+        }
+        LocalDateTime before = filter.getCreatedBefore();
+        if (before != null) {
+            spec = spec.and((root, query, criteriaBuilder) -> criteriaBuilder.lessThan(root.get("createdAt"), before));
+        }
+        if (filter.getSecondOfDayWithin() != null) {
+            spec = spec.and(TimeRangeSpecification.secondOfDayWithin(filter.getSecondOfDayWithin()));
+        }
+        for (SensorFilter.ValueCondition condition : filter.getValues()) {
+            spec = spec.and(SensorDataSpecification.withValue(condition.attribute(), condition.filter()));
+        }
+        if (filter.getAnyValue() != null) {
+            spec = spec.and(SensorDataSpecification.withAnyValue(filter.getAnyValue()));
+        }
+        return spec;
+    }
+
+    static ExportQuery toExportQuery(SensorFilter filter) {
+        ExportQuery query = ExportQuery.from(RowCounters.SENSOR_DATA);
+        if (filter.isMatchNothing()) {
+            return query.matchNothing();
+        }
+        if (filter.getCreatedWithin() != null) {
+            query.createdWithin(filter.getCreatedWithin());
+        }
+        if (filter.getCreatedFrom() != null) {
+            query.createdFrom(filter.getCreatedFrom());
+        }
+        if (filter.getCreatedBefore() != null) {
+            query.createdBefore(filter.getCreatedBefore());
+        }
+        if (filter.getSecondOfDayWithin() != null) {
+            query.secondOfDayWithin(filter.getSecondOfDayWithin());
+        }
+        for (SensorFilter.ValueCondition condition : filter.getValues()) {
+            String column = COLUMNS.get(condition.attribute());
+            query.value(column, condition.filter(), WHOLE_NUMBER_COLUMNS.contains(column));
+        }
+        if (filter.getAnyValue() != null) {
+            List<String> columns = SensorFilter.VALUE_ATTRIBUTES.stream().map(COLUMNS::get).toList();
+            query.anyValue(columns, WHOLE_NUMBER_COLUMNS, filter.getAnyValue());
+        }
+        return query;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.iot_backend.store;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.query.NumericFilter;
+import com.example.iot_backend.query.SecondOfDayRange;
+import com.example.iot_backend.query.TimeRange;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Filter over sensor readings that every {@link SensorStore} understands: {@code created_at}
+ * ranges, {@code second_of_day} windows and value ranges, all ANDed together.
+ *
+ * The MySQL store turns it into the same Specifications / SQL as before; the columnar store
+ * prunes blocks with the time bounds and evaluates {@link #matches(SensorDataView)} on the rest.
+ */
+public final class SensorFilter {
+
+    /**
+     * Attributes matched by {@link #anyValue(NumericFilter)} ("Auto Detect"), entity names.
+     */
+    public static final List<String> VALUE_ATTRIBUTES = List.of("id", "temperature", "humidity", "lightLevel");
+
+    public record ValueCondition(String attribute, NumericFilter filter) {
+    }
+
+    private List<TimeRange> createdWithin;
+    private LocalDateTime createdFrom;
+    private LocalDateTime createdBefore;
+    private List<SecondOfDayRange> secondOfDayWithin;
+    private final List<ValueCondition> values = new ArrayList<>();
+    private NumericFilter anyValue;
+    private boolean nothing;
+
+    private SensorFilter() {
+    }
+
+    public static SensorFilter all() {
+        return new SensorFilter();
+    }
+
+    /**
+     * {@code created_at} in any of {@code ranges}; no ranges matches nothing.
+     */
+    public SensorFilter createdWithin(List<TimeRange> ranges) {
+        if (ranges.isEmpty()) {
+            return matchNothing();
+        }
+        this.createdWithin = List.copyOf(ranges);
+        return this;
+    }
+
+    public SensorFilter createdFrom(LocalDateTime start) {
+        this.createdFrom = createdFrom == null || start.isAfter(createdFrom) ? start : createdFrom;
+        return this;
+    }
+
+    public SensorFilter createdBefore(LocalDateTime end) {
+        this.createdBefore = createdBefore == null || end.isBefore(createdBefore) ? end : createdBefore;
+        return this;
+    }
+
+    /**
+     * {@code second_of_day} in any of {@code ranges}, on any day.
+     */
+    public SensorFilter secondOfDayWithin(List<SecondOfDayRange> ranges) {
+        if (ranges.isEmpty()) {
+            return matchNothing();
+        }
+        this.secondOfDayWithin = List.copyOf(ranges);
+        return this;
+    }
+
+    /**
+     * {@code attribute} (one of {@link #VALUE_ATTRIBUTES}) within the filter's bounds.
+     */
+    public SensorFilter value(String attribute, NumericFilter filter) {
+        if (!VALUE_ATTRIBUTES.contains(attribute)) {
+            throw new IllegalArgumentException("Unknown value attribute: " + attribute);
+        }
+        values.add(new ValueCondition(attribute, filter));
+        return this;
+    }
+
+    /**
+     * Any of {@link #VALUE_ATTRIBUTES} within the filter's bounds.
+     */
+    public SensorFilter anyValue(NumericFilter filter) {
+        this.anyValue = filter;
+        return this;
+    }
+
+    public SensorFilter matchNothing() {
+        this.nothing = true;
+        return this;
+    }
+
+    public List<TimeRange> getCreatedWithin() {
+        return createdWithin;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public LocalDateTime getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public List<SecondOfDayRange> getSecondOfDayWithin() {
+        return secondOfDayWithin;
+    }
+
+    public List<ValueCondition> getValues() {
+        return Collections.unmodifiableList(values);
+    }
+
+    public NumericFilter getAnyValue() {
+        return anyValue;
+    }
+
+    public boolean isMatchNothing() {
+        return nothing;
+    }
+
+    /**
+     * True when only {@code created_at} is constrained, so per-day counts can answer COUNT exactly.
+     */
+    public boolean isTimeOnly() {
+        return secondOfDayWithin == null && values.isEmpty() && anyValue == null;
+    }
+
+    /**
+     * Smallest {@code created_at} that can match, or null if unbounded.
+     */
+    public LocalDateTime lowerTimeBound() {
+        LocalDateTime lower = createdFrom;
+        if (createdWithin != null) {
+            LocalDateTime rangesLower = null;
+            for (TimeRange range : createdWithin) {
+                rangesLower = rangesLower == null || range.start().isBefore(rangesLower) ? range.start() : rangesLower;
+            }
+            lower = lower == null || rangesLower.isAfter(lower) ? rangesLower : lower;
+        }
+        return lower;
+    }
+
+    /**
+     * Exclusive upper bound of {@code created_at}, or null if unbounded.
+     */
+    public LocalDateTime upperTimeBound() {
+        LocalDateTime upper = createdBefore;
+        if (createdWithin != null) {
+            LocalDateTime rangesUpper = null;
+            for (TimeRange range : createdWithin) {
+                rangesUpper = rangesUpper == null || range.end().isAfter(rangesUpper) ? range.end() : rangesUpper;
+            }
+            upper = upper == null || rangesUpper.isBefore(upper) ? rangesUpper : upper;
+        }
+        return upper;
+    }
+
+    public boolean matchesTime(LocalDateTime createdAt) {
+        if (nothing) {
+            return false;
+        }
+        if (createdFrom != null && createdAt.isBefore(createdFrom)) {
+            return false;
+        }
+        if (createdBefore != null && !createdAt.isBefore(createdBefore)) {
+            return false;
+        }
+        if (createdWithin != null && createdWithin.stream().noneMatch(range -> range.contains(createdAt))) {
+            return false;
+        }
+        if (secondOfDayWithin != null) {
+            int second = createdAt.toLocalTime().toSecondOfDay();
+            return secondOfDayWithin.stream().anyMatch(range -> second >= range.start() && second < range.end());
+        }
+        return true;
+    }
+
+    /**
+     * Same semantics as the SQL the MySQL store generates: integer columns compare whole numbers,
+     * NULL never matches a value condition.
+     */
+    public boolean matches(SensorDataView row) {
+        if (!matchesTime(row.createdAt())) {
+            return false;
+        }
+        for (ValueCondition condition : values) {
+            if (!matchesValue(row, condition.attribute(), condition.filter())) {
+                return false;
+            }
+        }
+        if (anyValue != null) {
+            for (String attribute : VALUE_ATTRIBUTES) {
+                if (matchesValue(row, attribute, anyValue)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean matchesValue(SensorDataView row, String attribute, NumericFilter filter) {
+        switch (attribute) {
+            case "id":
+                return row.id() != null && matchesWhole(row.id(), filter);
+            case "lightLevel":
+                return row.lightLevel() != null && matchesWhole(row.lightLevel(), filter);
+            case "temperature":
+                return row.temperature() != null && matchesDouble(row.temperature(), filter);
+            default:
+                return row.humidity() != null && matchesDouble(row.humidity(), filter);
+        }
+    }
+
+    private static boolean matchesWhole(long value, NumericFilter filter) {
+        if (!filter.containsWholeNumber()) {
+            return false;
+        }
+        Long from = filter.getWholeLower();
+        Long to = filter.getWholeUpper();
+        return (from == null || value >= from) && (to == null || value <= to);
+    }
+
+    private static boolean matchesDouble(double value, NumericFilter filter) {
+        if (filter.getLower() != null) {
+            double from = filter.getLower().doubleValue();
+            if (filter.isLowerInclusive() ? value < from : value <= from) {
+                return false;
+            }
+        }
+        if (filter.getUpper() != null) {
+            double to = filter.getUpper().doubleValue();
+            return filter.isUpperInclusive() ? value <= to : value < to;
+        }
+        return true;
+    }
+}
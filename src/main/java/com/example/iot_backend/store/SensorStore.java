@@ -0,0 +1,87 @@
+package com.example.iot_backend.store;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Where sensor readings live. Everything that reads or writes readings ({@code SensorDataService},
+ * the batch writer, the recent buffer) goes through this interface.
+ *
+ * {@code sensor.store} selects the implementation:
+ * <ul>
+ *   <li>{@code jdbc} (default) – the {@code sensor_data} table in MySQL ({@link JdbcSensorStore})</li>
+ *   <li>{@code columnar} – embedded memory-mapped column files per day
+ *       ({@link com.example.iot_backend.store.columnar.ColumnarSensorStore})</li>
+ * </ul>
+ *
+ * Listings are newest first, ordered by {@code (created_at, id)}, and return read-only
+ * {@link SensorDataView}s.
+ */
+public interface SensorStore {
+
+    /**
+     * Receives chart points oldest first; missing values are null.
+     */
+    interface ChartSink {
+        void accept(long epochMillis, Double temperature, Double humidity, Double lightLevel);
+    }
+
+    /**
+     * Persist a batch (oldest first) and set the generated ids on its rows. On an exception
+     * nothing of the batch is visible and the caller may retry it.
+     */
+    void append(List<SensorData> batch);
+
+    Optional<SensorData> findById(long id);
+
+    long count();
+
+    /**
+     * Offset page; the total is exact when the store can count the filter cheaply, otherwise a
+     * lower bound flagged with {@link CountedPage#isTotalEstimated()}.
+     */
+    CountedPage<SensorDataView> page(SensorFilter filter, Pageable pageable);
+
+    /**
+     * Keyset page after {@code cursor} (null for the newest page).
+     *
+     * @param count also fill in totalElements
+     */
+    CursorPage<SensorDataView> cursorPage(SensorFilter filter, PageCursor cursor, int size, boolean count);
+
+    /**
+     * Up to {@code limit} newest readings, newest first.
+     */
+    List<SensorDataView> newest(int limit);
+
+    /**
+     * Stream every matching reading, newest first, in constant memory.
+     *
+     * @return number of rows written
+     */
+    long export(SensorFilter filter, ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * Chart points in {@code [from, to)}, oldest first: the raw readings, or aggregated points
+     * if the range holds more than {@code maxRawPoints} readings.
+     *
+     * @return the resolution of the points ("raw" or a store-specific code)
+     */
+    String chart(LocalDateTime from, LocalDateTime to, int maxRawPoints, ChartSink sink);
+
+    /**
+     * Whether the MySQL rollup tables follow this store, so long chart ranges can read them.
+     */
+    boolean hasRollups();
+}
@@ -0,0 +1,44 @@
+package com.example.iot_backend.store.columnar;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the bit fields written by {@link BitWriter}.
+ */
+final class BitReader {
+
+    private final ByteBuffer buffer;
+    private long bitPosition;
+
+    BitReader(ByteBuffer buffer, long bitPosition) {
+        this.buffer = buffer;
+        this.bitPosition = bitPosition;
+    }
+
+    long bitPosition() {
+        return bitPosition;
+    }
+
+    boolean readBit() {
+        int value = buffer.get((int) (bitPosition >>> 3)) >>> (7 - (int) (bitPosition & 7));
+        bitPosition++;
+        return (value & 1) != 0;
+    }
+
+    /**
+     * Read {@code count} (0..64) bits as the low bits of the result.
+     */
+    long readBits(int count) {
+        long value = 0;
+        while (count > 0) {
+            int offset = (int) (bitPosition & 7);
+            int available = 8 - offset;
+            int take = Math.min(available, count);
+            int bits = ((buffer.get((int) (bitPosition >>> 3)) & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | bits;
+            bitPosition += take;
+            count -= take;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.iot_backend.store.columnar;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes bit fields, most significant bit first, into a buffer at an absolute bit position.
+ *
+ * The last, partly filled byte is written out on every {@link #flush()} and rewritten as more
+ * bits arrive; the bits already in it never change, so a reader decoding up to the committed row
+ * count sees the same bytes whether or not it races with the writer.
+ */
+final class BitWriter {
+
+    private ByteBuffer buffer;
+    private int bytePosition;
+    // Bits of the byte at bytePosition, left-aligned; 'used' of them are valid
+    private int current;
+    private int used;
+
+    /**
+     * Continue writing at {@code bitPosition}, keeping the bits before it in a partly written byte.
+     */
+    BitWriter(ByteBuffer buffer, long bitPosition) {
+        this.buffer = buffer;
+        this.bytePosition = (int) (bitPosition >>> 3);
+        this.used = (int) (bitPosition & 7);
+        this.current = used == 0 ? 0 : buffer.get(bytePosition) & (0xFF00 >>> used) & 0xFF;
+    }
+
+    /**
+     * Continue in a new mapping of the same file (after it grew).
+     */
+    void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    long bitPosition() {
+        return ((long) bytePosition << 3) + used;
+    }
+
+    /**
+     * First byte after everything written so far.
+     */
+    int byteEnd() {
+        return used == 0 ? bytePosition : bytePosition + 1;
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Write the low {@code count} (0..64) bits of {@code value}.
+     */
+    void writeBits(long value, int count) {
+        while (count > 0) {
+            int free = 8 - used;
+            int take = Math.min(free, count);
+            int bits = (int) ((value >>> (count - take)) & ((1 << take) - 1));
+            current |= bits << (free - take);
+            used += take;
+            count -= take;
+            if (used == 8) {
+                buffer.put(bytePosition++, (byte) current);
+                current = 0;
+                used = 0;
+            }
+        }
+    }
+
+    void flush() {
+        if (used > 0) {
+            buffer.put(bytePosition, (byte) current);
+        }
+    }
+}
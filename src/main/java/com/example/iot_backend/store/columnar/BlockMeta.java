@@ -0,0 +1,23 @@
+package com.example.iot_backend.store.columnar;
+
+/**
+ * One entry of a day's sparse index: where a block of up to {@code block-rows} readings starts
+ * in each column file, its time and id bounds, and sums for block-level averages.
+ *
+ * Times are microseconds of the local {@code created_at} (storage time zone) since 1970-01-01T00:00.
+ *
+ * @param offsets byte offset of the block in each column file, indexed by {@link DayPartition} column
+ * @param sums    sum of the non-null temperature, humidity and light level values
+ * @param counts  number of non-null temperature, humidity and light level values
+ */
+record BlockMeta(long minTime, long maxTime, long firstId, long lastId, int rows,
+                 long[] offsets, double[] sums, int[] counts) {
+
+    boolean overlaps(long fromMicros, long toMicros) {
+        return maxTime >= fromMicros && minTime <= toMicros;
+    }
+
+    Double average(int metric) {
+        return counts[metric] == 0 ? null : sums[metric] / counts[metric];
+    }
+}
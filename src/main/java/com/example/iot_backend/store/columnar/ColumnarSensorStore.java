@@ -0,0 +1,697 @@
+package com.example.iot_backend.store.columnar;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.StreamingExporter;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.storage.ArchiveExporter;
+import com.example.iot_backend.storage.RowCounters;
+import com.example.iot_backend.store.SensorFilter;
+import com.example.iot_backend.store.SensorStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Embedded {@link SensorStore} for deployments without MySQL for readings (small edge servers):
+ * per-day directories of memory-mapped column files under {@code sensor.columnar.directory}.
+ *
+ * Each day ({@link DayPartition}) stores created_at and id delta-of-delta encoded, temperature and
+ * humidity XOR encoded, light level and uptime delta-of-delta encoded, in independently decodable
+ * blocks of {@code sensor.columnar.block-rows} rows. The sparse block index (time and id bounds,
+ * row count, per-metric sums) stays in memory: time filters only decode the blocks they overlap,
+ * COUNT over whole blocks reads no column at all, and long chart ranges use the block averages
+ * instead of decoding every row.
+ *
+ * Newest-first listings merge the candidate blocks by their time bounds, so a page decodes only
+ * the blocks up to that page even if readings arrive slightly out of order. Ids are assigned here,
+ * increasing in append order.
+ *
+ * Appends are serialized by a lock (there is one batch writer); readers never lock. The files are
+ * not synced on every append unless {@code force-on-append} is set: a process crash keeps
+ * everything (the pages live in the OS cache), a power loss may lose the last seconds, which the
+ * ingest spool can replay. A batch that spans several days is encoded day by day and published
+ * only once every day succeeded; on a failure the days it touched are reopened from their index,
+ * so nothing of the batch is kept and the retry gets the same ids.
+ *
+ * {@code storage.retention.sensor-data} applies here as it does to the MySQL table (which
+ * {@code PartitionManager} handles): every maintenance run removes the days entirely older than
+ * the retention, like a dropped partition, after exporting them to the archive directory when
+ * {@code storage.archive.enabled} is set.
+ */
+@Component
+@ConditionalOnProperty(name = "sensor.store", havingValue = "columnar")
+public class ColumnarSensorStore implements SensorStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarSensorStore.class);
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private final Path directory;
+    private final int blockRows;
+    private final boolean forceOnAppend;
+    private final StreamingExporter streamingExporter;
+    private final ArchiveExporter archiveExporter;
+    private final QueryResultCache queryCache;
+    private final Duration retention;
+
+    private final ConcurrentSkipListMap<LocalDate, DayPartition> days = new ConcurrentSkipListMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong rowCount = new AtomicLong();
+    // Guarded by writeLock
+    private long nextId = 1;
+
+    public ColumnarSensorStore(@Value("${sensor.columnar.directory:./data/sensor-store}") String directory,
+                               @Value("${sensor.columnar.block-rows:1024}") int blockRows,
+                               @Value("${sensor.columnar.force-on-append:false}") boolean forceOnAppend,
+                               @Value("${storage.retention.sensor-data:0}") Duration retention,
+                               StreamingExporter streamingExporter,
+                               ArchiveExporter archiveExporter,
+                               QueryResultCache queryCache,
+                               MeterRegistry meterRegistry) throws IOException {
+        this.directory = Paths.get(directory);
+        this.blockRows = Math.max(16, blockRows);
+        this.forceOnAppend = forceOnAppend;
+        this.retention = retention;
+        this.streamingExporter = streamingExporter;
+        this.archiveExporter = archiveExporter;
+        this.queryCache = queryCache;
+
+        Files.createDirectories(this.directory);
+        try (Stream<Path> entries = Files.list(this.directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                LocalDate day = dayOf(entry);
+                if (day != null) {
+                    DayPartition partition = DayPartition.open(this.directory, day, this.blockRows);
+                    days.put(day, partition);
+                    for (BlockMeta block : partition.blocks()) {
+                        rowCount.addAndGet(block.rows());
+                        nextId = Math.max(nextId, block.lastId() + 1);
+                    }
+                }
+            }
+        }
+
+        Gauge.builder("iot.store.columnar.rows", rowCount, AtomicLong::get)
+                .description("Sensor readings in the columnar store")
+                .register(meterRegistry);
+        Gauge.builder("iot.store.columnar.days", days, Map::size)
+                .description("Day partitions in the columnar store")
+                .register(meterRegistry);
+        logger.info("🗄️ Columnar sensor store opened at {} ({} days, {} readings, blocks of {})",
+                this.directory.toAbsolutePath(), days.size(), rowCount.get(), this.blockRows);
+    }
+
+    private static LocalDate dayOf(Path entry) {
+        if (!Files.isDirectory(entry)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(entry.getFileName().toString());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // =================== WRITES ===================
+
+    @Override
+    public void append(List<SensorData> batch) {
+        writeLock.lock();
+        try {
+            long firstId = nextId;
+            Map<LocalDate, List<SensorData>> byDay = new LinkedHashMap<>();
+            for (SensorData row : batch) {
+                row.setId(nextId++);
+                byDay.computeIfAbsent(row.getCreatedAt().toLocalDate(), d -> new ArrayList<>()).add(row);
+            }
+
+            // Encode every day first, publish only when all of them succeeded
+            Map<DayPartition, DayPartition.Pending> written = new LinkedHashMap<>();
+            List<LocalDate> touched = new ArrayList<>();
+            try {
+                for (Map.Entry<LocalDate, List<SensorData>> entry : byDay.entrySet()) {
+                    touched.add(entry.getKey());
+                    DayPartition partition = partition(entry.getKey());
+                    written.put(partition, partition.write(entry.getValue()));
+                }
+            } catch (IOException | RuntimeException e) {
+                // Encoders may be half way through the batch: reopen from what was committed
+                for (LocalDate day : touched) {
+                    reopen(day);
+                }
+                for (SensorData row : batch) {
+                    row.setId(null);
+                }
+                nextId = firstId;
+                LocalDate failed = touched.get(touched.size() - 1);
+                throw e instanceof IOException io
+                        ? new UncheckedIOException("Could not append readings for " + failed, io)
+                        : (RuntimeException) e;
+            }
+            for (Map.Entry<DayPartition, DayPartition.Pending> entry : written.entrySet()) {
+                entry.getKey().commit(entry.getValue(), forceOnAppend);
+            }
+            rowCount.addAndGet(batch.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private DayPartition partition(LocalDate day) throws IOException {
+        DayPartition partition = days.get(day);
+        if (partition == null) {
+            partition = DayPartition.open(directory, day, blockRows);
+            days.put(day, partition);
+        }
+        return partition;
+    }
+
+    private void reopen(LocalDate day) {
+        try {
+            days.put(day, DayPartition.open(directory, day, blockRows));
+        } catch (IOException e) {
+            days.remove(day);
+            // Opened again by the next append of that day; its readings are hidden until then
+            logger.warn("⚠️ Could not reopen column store day {}: {}", day, e.getMessage());
+        }
+    }
+
+    // =================== RETENTION ===================
+
+    @Scheduled(initialDelayString = "${storage.maintenance.initial-delay-ms:60000}",
+            fixedDelayString = "${storage.maintenance.interval-ms:3600000}")
+    public void purgeExpired() {
+        if (retention.isZero() || retention.isNegative()) {
+            return;
+        }
+        purgeBefore(LocalDateTime.now().minus(retention));
+    }
+
+    /**
+     * Remove every day that ends at or before {@code cutoff}; the day containing it is kept whole.
+     *
+     * @return number of days removed
+     */
+    int purgeBefore(LocalDateTime cutoff) {
+        int purged = 0;
+        for (LocalDate day : List.copyOf(days.headMap(cutoff.toLocalDate()).keySet())) {
+            try {
+                if (purgeDay(day)) {
+                    purged++;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("❌ Could not purge column store day {}: {}", day, e.getMessage(), e);
+            }
+        }
+        if (purged > 0) {
+            queryCache.rowsPurged(RowCounters.SENSOR_DATA, cutoff.toLocalDate().atStartOfDay());
+        }
+        return purged;
+    }
+
+    private boolean purgeDay(LocalDate day) throws IOException {
+        DayPartition partition = days.get(day);
+        if (partition == null) {
+            return false;
+        }
+        // Export outside the write lock; a late reading of that day in between postpones the purge
+        List<BlockMeta> archived = partition.blocks();
+        if (archiveExporter.isEnabled()) {
+            SensorFilter whole = SensorFilter.all().createdFrom(day.atStartOfDay()).createdBefore(day.plusDays(1).atStartOfDay());
+            archiveExporter.export(RowCounters.SENSOR_DATA, "columnar-" + day,
+                    out -> export(whole, ExportFormat.CSV, out));
+        }
+
+        long rows = 0;
+        writeLock.lock();
+        try {
+            if (days.get(day) != partition || partition.blocks() != archived) {
+                logger.info("⏭️ Column store day {} changed while archiving, purging on the next run", day);
+                return false;
+            }
+            days.remove(day);
+            for (BlockMeta block : archived) {
+                rows += block.rows();
+            }
+            rowCount.addAndGet(-rows);
+            // Readers still scanning the day keep their mappings; the files go away once unmapped
+            try (Stream<Path> files = Files.walk(directory.resolve(day.toString()))) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        logger.info("🗑️ Removed column store day {} ({} readings)", day, rows);
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        writeLock.lock();
+        try {
+            for (DayPartition partition : days.values()) {
+                partition.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // =================== READS ===================
+
+    @Override
+    public Optional<SensorData> findById(long id) {
+        for (DayPartition partition : days.descendingMap().values()) {
+            for (BlockMeta block : partition.blocks()) {
+                if (id < block.firstId() || id > block.lastId()) {
+                    continue;
+                }
+                DayPartition.BlockData data = partition.decode(block, true);
+                for (int i = 0; i < data.size; i++) {
+                    if (data.id[i] == id) {
+                        return Optional.of(toSensorData(toView(data, i)));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public long count() {
+        return rowCount.get();
+    }
+
+    @Override
+    public CountedPage<SensorDataView> page(SensorFilter filter, Pageable pageable) {
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        List<SensorDataView> content = new ArrayList<>(size);
+        long[] skipped = {0};
+        boolean[] more = {false};
+        scanUnchecked(filter, null, false, row -> {
+            if (skipped[0] < offset) {
+                skipped[0]++;
+                return true;
+            }
+            if (content.size() < size) {
+                content.add(row);
+                return true;
+            }
+            more[0] = true;
+            return false;
+        });
+
+        Pageable newestFirst = PageRequest.of(pageable.getPageNumber(), size, NEWEST_FIRST);
+        if (filter.isTimeOnly()) {
+            return new CountedPage<>(content, newestFirst, countTime(filter), false);
+        }
+        long lowerBound = offset + content.size() + (more[0] ? 1 : 0);
+        return new CountedPage<>(content, newestFirst, lowerBound, true);
+    }
+
+    @Override
+    public CursorPage<SensorDataView> cursorPage(SensorFilter filter, PageCursor cursor, int size, boolean count) {
+        boolean newer = cursor != null && cursor.direction() == PageCursor.Direction.NEWER;
+        List<SensorDataView> rows = new ArrayList<>(size + 1);
+        scanUnchecked(filter, cursor, newer, row -> {
+            rows.add(row);
+            return rows.size() <= size;
+        });
+        boolean more = rows.size() > size;
+        if (more) {
+            rows.remove(rows.size() - 1);
+        }
+        if (newer) {
+            Collections.reverse(rows);
+        }
+
+        String next = null;
+        String prev = null;
+        if (!rows.isEmpty()) {
+            SensorDataView first = rows.get(0);
+            SensorDataView last = rows.get(rows.size() - 1);
+            if (newer || more) {
+                next = new PageCursor(last.createdAt(), last.id(), PageCursor.Direction.OLDER).encode();
+            }
+            if (newer ? more : cursor != null) {
+                prev = new PageCursor(first.createdAt(), first.id(), PageCursor.Direction.NEWER).encode();
+            }
+        }
+
+        Long total = null;
+        if (count) {
+            if (filter.isTimeOnly()) {
+                total = countTime(filter);
+            } else {
+                long[] matched = {0};
+                scanUnchecked(filter, null, false, row -> {
+                    matched[0]++;
+                    return true;
+                });
+                total = matched[0];
+            }
+        }
+        return new CursorPage<>(rows, size, next, prev, total);
+    }
+
+    @Override
+    public List<SensorDataView> newest(int limit) {
+        List<SensorDataView> rows = new ArrayList<>(limit);
+        if (limit > 0) {
+            scanUnchecked(SensorFilter.all(), null, false, row -> {
+                rows.add(row);
+                return rows.size() < limit;
+            });
+        }
+        return rows;
+    }
+
+    @Override
+    public long export(SensorFilter filter, ExportFormat format, OutputStream out) throws IOException {
+        return streamingExporter.exportSensorData(sink -> {
+            long[] rows = {0};
+            scan(filter, null, false, row -> {
+                sink.accept(row);
+                rows[0]++;
+                return true;
+            });
+            return rows[0];
+        }, format, out);
+    }
+
+    /**
+     * Raw readings when the range holds at most {@code maxRawPoints} of them, otherwise one point
+     * per block (the mean of its readings in the range) from the index sums ("block").
+     */
+    @Override
+    public String chart(LocalDateTime from, LocalDateTime to, int maxRawPoints, ChartSink sink) {
+        SensorFilter range = SensorFilter.all().createdFrom(from).createdBefore(to);
+        ZoneId zone = ZoneId.systemDefault();
+        if (countTime(range) <= maxRawPoints) {
+            scanUnchecked(range, null, true, row -> {
+                sink.accept(row.createdAt().atZone(zone).toInstant().toEpochMilli(),
+                        row.temperature(), row.humidity(), row.lightLevel() == null ? null : row.lightLevel().doubleValue());
+                return true;
+            });
+            return "raw";
+        }
+
+        List<Candidate> candidates = candidates(toMicros(from), toMicros(to), from.toLocalDate(), to.toLocalDate(), true);
+        List<BlockPoint> points = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            BlockMeta block = candidate.block();
+            if (covers(range, block)) {
+                points.add(new BlockPoint((block.minTime() + block.maxTime()) / 2,
+                        block.average(DayPartition.SUM_TEMPERATURE), block.average(DayPartition.SUM_HUMIDITY),
+                        block.average(DayPartition.SUM_LIGHT_LEVEL)));
+                continue;
+            }
+            // Block cắt biên khoảng: chỉ lấy trung bình các dòng nằm trong khoảng
+            DayPartition.BlockData data = candidate.partition().decode(block, true);
+            double[] sums = new double[3];
+            int[] counts = new int[3];
+            // Tính theo độ lệch so với minTime để tổng không tràn long
+            long timeSum = 0;
+            int inRange = 0;
+            for (int i = 0; i < data.size; i++) {
+                if (!range.matchesTime(fromMicros(data.time[i]))) {
+                    continue;
+                }
+                timeSum += data.time[i] - block.minTime();
+                inRange++;
+                add(sums, counts, DayPartition.SUM_TEMPERATURE, data.temperature[i]);
+                add(sums, counts, DayPartition.SUM_HUMIDITY, data.humidity[i]);
+                if (data.lightLevel[i] != DayPartition.NULL_LONG) {
+                    add(sums, counts, DayPartition.SUM_LIGHT_LEVEL, data.lightLevel[i]);
+                }
+            }
+            if (inRange > 0) {
+                long time = block.minTime() + timeSum / inRange;
+                points.add(new BlockPoint(time, mean(sums, counts, 0), mean(sums, counts, 1), mean(sums, counts, 2)));
+            }
+        }
+        points.sort(Comparator.comparingLong(BlockPoint::time));
+        for (BlockPoint point : points) {
+            sink.accept(fromMicros(point.time()).atZone(zone).toInstant().toEpochMilli(),
+                    point.temperature(), point.humidity(), point.lightLevel());
+        }
+        return "block";
+    }
+
+    @Override
+    public boolean hasRollups() {
+        return false;
+    }
+
+    private record BlockPoint(long time, Double temperature, Double humidity, Double lightLevel) {
+    }
+
+    private static void add(double[] sums, int[] counts, int metric, double value) {
+        if (!Double.isNaN(value)) {
+            sums[metric] += value;
+            counts[metric]++;
+        }
+    }
+
+    private static Double mean(double[] sums, int[] counts, int metric) {
+        return counts[metric] == 0 ? null : sums[metric] / counts[metric];
+    }
+
+    // =================== SCAN ===================
+
+    private interface RowVisitor {
+        /**
+         * @return false to stop the scan
+         */
+        boolean visit(SensorDataView row) throws IOException;
+    }
+
+    private record Candidate(DayPartition partition, BlockMeta block) {
+    }
+
+    private record Row(long time, long id, SensorDataView data) {
+    }
+
+    private static final Comparator<Row> NEWEST_ROW_FIRST =
+            Comparator.comparingLong(Row::time).thenComparingLong(Row::id).reversed();
+    private static final Comparator<Row> OLDEST_ROW_FIRST =
+            Comparator.comparingLong(Row::time).thenComparingLong(Row::id);
+
+    private void scanUnchecked(SensorFilter filter, PageCursor after, boolean ascending, RowVisitor visitor) {
+        try {
+            scan(filter, after, ascending, visitor);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Visit the rows matching {@code filter} (and beyond {@code after}) ordered by (created_at, id).
+     *
+     * Blocks are taken in order of their newest (oldest, ascending) time; a decoded row is held
+     * back until no remaining block can contain a row that sorts before it.
+     */
+    private void scan(SensorFilter filter, PageCursor after, boolean ascending, RowVisitor visitor) throws IOException {
+        if (filter.isMatchNothing() || days.isEmpty()) {
+            return;
+        }
+        LocalDateTime lower = filter.lowerTimeBound();
+        LocalDateTime upper = filter.upperTimeBound();
+        if (after != null) {
+            if (after.direction() == PageCursor.Direction.OLDER) {
+                upper = upper == null || after.createdAt().isBefore(upper) ? after.createdAt() : upper;
+            } else {
+                lower = lower == null || after.createdAt().isAfter(lower) ? after.createdAt() : lower;
+            }
+        }
+        List<Candidate> candidates = candidates(
+                lower == null ? Long.MIN_VALUE : toMicros(lower),
+                upper == null ? Long.MAX_VALUE : toMicros(upper),
+                lower == null ? days.firstKey() : lower.toLocalDate(),
+                upper == null ? days.lastKey() : upper.toLocalDate(),
+                ascending);
+
+        PriorityQueue<Row> pending = new PriorityQueue<>(ascending ? OLDEST_ROW_FIRST : NEWEST_ROW_FIRST);
+        for (Candidate candidate : candidates) {
+            BlockMeta block = candidate.block();
+            long boundary = ascending ? block.minTime() : block.maxTime();
+            while (!pending.isEmpty() && (ascending ? pending.peek().time() < boundary : pending.peek().time() > boundary)) {
+                if (!visitor.visit(pending.poll().data())) {
+                    return;
+                }
+            }
+            DayPartition.BlockData data = candidate.partition().decode(block, true);
+            for (int i = 0; i < data.size; i++) {
+                SensorDataView row = toView(data, i);
+                if (filter.matches(row) && beyond(after, data.time[i], data.id[i])) {
+                    pending.add(new Row(data.time[i], data.id[i], row));
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            if (!visitor.visit(pending.poll().data())) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Blocks that may hold rows with created_at in [fromMicros, toMicros] (both inclusive).
+     */
+    private List<Candidate> candidates(long fromMicros, long toMicros, LocalDate firstDay, LocalDate lastDay,
+                                       boolean ascending) {
+        List<Candidate> candidates = new ArrayList<>();
+        if (lastDay.isBefore(firstDay)) {
+            return candidates;
+        }
+        NavigableMap<LocalDate, DayPartition> range = days.subMap(firstDay, true, lastDay, true);
+        for (DayPartition partition : range.values()) {
+            for (BlockMeta block : partition.blocks()) {
+                if (block.rows() > 0 && block.overlaps(fromMicros, toMicros)) {
+                    candidates.add(new Candidate(partition, block));
+                }
+            }
+        }
+        if (ascending) {
+            candidates.sort(Comparator.comparingLong((Candidate c) -> c.block().minTime())
+                    .thenComparingLong(c -> c.block().firstId()));
+        } else {
+            candidates.sort(Comparator.comparingLong((Candidate c) -> c.block().maxTime())
+                    .thenComparingLong(c -> c.block().lastId()).reversed());
+        }
+        return candidates;
+    }
+
+    // OLDER: (created_at, id) < key; NEWER: (created_at, id) > key
+    private static boolean beyond(PageCursor cursor, long time, long id) {
+        if (cursor == null) {
+            return true;
+        }
+        long key = toMicros(cursor.createdAt());
+        if (cursor.direction() == PageCursor.Direction.OLDER) {
+            return time < key || (time == key && id < cursor.id());
+        }
+        return time > key || (time == key && id > cursor.id());
+    }
+
+    /**
+     * Rows of a filter that only constrains created_at: whole blocks inside the range are counted
+     * from the index, only blocks on its edges are decoded (created_at and id only).
+     */
+    private long countTime(SensorFilter filter) {
+        if (filter.isMatchNothing() || days.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime lower = filter.lowerTimeBound();
+        LocalDateTime upper = filter.upperTimeBound();
+        List<Candidate> candidates = candidates(
+                lower == null ? Long.MIN_VALUE : toMicros(lower),
+                upper == null ? Long.MAX_VALUE : toMicros(upper),
+                lower == null ? days.firstKey() : lower.toLocalDate(),
+                upper == null ? days.lastKey() : upper.toLocalDate(),
+                true);
+        long count = 0;
+        for (Candidate candidate : candidates) {
+            BlockMeta block = candidate.block();
+            if (covers(filter, block)) {
+                count += block.rows();
+                continue;
+            }
+            DayPartition.BlockData data = candidate.partition().decode(block, false);
+            for (int i = 0; i < data.size; i++) {
+                if (filter.matchesTime(fromMicros(data.time[i]))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Cả block nằm trong một khoảng thời gian của filter (chỉ dùng cho filter theo created_at)
+    private static boolean covers(SensorFilter filter, BlockMeta block) {
+        LocalDateTime first = fromMicros(block.minTime());
+        LocalDateTime last = fromMicros(block.maxTime());
+        if (!filter.isTimeOnly() || !filter.matchesTime(first) || !filter.matchesTime(last)) {
+            return false;
+        }
+        return filter.getCreatedWithin() == null
+                || filter.getCreatedWithin().stream().anyMatch(range -> range.contains(first) && range.contains(last));
+    }
+
+    private static SensorDataView toView(DayPartition.BlockData data, int i) {
+        return new SensorDataView(data.id[i],
+                Double.isNaN(data.temperature[i]) ? null : data.temperature[i],
+                Double.isNaN(data.humidity[i]) ? null : data.humidity[i],
+                data.lightLevel[i] == DayPartition.NULL_LONG ? null : (int) data.lightLevel[i],
+                fromMicros(data.time[i]),
+                data.uptime[i] == DayPartition.NULL_LONG ? null : (int) data.uptime[i]);
+    }
+
+    private static SensorData toSensorData(SensorDataView view) {
+        SensorData row = new SensorData();
+        row.setId(view.id());
+        row.setCreatedAt(view.createdAt());
+        row.setTemperature(view.temperature());
+        row.setHumidity(view.humidity());
+        row.setLightLevel(view.lightLevel());
+        row.setUptime(view.uptime());
+        return row;
+    }
+
+    // =================== TIME ===================
+
+    /**
+     * created_at (storage wall-clock time) as microseconds since 1970-01-01T00:00 of that clock.
+     */
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
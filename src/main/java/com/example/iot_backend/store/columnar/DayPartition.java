@@ -0,0 +1,392 @@
+package com.example.iot_backend.store.columnar;
+
+import com.example.iot_backend.model.SensorData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The readings of one day ({@code created_at} date): one memory-mapped file per column plus a
+ * sparse block index.
+ *
+ * Rows are appended in blocks of up to {@code blockRows}; every block starts byte-aligned in each
+ * column file with a fresh encoder, so it can be decoded on its own. The index ({@code blocks.idx},
+ * big-endian) is
+ * <pre>
+ * header: int magic, int version, int blockCount, int reserved
+ * entry (128 bytes): long minTime, long maxTime, long firstId, long lastId, int rows, int reserved,
+ *                    long[6] column offsets, double[3] sums, int[3] counts, int reserved
+ * </pre>
+ * An append writes the column bits first, then the index entries with {@code rows} last, then the
+ * block count: a reader (or a restart) only trusts the rows an entry counts, and bits past them
+ * are overwritten by the next append. Appends are two-phase ({@link #write(List)}, then
+ * {@link #commit(Pending, boolean)}) so a batch spanning several days is published only once
+ * every day has been encoded. The last block stays open until it is full; after a restart
+ * it is decoded once to restore its encoders and statistics.
+ *
+ * Appends come from one thread at a time (the store's write lock); readers never lock, they work
+ * on the published {@link #blocks()} list.
+ */
+final class DayPartition {
+
+    static final int TIME = 0;
+    static final int ID = 1;
+    static final int TEMPERATURE = 2;
+    static final int HUMIDITY = 3;
+    static final int LIGHT_LEVEL = 4;
+    static final int UPTIME = 5;
+    private static final String[] COLUMN_FILES = {
+            "created_at.col", "id.col", "temperature.col", "humidity.col", "light_level.col", "uptime.col"};
+    private static final String INDEX_FILE = "blocks.idx";
+
+    // Metric slots of BlockMeta.sums / counts
+    static final int SUM_TEMPERATURE = 0;
+    static final int SUM_HUMIDITY = 1;
+    static final int SUM_LIGHT_LEVEL = 2;
+
+    // Null của cột số nguyên (light_level, uptime)
+    static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x53444331; // "SDC1"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;
+    private static final int ENTRY = 128;
+    private static final int INITIAL_COLUMN_SIZE = 64 * 1024;
+    private static final int INITIAL_INDEX_SIZE = HEADER + 128 * ENTRY;
+    // Worst case: 4 + 64 bits (delta) or 2 + 12 + 64 bits (XOR) per value
+    private static final int MAX_BYTES_PER_VALUE = 10;
+
+    private final LocalDate day;
+    private final int blockRows;
+    private final MappedFile[] columns = new MappedFile[COLUMN_FILES.length];
+    private final MappedFile index;
+
+    private volatile List<BlockMeta> blocks;
+
+    // Writer state of the last block; null before the first block
+    private Tail tail;
+
+    private DayPartition(LocalDate day, Path directory, int blockRows) throws IOException {
+        this.day = day;
+        this.blockRows = blockRows;
+        for (int c = 0; c < COLUMN_FILES.length; c++) {
+            columns[c] = MappedFile.open(directory.resolve(COLUMN_FILES[c]), INITIAL_COLUMN_SIZE);
+        }
+        this.index = MappedFile.open(directory.resolve(INDEX_FILE), INITIAL_INDEX_SIZE);
+    }
+
+    static DayPartition open(Path root, LocalDate day, int blockRows) throws IOException {
+        Path directory = root.resolve(day.toString());
+        Files.createDirectories(directory);
+        DayPartition partition = new DayPartition(day, directory, blockRows);
+        partition.recover();
+        return partition;
+    }
+
+    LocalDate day() {
+        return day;
+    }
+
+    List<BlockMeta> blocks() {
+        return blocks;
+    }
+
+    // =================== RECOVERY ===================
+
+    private void recover() throws IOException {
+        ByteBuffer header = index.buffer();
+        if (header.getInt(0) != MAGIC) {
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, 0);
+            blocks = List.of();
+            return;
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported column store version " + header.getInt(4) + " for " + day);
+        }
+
+        int count = header.getInt(8);
+        List<BlockMeta> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(readEntry(i));
+        }
+        if (count > 0) {
+            // Statistics of the open block may include rows that were never committed
+            BlockMeta last = entries.get(count - 1);
+            tail = new Tail(last.offsets());
+            decode(last, tail, true);
+            for (int c = 0; c < columns.length; c++) {
+                tail.writers[c] = new BitWriter(columns[c].buffer(), tail.endBits[c]);
+            }
+            entries.set(count - 1, tail.meta());
+        }
+        blocks = List.copyOf(entries);
+    }
+
+    private BlockMeta readEntry(int i) {
+        ByteBuffer buffer = index.buffer();
+        int base = HEADER + i * ENTRY;
+        long[] offsets = new long[COLUMN_FILES.length];
+        for (int c = 0; c < offsets.length; c++) {
+            offsets[c] = buffer.getLong(base + 40 + c * 8);
+        }
+        double[] sums = new double[3];
+        int[] counts = new int[3];
+        for (int m = 0; m < 3; m++) {
+            sums[m] = buffer.getDouble(base + 88 + m * 8);
+            counts[m] = buffer.getInt(base + 112 + m * 4);
+        }
+        return new BlockMeta(buffer.getLong(base), buffer.getLong(base + 8), buffer.getLong(base + 16),
+                buffer.getLong(base + 24), buffer.getInt(base + 32), offsets, sums, counts);
+    }
+
+    private void writeEntry(int i, BlockMeta meta) {
+        ByteBuffer buffer = index.buffer();
+        int base = HEADER + i * ENTRY;
+        buffer.putLong(base, meta.minTime());
+        buffer.putLong(base + 8, meta.maxTime());
+        buffer.putLong(base + 16, meta.firstId());
+        buffer.putLong(base + 24, meta.lastId());
+        for (int c = 0; c < COLUMN_FILES.length; c++) {
+            buffer.putLong(base + 40 + c * 8, meta.offsets()[c]);
+        }
+        for (int m = 0; m < 3; m++) {
+            buffer.putDouble(base + 88 + m * 8, meta.sums()[m]);
+            buffer.putInt(base + 112 + m * 4, meta.counts()[m]);
+        }
+        // Commit point of the entry
+        buffer.putInt(base + 32, meta.rows());
+    }
+
+    // =================== APPEND ===================
+
+    /**
+     * Block entries of a {@link #write(List)} that are not committed yet.
+     */
+    record Pending(List<BlockMeta> blocks, int firstChanged) {
+    }
+
+    /**
+     * Encode rows whose ids are already set, in the given order, without publishing them: neither
+     * {@link #blocks()} nor the index change until {@link #commit(Pending, boolean)}. If this throws,
+     * or the result is never committed, the writer state is ahead of the index and the partition
+     * must be opened again.
+     */
+    Pending write(List<SensorData> rows) throws IOException {
+        // Map enough room up front so a full disk fails before anything is written
+        for (int c = 0; c < columns.length; c++) {
+            long end = tail == null ? 0 : tail.writers[c].byteEnd();
+            columns[c].ensureCapacity(end + (long) rows.size() * MAX_BYTES_PER_VALUE + 16);
+            if (tail != null) {
+                tail.writers[c].setBuffer(columns[c].buffer());
+            }
+        }
+        List<BlockMeta> updated = new ArrayList<>(blocks);
+        index.ensureCapacity(HEADER + (long) (updated.size() + rows.size() / blockRows + 2) * ENTRY);
+
+        int firstChanged = tail == null ? updated.size() : updated.size() - 1;
+        for (SensorData row : rows) {
+            if (tail == null || tail.rows == blockRows) {
+                startBlock(updated);
+            }
+            tail.add(row);
+            if (tail.rows == blockRows) {
+                updated.set(updated.size() - 1, tail.meta());
+            }
+        }
+        if (tail != null) {
+            for (BitWriter writer : tail.writers) {
+                writer.flush();
+            }
+            updated.set(updated.size() - 1, tail.meta());
+        }
+        return new Pending(updated, firstChanged);
+    }
+
+    /**
+     * Write the index entries of a {@link #write(List)} and publish its rows. Only touches index
+     * room mapped by the write.
+     */
+    void commit(Pending pending, boolean force) {
+        List<BlockMeta> updated = pending.blocks();
+        for (int i = pending.firstChanged(); i < updated.size(); i++) {
+            writeEntry(i, updated.get(i));
+        }
+        index.buffer().putInt(8, updated.size());
+        if (force) {
+            for (MappedFile column : columns) {
+                column.force();
+            }
+            index.force();
+        }
+        blocks = List.copyOf(updated);
+    }
+
+    private void startBlock(List<BlockMeta> updated) {
+        long[] offsets = new long[columns.length];
+        if (tail != null) {
+            for (int c = 0; c < columns.length; c++) {
+                tail.writers[c].flush();
+                offsets[c] = tail.writers[c].byteEnd();
+            }
+        }
+        tail = new Tail(offsets);
+        for (int c = 0; c < columns.length; c++) {
+            tail.writers[c] = new BitWriter(columns[c].buffer(), offsets[c] * 8);
+        }
+        updated.add(tail.meta());
+    }
+
+    // =================== DECODE ===================
+
+    /**
+     * Decoded columns of one block; missing values are NaN / {@link #NULL_LONG}.
+     */
+    static final class BlockData {
+        final int size;
+        final long[] time;
+        final long[] id;
+        final double[] temperature;
+        final double[] humidity;
+        final long[] lightLevel;
+        final long[] uptime;
+
+        BlockData(int size, boolean allColumns) {
+            this.size = size;
+            this.time = new long[size];
+            this.id = new long[size];
+            this.temperature = allColumns ? new double[size] : null;
+            this.humidity = allColumns ? new double[size] : null;
+            this.lightLevel = allColumns ? new long[size] : null;
+            this.uptime = allColumns ? new long[size] : null;
+        }
+    }
+
+    /**
+     * @param allColumns false to decode only created_at and id (counting, id lookups)
+     */
+    BlockData decode(BlockMeta block, boolean allColumns) {
+        return decode(block, new Codecs(), allColumns);
+    }
+
+    private BlockData decode(BlockMeta block, Codecs codecs, boolean allColumns) {
+        BlockData data = new BlockData(block.rows(), allColumns);
+        BitReader time = reader(block, TIME);
+        BitReader id = reader(block, ID);
+        for (int i = 0; i < data.size; i++) {
+            data.time[i] = codecs.time.read(time);
+            data.id[i] = codecs.id.read(id);
+        }
+        if (allColumns) {
+            BitReader temperature = reader(block, TEMPERATURE);
+            BitReader humidity = reader(block, HUMIDITY);
+            BitReader lightLevel = reader(block, LIGHT_LEVEL);
+            BitReader uptime = reader(block, UPTIME);
+            for (int i = 0; i < data.size; i++) {
+                data.temperature[i] = codecs.temperature.read(temperature);
+                data.humidity[i] = codecs.humidity.read(humidity);
+                data.lightLevel[i] = codecs.lightLevel.read(lightLevel);
+                data.uptime[i] = codecs.uptime.read(uptime);
+            }
+            if (codecs instanceof Tail open) {
+                open.endBits[TIME] = time.bitPosition();
+                open.endBits[ID] = id.bitPosition();
+                open.endBits[TEMPERATURE] = temperature.bitPosition();
+                open.endBits[HUMIDITY] = humidity.bitPosition();
+                open.endBits[LIGHT_LEVEL] = lightLevel.bitPosition();
+                open.endBits[UPTIME] = uptime.bitPosition();
+                for (int i = 0; i < data.size; i++) {
+                    open.track(data.time[i], data.id[i], data.temperature[i], data.humidity[i], data.lightLevel[i]);
+                }
+            }
+        }
+        return data;
+    }
+
+    private BitReader reader(BlockMeta block, int column) {
+        return new BitReader(columns[column].buffer(), block.offsets()[column] * 8);
+    }
+
+    void force() {
+        for (MappedFile column : columns) {
+            column.force();
+        }
+        index.force();
+    }
+
+    // =================== ENCODER STATE ===================
+
+    private static class Codecs {
+        final DeltaCodec time = new DeltaCodec();
+        final DeltaCodec id = new DeltaCodec();
+        final XorCodec temperature = new XorCodec();
+        final XorCodec humidity = new XorCodec();
+        final DeltaCodec lightLevel = new DeltaCodec();
+        final DeltaCodec uptime = new DeltaCodec();
+    }
+
+    /**
+     * Encoders, writers and running statistics of the block being filled.
+     */
+    private static final class Tail extends Codecs {
+        final long[] offsets;
+        final BitWriter[] writers = new BitWriter[COLUMN_FILES.length];
+        final long[] endBits = new long[COLUMN_FILES.length];
+        int rows;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        long firstId;
+        long lastId;
+        final double[] sums = new double[3];
+        final int[] counts = new int[3];
+
+        Tail(long[] offsets) {
+            this.offsets = offsets;
+        }
+
+        void add(SensorData row) {
+            long micros = ColumnarSensorStore.toMicros(row.getCreatedAt());
+            double temperatureValue = row.getTemperature() == null ? Double.NaN : row.getTemperature();
+            double humidityValue = row.getHumidity() == null ? Double.NaN : row.getHumidity();
+            long lightValue = row.getLightLevel() == null ? NULL_LONG : row.getLightLevel();
+            time.write(writers[TIME], micros);
+            id.write(writers[ID], row.getId());
+            temperature.write(writers[TEMPERATURE], temperatureValue);
+            humidity.write(writers[HUMIDITY], humidityValue);
+            lightLevel.write(writers[LIGHT_LEVEL], lightValue);
+            uptime.write(writers[UPTIME], row.getUptime() == null ? NULL_LONG : row.getUptime());
+            track(micros, row.getId(), temperatureValue, humidityValue, lightValue);
+        }
+
+        void track(long micros, long rowId, double temperatureValue, double humidityValue, long lightValue) {
+            if (rows++ == 0) {
+                firstId = rowId;
+            }
+            lastId = rowId;
+            minTime = Math.min(minTime, micros);
+            maxTime = Math.max(maxTime, micros);
+            if (!Double.isNaN(temperatureValue)) {
+                sums[SUM_TEMPERATURE] += temperatureValue;
+                counts[SUM_TEMPERATURE]++;
+            }
+            if (!Double.isNaN(humidityValue)) {
+                sums[SUM_HUMIDITY] += humidityValue;
+                counts[SUM_HUMIDITY]++;
+            }
+            if (lightValue != NULL_LONG) {
+                sums[SUM_LIGHT_LEVEL] += lightValue;
+                counts[SUM_LIGHT_LEVEL]++;
+            }
+        }
+
+        BlockMeta meta() {
+            return new BlockMeta(minTime, maxTime, firstId, lastId, rows, offsets.clone(), sums.clone(), counts.clone());
+        }
+    }
+}
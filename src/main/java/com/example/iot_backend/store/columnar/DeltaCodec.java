@@ -0,0 +1,80 @@
+package com.example.iot_backend.store.columnar;
+
+/**
+ * Delta-of-delta encoding for one long column inside a block (timestamps, ids, light level, uptime).
+ *
+ * The first value is written in full; after that only the change of the difference to the
+ * previous value, zigzag encoded, with a prefix choosing its width:
+ * <pre>
+ * 0                  same step as before (ids, uptime, a steady sampling interval)
+ * 10   +  7 bits
+ * 110  + 12 bits
+ * 1110 + 20 bits
+ * 1111 + 64 bits
+ * </pre>
+ * The same instance writes or reads a column; reading a block's rows leaves it in the state the
+ * writer had after them, which is how an unfinished block is continued after a restart.
+ */
+final class DeltaCodec {
+
+    private int count;
+    private long previous;
+    private long previousDelta;
+
+    void write(BitWriter out, long value) {
+        if (count++ == 0) {
+            out.writeBits(value, 64);
+            previous = value;
+            return;
+        }
+        long delta = value - previous;
+        long zigzag = zigzag(delta - previousDelta);
+        if (zigzag == 0) {
+            out.writeBit(false);
+        } else if (zigzag >>> 7 == 0) {
+            out.writeBits(0b10, 2);
+            out.writeBits(zigzag, 7);
+        } else if (zigzag >>> 12 == 0) {
+            out.writeBits(0b110, 3);
+            out.writeBits(zigzag, 12);
+        } else if (zigzag >>> 20 == 0) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(zigzag, 20);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(zigzag, 64);
+        }
+        previous = value;
+        previousDelta = delta;
+    }
+
+    long read(BitReader in) {
+        if (count++ == 0) {
+            previous = in.readBits(64);
+            return previous;
+        }
+        long zigzag;
+        if (!in.readBit()) {
+            zigzag = 0;
+        } else if (!in.readBit()) {
+            zigzag = in.readBits(7);
+        } else if (!in.readBit()) {
+            zigzag = in.readBits(12);
+        } else if (!in.readBit()) {
+            zigzag = in.readBits(20);
+        } else {
+            zigzag = in.readBits(64);
+        }
+        previousDelta += unzigzag(zigzag);
+        previous += previousDelta;
+        return previous;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.iot_backend.store.columnar;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A file mapped read-write in full, grown by doubling when the writer needs more room.
+ *
+ * Growing maps the file again; readers that still hold the previous buffer keep seeing the same
+ * pages for the bytes it covers, and anything published after the growth is read through the new
+ * (volatile) buffer.
+ */
+final class MappedFile {
+
+    private final Path path;
+    private volatile MappedByteBuffer buffer;
+
+    private MappedFile(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+    }
+
+    static MappedFile open(Path path, int initialSize) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (file.length() < initialSize) {
+                file.setLength(initialSize);
+            }
+            int size = (int) Math.min(file.length(), Integer.MAX_VALUE);
+            return new MappedFile(path, file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Make sure {@code bytes} bytes are mapped (writer thread only).
+     */
+    void ensureCapacity(long bytes) throws IOException {
+        if (bytes <= buffer.capacity()) {
+            return;
+        }
+        long size = buffer.capacity();
+        while (size < bytes) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Column file too large: " + path);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
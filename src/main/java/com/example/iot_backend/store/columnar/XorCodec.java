@@ -0,0 +1,67 @@
+package com.example.iot_backend.store.columnar;
+
+/**
+ * XOR encoding for one double column inside a block (temperature, humidity), as in Facebook's
+ * Gorilla: slowly changing readings share sign, exponent and most of the mantissa with the
+ * previous value, so only the differing bits are written.
+ * <pre>
+ * 0                                  same value as before
+ * 10 + meaningful bits               differing bits fit in the previous window
+ * 11 + 6 bits leading zeros + 6 bits (length - 1) + meaningful bits
+ * </pre>
+ * The first value of a block is written in full. Null is stored as NaN.
+ */
+final class XorCodec {
+
+    private int count;
+    private long previous;
+    private int previousLeading = -1;
+    private int previousTrailing;
+
+    void write(BitWriter out, double value) {
+        long bits = Double.doubleToLongBits(value);
+        if (count++ == 0) {
+            out.writeBits(bits, 64);
+            previous = bits;
+            return;
+        }
+        long xor = bits ^ previous;
+        previous = bits;
+        if (xor == 0) {
+            out.writeBit(false);
+            return;
+        }
+        out.writeBit(true);
+        int leading = Long.numberOfLeadingZeros(xor);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            out.writeBit(false);
+            out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            return;
+        }
+        int length = 64 - leading - trailing;
+        out.writeBit(true);
+        out.writeBits(leading, 6);
+        out.writeBits(length - 1, 6);
+        out.writeBits(xor >>> trailing, length);
+        previousLeading = leading;
+        previousTrailing = trailing;
+    }
+
+    double read(BitReader in) {
+        if (count++ == 0) {
+            previous = in.readBits(64);
+            return Double.longBitsToDouble(previous);
+        }
+        if (in.readBit()) {
+            if (in.readBit()) {
+                previousLeading = (int) in.readBits(6);
+                int length = (int) in.readBits(6) + 1;
+                previousTrailing = 64 - previousLeading - length;
+            }
+            int length = 64 - previousLeading - previousTrailing;
+            previous ^= in.readBits(length) << previousTrailing;
+        }
+        return Double.longBitsToDouble(previous);
+    }
+}
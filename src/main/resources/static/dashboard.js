@@ -344,7 +344,13 @@ async function loadChartData() {
 }
 
 // Process Chart Data
+// Nhận 2 dạng: mảng SensorData (/recent) hoặc dạng cột đã downsample từ /chart-data {t, temperature, humidity, lightLevel}
 function processChartData(data) {
+    if (data && Array.isArray(data.t)) {
+        processColumnarChartData(data);
+        return;
+    }
+
     if (!data || data.length === 0) {
         showNoDataChart();
         return;
@@ -373,6 +379,26 @@ function processChartData(data) {
     updateOverviewChart();
 }
 
+function processColumnarChartData(data) {
+    if (data.t.length === 0) {
+        showNoDataChart();
+        return;
+    }
+
+    // Khoảng thời gian dài hơn 1 ngày thì hiển thị cả ngày/tháng
+    const spanMs = data.t[data.t.length - 1] - data.t[0];
+    const labelOptions = spanMs > 24 * 60 * 60 * 1000
+        ? { day: '2-digit', month: '2-digit', hour: '2-digit', minute: '2-digit' }
+        : { hour: '2-digit', minute: '2-digit' };
+
+    chartData.labels = data.t.map(ts => new Date(ts).toLocaleString('vi-VN', labelOptions));
+    chartData.temperature = data.temperature.slice();
+    chartData.humidity = data.humidity.slice();
+    chartData.light = data.lightLevel.slice();
+
+    updateOverviewChart();
+}
+
 
 // Update Overview Chart
 
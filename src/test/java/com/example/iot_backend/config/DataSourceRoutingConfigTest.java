@@ -0,0 +1,39 @@
+package com.example.iot_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataSourceRoutingConfigTest {
+
+    private static final String REPLICA_URL = "jdbc:mysql://replica:3306/iot";
+
+    @Test
+    void blankReplicaCredentialsFallBackToThePrimary() {
+        try (HikariDataSource replica = new DataSourceRoutingConfig().replicaDataSource(primary(), REPLICA_URL, "", "")) {
+            assertEquals(REPLICA_URL, replica.getJdbcUrl());
+            assertEquals("iot", replica.getUsername());
+            assertEquals("secret", replica.getPassword());
+            assertTrue(replica.isReadOnly());
+        }
+    }
+
+    @Test
+    void replicaCredentialsWinWhenSet() {
+        try (HikariDataSource replica = new DataSourceRoutingConfig().replicaDataSource(primary(), REPLICA_URL, "reader", "r")) {
+            assertEquals("reader", replica.getUsername());
+            assertEquals("r", replica.getPassword());
+        }
+    }
+
+    private static DataSourceProperties primary() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:mysql://primary:3306/iot");
+        properties.setUsername("iot");
+        properties.setPassword("secret");
+        return properties;
+    }
+}
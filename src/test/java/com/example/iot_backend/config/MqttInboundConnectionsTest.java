@@ -0,0 +1,54 @@
+package com.example.iot_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
+import org.springframework.integration.mqtt.inbound.MqttPahoMessageDrivenChannelAdapter;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MqttInboundConnectionsTest {
+
+    private static final List<String> TOPICS = List.of("home/devices/+/sensors", "home/sensors",
+            "home/devices/+/led/+/state", "home/lamps/1", "home/lamps/2");
+
+    @Test
+    void withoutGroupEveryTopicIsOnExactlyOneConnection() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            for (String topic : MqttInboundConnections.subscriptionsFor(i, 2, TOPICS, null)) {
+                assertTrue(seen.add(topic), "subscribed twice: " + topic);
+            }
+        }
+        assertEquals(new HashSet<>(TOPICS), seen);
+        assertArrayEquals(new String[]{"home/devices/+/sensors", "home/devices/+/led/+/state", "home/lamps/2"},
+                MqttInboundConnections.subscriptionsFor(0, 2, TOPICS, null));
+    }
+
+    @Test
+    void withGroupEveryConnectionSharesEveryTopic() {
+        for (int i = 0; i < 3; i++) {
+            String[] subscriptions = MqttInboundConnections.subscriptionsFor(i, 3, TOPICS, "iot-backend");
+            assertEquals(TOPICS.size(), subscriptions.length);
+            assertEquals("$share/iot-backend/home/devices/+/sensors", subscriptions[0]);
+        }
+    }
+
+    @Test
+    void connectionsWithoutGroupAreCappedAtTopicCount() {
+        MqttInboundConnections connections = new MqttInboundConnections("test", new DefaultMqttPahoClientFactory(),
+                new DirectChannel(), List.of("home/sensors", "home/lamps/1"), 4, " ");
+
+        List<MqttPahoMessageDrivenChannelAdapter> adapters = connections.getAdapters();
+        assertEquals(2, adapters.size());
+        assertEquals(List.of("home/sensors"), Arrays.asList(adapters.get(0).getTopic()));
+        assertEquals(List.of("home/lamps/1"), Arrays.asList(adapters.get(1).getTopic()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.iot_backend.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica = mock(DataSource.class);
+    private final ReplicaLagMonitor monitor = mock(ReplicaLagMonitor.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final BoundedDataSource primaryRead = new BoundedDataSource(primary, 1, 10, "primary-read", new SimpleMeterRegistry());
+    private final ReadWriteRoutingDataSource routing =
+            new ReadWriteRoutingDataSource(primary, replica, primaryRead, monitor, new SimpleMeterRegistry());
+
+    @AfterEach
+    void clearReadOnly() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void writesUsePrimaryAndReadsUseReplica() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(monitor.isReplicaUsable()).thenReturn(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, routing.getConnection());
+    }
+
+    @Test
+    void laggingReplicaSendsReadsToBoundedPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(monitor.isReplicaUsable()).thenReturn(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Connection first = routing.getConnection();
+        assertThrows(SQLTransientConnectionException.class, routing::getConnection);
+
+        first.close();
+        first.close();
+        verify(primaryConnection).close();
+        routing.getConnection().close();
+
+        // Ghi không bị giới hạn bởi permit của truy vấn đọc
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertSame(primaryConnection, routing.getConnection());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.iot_backend.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaLagMonitorTest {
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Statement statement = mock(Statement.class);
+    private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(dataSource, 30, new SimpleMeterRegistry());
+
+    @BeforeEach
+    void connect() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+    }
+
+    @Test
+    void usableWhileLagIsWithinTheLimit() throws SQLException {
+        assertFalse(monitor.isReplicaUsable(), "reads stay on the primary until the first check");
+
+        ResultSet status = status(3L);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(status);
+        monitor.check();
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(3, monitor.getLagSeconds());
+
+        ResultSet behind = status(45L);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(behind);
+        monitor.check();
+        assertFalse(monitor.isReplicaUsable());
+        assertEquals(45, monitor.getLagSeconds());
+    }
+
+    @Test
+    void nullLagFallsBackToThePrimary() throws SQLException {
+        ResultSet stopped = status(null);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(stopped);
+
+        monitor.check();
+
+        assertFalse(monitor.isReplicaUsable());
+        assertTrue(monitor.getLagSeconds() < 0);
+    }
+
+    @Test
+    void emptyStatusCountsAsNoLag() throws SQLException {
+        ResultSet empty = mock(ResultSet.class);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(empty);
+
+        monitor.check();
+
+        assertTrue(monitor.isReplicaUsable());
+    }
+
+    @Test
+    void retriesWithSlaveStatusOnOlderServers() throws SQLException {
+        when(statement.executeQuery("SHOW REPLICA STATUS"))
+                .thenThrow(new SQLSyntaxErrorException("You have an error in your SQL syntax", "42000", 1064));
+        ResultSet legacy = mock(ResultSet.class);
+        when(legacy.next()).thenReturn(true);
+        when(legacy.getLong("Seconds_Behind_Source")).thenThrow(new SQLException("Column 'Seconds_Behind_Source' not found"));
+        when(legacy.getLong("Seconds_Behind_Master")).thenReturn(4L);
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(legacy);
+
+        monitor.check();
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(4, monitor.getLagSeconds());
+
+        monitor.check();
+        verify(statement, times(1)).executeQuery("SHOW REPLICA STATUS");
+        verify(statement, times(2)).executeQuery("SHOW SLAVE STATUS");
+    }
+
+    @Test
+    void failedCheckFallsBackToThePrimary() throws SQLException {
+        ResultSet status = status(0L);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(status);
+        monitor.check();
+        assertTrue(monitor.isReplicaUsable());
+
+        when(dataSource.getConnection()).thenThrow(new SQLException("Connection refused", "08S01"));
+        monitor.check();
+        assertFalse(monitor.isReplicaUsable());
+    }
+
+    // Một dòng status; lag null = SQL thread dừng
+    private static ResultSet status(Long lag) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong("Seconds_Behind_Source")).thenReturn(lag == null ? 0L : lag);
+        when(rs.wasNull()).thenReturn(lag == null);
+        return rs;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.iot_backend.export;
+
+import com.example.iot_backend.query.NumericFilter;
+import com.example.iot_backend.query.TimeFilter;
+import com.example.iot_backend.query.TimeRangeResolver;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExportQueryTest {
+
+    private static final TimeRangeResolver UTC = new TimeRangeResolver(ZoneOffset.UTC, ZoneOffset.UTC);
+
+    @Test
+    void buildsIndexFriendlyWhereClause() {
+        ExportQuery query = ExportQuery.from("sensor_data")
+                .within(TimeFilter.parse("24/09/2025"), UTC)
+                .value("temperature", NumericFilter.parse("23.5"), false)
+                .value("light_level", NumericFilter.parse(">40"), true);
+
+        assertEquals("SELECT id FROM sensor_data WHERE ((created_at >= ? AND created_at < ?))"
+                + " AND temperature >= ? AND temperature < ? AND light_level >= ?"
+                + " ORDER BY created_at DESC, id DESC", query.toSql("id"));
+        assertArrayEquals(new Object[]{
+                Timestamp.valueOf(LocalDateTime.of(2025, 9, 24, 0, 0)),
+                Timestamp.valueOf(LocalDateTime.of(2025, 9, 25, 0, 0)),
+                23.5, 23.6, 41L}, query.getArgs());
+    }
+
+    @Test
+    void unmatchableFiltersMatchNothing() {
+        ExportQuery query = ExportQuery.from("sensor_data").value("light_level", NumericFilter.parse("23.5"), true);
+        assertEquals("SELECT id FROM sensor_data WHERE 1 = 0 ORDER BY created_at DESC, id DESC", query.toSql("id"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.model.SensorData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadbandFilterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final MockEnvironment environment = new MockEnvironment()
+            .withProperty("ingest.deadband.devices.[bb:02].temperature", "1.0");
+
+    private final DeadbandFilter filter = new DeadbandFilter(new SimpleMeterRegistry(), environment,
+            true, 0.2, 0.5, 2, Duration.ofMinutes(5));
+
+    @Test
+    void storesOnlyChangesBeyondThreshold() {
+        assertTrue(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 0)));
+        assertFalse(filter.shouldStore("aa:01", reading(25.1, 60.3, 41, 10)));
+        // Drift is measured against the last stored reading, not the previous one
+        assertFalse(filter.shouldStore("aa:01", reading(25.2, 60.0, 40, 20)));
+        assertTrue(filter.shouldStore("aa:01", reading(25.3, 60.0, 40, 30)));
+        assertTrue(filter.shouldStore("aa:01", reading(25.3, 60.0, 43, 40)));
+    }
+
+    @Test
+    void storesHeartbeatAfterMaxSilence() {
+        assertTrue(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 0)));
+        assertFalse(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 299)));
+        assertTrue(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 300)));
+        assertFalse(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 301)));
+    }
+
+    @Test
+    void appliesPerDeviceOverride() {
+        assertEquals(1.0, filter.thresholdsFor("bb:02").temperature());
+        assertEquals(0.5, filter.thresholdsFor("bb:02").humidity());
+
+        assertTrue(filter.shouldStore("bb:02", reading(25.0, 60.0, 40, 0)));
+        assertFalse(filter.shouldStore("bb:02", reading(25.8, 60.0, 40, 10)));
+        assertTrue(filter.shouldStore("bb:02", reading(26.1, 60.0, 40, 20)));
+    }
+
+    @Test
+    void keepsStatePerDevice() {
+        assertTrue(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 0)));
+        assertTrue(filter.shouldStore("cc:03", reading(30.0, 40.0, 70, 1)));
+        // Compared with aa:01's own last reading, not with cc:03's
+        assertFalse(filter.shouldStore("aa:01", reading(25.1, 60.0, 40, 2)));
+        assertFalse(filter.shouldStore("cc:03", reading(30.1, 40.0, 70, 3)));
+
+        // Heartbeats are timed per device too
+        assertTrue(filter.shouldStore("cc:03", reading(30.0, 40.0, 70, 301)));
+        assertFalse(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 200)));
+        assertTrue(filter.shouldStore("aa:01", reading(25.0, 60.0, 40, 300)));
+    }
+
+    @Test
+    void storesReadingsWithoutDevice() {
+        assertTrue(filter.shouldStore(null, reading(25.0, 60.0, 40, 0)));
+        assertTrue(filter.shouldStore(null, reading(25.0, 60.0, 40, 1)));
+    }
+
+    private static SensorData reading(double temperature, double humidity, int lightLevel, int seconds) {
+        SensorData data = new SensorData();
+        data.setTemperature(temperature);
+        data.setHumidity(humidity);
+        data.setLightLevel(lightLevel);
+        data.setCreatedAt(T0.plusSeconds(seconds));
+        return data;
+    }
+}
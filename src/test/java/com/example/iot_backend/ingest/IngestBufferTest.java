@@ -0,0 +1,130 @@
+package com.example.iot_backend.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestBufferTest {
+
+    // capacity 10: high watermark 8, low watermark 5
+
+    @Test
+    void shedsFromHighWatermarkUntilDrainedToLowWatermark() throws InterruptedException {
+        IngestBuffer buffer = new IngestBuffer(OverloadPolicy.DROP_OLDEST, 10, 0.8, 0.5);
+        assertEquals(8, buffer.getHighWatermark());
+        assertEquals(5, buffer.getLowWatermark());
+
+        fill(buffer, 8);
+        assertFalse(buffer.isShedding());
+        buffer.offer("dev-1", reading(8));
+        assertTrue(buffer.isShedding());
+        assertEquals(1, buffer.getSheddingEpisodes());
+
+        poll(buffer, 2);
+        assertTrue(buffer.isShedding(), "still above the low watermark");
+        poll(buffer, 1);
+        assertFalse(buffer.isShedding());
+        assertEquals(5, buffer.size());
+    }
+
+    @Test
+    void dropOldestDiscardsOldestQueuedReadings() throws InterruptedException {
+        IngestBuffer buffer = new IngestBuffer(OverloadPolicy.DROP_OLDEST, 10, 0.8, 0.5);
+        fill(buffer, 8);
+        buffer.offer("dev-1", reading(8));
+        buffer.offer("dev-1", reading(9));
+
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), drain(buffer));
+    }
+
+    @Test
+    void blockWaitsUntilDrainedToLowWatermark() throws InterruptedException {
+        IngestBuffer buffer = new IngestBuffer(OverloadPolicy.BLOCK, 10, 0.8, 0.5);
+        fill(buffer, 8);
+
+        Thread producer = new Thread(() -> {
+            try {
+                buffer.offer("dev-1", reading(8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "producer should block at the high watermark");
+
+        poll(buffer, 2);
+        producer.join(200);
+        assertTrue(producer.isAlive(), "still above the low watermark");
+
+        poll(buffer, 1);
+        producer.join(2000);
+        assertFalse(producer.isAlive());
+        assertEquals(0, buffer.getDroppedCount());
+        assertEquals(List.of(3L, 4L, 5L, 6L, 7L, 8L), drain(buffer));
+    }
+
+    @Test
+    void coalesceKeepsNewestReadingPerDevice() throws InterruptedException {
+        IngestBuffer buffer = new IngestBuffer(OverloadPolicy.COALESCE_LATEST, 10, 0.8, 0.5);
+        fill(buffer, 8);
+        buffer.offer("aa:01", reading(100));
+        buffer.offer("bb:02", reading(101));
+        buffer.offer("aa:01", reading(102));
+
+        assertEquals(1, buffer.getCoalescedCount());
+        assertEquals(0, buffer.getDroppedCount());
+        // Coalesced readings follow the queued ones, in the order of their newest arrival
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 101L, 102L), drain(buffer));
+    }
+
+    @Test
+    void coalesceDoesNotMergeReadingsWithoutDevice() throws InterruptedException {
+        IngestBuffer buffer = new IngestBuffer(OverloadPolicy.COALESCE_LATEST, 10, 0.8, 0.5);
+        fill(buffer, 8);
+        buffer.offer(null, reading(100));
+        buffer.offer(null, reading(101));
+        buffer.offer(null, reading(102));
+
+        assertEquals(0, buffer.getCoalescedCount());
+        assertEquals(1, buffer.getDroppedCount(), "over capacity the oldest queued reading goes");
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 100L, 101L, 102L), drain(buffer));
+    }
+
+    @Test
+    void rejectsInvalidWatermarks() {
+        assertThrows(IllegalArgumentException.class, () -> new IngestBuffer(OverloadPolicy.BLOCK, 10, 0.5, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new IngestBuffer(OverloadPolicy.BLOCK, 10, 1.2, 0.5));
+    }
+
+    private static void fill(IngestBuffer buffer, int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            buffer.offer("dev-1", reading(i));
+        }
+    }
+
+    private static void poll(IngestBuffer buffer, int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            buffer.poll(1, TimeUnit.SECONDS);
+        }
+    }
+
+    private static List<Long> drain(IngestBuffer buffer) {
+        List<PendingReading> out = new ArrayList<>();
+        buffer.drainTo(out, Integer.MAX_VALUE);
+        return out.stream().map(PendingReading::spoolPosition).toList();
+    }
+
+    // The spool position doubles as the reading's identity here
+    private static PendingReading reading(long id) {
+        return new PendingReading(null, id - 1, id);
+    }
+}
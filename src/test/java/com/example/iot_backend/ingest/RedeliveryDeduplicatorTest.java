@@ -0,0 +1,59 @@
+package com.example.iot_backend.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedeliveryDeduplicatorTest {
+
+    private static final byte[] PAYLOAD =
+            "{\"temp\":23.5,\"hum\":61.2,\"light_raw\":1873,\"uptime\":12345}".getBytes(StandardCharsets.UTF_8);
+
+    private final RedeliveryDeduplicator deduplicator = new RedeliveryDeduplicator(new SimpleMeterRegistry(),
+            true, Duration.ofMinutes(5), 1000, Duration.ofMillis(200));
+
+    @Test
+    void readingIsDuplicateOnlyForTheSameDevice() {
+        assertFalse(deduplicator.isDuplicateReading("aa:01", 12345, PAYLOAD));
+        assertFalse(deduplicator.isDuplicateReading("bb:02", 12345, PAYLOAD), "another device, same values");
+        assertTrue(deduplicator.isDuplicateReading("aa:01", 12345, PAYLOAD));
+        assertFalse(deduplicator.isDuplicateReading("aa:01", 12346, PAYLOAD));
+
+        // Shared legacy topic: no device, only byte-identical payloads at the same uptime match
+        assertFalse(deduplicator.isDuplicateReading(null, 12345, PAYLOAD));
+        assertTrue(deduplicator.isDuplicateReading(null, 12345, PAYLOAD));
+    }
+
+    @Test
+    void ledStateIsDuplicateOnlyWithinRedeliveryWindow() throws InterruptedException {
+        assertFalse(deduplicator.isDuplicateLedState("aa:01", 1, true));
+        assertTrue(deduplicator.isDuplicateLedState("aa:01", 1, true));
+        assertFalse(deduplicator.isDuplicateLedState("aa:01", 2, true), "another LED");
+        assertFalse(deduplicator.isDuplicateLedState("bb:02", 1, true), "another device");
+
+        assertFalse(deduplicator.isDuplicateLedState("aa:01", 1, false));
+        assertFalse(deduplicator.isDuplicateLedState("aa:01", 1, true), "ON -> OFF -> ON is genuine");
+
+        // A genuine repeated report after the window is kept
+        Thread.sleep(300);
+        assertFalse(deduplicator.isDuplicateLedState("aa:01", 1, true));
+        assertEquals(1, deduplicator.stats().hits());
+    }
+
+    @Test
+    void disabledNeverReportsDuplicates() {
+        RedeliveryDeduplicator disabled = new RedeliveryDeduplicator(new SimpleMeterRegistry(),
+                false, Duration.ofMinutes(5), 1000, Duration.ofSeconds(3));
+
+        assertFalse(disabled.isDuplicateReading("aa:01", 1, PAYLOAD));
+        assertFalse(disabled.isDuplicateReading("aa:01", 1, PAYLOAD));
+        assertFalse(disabled.isDuplicateLedState("aa:01", 1, true));
+        assertFalse(disabled.isDuplicateLedState("aa:01", 1, true));
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.ingest.codec.BinarySensorPayloadCodec;
+import com.example.iot_backend.ingest.codec.JsonSensorPayloadDecoder;
+import com.example.iot_backend.ingest.codec.SensorCodecRegistry;
+import com.example.iot_backend.ingest.spool.IngestSpool;
+import com.example.iot_backend.live.RecentRecords;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.store.SensorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class SensorBatchWriterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @TempDir
+    Path dir;
+
+    private final SensorStore store = mock(SensorStore.class);
+    // Rows in insert order, with the id the store assigned
+    private final List<SensorData> stored = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger appendCalls = new AtomicInteger();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private SensorBatchWriter writer;
+
+    @AfterEach
+    void stopWriter() {
+        if (writer != null && writer.isRunning()) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void writesQueuedReadingsInBatchesAndDrainsOnStop() throws Exception {
+        recordAppends();
+        writer = writer(spool(false), 1);
+        writer.start();
+
+        for (int i = 0; i < 500; i++) {
+            writer.submit("dev-1", reading(i), "home/sensors", new byte[0]);
+        }
+        writer.stop();
+
+        assertEquals(500, stored.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, stored.get(i).getUptime());
+            assertEquals(i + 1L, stored.get(i).getId());
+        }
+        assertTrue(appendCalls.get() < 500, "readings should be written in multi-row batches");
+    }
+
+    @Test
+    void retriesFailedBatchWithoutLosingReadings() throws Exception {
+        recordAppends();
+        failuresLeft.set(2);
+        writer = writer(spool(false), 1);
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            writer.submit("dev-1", reading(i), "home/sensors", new byte[0]);
+        }
+        writer.stop();
+
+        assertEquals(10, stored.size());
+        assertEquals(0, writer.getFailedRows());
+    }
+
+    @Test
+    void concurrentSubmitsOutOfSpoolOrderAreAllWritten() throws Exception {
+        recordAppends();
+        IngestSpool spool = spool(true);
+        writer = writer(spool, 1);
+        writer.start();
+
+        // Spool positions are assigned under a lock, but the threads reach the queue in any order
+        int threads = 8;
+        int perThread = 2000;
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            producers.add(new Thread(() -> {
+                try {
+                    for (int i = base; i < base + perThread; i++) {
+                        writer.submit("dev-" + base, reading(i), "home/sensors", json(i));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        writer.stop();
+
+        Set<Integer> uptimes = new HashSet<>();
+        for (SensorData row : stored) {
+            assertTrue(uptimes.add(row.getUptime()), "written twice: " + row.getUptime());
+        }
+        assertEquals(threads * perThread, uptimes.size());
+        assertFalse(writer.isReplaying());
+        // Nothing is left for a replay after a restart, and nothing was checkpointed early
+        assertEquals(spool.getEndPosition(), spool.getCheckpoint());
+    }
+
+    @Test
+    void replaySkipsCorruptedSpoolRecord() throws Exception {
+        recordAppends();
+        IngestSpool spool = spool(true);
+        spool.append("home/sensors", json(1), 1L);
+        long second = spool.append("home/sensors", json(2), 2L);
+        spool.append("home/sensors", json(3), 3L);
+        // Hỏng body của record thứ hai sau khi đã ghi (lỗi đĩa): chỉ record đó không đọc được
+        try (RandomAccessFile file = new RandomAccessFile(dir.resolve(String.format("spool-%020d.log", 0)).toFile(), "rw")) {
+            file.seek(second - 3);
+            file.write(0x7F);
+        }
+
+        writer = writer(spool, 1);
+        writer.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.isReplaying() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(writer.isReplaying(), "replay must get past the corrupted record");
+        assertEquals(1, writer.getCorruptSpoolRecords());
+        assertEquals(List.of(1, 3), stored.stream().map(SensorData::getUptime).toList());
+        assertEquals(spool.getEndPosition(), spool.getCheckpoint());
+    }
+
+    @Test
+    void failingListenerDoesNotReappendCommittedBatch() throws Exception {
+        recordAppends();
+        RecentRecords recent = mock(RecentRecords.class);
+        doThrow(new IllegalStateException("listener broke")).when(recent).sensorDataStored(anyList());
+        IngestSpool spool = spool(true);
+        // Hai record đã có trong spool (replay) và vài reading mới qua live ingest
+        spool.append("home/sensors", json(1), 1L);
+        spool.append("home/sensors", json(2), 2L);
+
+        writer = writer(spool, 1, recent);
+        writer.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writer.isReplaying() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(writer.isReplaying(), "replay must checkpoint past a batch whose listener failed");
+        for (int i = 3; i <= 5; i++) {
+            writer.submit("dev-1", reading(i), "home/sensors", json(i));
+        }
+        writer.stop();
+
+        assertEquals(List.of(1, 2, 3, 4, 5), stored.stream().map(SensorData::getUptime).sorted().toList());
+        assertEquals(spool.getEndPosition(), spool.getCheckpoint());
+    }
+
+    private void recordAppends() {
+        doAnswer(invocation -> {
+            appendCalls.incrementAndGet();
+            if (failuresLeft.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("database unavailable");
+            }
+            List<SensorData> batch = invocation.getArgument(0);
+            synchronized (stored) {
+                for (SensorData row : batch) {
+                    row.setId(stored.size() + 1L);
+                    stored.add(row);
+                }
+            }
+            return null;
+        }).when(store).append(anyList());
+    }
+
+    private SensorBatchWriter writer(IngestSpool spool, int minBatchSize) {
+        return writer(spool, minBatchSize, mock(RecentRecords.class));
+    }
+
+    private SensorBatchWriter writer(IngestSpool spool, int minBatchSize, RecentRecords recent) {
+        SensorCodecRegistry codecs = new SensorCodecRegistry(
+                List.of(new JsonSensorPayloadDecoder(), new BinarySensorPayloadCodec()));
+        QueryResultCache cache = new QueryResultCache(new SimpleMeterRegistry(), false, 0, 1,
+                Duration.ofSeconds(1), Duration.ofSeconds(1), false, 30, 5000);
+        return new SensorBatchWriter(store, new SimpleMeterRegistry(), spool, codecs,
+                recent, cache,
+                10_000, minBatchSize, 100, 20, 10_000, -1, OverloadPolicy.BLOCK, 0.8, 0.5);
+    }
+
+    private IngestSpool spool(boolean enabled) throws IOException {
+        return new IngestSpool(new SimpleMeterRegistry(), enabled, dir.toString(), 1, 32, Duration.ofHours(1), false);
+    }
+
+    private static byte[] json(int uptime) {
+        return ("{\"temp\":20,\"hum\":50,\"light_raw\":100,\"uptime\":" + uptime + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    static SensorData reading(int uptime) {
+        SensorData data = new SensorData();
+        data.setTemperature(20.0 + uptime % 10);
+        data.setHumidity(50.0);
+        data.setLightLevel(40);
+        data.setUptime(uptime);
+        data.setCreatedAt(T0.plusSeconds(uptime));
+        return data;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.iot_backend.ingest;
+
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.model.SensorRollupMinute;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class SensorRollupUpdaterTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 3, 1, 10, 15);
+
+    @Test
+    void upsertMergesEveryColumn() {
+        String sql = SensorRollupUpdater.buildUpsert("sensor_rollup_1m");
+
+        assertTrue(sql.startsWith("INSERT INTO sensor_rollup_1m (bucket_start, sample_count, temperature_count, "
+                + "temperature_sum, temperature_min, temperature_max, temperature_last, humidity_count, "));
+        assertEquals(18, sql.chars().filter(c -> c == '?').count(), "one placeholder per column");
+        assertTrue(sql.contains("sample_count = sample_count + VALUES(sample_count)"));
+        assertTrue(sql.contains("humidity_count = humidity_count + VALUES(humidity_count)"));
+        assertTrue(sql.contains("humidity_sum = COALESCE(humidity_sum, 0) + COALESCE(VALUES(humidity_sum), 0)"));
+        assertTrue(sql.contains("light_level_min = LEAST(COALESCE(light_level_min, VALUES(light_level_min)), "
+                + "COALESCE(VALUES(light_level_min), light_level_min))"));
+        assertTrue(sql.contains("temperature_max = GREATEST(COALESCE(temperature_max, VALUES(temperature_max)), "
+                + "COALESCE(VALUES(temperature_max), temperature_max))"));
+        // "last" must be decided before last_at moves on
+        assertTrue(sql.indexOf("temperature_last = IF(VALUES(last_at) >= last_at")
+                < sql.indexOf("last_at = GREATEST(last_at, VALUES(last_at))"));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void applyBindsPerMetricCountsIgnoringNulls() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        SensorRollupUpdater updater = new SensorRollupUpdater(jdbcTemplate, true);
+
+        updater.apply(List.of(
+                reading(T0, 20.0, 50.0, 40),
+                reading(T0.plusSeconds(10), 22.0, null, 60),
+                reading(T0.plusSeconds(20), null, null, 50)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Collection> rows = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(sql.capture(), rows.capture(), anyInt(), setter.capture());
+        assertEquals(3, sql.getAllValues().size(), "one upsert per rollup table");
+        assertTrue(sql.getAllValues().get(0).startsWith("INSERT INTO sensor_rollup_1m "));
+
+        List<Object> minuteBuckets = new ArrayList<>(rows.getAllValues().get(0));
+        assertEquals(1, minuteBuckets.size());
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getAllValues().get(0).setValues(ps, minuteBuckets.get(0));
+
+        verify(ps).setTimestamp(1, Timestamp.valueOf(T0));
+        verify(ps).setLong(2, 3);
+        verify(ps).setLong(3, 2);           // temperature_count
+        verify(ps).setDouble(4, 42.0);      // temperature_sum
+        verify(ps).setDouble(7, 22.0);      // temperature_last
+        verify(ps).setLong(8, 1);           // humidity_count
+        verify(ps).setDouble(9, 50.0);      // humidity_sum
+        verify(ps).setDouble(12, 50.0);     // humidity_last: newest non-null value
+        verify(ps).setLong(13, 3);          // light_level_count
+        verify(ps).setInt(15, 40);          // light_level_min
+        verify(ps).setInt(16, 60);          // light_level_max
+        verify(ps).setInt(17, 50);          // light_level_last
+        verify(ps).setTimestamp(18, Timestamp.valueOf(T0.plusSeconds(20)));
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void applyBindsNullSumForMetricWithoutValues() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        new SensorRollupUpdater(jdbcTemplate, true).apply(List.of(reading(T0, 20.0, null, 40)));
+
+        ArgumentCaptor<Collection> rows = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), rows.capture(), anyInt(), setter.capture());
+
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getAllValues().get(0).setValues(ps, rows.getAllValues().get(0).iterator().next());
+        verify(ps).setLong(8, 0);
+        verify(ps).setNull(9, Types.DOUBLE);
+    }
+
+    @Test
+    void averageDividesByTheMetricsOwnCount() {
+        SensorRollupMinute bucket = new SensorRollupMinute();
+        bucket.setSampleCount(4);
+        bucket.setHumiditySum(100.0);
+        bucket.setHumidityCount(2L);
+        bucket.setTemperatureSum(80.0);
+
+        assertEquals(50.0, bucket.getHumidityAvg());
+        // Bucket written before the per-metric counts: falls back to the reading count
+        assertEquals(20.0, bucket.getTemperatureAvg());
+        assertNull(bucket.getLightLevelAvg());
+    }
+
+    private static SensorData reading(LocalDateTime at, Double temperature, Double humidity, Integer light) {
+        SensorData data = new SensorData();
+        data.setTemperature(temperature);
+        data.setHumidity(humidity);
+        data.setLightLevel(light);
+        data.setCreatedAt(at);
+        return data;
+    }
+}
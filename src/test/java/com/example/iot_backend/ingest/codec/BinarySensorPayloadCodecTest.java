@@ -0,0 +1,56 @@
+package com.example.iot_backend.ingest.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinarySensorPayloadCodecTest {
+
+    private final BinarySensorPayloadCodec codec = new BinarySensorPayloadCodec();
+
+    @Test
+    void decodesSameReadingAsJson() {
+        double[][] samples = {{23.5, 61.25}, {-4.3, 0}, {31.07, 99.9}, {0.05, 45.1}};
+        for (double[] sample : samples) {
+            String json = "{\"temp\":" + sample[0] + ",\"hum\":" + sample[1]
+                    + ",\"light_raw\":4095,\"uptime\":4000000000}";
+            SensorReading fromJson = new SensorReading();
+            new JsonSensorPayloadDecoder().decode(json.getBytes(StandardCharsets.UTF_8), fromJson);
+
+            SensorReading fromBinary = new SensorReading();
+            codec.decode(BinarySensorPayloadCodec.encode(sample[0], sample[1], 4095, 4000000000L), fromBinary);
+
+            assertEquals(fromJson.getTemperature(), fromBinary.getTemperature(), json);
+            assertEquals(fromJson.getHumidity(), fromBinary.getHumidity(), json);
+            assertEquals(fromJson.getLightRaw(), fromBinary.getLightRaw(), json);
+            assertEquals(fromJson.getUptime(), fromBinary.getUptime(), json);
+            assertEquals(fromJson.getLightLevel(), fromBinary.getLightLevel(), json);
+        }
+    }
+
+    @Test
+    void decodesLittleEndianLayout() {
+        byte[] payload = {1, 0, (byte) 0x2E, (byte) 0x09, (byte) 0xF5, (byte) 0x17, (byte) 0x51, (byte) 0x07,
+                (byte) 0x39, (byte) 0x30, 0, 0};
+        SensorReading reading = new SensorReading();
+        codec.decode(payload, reading);
+
+        assertEquals(23.5, reading.getTemperature());
+        assertEquals(61.33, reading.getHumidity());
+        assertEquals(1873.0, reading.getLightRaw());
+        assertEquals(12345L, reading.getUptime());
+    }
+
+    @Test
+    void rejectsShortOrUnknownVersion() {
+        SensorReading reading = new SensorReading();
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[5], reading));
+
+        byte[] payload = BinarySensorPayloadCodec.encode(20, 50, 100, 1);
+        payload[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(payload, reading));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.iot_backend.ingest.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation/throughput comparison of the old String + readTree path against
+ * {@link JsonSensorPayloadDecoder}. Not a unit test; run it manually:
+ *
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *      com.example.iot_backend.ingest.codec.JsonSensorPayloadDecoderBenchmark
+ * </pre>
+ */
+public class JsonSensorPayloadDecoderBenchmark {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    private static final byte[] PAYLOAD =
+            "{\"temp\":27.4,\"hum\":63.8,\"light_raw\":1873,\"uptime\":348211}".getBytes(StandardCharsets.UTF_8);
+
+    private static double sink;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonSensorPayloadDecoder decoder = new JsonSensorPayloadDecoder();
+        SensorReading reading = new SensorReading();
+
+        // Before: DefaultPahoMessageConverter builds a String, MqttService called readTree on it
+        Task treeModel = () -> {
+            String payload = new String(PAYLOAD, StandardCharsets.UTF_8);
+            JsonNode node = objectMapper.readTree(payload);
+            sink += node.get("temp").asDouble() + node.get("hum").asDouble()
+                    + node.get("light_raw").asDouble() + node.get("uptime").asInt();
+        };
+
+        // After: decode the raw byte[] into a reused SensorReading
+        Task streaming = () -> {
+            decoder.decode(PAYLOAD, reading);
+            sink += reading.getTemperature() + reading.getHumidity()
+                    + reading.getLightRaw() + reading.getUptime();
+        };
+
+        run("String + readTree", treeModel);
+        run("JsonSensorPayloadDecoder", streaming);
+        System.out.println("(sink " + sink + ")");
+    }
+
+    private static void run(String name, Task task) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            task.run();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            task.run();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+        System.out.printf("%-26s %8.1f bytes/msg %8.1f ns/msg%n",
+                name, (double) allocated / ITERATIONS, (double) elapsed / ITERATIONS);
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.iot_backend.ingest.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonSensorPayloadDecoderTest {
+
+    private final JsonSensorPayloadDecoder decoder = new JsonSensorPayloadDecoder();
+
+    @Test
+    void decodesEsp32Payload() {
+        SensorReading reading = decode("{\"temp\":23.5,\"hum\":61.25,\"light_raw\":1873,\"uptime\":12345}");
+
+        assertEquals(23.5, reading.getTemperature());
+        assertEquals(61.25, reading.getHumidity());
+        assertEquals(1873.0, reading.getLightRaw());
+        assertEquals(12345L, reading.getUptime());
+        assertEquals(54, reading.getLightLevel());
+    }
+
+    @Test
+    void matchesDoubleParsingForTypicalValues() {
+        String[] values = {"0", "-0.5", "27.3", "0.05", "99.99", "1e2", "2.5E-1", "123456789.123456789"};
+        for (String value : values) {
+            SensorReading reading = decode("{\"temp\":" + value + ",\"hum\":1,\"light_raw\":0,\"uptime\":1}");
+            assertEquals(Double.parseDouble(value), reading.getTemperature(), value);
+        }
+    }
+
+    @Test
+    void skipsWhitespaceAndUnknownFields() {
+        SensorReading reading = decode(" { \"id\" : \"esp-1\", \"temp\" : 21 ,\n \"extra\": {\"a\":[1,2,{\"b\":\"}\"}]},"
+                + " \"hum\":40, \"ok\": true, \"light_raw\": 0, \"uptime\": 7 } ");
+
+        assertEquals(21.0, reading.getTemperature());
+        assertEquals(40.0, reading.getHumidity());
+        assertEquals(7L, reading.getUptime());
+        assertEquals(100, reading.getLightLevel());
+    }
+
+    @Test
+    void rejectsMissingFieldsAndGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"temp\":21,\"hum\":40,\"uptime\":7}"));
+        assertThrows(IllegalArgumentException.class, () -> decode("temp=21"));
+        assertThrows(IllegalArgumentException.class, () -> decode("{\"temp\":21,"));
+        assertThrows(IllegalArgumentException.class, () -> decode("{}"));
+    }
+
+    private SensorReading decode(String json) {
+        SensorReading reading = new SensorReading();
+        decoder.decode(json.getBytes(StandardCharsets.UTF_8), reading);
+        return reading;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.iot_backend.ingest.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MqttTopicRouterTest {
+
+    private final MqttTopicRouter router = new MqttTopicRouter();
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    void extractsWildcardLevels() throws Exception {
+        router.register("home/devices/+/led/+/state", (m, p) ->
+                calls.add("state " + m.group(0) + " " + m.intGroup(1)));
+
+        assertTrue(router.route("home/devices/AA:BB:CC/led/2/state", new byte[0]));
+        assertEquals(List.of("state AA:BB:CC 2"), calls);
+    }
+
+    @Test
+    void prefersLiteralOverWildcards() throws Exception {
+        router.register("home/#", (m, p) -> calls.add("hash " + m.group(0)));
+        router.register("home/+", (m, p) -> calls.add("plus " + m.group(0)));
+        router.register("home/sensors", (m, p) -> calls.add("sensors"));
+
+        router.route("home/sensors", new byte[0]);
+        router.route("home/lamps", new byte[0]);
+        router.route("home/lamps/1", new byte[0]);
+        router.route("home", new byte[0]);
+
+        assertEquals(List.of("sensors", "plus lamps", "hash lamps/1", "hash "), calls);
+    }
+
+    @Test
+    void backtracksWhenLiteralBranchDoesNotMatch() throws Exception {
+        router.register("home/lamps/status", (m, p) -> calls.add("status"));
+        router.register("home/+/+", (m, p) -> calls.add("pair " + m.group(0) + "/" + m.intGroup(1)));
+
+        router.route("home/lamps/3", new byte[0]);
+
+        assertEquals(List.of("pair lamps/3"), calls);
+    }
+
+    @Test
+    void reportsUnmatchedTopics() throws Exception {
+        router.register("home/lamps/+", (m, p) -> calls.add("lamp"));
+
+        assertFalse(router.route("home/lamps/1/extra", new byte[0]));
+        assertFalse(router.route("home/lamps", new byte[0]));
+        assertFalse(router.route(null, new byte[0]));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidFilters() {
+        assertThrows(IllegalArgumentException.class, () -> router.register("home/#/x", (m, p) -> { }));
+        assertThrows(IllegalArgumentException.class, () -> router.register("home/lamp+", (m, p) -> { }));
+        router.register("home/lamps/+", (m, p) -> { });
+        assertThrows(IllegalStateException.class, () -> router.register("home/lamps/+", (m, p) -> { }));
+    }
+
+    @Test
+    void rejectsNonNumericLevels() throws Exception {
+        router.register("home/lamps/+", (m, p) -> m.intGroup(0));
+
+        assertThrows(NumberFormatException.class, () -> router.route("home/lamps/x1", new byte[0]));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.iot_backend.ingest.routing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SensorTopicsTest {
+
+    @Test
+    void formatIsTheTrailingLevel() {
+        assertNull(SensorTopics.formatOf("home/sensors"));
+        assertNull(SensorTopics.formatOf("home/devices/a4:cf/sensors"));
+        assertEquals("bin", SensorTopics.formatOf("home/sensors/bin"));
+        assertEquals("json", SensorTopics.formatOf("home/devices/a4:cf/sensors/json"));
+    }
+}
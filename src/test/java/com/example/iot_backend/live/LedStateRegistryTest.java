@@ -0,0 +1,111 @@
+package com.example.iot_backend.live;
+
+import com.example.iot_backend.model.LedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LedStateRegistryTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 9, 24, 13, 28);
+
+    @Test
+    void keepsNewestStatePerLedAcrossDevices() {
+        // Không có DB: lần load đầu thất bại, registry vẫn nhận cập nhật live
+        LedStateRegistry registry = new LedStateRegistry(new JdbcTemplate(), "");
+
+        registry.update(event(1, 1, true, "aa:01", T0));
+        registry.update(event(2, 2, true, null, T0));
+        registry.update(event(3, 1, false, "aa:02", T0.plusSeconds(5)));
+        // Đến muộn nhưng cũ hơn: không được ghi đè
+        registry.update(event(4, 1, true, "aa:02", T0.plusSeconds(1)));
+
+        assertEquals(Map.of("1", false, "2", true), registry.latestStates());
+
+        Map<String, Map<String, LedStateRegistry.LedState>> byDevice = registry.latestStatesByDevice();
+        assertEquals(true, byDevice.get("aa:01").get("1").on());
+        assertEquals(false, byDevice.get("aa:02").get("1").on());
+        assertEquals(true, byDevice.get("").get("2").on());
+    }
+
+    @Test
+    void sharedGroupMergesStatesSavedByOtherInstances() throws Exception {
+        List<ResultSet> latestRows = new ArrayList<>();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                for (ResultSet rs : latestRows) {
+                    try {
+                        handler.processRow(rs);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+        latestRows.add(row(1, "aa:01", 1, "ON", T0));
+        LedStateRegistry registry = new LedStateRegistry(jdbcTemplate, "iot-backend");
+        registry.start();
+        assertEquals(Map.of("1", true), registry.latestStates());
+
+        // Instance khác nhận state report (shared subscription) và ghi vào DB
+        latestRows.set(0, row(7, "aa:01", 1, "OFF", T0.plusSeconds(3)));
+        latestRows.add(row(8, "aa:02", 2, "ON", T0.plusSeconds(4)));
+        // Cập nhật live của instance này mới hơn dòng trong DB: refresh không được ghi đè
+        registry.update(event(9, 2, false, "aa:02", T0.plusSeconds(5)));
+        registry.refresh();
+
+        assertEquals(Map.of("1", false, "2", false), registry.latestStates());
+        registry.stop();
+    }
+
+    @Test
+    void refreshIsNoOpWithoutSharedGroup() {
+        int[] queries = {0};
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public void query(String sql, RowCallbackHandler handler) {
+                queries[0]++;
+            }
+        };
+        LedStateRegistry registry = new LedStateRegistry(jdbcTemplate, "");
+        registry.start();
+        registry.refresh();
+        registry.refresh();
+
+        assertEquals(1, queries[0]);
+        registry.stop();
+    }
+
+    private static ResultSet row(long id, String mac, int led, String state, LocalDateTime at) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("device_mac")).thenReturn(mac);
+        when(rs.getInt("led_number")).thenReturn(led);
+        when(rs.getString("state_on")).thenReturn(state);
+        when(rs.getTimestamp("created_at")).thenReturn(Timestamp.valueOf(at));
+        return rs;
+    }
+
+    private static LedEvent event(long id, int led, boolean on, String mac, LocalDateTime at) {
+        LedEvent event = new LedEvent();
+        event.setId(id);
+        event.setLedNumber(led);
+        event.setStateOn(on);
+        event.setDeviceMac(mac);
+        event.setCreatedAt(at);
+        return event;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.iot_backend.live;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentBufferTest {
+
+    @Test
+    void keepsNewestFirstAndDropsOldest() {
+        RecentBuffer<Integer> buffer = new RecentBuffer<>(3);
+        assertTrue(buffer.snapshot().isEmpty());
+
+        buffer.addAll(List.of(1, 2));
+        assertEquals(List.of(2, 1), buffer.snapshot());
+
+        buffer.addAll(List.of(3, 4, 5));
+        assertEquals(List.of(5, 4, 3), buffer.snapshot());
+        assertEquals(List.of(5, 4), buffer.snapshot(2));
+    }
+
+    @Test
+    void snapshotsStayOrderedUnderConcurrentWriters() throws Exception {
+        RecentBuffer<Long> buffer = new RecentBuffer<>(50);
+        int writers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            long offset = w;
+            pool.execute(() -> {
+                // Mỗi writer ghi dãy tăng dần riêng: w, w + 4, w + 8, ...
+                for (long i = 0; i < 50_000; i++) {
+                    buffer.add(i * writers + offset);
+                }
+                done.countDown();
+            });
+        }
+
+        while (!done.await(0, TimeUnit.MILLISECONDS)) {
+            List<Long> snapshot = buffer.snapshot();
+            assertTrue(snapshot.size() <= 50);
+            for (int i = 1; i < snapshot.size(); i++) {
+                // Cùng writer thì mới hơn phải đứng trước
+                if (snapshot.get(i) % writers == snapshot.get(i - 1) % writers) {
+                    assertTrue(snapshot.get(i) < snapshot.get(i - 1));
+                }
+            }
+        }
+        pool.shutdown();
+        assertEquals(50, buffer.snapshot().size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.iot_backend.live;
+
+import com.example.iot_backend.dto.LedEventView;
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.repository.ProjectionQuery;
+import com.example.iot_backend.store.SensorStore;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecentRecordsTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 9, 24, 13, 28);
+
+    private final SensorStore store = mock(SensorStore.class);
+    @SuppressWarnings("unchecked")
+    private final ProjectionQuery<LedEvent, LedEventView> ledEventViews = mock(ProjectionQuery.class);
+
+    @Test
+    void sharedGroupMergesRowsIngestedByOtherInstances() {
+        when(store.newest(anyInt())).thenReturn(List.of(view(1, T0)));
+        when(ledEventViews.find(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
+        RecentRecords recent = new RecentRecords(store, ledEventViews, 3, "iot-backend");
+        recent.start();
+        recent.sensorDataStored(List.of(row(2, T0.plusSeconds(2))));
+
+        // Instance khác ghi id 3 và 4; id 2 do chính instance này ghi, đã có trong buffer
+        when(store.newest(anyInt())).thenReturn(List.of(
+                view(4, T0.plusSeconds(4)), view(3, T0.plusSeconds(3)), view(2, T0.plusSeconds(2))));
+        recent.refresh();
+
+        assertEquals(List.of(4L, 3L, 2L), recent.recentSensorData().stream().map(SensorDataView::id).toList());
+
+        // Dòng live mới hơn lần refresh vẫn hiện ngay
+        recent.sensorDataStored(List.of(row(5, T0.plusSeconds(5))));
+        assertEquals(List.of(5L, 4L, 3L), recent.recentSensorData().stream().map(SensorDataView::id).toList());
+        recent.stop();
+    }
+
+    @Test
+    void withoutSharedGroupOnlyLocalRowsAreServed() {
+        when(store.newest(anyInt())).thenReturn(List.of());
+        when(ledEventViews.find(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
+        RecentRecords recent = new RecentRecords(store, ledEventViews, 3, "");
+        recent.start();
+        recent.sensorDataStored(List.of(row(1, T0)));
+
+        when(store.newest(anyInt())).thenReturn(List.of(view(9, T0.plusSeconds(9))));
+        recent.refresh();
+
+        assertEquals(List.of(1L), recent.recentSensorData().stream().map(SensorDataView::id).toList());
+        recent.stop();
+    }
+
+    private static SensorData row(long id, LocalDateTime at) {
+        SensorData data = new SensorData();
+        data.setId(id);
+        data.setTemperature(20.0);
+        data.setHumidity(50.0);
+        data.setLightLevel(100);
+        data.setUptime((int) id);
+        data.setCreatedAt(at);
+        return data;
+    }
+
+    private static SensorDataView view(long id, LocalDateTime at) {
+        return SensorDataView.of(row(id, at));
+    }
+}
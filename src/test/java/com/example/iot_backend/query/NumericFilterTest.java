@@ -0,0 +1,82 @@
+package com.example.iot_backend.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NumericFilterTest {
+
+    @Test
+    void plainValueMatchesTypedPrecision() {
+        NumericFilter filter = NumericFilter.parse(" 23.5 ");
+        assertEquals(NumericFilter.Type.PRECISION, filter.getType());
+        assertTrue(filter.contains(new BigDecimal("23.5")));
+        assertTrue(filter.contains(new BigDecimal("23.59")));
+        assertFalse(filter.contains(new BigDecimal("23.6")));
+        assertFalse(filter.contains(new BigDecimal("123.5")));
+
+        NumericFilter whole = NumericFilter.parse("23");
+        assertTrue(whole.contains(new BigDecimal("23.9")));
+        assertFalse(whole.contains(new BigDecimal("123")));
+        assertEquals(23L, whole.getWholeLower());
+        assertEquals(23L, whole.getWholeUpper());
+
+        NumericFilter negative = NumericFilter.parse("-5.2");
+        assertTrue(negative.contains(new BigDecimal("-5.25")));
+        assertFalse(negative.contains(new BigDecimal("-5.1")));
+        assertFalse(negative.contains(new BigDecimal("-5.3")));
+    }
+
+    @Test
+    void parsesComparisonsAndRanges() {
+        NumericFilter greater = NumericFilter.parse(">25");
+        assertNull(greater.getUpper());
+        assertFalse(greater.contains(new BigDecimal("25")));
+        assertEquals(26L, greater.getWholeLower());
+
+        assertTrue(NumericFilter.parse(">= 25").contains(new BigDecimal("25")));
+        assertEquals(29L, NumericFilter.parse("<30").getWholeUpper());
+        assertEquals(NumericFilter.Type.EXACT, NumericFilter.parse("=23.5").getType());
+
+        NumericFilter range = NumericFilter.parse("20..30");
+        assertEquals(NumericFilter.Type.RANGE, range.getType());
+        assertTrue(range.contains(new BigDecimal("30")));
+        assertFalse(range.contains(new BigDecimal("30.01")));
+        assertEquals(NumericFilter.Type.RANGE, NumericFilter.parse("50-70").getType());
+        assertTrue(NumericFilter.parse("-10..-2").contains(new BigDecimal("-5")));
+    }
+
+    @Test
+    void narrowsToWholeNumbersForIntegerColumns() {
+        assertFalse(NumericFilter.parse("23.5").containsWholeNumber());
+        assertTrue(NumericFilter.parse("22.5..23.4").containsWholeNumber());
+        assertEquals(23L, NumericFilter.parse("22.5..23.4").getWholeLower());
+    }
+
+    @Test
+    void wholeBoundsBeyondLongRangeDoNotOverflow() {
+        assertFalse(NumericFilter.parse("99999999999999999999").containsWholeNumber());
+        assertFalse(NumericFilter.parse(">=99999999999999999999").containsWholeNumber());
+        assertFalse(NumericFilter.parse("<-99999999999999999999").containsWholeNumber());
+
+        NumericFilter below = NumericFilter.parse("<99999999999999999999");
+        assertTrue(below.containsWholeNumber());
+        assertEquals(Long.MAX_VALUE, below.getWholeUpper());
+        NumericFilter range = NumericFilter.parse("-99999999999999999999..5");
+        assertEquals(Long.MIN_VALUE, range.getWholeLower());
+        assertEquals(5L, range.getWholeUpper());
+    }
+
+    @Test
+    void rejectsOtherInput() {
+        assertThrows(NumberFormatException.class, () -> NumericFilter.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> NumericFilter.parse("30..20"));
+        assertThrows(NumberFormatException.class, () -> NumericFilter.parse(""));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.iot_backend.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripKeepsMicroseconds() {
+        PageCursor cursor = new PageCursor(LocalDateTime.of(2025, 9, 24, 13, 28, 45, 123_456_000), 987_654_321L,
+                PageCursor.Direction.OLDER);
+
+        String token = cursor.encode();
+
+        assertFalse(token.contains("=") || token.contains("/") || token.contains("+"), "token must be URL-safe");
+        assertEquals(cursor, PageCursor.decode(token));
+
+        PageCursor newer = new PageCursor(LocalDateTime.of(2025, 1, 1, 0, 0), 1L, PageCursor.Direction.NEWER);
+        assertEquals(newer, PageCursor.decode(newer.encode()));
+    }
+
+    @Test
+    void rejectsForeignTokens() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("MnxvfDIwMjUtMDEtMDFUMDA6MDB8MQ")); // version 2
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("MXxvfHllc3RlcmRheXwx")); // bad date
+    }
+}
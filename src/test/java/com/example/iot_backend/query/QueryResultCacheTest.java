@@ -0,0 +1,117 @@
+package com.example.iot_backend.query;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryResultCacheTest {
+
+    private static final LocalDateTime YESTERDAY = LocalDate.now().minusDays(1).atStartOfDay();
+    private static final LocalDateTime TODAY = LocalDate.now().atStartOfDay();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void newRowsOnlyEvictWindowsThatContainThem() {
+        QueryResultCache cache = new QueryResultCache(registry, true, 100, 64, Duration.ofMinutes(1), Duration.ofDays(1), false, 30, 5000);
+
+        load(cache, "all", null, null);
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        load(cache, "today", TODAY, TODAY.plusDays(1));
+        load(cache, "all", null, null);
+        assertEquals(3, loads.get());
+
+        cache.rowsStored("sensor_data", LocalDateTime.now(), LocalDateTime.now());
+        load(cache, "all", null, null);
+        load(cache, "today", TODAY, TODAY.plusDays(1));
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        assertEquals(5, loads.get());
+
+        // Dòng đến muộn của hôm qua (replay từ spool)
+        cache.rowsStored("sensor_data", YESTERDAY.plusHours(3), YESTERDAY.plusHours(3));
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        assertEquals(6, loads.get());
+        assertEquals(2, registry.get("iot.query.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(4, registry.get("iot.query.cache.evictions").tag("cause", "invalidated").counter().count());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        QueryResultCache cache = new QueryResultCache(registry, true, 2, 64, Duration.ofMinutes(1), Duration.ofDays(1), false, 30, 5000);
+
+        load(cache, "a", YESTERDAY, TODAY);
+        load(cache, "b", YESTERDAY, TODAY);
+        load(cache, "a", YESTERDAY, TODAY);
+        load(cache, "c", YESTERDAY, TODAY);
+        load(cache, "a", YESTERDAY, TODAY);
+        load(cache, "b", YESTERDAY, TODAY);
+
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.size());
+        assertEquals(2, registry.get("iot.query.cache.evictions").tag("cause", "size").counter().count());
+    }
+
+    @Test
+    void purgeEvictsWindowsReachingBeforeCutoff() {
+        QueryResultCache cache = new QueryResultCache(registry, true, 100, 64, Duration.ofMinutes(1), Duration.ofDays(1), false, 30, 5000);
+
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        load(cache, "today", TODAY, TODAY.plusDays(1));
+        cache.rowsPurged("sensor_data", TODAY);
+
+        assertEquals(1, cache.size());
+        load(cache, "today", TODAY, TODAY.plusDays(1));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void pagesReadNearAWriteExpireOnceTheReplicaHasIt() throws InterruptedException {
+        // max-lag-seconds 0: replica không kiểm tra lag, ghi coi như tới replica sau live-ttl
+        QueryResultCache cache = new QueryResultCache(registry, true, 100, 64, Duration.ofMillis(200), Duration.ofDays(1),
+                true, 0, 5000);
+        LocalDateTime twoDaysAgo = YESTERDAY.minusDays(1);
+
+        // Dòng đến muộn của hôm qua: replica có thể chưa có khi đọc lại ngay sau đó
+        cache.rowsStored("sensor_data", YESTERDAY.plusHours(3), YESTERDAY.plusHours(3));
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        load(cache, "two days ago", twoDaysAgo, YESTERDAY);
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        assertEquals(2, loads.get());
+
+        Thread.sleep(250);
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        load(cache, "two days ago", twoDaysAgo, YESTERDAY);
+        assertEquals(3, loads.get(), "only the window the write touched is read again");
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        assertEquals(3, loads.get(), "settled: cached for closed-ttl again");
+    }
+
+    @Test
+    void writesDoNotShortenClosedPagesWithoutReplica() throws InterruptedException {
+        QueryResultCache cache = new QueryResultCache(registry, true, 100, 64, Duration.ofMillis(200), Duration.ofDays(1),
+                false, 0, 5000);
+
+        cache.rowsStored("sensor_data", YESTERDAY.plusHours(3), YESTERDAY.plusHours(3));
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        Thread.sleep(250);
+        load(cache, "yesterday", YESTERDAY, TODAY);
+        assertEquals(1, loads.get());
+    }
+
+    private Page<Integer> load(QueryResultCache cache, String filter, LocalDateTime start, LocalDateTime end) {
+        return cache.page("sensor_data", filter, 0, 10, start, end, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(1, 2, 3));
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.iot_backend.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeFilterTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    @Test
+    void parsesAllSupportedForms() {
+        TimeFilter day = TimeFilter.parse("6/9/2025");
+        assertEquals(TimeFilter.Type.FULL_DATE, day.getType());
+        assertEquals(LocalDate.of(2025, 9, 6), day.getFirstDay());
+
+        assertEquals(LocalDate.of(2025, 9, 6), TimeFilter.parse("2025-09-06").getFirstDay());
+        assertEquals(LocalDate.of(2025, 9, 6), TimeFilter.parse("06-09-2025").getFirstDay());
+
+        TimeFilter range = TimeFilter.parse("24/09/2025 - 26/9/2025");
+        assertEquals(TimeFilter.Type.DATE_RANGE, range.getType());
+        assertEquals(LocalDate.of(2025, 9, 24), range.getFirstDay());
+        assertEquals(LocalDate.of(2025, 9, 26), range.getLastDay());
+
+        TimeFilter minute = TimeFilter.parse(" 13:28 ");
+        assertEquals(TimeFilter.Type.HOUR_MINUTE, minute.getType());
+        assertEquals(LocalTime.of(13, 28), minute.getTimeOfDay());
+        assertEquals(60, minute.getWindowSeconds());
+
+        TimeFilter second = TimeFilter.parse("7:05:09");
+        assertEquals(TimeFilter.Type.HOUR_MINUTE_SECOND, second.getType());
+        assertEquals(LocalTime.of(7, 5, 9), second.getTimeOfDay());
+        assertEquals(1, second.getWindowSeconds());
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        assertThrows(DateTimeParseException.class, () -> TimeFilter.parse("25:00"));
+        assertThrows(DateTimeParseException.class, () -> TimeFilter.parse("31/02/2025"));
+        assertThrows(DateTimeParseException.class, () -> TimeFilter.parse("26/09/2025-24/09/2025"));
+        assertThrows(DateTimeParseException.class, () -> TimeFilter.parse("hello"));
+    }
+
+    @Test
+    void dateRangeIsHalfOpenOverWholeDays() {
+        TimeRangeResolver resolver = new TimeRangeResolver(UTC, UTC);
+        TimeRange range = resolver.resolve(TimeFilter.parse("24/09/2025-26/09/2025"));
+
+        assertEquals(new TimeRange(LocalDateTime.of(2025, 9, 24, 0, 0), LocalDateTime.of(2025, 9, 27, 0, 0)), range);
+        assertTrue(range.contains(LocalDateTime.of(2025, 9, 26, 23, 59, 59, 999_999_000)));
+    }
+
+    @Test
+    void dayBoundariesFollowTheUserZone() {
+        // Người dùng ở UTC+7, server lưu created_at theo UTC
+        TimeRangeResolver resolver = new TimeRangeResolver(ZoneId.of("Asia/Ho_Chi_Minh"), UTC);
+        TimeRange day = resolver.days(LocalDate.of(2025, 9, 24), LocalDate.of(2025, 9, 24));
+
+        assertEquals(LocalDateTime.of(2025, 9, 23, 17, 0), day.start());
+        assertEquals(LocalDateTime.of(2025, 9, 24, 17, 0), day.end());
+    }
+
+    @Test
+    void dstDayIsTwentyThreeHoursLong() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        TimeRangeResolver resolver = new TimeRangeResolver(berlin, UTC);
+        TimeRange day = resolver.days(LocalDate.of(2025, 3, 30), LocalDate.of(2025, 3, 30));
+
+        assertEquals(LocalDateTime.of(2025, 3, 29, 23, 0), day.start());
+        assertEquals(LocalDateTime.of(2025, 3, 30, 22, 0), day.end());
+    }
+
+    @Test
+    void timeOfDayBecomesSecondOfDayWindow() {
+        TimeRangeResolver resolver = new TimeRangeResolver(UTC, UTC);
+
+        assertEquals(List.of(new SecondOfDayRange(48_480, 48_540)), resolver.secondsOfDay(TimeFilter.parse("13:28")));
+        assertEquals(List.of(new SecondOfDayRange(48_525, 48_526)), resolver.secondsOfDay(TimeFilter.parse("13:28:45")));
+        assertEquals(List.of(new SecondOfDayRange(86_399, 86_400)), resolver.secondsOfDay(TimeFilter.parse("23:59:59")));
+    }
+
+    @Test
+    void secondOfDayWindowIsShiftedToStorageZoneAndSplitAtMidnight() {
+        // Người dùng UTC+7 (không có DST), server lưu theo UTC: 07:00 UTC+7 = 00:00 UTC
+        TimeRangeResolver resolver = new TimeRangeResolver(ZoneId.of("Asia/Ho_Chi_Minh"), UTC);
+
+        assertEquals(List.of(new SecondOfDayRange(0, 60)), resolver.secondsOfDay(TimeFilter.parse("07:00")));
+        assertEquals(List.of(new SecondOfDayRange(23_280, 23_340)), resolver.secondsOfDay(TimeFilter.parse("13:28")));
+
+        // Offset lệch 30 giây: 23:59 của người dùng = 23:59:30 storage, cửa sổ 60 s vượt qua nửa đêm
+        TimeRangeResolver odd = new TimeRangeResolver(UTC, ZoneOffset.ofHoursMinutesSeconds(0, 0, 30));
+        assertEquals(List.of(new SecondOfDayRange(86_370, 86_400), new SecondOfDayRange(0, 30)),
+                odd.secondsOfDay(TimeFilter.parse("23:59")));
+    }
+
+    @Test
+    void timeInDstGapMatchesNothingThatDay() {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        TimeRangeResolver resolver = new TimeRangeResolver(berlin, berlin);
+        assertTrue(resolver.hasConstantOffset());
+        List<SecondOfDayRange> window = resolver.secondsOfDay(TimeFilter.parse("02:30"));
+
+        // created_at/second_of_day của mỗi phút từ 29/3 đến hết 31/3/2025, như LocalDateTime.now() ghi ở Berlin
+        Set<LocalDate> matchedDays = new TreeSet<>();
+        Instant end = LocalDate.of(2025, 4, 1).atStartOfDay(berlin).toInstant();
+        for (Instant t = LocalDate.of(2025, 3, 29).atStartOfDay(berlin).toInstant(); t.isBefore(end); t = t.plus(1, ChronoUnit.MINUTES)) {
+            LocalDateTime stored = LocalDateTime.ofInstant(t, berlin);
+            int second = stored.toLocalTime().toSecondOfDay();
+            if (window.stream().anyMatch(range -> second >= range.start() && second < range.end())) {
+                matchedDays.add(stored.toLocalDate());
+            }
+        }
+
+        // 02:30 không tồn tại ngày 30/3/2025 ở Berlin
+        assertEquals(Set.of(LocalDate.of(2025, 3, 29), LocalDate.of(2025, 3, 31)), matchedDays);
+    }
+
+    @Test
+    void shiftBetweenZonesWithDifferentDstFollowsTheQueryDate() {
+        TimeRangeResolver resolver = new TimeRangeResolver(ZoneId.of("Europe/Berlin"), UTC);
+        assertFalse(resolver.hasConstantOffset());
+        assertTrue(new TimeRangeResolver(ZoneId.of("Asia/Ho_Chi_Minh"), UTC).hasConstantOffset());
+
+        // Giới hạn đã biết: chỉ dùng offset của thời điểm truy vấn, các dòng mùa còn lại lệch 1 giờ
+        Instant winter = Instant.parse("2025-01-15T12:00:00Z");
+        Instant summer = Instant.parse("2025-07-15T12:00:00Z");
+        assertEquals(List.of(new SecondOfDayRange(44_880, 44_940)), resolver.secondsOfDay(TimeFilter.parse("13:28"), winter));
+        assertEquals(List.of(new SecondOfDayRange(41_280, 41_340)), resolver.secondsOfDay(TimeFilter.parse("13:28"), summer));
+    }
+}
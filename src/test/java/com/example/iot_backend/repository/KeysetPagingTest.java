@@ -0,0 +1,124 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.PageCursor;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetPagingTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 9, 24, 12, 0);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+    private static final Sort OLDEST_FIRST = Sort.by(Sort.Order.asc("createdAt"), Sort.Order.asc("id"));
+
+    private record Row(long id) {
+        LocalDateTime createdAt() {
+            return T0.plusSeconds(id);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final ProjectionQuery<Object, Row> query = mock(ProjectionQuery.class);
+
+    @Test
+    void firstPageHasOnlyANextCursorWhileOlderRowsRemain() {
+        returning(NEWEST_FIRST, 3, rows(10, 9, 8));
+
+        CursorPage<Row> page = fetch(null, 2);
+
+        assertEquals(rows(10, 9), page.content());
+        assertEquals(new PageCursor(T0.plusSeconds(9), 9, PageCursor.Direction.OLDER), PageCursor.decode(page.nextCursor()));
+        assertNull(page.prevCursor());
+        verify(query).find(any(), eq(NEWEST_FIRST), eq(0L), eq(3));
+    }
+
+    @Test
+    void singlePageHasNoCursors() {
+        returning(NEWEST_FIRST, 3, rows(10, 9));
+
+        CursorPage<Row> page = fetch(null, 2);
+
+        assertNull(page.nextCursor());
+        assertNull(page.prevCursor());
+    }
+
+    @Test
+    void olderPageLinksBackToNewerRows() {
+        PageCursor cursor = new PageCursor(T0.plusSeconds(9), 9, PageCursor.Direction.OLDER);
+
+        returning(NEWEST_FIRST, 3, rows(8, 7, 6));
+        CursorPage<Row> middle = fetch(cursor, 2);
+        assertEquals(rows(8, 7), middle.content());
+        assertEquals(new PageCursor(T0.plusSeconds(7), 7, PageCursor.Direction.OLDER), PageCursor.decode(middle.nextCursor()));
+        assertEquals(new PageCursor(T0.plusSeconds(8), 8, PageCursor.Direction.NEWER), PageCursor.decode(middle.prevCursor()));
+
+        returning(NEWEST_FIRST, 3, rows(8));
+        CursorPage<Row> last = fetch(cursor, 2);
+        assertNull(last.nextCursor(), "oldest page");
+        assertEquals(new PageCursor(T0.plusSeconds(8), 8, PageCursor.Direction.NEWER), PageCursor.decode(last.prevCursor()));
+    }
+
+    @Test
+    void newerPageIsReadAscendingAndReturnedNewestFirst() {
+        PageCursor cursor = new PageCursor(T0.plusSeconds(6), 6, PageCursor.Direction.NEWER);
+
+        returning(OLDEST_FIRST, 3, rows(7, 8, 9));
+        CursorPage<Row> middle = fetch(cursor, 2);
+        assertEquals(rows(8, 7), middle.content());
+        assertEquals(new PageCursor(T0.plusSeconds(8), 8, PageCursor.Direction.NEWER), PageCursor.decode(middle.prevCursor()));
+        // Coming from an older page, there always is one
+        assertEquals(new PageCursor(T0.plusSeconds(7), 7, PageCursor.Direction.OLDER), PageCursor.decode(middle.nextCursor()));
+
+        returning(OLDEST_FIRST, 3, rows(7, 8));
+        CursorPage<Row> newest = fetch(cursor, 2);
+        assertEquals(rows(8, 7), newest.content());
+        assertNull(newest.prevCursor(), "back at the newest page");
+    }
+
+    @Test
+    void emptyPageHasNoCursorsAndTotalIsOptional() {
+        returning(NEWEST_FIRST, 3, List.of());
+
+        CursorPage<Row> page = KeysetPaging.fetch(query, Specification.where(null), null, 2, () -> 42L,
+                Row::createdAt, Row::id);
+
+        assertNull(page.nextCursor());
+        assertNull(page.prevCursor());
+        assertEquals(42L, page.totalElements());
+        assertNull(fetch(null, 2).totalElements());
+    }
+
+    @Test
+    void rejectsSizesOutsideTheAllowedRange() {
+        assertThrows(IllegalArgumentException.class, () -> fetch(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> fetch(null, -5));
+        assertThrows(IllegalArgumentException.class, () -> fetch(null, Integer.MAX_VALUE));
+    }
+
+    private void returning(Sort sort, int limit, List<Row> rows) {
+        when(query.find(any(), eq(sort), anyLong(), eq(limit))).thenReturn(rows);
+    }
+
+    private CursorPage<Row> fetch(PageCursor cursor, int size) {
+        return KeysetPaging.fetch(query, Specification.where(null), cursor, size, null, Row::createdAt, Row::id);
+    }
+
+    private static List<Row> rows(long... ids) {
+        return Arrays.stream(ids).mapToObj(Row::new).toList();
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.iot_backend.repository;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.model.SensorData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Heap allocated per 1000-row page of {@code sensor_data}: managed entities (the list endpoints
+ * before view projections, whose constructor still read the clock) vs {@link ProjectionQuery} rows.
+ *
+ * {@link #rowObjectsPerPage()} runs without a database: it builds the per-row objects of both
+ * ways from the same column values (entity + Hibernate's loaded-state array vs view record), so
+ * it leaves out JDBC, Hibernate's persistence-context entries and query overhead.
+ * {@link #projectionPageAllocatesLessThanEntityPage()} measures the real queries and needs a MySQL
+ * database with at least 1000 sensor rows, so it only runs when asked:
+ * {@code mvn test -Dtest=ProjectionAllocationBenchmarkTest -Dbenchmark.jdbc-url=jdbc:mysql://localhost:3306/iot_db
+ * -Dbenchmark.username=root -Dbenchmark.password=...}
+ */
+class ProjectionAllocationBenchmarkTest {
+
+    private static final int PAGE_SIZE = 1000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 500;
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2025, 9, 24, 8, 0);
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final List<Object[]> LOADED_STATE = new ArrayList<>(PAGE_SIZE);
+
+    private static LocalContainerEntityManagerFactoryBean factoryBean;
+    private static EntityManagerFactory factory;
+
+    // Constructor của entity trước khi bỏ LocalDateTime.now(): Hibernate gọi nó cho mỗi dòng load
+    static class LegacySensorData extends SensorData {
+        LegacySensorData() {
+            setCreatedAt(LocalDateTime.now());
+        }
+    }
+
+    @BeforeAll
+    static void connect() {
+        if (System.getProperty("benchmark.jdbc-url", "").isEmpty()) {
+            return;
+        }
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("benchmark.jdbc-url"),
+                System.getProperty("benchmark.username", "root"), System.getProperty("benchmark.password", ""));
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.example.iot_backend.model");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "none",
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName()));
+        factoryBean.afterPropertiesSet();
+        factory = factoryBean.getObject();
+    }
+
+    @AfterAll
+    static void close() {
+        if (factoryBean != null) {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void rowObjectsPerPage() {
+        long legacyBytes = bytesPerPage(() -> entities(LegacySensorData::new));
+        long entityBytes = bytesPerPage(() -> entities(SensorData::new));
+        long viewBytes = bytesPerPage(ProjectionAllocationBenchmarkTest::views);
+
+        System.out.printf("📊 Row objects per %d-row page: entities (old constructor) %,d B, entities %,d B, views %,d B%n",
+                PAGE_SIZE, legacyBytes, entityBytes, viewBytes);
+        assertTrue(entityBytes < legacyBytes);
+        assertTrue(viewBytes < entityBytes);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.jdbc-url", matches = ".+")
+    void projectionPageAllocatesLessThanEntityPage() {
+        // Trước: entity được quản lý (snapshot dirty checking + entry trong persistence context), và constructor
+        // cũ đọc đồng hồ cho mỗi dòng: chạy lại đúng phần đó trên một instance nháp
+        SensorData scratch = new SensorData();
+        long entityBytes = bytesPerPage(em -> {
+            List<SensorData> rows = em
+                    .createQuery("SELECT s FROM SensorData s ORDER BY s.createdAt DESC, s.id DESC", SensorData.class)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            for (int i = 0; i < rows.size(); i++) {
+                scratch.setCreatedAt(LocalDateTime.now());
+            }
+            return rows;
+        });
+        // Sau: record dựng thẳng từ dòng JDBC
+        long viewBytes = bytesPerPage(em -> new ProjectionQuery<>(em, SensorData.class, SensorDataView.class,
+                SensorDataView.ATTRIBUTES).find(null, NEWEST_FIRST, 0, PAGE_SIZE));
+
+        System.out.printf("📊 Heap per %d-row page: entities %,d B, views %,d B (%.0f%%)%n",
+                PAGE_SIZE, entityBytes, viewBytes, 100.0 * viewBytes / entityBytes);
+        assertTrue(viewBytes < entityBytes);
+    }
+
+    // Cùng giá trị cột cho cả hai cách, như khi đọc từ ResultSet
+    private static List<SensorData> entities(Supplier<SensorData> constructor) {
+        List<SensorData> rows = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            SensorData row = constructor.get();
+            row.setId((long) i + 1_000_000);
+            row.setTemperature(20.0 + i % 100 / 10.0);
+            row.setHumidity(55.5 + i % 7);
+            row.setLightLevel(i % 1000);
+            row.setCreatedAt(CREATED.plusSeconds(2L * i));
+            row.setUptime(1000 + 2 * i);
+            // Hibernate giữ bản sao giá trị đã load để dirty checking
+            LOADED_STATE.add(new Object[]{row.getTemperature(), row.getHumidity(), row.getLightLevel(),
+                    row.getCreatedAt(), row.getSecondOfDay(), row.getUptime()});
+            rows.add(row);
+        }
+        LOADED_STATE.clear();
+        return rows;
+    }
+
+    private static List<SensorDataView> views() {
+        List<SensorDataView> rows = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            rows.add(new SensorDataView((long) i + 1_000_000, 20.0 + i % 100 / 10.0, 55.5 + i % 7, i % 1000,
+                    CREATED.plusSeconds(2L * i), 1000 + 2 * i));
+        }
+        return rows;
+    }
+
+    private static long bytesPerPage(Supplier<List<?>> page) {
+        long total = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+            List<?> rows = page.get();
+            long allocated = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+            assertEquals(PAGE_SIZE, rows.size());
+            if (i >= WARMUP) {
+                total += allocated;
+            }
+        }
+        return total / ITERATIONS;
+    }
+
+    private static long bytesPerPage(Function<EntityManager, List<?>> page) {
+        long threadId = Thread.currentThread().getId();
+        long total = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            EntityManager em = factory.createEntityManager();
+            try {
+                long before = THREADS.getThreadAllocatedBytes(threadId);
+                List<?> rows = page.apply(em);
+                long allocated = THREADS.getThreadAllocatedBytes(threadId) - before;
+                assumeTrue(rows.size() == PAGE_SIZE, "sensor_data needs at least " + PAGE_SIZE + " rows");
+                if (i >= WARMUP) {
+                    total += allocated;
+                }
+            } finally {
+                em.close();
+            }
+        }
+        return total / ITERATIONS;
+    }
+}
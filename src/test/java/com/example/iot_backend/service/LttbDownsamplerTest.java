@@ -0,0 +1,67 @@
+package com.example.iot_backend.service;
+
+import com.example.iot_backend.model.RollupResolution;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LttbDownsamplerTest {
+
+    @Test
+    void keepsEverythingBelowThreshold() {
+        long[] x = {0, 1, 2};
+        int[] selected = LttbDownsampler.select(x, new double[][]{{1, 2, 3}}, 10);
+        assertArrayEquals(new int[]{0, 1, 2}, selected);
+    }
+
+    @Test
+    void keepsEndpointsAndSpike() {
+        int n = 10_000;
+        long[] x = new long[n];
+        double[] flat = new double[n];
+        double[] light = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i * 1000L;
+            flat[i] = 20.0;
+            light[i] = 50.0;
+        }
+        flat[6_543] = 35.0; // a short temperature spike must survive downsampling
+        light[100] = Double.NaN;
+
+        int[] selected = LttbDownsampler.select(x, new double[][]{flat, light}, 100);
+
+        assertEquals(100, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(n - 1, selected[99]);
+        boolean spikeKept = false;
+        for (int i = 0; i < selected.length; i++) {
+            if (i > 0) {
+                assertTrue(selected[i] > selected[i - 1]);
+            }
+            spikeKept |= selected[i] == 6_543;
+        }
+        assertTrue(spikeKept);
+    }
+
+    @Test
+    void parsesChartRanges() {
+        assertEquals(Duration.ofHours(6), SensorDataService.parseChartRange("6h"));
+        assertEquals(Duration.ofDays(14), SensorDataService.parseChartRange("2w"));
+        assertEquals(Duration.ofDays(365), SensorDataService.parseChartRange("1y"));
+    }
+
+    @Test
+    void chartsReadRollupsForAllButShortRanges() {
+        assertNull(SensorDataService.chartResolution(Duration.ofMinutes(30), 300));
+        assertNull(SensorDataService.chartResolution(Duration.ofMinutes(299), 300));
+        assertEquals(RollupResolution.MINUTE, SensorDataService.chartResolution(Duration.ofHours(6), 300));
+        assertEquals(RollupResolution.MINUTE, SensorDataService.chartResolution(Duration.ofDays(7), 300));
+        assertEquals(RollupResolution.HOUR, SensorDataService.chartResolution(Duration.ofDays(60), 300));
+        assertEquals(RollupResolution.DAY, SensorDataService.chartResolution(Duration.ofDays(5 * 365), 300));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.iot_backend.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArchiveExporterTest {
+
+    @Test
+    void quotesCsvValuesOnlyWhenNeeded() {
+        assertEquals("2024-01-01 10:00:00", ArchiveExporter.escape("2024-01-01 10:00:00"));
+        assertEquals("\"LED 1, bedroom\"", ArchiveExporter.escape("LED 1, bedroom"));
+        assertEquals("\"say \"\"on\"\"\"", ArchiveExporter.escape("say \"on\""));
+        assertEquals("\"two\nlines\"", ArchiveExporter.escape("two\nlines"));
+    }
+}
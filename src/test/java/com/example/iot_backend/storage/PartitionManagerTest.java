@@ -0,0 +1,72 @@
+package com.example.iot_backend.storage;
+
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.storage.PartitionManager.PartitionInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class PartitionManagerTest {
+
+    @Test
+    void parsesPartitionBoundsFromInformationSchema() {
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), PartitionManager.parseBound("'2024-02-01 00:00:00'"));
+        // DATETIME(6) columns report fractional seconds
+        assertEquals(LocalDateTime.of(2024, 2, 1, 0, 0), PartitionManager.parseBound("'2024-02-01 00:00:00.000000'"));
+        assertNull(PartitionManager.parseBound("MAXVALUE"));
+        assertNull(PartitionManager.parseBound(null));
+    }
+
+    @Test
+    void granularityNamesAndBoundsPeriods() {
+        LocalDate day = LocalDate.of(2024, 1, 31);
+
+        assertEquals(day, PartitionGranularity.DAY.floor(day));
+        assertEquals(LocalDate.of(2024, 2, 1), PartitionGranularity.DAY.next(day));
+        assertEquals("p20240131", PartitionGranularity.DAY.partitionName(day));
+
+        assertEquals(LocalDate.of(2024, 1, 1), PartitionGranularity.MONTH.floor(day));
+        assertEquals(LocalDate.of(2024, 2, 1), PartitionGranularity.MONTH.next(LocalDate.of(2024, 1, 1)));
+        assertEquals("p202401", PartitionGranularity.MONTH.partitionName(LocalDate.of(2024, 1, 1)));
+    }
+
+    @Test
+    void createsPartitionsUpToAheadPeriods() {
+        LocalDate today = LocalDate.of(2024, 1, 30);
+
+        assertEquals(LocalDate.of(2024, 2, 3), manager(PartitionGranularity.DAY, 3).horizon(today));
+        assertEquals(LocalDate.of(2024, 4, 1), manager(PartitionGranularity.MONTH, 2).horizon(today));
+        assertEquals("PARTITION p202401 VALUES LESS THAN ('2024-02-01 00:00:00')",
+                manager(PartitionGranularity.MONTH, 2).definition(LocalDate.of(2024, 1, 1)));
+    }
+
+    @Test
+    void retentionDropsOnlyPartitionsEntirelyBeforeCutoff() {
+        LocalDateTime now = LocalDateTime.of(2024, 7, 1, 12, 30);
+        assertNull(PartitionManager.retentionCutoff(Duration.ZERO, now), "0 = keep forever");
+        LocalDateTime cutoff = PartitionManager.retentionCutoff(Duration.ofDays(180), now);
+        assertEquals(LocalDateTime.of(2024, 1, 3, 12, 30), cutoff);
+
+        List<PartitionInfo> partitions = List.of(
+                new PartitionInfo("p20240102", LocalDateTime.of(2024, 1, 3, 0, 0)),
+                new PartitionInfo("p20240103", LocalDateTime.of(2024, 1, 4, 0, 0)),
+                new PartitionInfo("pmax", null));
+        assertEquals(List.of("p20240102"),
+                PartitionManager.expired(partitions, cutoff).stream().map(PartitionInfo::name).toList());
+        // A partition ending exactly at the cutoff holds nothing newer than it
+        assertEquals(2, PartitionManager.expired(partitions, LocalDateTime.of(2024, 1, 4, 0, 0)).size());
+    }
+
+    private static PartitionManager manager(PartitionGranularity granularity, int ahead) {
+        return new PartitionManager(mock(JdbcTemplate.class), mock(ArchiveExporter.class), mock(RowCounters.class),
+                mock(QueryResultCache.class), true, granularity, ahead, Duration.ZERO, Duration.ZERO);
+    }
+}
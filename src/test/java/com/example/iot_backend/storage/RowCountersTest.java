@@ -0,0 +1,201 @@
+package com.example.iot_backend.storage;
+
+import com.example.iot_backend.model.LedEvent;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.TimeRange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RowCountersTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2025, 3, 1);
+    private static final LocalDate DAY2 = LocalDate.of(2025, 3, 2);
+    private static final LocalDate DAY3 = LocalDate.of(2025, 3, 3);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final RowCounters counters = new RowCounters(jdbcTemplate, new SimpleMeterRegistry(), true, "iot-backend", "jdbc");
+
+    @Test
+    void notReadyUntilFirstReconcile() {
+        assertFalse(counters.isReady());
+        sensorGroups(new Object[]{DAY1, 5L, 5L});
+        ledGroups();
+
+        counters.reconcile();
+
+        assertTrue(counters.isReady());
+        assertEquals(5, counters.total(RowCounters.SENSOR_DATA));
+    }
+
+    @Test
+    void recordedRowsAddToTheirDayAndLed() {
+        sensorGroups(new Object[]{DAY1, 5L, 5L});
+        ledGroups(new Object[]{DAY1, 1, 2L, 2L});
+        counters.reconcile();
+
+        counters.recordSensorData(List.of(sensor(6, DAY2), sensor(7, DAY2)));
+        counters.recordLedEvent(led(3, 1, DAY2));
+        counters.recordLedEvent(led(4, 2, DAY2));
+
+        assertEquals(7, counters.total(RowCounters.SENSOR_DATA));
+        assertEquals(4, counters.total(RowCounters.LED_EVENTS));
+        assertEquals(3, counters.totalForLed(1));
+        assertEquals(OptionalLong.of(2), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY2, DAY3)));
+        assertEquals(OptionalLong.of(1), counters.countRange(RowCounters.LED_EVENTS, 2, days(DAY1, DAY3)));
+        assertEquals(OptionalLong.empty(), counters.countRange(RowCounters.SENSOR_DATA, null,
+                new TimeRange(DAY1.atTime(12, 0), DAY3.atStartOfDay())), "only whole days are counted");
+    }
+
+    @Test
+    void reconcileAddsOnlyRowsTheQueryDidNotSee() throws Exception {
+        ledGroups();
+        // While the GROUP BY runs: row 10 committed before it started (in its result), row 11 after
+        doAnswer(invocation -> {
+            counters.recordSensorData(List.of(sensor(10, DAY1), sensor(11, DAY1)));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(new Object[]{DAY1, 10L, 10L}));
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT DATE(created_at), COUNT(*), MAX(id) FROM sensor_data"),
+                any(RowCallbackHandler.class));
+
+        counters.reconcile();
+
+        assertEquals(11, counters.total(RowCounters.SENSOR_DATA));
+    }
+
+    @Test
+    void purgeDropsWholeDaysAndRecountsTheCutoffDayOutsideTheLock() throws Exception {
+        sensorGroups(new Object[]{DAY1, 5L, 5L}, new Object[]{DAY2, 8L, 13L}, new Object[]{DAY3, 2L, 15L});
+        ledGroups();
+        counters.reconcile();
+
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*) FROM sensor_data"), eq(Long.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    // Writers must not wait for the COUNT
+                    CompletableFuture<Void> writer = CompletableFuture.runAsync(
+                            () -> counters.recordSensorData(List.of(sensor(16, DAY3))));
+                    writer.get(2, TimeUnit.SECONDS);
+                    return 3L;
+                });
+
+        counters.purged(RowCounters.SENSOR_DATA, DAY2.atTime(12, 0));
+
+        assertEquals(OptionalLong.of(0), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY1, DAY2)));
+        assertEquals(OptionalLong.of(3), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY2, DAY3)));
+        assertEquals(6, counters.total(RowCounters.SENSOR_DATA));
+
+        counters.purged(RowCounters.SENSOR_DATA, DAY3.atStartOfDay());
+        assertEquals(3, counters.total(RowCounters.SENSOR_DATA), "midnight cutoff: no recount");
+    }
+
+    @Test
+    void sharedGroupRecountsRecentDaysWithoutDoubleCountingLocalRows() throws Exception {
+        sensorGroups(new Object[]{DAY1, 5L, 5L}, new Object[]{DAY2, 8L, 13L});
+        ledGroups();
+        counters.reconcile();
+        counters.recordSensorData(List.of(sensor(14, DAY2)));
+
+        // Instance khác ghi 20 dòng vào DAY2/DAY3; trong lúc đếm, instance này báo id 40 (DAY3, sau snapshot)
+        // và id 41 (DAY1, ngày không đếm lại: đã nằm trong cell hiện tại)
+        doAnswer(invocation -> {
+            counters.recordSensorData(List.of(sensor(40, DAY3), sensor(41, DAY1)));
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(new Object[]{DAY2, 15L, 30L}));
+            handler.processRow(row(new Object[]{DAY3, 14L, 39L}));
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT DATE(created_at), COUNT(*), MAX(id) FROM sensor_data WHERE"),
+                any(RowCallbackHandler.class), any(Object[].class));
+
+        counters.load(DAY2);
+
+        assertEquals(OptionalLong.of(6), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY1, DAY2)));
+        assertEquals(OptionalLong.of(15), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY2, DAY3)));
+        assertEquals(OptionalLong.of(15), counters.countRange(RowCounters.SENSOR_DATA, null, days(DAY3, DAY3.plusDays(1))));
+        assertEquals(36, counters.total(RowCounters.SENSOR_DATA));
+    }
+
+    @Test
+    void columnarStoreLeavesSensorDataTableAlone() {
+        RowCounters columnar = new RowCounters(jdbcTemplate, new SimpleMeterRegistry(), true, "", "columnar");
+        ledGroups(new Object[]{DAY1, 1, 2L, 2L});
+
+        columnar.reconcile();
+
+        verify(jdbcTemplate, never()).query(startsWith("SELECT DATE(created_at), COUNT(*), MAX(id) FROM sensor_data"),
+                any(RowCallbackHandler.class));
+        assertTrue(columnar.isReady());
+        assertEquals(2, columnar.total(RowCounters.LED_EVENTS));
+    }
+
+    private void sensorGroups(Object[]... rows) {
+        groups("SELECT DATE(created_at), COUNT(*), MAX(id) FROM sensor_data", rows);
+    }
+
+    private void ledGroups(Object[]... rows) {
+        groups("SELECT DATE(created_at), led_number, COUNT(*), MAX(id) FROM led_events", rows);
+    }
+
+    private void groups(String sql, Object[]... rows) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                handler.processRow(row(row));
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith(sql), any(RowCallbackHandler.class));
+    }
+
+    // Columns: DATE(created_at), [led_number,] COUNT(*), MAX(id)
+    private static ResultSet row(Object[] values) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getDate(1)).thenReturn(Date.valueOf((LocalDate) values[0]));
+        boolean led = values.length == 4;
+        if (led) {
+            when(rs.getObject(2, Integer.class)).thenReturn((Integer) values[1]);
+        }
+        when(rs.getLong(led ? 3 : 2)).thenReturn((Long) values[led ? 2 : 1]);
+        when(rs.getLong(led ? 4 : 3)).thenReturn((Long) values[led ? 3 : 2]);
+        return rs;
+    }
+
+    private static SensorData sensor(long id, LocalDate day) {
+        SensorData data = new SensorData();
+        data.setId(id);
+        data.setCreatedAt(day.atTime(10, 0));
+        return data;
+    }
+
+    private static LedEvent led(long id, int ledNumber, LocalDate day) {
+        LedEvent event = new LedEvent();
+        event.setId(id);
+        event.setLedNumber(ledNumber);
+        event.setCreatedAt(day.atTime(10, 0));
+        return event;
+    }
+
+    private static TimeRange days(LocalDate first, LocalDate end) {
+        return new TimeRange(first.atStartOfDay(), end.atStartOfDay());
+    }
+}
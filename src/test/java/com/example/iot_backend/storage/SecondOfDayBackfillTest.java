@@ -0,0 +1,62 @@
+package com.example.iot_backend.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SecondOfDayBackfillTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void updatesInChunksUntilATableRunsDry() {
+        // sensor_data: 2 full chunks then the rest; led_events: done after the first chunk
+        when(jdbcTemplate.update(contains("UPDATE sensor_data"))).thenReturn(100, 100, 40);
+        when(jdbcTemplate.update(contains("UPDATE led_events"))).thenReturn(7);
+        SecondOfDayBackfill backfill = new SecondOfDayBackfill(jdbcTemplate, true, 100);
+
+        for (int i = 0; i < 5; i++) {
+            backfill.backfillStep();
+        }
+
+        verify(jdbcTemplate, times(3)).update(contains("UPDATE sensor_data"));
+        verify(jdbcTemplate, times(1)).update(contains("UPDATE led_events"));
+    }
+
+    @Test
+    void chunkTouchesOnlyRowsWithoutSecondOfDay() {
+        new SecondOfDayBackfill(jdbcTemplate, true, 500).backfillChunk("sensor_data");
+
+        verify(jdbcTemplate).update(contains("SET second_of_day = HOUR(created_at) * 3600 + MINUTE(created_at) * 60 + SECOND(created_at)"));
+        verify(jdbcTemplate).update(contains("WHERE second_of_day IS NULL AND created_at IS NOT NULL LIMIT 500"));
+    }
+
+    @Test
+    void failedChunkIsRetriedOnTheNextRun() {
+        when(jdbcTemplate.update(contains("UPDATE sensor_data")))
+                .thenThrow(new IllegalStateException("lock wait timeout"))
+                .thenReturn(0);
+        SecondOfDayBackfill backfill = new SecondOfDayBackfill(jdbcTemplate, true, 100);
+
+        backfill.backfillStep();
+        backfill.backfillStep();
+        backfill.backfillStep();
+
+        // Lần lỗi không đánh dấu xong bảng; lần thứ hai trả 0 dòng nên dừng
+        verify(jdbcTemplate, times(2)).update(contains("UPDATE sensor_data"));
+    }
+
+    @Test
+    void disabledDoesNothing() {
+        new SecondOfDayBackfill(jdbcTemplate, false, 100).backfillStep();
+
+        verify(jdbcTemplate, never()).update(anyString());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.iot_backend.store;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JdbcSensorStoreTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final JdbcSensorStore store = new JdbcSensorStore(null, mock(EntityManager.class), jdbcTemplate,
+            null, null, null, null);
+
+    @Test
+    void chartsRawRowsUpToTheLimit() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(), any(), eq(401)))
+                .thenReturn(400L);
+
+        String resolution = store.chart(FROM, FROM.plusDays(1), 400, (t, temperature, humidity, light) -> { });
+
+        assertEquals("raw", resolution);
+        verify(jdbcTemplate).query(startsWith("SELECT created_at,"), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    void averagesBucketsInSqlBeyondTheLimit() throws Exception {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(), any(), eq(401)))
+                .thenReturn(401L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(bucket(0, 21.5, 55.0, 40.0));
+            handler.processRow(bucket(3, 22.0, null, 41.0));
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT TIMESTAMPDIFF(SECOND, ?, created_at) DIV ?"),
+                any(RowCallbackHandler.class), any(), eq(216L), any(), any());
+
+        List<Long> times = new ArrayList<>();
+        List<Double> humidities = new ArrayList<>();
+        String resolution = store.chart(FROM, FROM.plusDays(1), 400, (t, temperature, humidity, light) -> {
+            times.add(t);
+            humidities.add(humidity);
+        });
+
+        // 86400 s / 400 điểm = 216 s mỗi bucket
+        assertEquals("216s", resolution);
+        long start = Timestamp.valueOf(FROM).getTime();
+        assertEquals(List.of(start, start + 3 * 216_000L), times);
+        assertEquals(55.0, humidities.get(0));
+        verify(jdbcTemplate, never()).query(startsWith("SELECT created_at,"), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    void bucketWidthRoundsUp() {
+        assertEquals(1, JdbcSensorStore.chartBucketSeconds(FROM, FROM.plusSeconds(10), 400));
+        assertEquals(2, JdbcSensorStore.chartBucketSeconds(FROM, FROM.plusSeconds(401), 400));
+    }
+
+    private static ResultSet bucket(long index, Double temperature, Double humidity, Double light) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(index);
+        when(rs.getObject(2, Double.class)).thenReturn(temperature);
+        when(rs.getObject(3, Double.class)).thenReturn(humidity);
+        when(rs.getObject(4, Double.class)).thenReturn(light);
+        return rs;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.iot_backend.store.columnar;
+
+import com.example.iot_backend.dto.SensorDataView;
+import com.example.iot_backend.export.ExportFormat;
+import com.example.iot_backend.export.StreamingExporter;
+import com.example.iot_backend.model.SensorData;
+import com.example.iot_backend.query.CountedPage;
+import com.example.iot_backend.query.CursorPage;
+import com.example.iot_backend.query.NumericFilter;
+import com.example.iot_backend.query.PageCursor;
+import com.example.iot_backend.query.QueryResultCache;
+import com.example.iot_backend.query.TimeRange;
+import com.example.iot_backend.storage.ArchiveExporter;
+import com.example.iot_backend.store.SensorFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarSensorStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 9, 24, 23, 0, 0, 123_456_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void listsNewestFirstAcrossBlocksAndDays() throws IOException {
+        ColumnarSensorStore store = open();
+        List<SensorData> rows = readings(3000);
+        // Hơi lệch thứ tự như khi nhiều partition ghi cùng lúc
+        rows.get(100).setCreatedAt(rows.get(100).getCreatedAt().minusSeconds(5));
+        for (int i = 0; i < rows.size(); i += 700) {
+            store.append(rows.subList(i, Math.min(rows.size(), i + 700)));
+        }
+
+        assertEquals(3000, store.count());
+        List<SensorDataView> all = new ArrayList<>();
+        CountedPage<SensorDataView> page = store.page(SensorFilter.all(), PageRequest.of(0, 3000));
+        all.addAll(page.getContent());
+        assertEquals(3000, page.getTotalElements());
+        assertFalse(page.isTotalEstimated());
+        for (int i = 1; i < all.size(); i++) {
+            SensorDataView newer = all.get(i - 1);
+            SensorDataView older = all.get(i);
+            assertTrue(newer.createdAt().isAfter(older.createdAt())
+                    || (newer.createdAt().equals(older.createdAt()) && newer.id() > older.id()));
+        }
+        assertEquals(rows.get(2999).getCreatedAt(), all.get(0).createdAt());
+        assertEquals(START.plusSeconds(2 * 2999), store.newest(1).get(0).createdAt());
+    }
+
+    @Test
+    void keepsValuesAndNulls() throws IOException {
+        ColumnarSensorStore store = open();
+        List<SensorData> rows = readings(50);
+        rows.get(7).setTemperature(null);
+        rows.get(8).setLightLevel(null);
+        store.append(rows);
+
+        SensorData loaded = store.findById(rows.get(7).getId()).orElseThrow();
+        assertNull(loaded.getTemperature());
+        assertEquals(rows.get(7).getHumidity(), loaded.getHumidity());
+        assertEquals(rows.get(7).getCreatedAt(), loaded.getCreatedAt());
+        assertNull(store.findById(rows.get(8).getId()).orElseThrow().getLightLevel());
+        SensorData other = store.findById(rows.get(20).getId()).orElseThrow();
+        assertEquals(rows.get(20).getTemperature(), other.getTemperature());
+        assertEquals(rows.get(20).getLightLevel(), other.getLightLevel());
+        assertEquals(rows.get(20).getUptime(), other.getUptime());
+    }
+
+    @Test
+    void filtersAndCountsByTimeAndValue() throws IOException {
+        ColumnarSensorStore store = open();
+        store.append(readings(3000));
+
+        // 2025-09-25: mọi reading sau 23:00 ngày 24 + 3600 giây
+        SensorFilter day = SensorFilter.all().createdWithin(List.of(new TimeRange(
+                LocalDateTime.of(2025, 9, 25, 0, 0), LocalDateTime.of(2025, 9, 26, 0, 0))));
+        assertEquals(3000 - 1800, store.page(day, PageRequest.of(0, 10)).getTotalElements());
+
+        SensorFilter warm = SensorFilter.all().value("temperature", NumericFilter.parse(">=29"));
+        CountedPage<SensorDataView> page = store.page(warm, PageRequest.of(0, 10));
+        assertTrue(page.isTotalEstimated());
+        assertTrue(page.getContent().stream().allMatch(row -> row.temperature() >= 29));
+        CursorPage<SensorDataView> counted = store.cursorPage(warm, null, 10, true);
+        assertEquals(300, counted.totalElements());
+    }
+
+    @Test
+    void cursorPagesBackAndForth() throws IOException {
+        ColumnarSensorStore store = open();
+        store.append(readings(100));
+
+        CursorPage<SensorDataView> first = store.cursorPage(SensorFilter.all(), null, 30, false);
+        CursorPage<SensorDataView> second = store.cursorPage(SensorFilter.all(), PageCursor.decode(first.nextCursor()), 30, false);
+        CursorPage<SensorDataView> back = store.cursorPage(SensorFilter.all(), PageCursor.decode(second.prevCursor()), 30, false);
+
+        assertEquals(first.content().get(29).id() - 1, second.content().get(0).id());
+        assertEquals(first.content().get(0).id(), back.content().get(0).id());
+        assertNull(back.prevCursor());
+    }
+
+    @Test
+    void continuesOpenBlockAfterReopen() throws IOException {
+        ColumnarSensorStore store = open();
+        List<SensorData> rows = readings(1500);
+        store.append(rows.subList(0, 1000));
+        store.close();
+
+        ColumnarSensorStore reopened = open();
+        assertEquals(1000, reopened.count());
+        reopened.append(rows.subList(1000, 1500));
+        assertEquals(1001L, rows.get(1000).getId());
+
+        ColumnarSensorStore again = open();
+        assertEquals(1500, again.count());
+        assertEquals(rows.get(1499).getCreatedAt(), again.newest(1).get(0).createdAt());
+        assertEquals(rows.get(1200).getHumidity(), again.findById(1201).orElseThrow().getHumidity());
+    }
+
+    @Test
+    void failedBatchAcrossMidnightLeavesNothingAndCanBeRetried() throws IOException {
+        ColumnarSensorStore store = open();
+        List<SensorData> rows = readings(3000);
+        store.append(rows.subList(0, 100));
+        // Ngày thứ hai không mở được: một file chiếm chỗ thư mục của nó
+        Path blocked = Files.createFile(dir.resolve("2025-09-25"));
+        List<SensorData> batch = rows.subList(100, 3000);
+
+        assertThrows(UncheckedIOException.class, () -> store.append(batch));
+        assertEquals(100, store.count());
+        assertEquals(100L, store.newest(1).get(0).id());
+        assertNull(batch.get(0).getId());
+        assertEquals(100, open().count(), "nothing of the batch reached the index");
+
+        Files.delete(blocked);
+        store.append(batch);
+        assertEquals(101L, batch.get(0).getId());
+        assertEquals(3000, store.count());
+        ColumnarSensorStore reopened = open();
+        assertEquals(3000, reopened.count());
+        assertEquals(rows.get(1500).getHumidity(), reopened.findById(1501).orElseThrow().getHumidity());
+        assertEquals(rows.get(2999).getCreatedAt(), reopened.newest(1).get(0).createdAt());
+    }
+
+    @Test
+    void chartsBlockAveragesForLongRanges() throws IOException {
+        ColumnarSensorStore store = open();
+        store.append(readings(3000));
+        List<Double> temperatures = new ArrayList<>();
+        String resolution = store.chart(START.minusDays(1), START.plusDays(1), 100,
+                (t, temperature, humidity, light) -> temperatures.add(temperature));
+
+        assertEquals("block", resolution);
+        assertEquals(3000 / 256 + 2, temperatures.size());
+        assertEquals("raw", store.chart(START, START.plusMinutes(1), 100, (t, temperature, humidity, light) -> { }));
+    }
+
+    @Test
+    void exportsCsv() throws IOException {
+        ColumnarSensorStore store = open();
+        store.append(readings(3));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, store.export(SensorFilter.all(), ExportFormat.CSV, out));
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,temperature,humidity,light_level,uptime,created_at", lines[0]);
+        assertTrue(lines[1].startsWith("3,20.2,"));
+    }
+
+    @Test
+    void retentionArchivesAndRemovesWholeExpiredDays() throws IOException {
+        ColumnarSensorStore store = open();
+        // 1800 reading ngày 24/9 (23:00 - 24:00), 1200 reading ngày 25/9
+        store.append(readings(3000));
+
+        assertEquals(0, store.purgeBefore(START.toLocalDate().atTime(23, 59)), "the cutoff day is kept whole");
+        assertEquals(1, store.purgeBefore(START.plusHours(13)));
+
+        assertEquals(1200, store.count());
+        assertFalse(Files.exists(dir.resolve(START.toLocalDate().toString())));
+        assertEquals(START.plusHours(1), store.page(SensorFilter.all(), PageRequest.of(0, 1200)).getContent()
+                .get(1199).createdAt());
+        Path archive = dir.resolve("archive").resolve("sensor_data").resolve("columnar-" + START.toLocalDate() + ".csv.gz");
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            String[] lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(1 + 1800, lines.length);
+        }
+        assertEquals(1200, open().count(), "purged day stays gone after a restart");
+    }
+
+    private ColumnarSensorStore open() throws IOException {
+        return new ColumnarSensorStore(dir.toString(), 256, false, Duration.ZERO,
+                new StreamingExporter(null, new ObjectMapper(), 0),
+                new ArchiveExporter(null, true, dir.resolve("archive").toString()),
+                new QueryResultCache(new SimpleMeterRegistry(), false, 0, 1,
+                        Duration.ofSeconds(1), Duration.ofSeconds(1), false, 30, 5000),
+                new SimpleMeterRegistry());
+    }
+
+    // Một reading mỗi 2 giây; nhiệt độ 20.0 .. 29.9 lặp lại
+    private static List<SensorData> readings(int count) {
+        List<SensorData> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SensorData data = new SensorData();
+            data.setCreatedAt(START.plusSeconds(2L * i));
+            data.setTemperature(20 + (i % 100) / 10.0);
+            data.setHumidity(55.5 + (i % 7));
+            data.setLightLevel(i % 101);
+            data.setUptime(1000 + 2 * i);
+            rows.add(data);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+-- Benchmark: DATE()/TIME_FORMAT() filters vs. half-open created_at ranges (MySQL 8)
+--
+-- Chạy trên một schema riêng, KHÔNG chạy trên DB thật:
+--   mysql -u root -p -e "CREATE DATABASE iot_bench"
+--   mysql -u root -p iot_bench < src/test/resources/benchmarks/time-range-queries.sql
+--
+-- Tạo 10M dòng sensor_data (1 dòng / 3 giây, ~347 ngày) và 10M dòng led_events (3 LED),
+-- cùng index như entity khai báo, rồi so sánh EXPLAIN / EXPLAIN ANALYZE của query cũ và mới.
+-- Query "mới" là đúng SQL Hibernate sinh ra từ TimeRangeSpecification (+ LedEventSpecification).
+
+SET SESSION cte_max_recursion_depth = 10000;
+
+DROP TABLE IF EXISTS sensor_data;
+CREATE TABLE sensor_data (
+    id          BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    temperature DOUBLE,
+    humidity    DOUBLE,
+    light_level INT,
+    created_at  DATETIME(6),
+    second_of_day INT,
+    uptime      INT,
+    KEY idx_sensor_data_created_at (created_at),
+    KEY idx_sensor_data_second_of_day (second_of_day, created_at)
+);
+
+DROP TABLE IF EXISTS led_events;
+CREATE TABLE led_events (
+    id         BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    led_number INT,
+    state_on   VARCHAR(255),
+    created_at DATETIME(6),
+    second_of_day INT,
+    KEY idx_led_events_created_at (created_at),
+    KEY idx_led_events_led_created (led_number, created_at),
+    KEY idx_led_events_second_of_day (second_of_day, created_at),
+    KEY idx_led_events_led_second (led_number, second_of_day, created_at)
+);
+
+-- 10 000 x 1 000 = 10M dòng
+DROP TABLE IF EXISTS bench_seq;
+CREATE TABLE bench_seq (n INT PRIMARY KEY);
+INSERT INTO bench_seq
+WITH RECURSIVE seq (n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < 9999)
+SELECT n FROM seq;
+
+INSERT INTO sensor_data (temperature, humidity, light_level, created_at, second_of_day, uptime)
+SELECT 20 + (i % 150) / 10, 40 + (i % 400) / 10, i % 101,
+       TIMESTAMP('2024-10-01') + INTERVAL (i * 3) SECOND, (i * 3) % 86400, i * 3
+FROM (SELECT a.n * 1000 + b.n AS i FROM bench_seq a JOIN bench_seq b ON b.n < 1000) t;
+
+INSERT INTO led_events (led_number, state_on, created_at, second_of_day)
+SELECT 1 + i % 3, IF(i % 2 = 0, 'ON', 'OFF'),
+       TIMESTAMP('2024-10-01') + INTERVAL (i * 3) SECOND, (i * 3) % 86400
+FROM (SELECT a.n * 1000 + b.n AS i FROM bench_seq a JOIN bench_seq b ON b.n < 1000) t;
+
+DROP TABLE bench_seq;
+ANALYZE TABLE sensor_data, led_events;
+
+-- =================== FULL_DATE "24/09/2025" ===================
+-- Cũ: hàm bọc cột => không dùng được index, type=ALL (đọc cả 10M dòng + filesort)
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE DATE(created_at) = '2025-09-01' ORDER BY created_at DESC LIMIT 20;
+
+-- Mới: type=range trên idx_sensor_data_created_at, đọc ngược index nên không cần filesort;
+-- LIMIT dừng sau 20 dòng
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data
+WHERE created_at >= '2025-09-01 00:00:00' AND created_at < '2025-09-02 00:00:00'
+ORDER BY created_at DESC LIMIT 20;
+
+-- Count của trang (Spring Data chạy kèm): covering range scan trên index, ~28 800 entry thay vì 10M dòng
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM sensor_data WHERE DATE(created_at) = '2025-09-01';
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM sensor_data
+WHERE created_at >= '2025-09-01 00:00:00' AND created_at < '2025-09-02 00:00:00';
+
+-- =================== DATE_RANGE + LED "1/9/2025-3/9/2025", LED 2 ===================
+-- Cũ: type=ALL
+EXPLAIN ANALYZE
+SELECT * FROM led_events
+WHERE DATE(created_at) BETWEEN '2025-09-01' AND '2025-09-03' AND led_number = 2
+ORDER BY created_at DESC LIMIT 20;
+
+-- Mới: type=range trên idx_led_events_led_created (led_number = const, created_at range), không filesort
+EXPLAIN ANALYZE
+SELECT * FROM led_events
+WHERE created_at >= '2025-09-01 00:00:00' AND created_at < '2025-09-04 00:00:00' AND led_number = 2
+ORDER BY created_at DESC LIMIT 20;
+
+-- =================== HOUR_MINUTE "13:28" (mọi ngày) ===================
+-- Cũ: TIME_FORMAT trên mọi dòng, type=ALL + filesort
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE TIME_FORMAT(created_at, '%H:%i') = '13:28' ORDER BY created_at DESC LIMIT 20;
+
+-- Mới: type=range trên idx_sensor_data_second_of_day, chỉ đọc ~20 dòng/ngày x 347 ngày;
+-- filesort còn lại chỉ trên các dòng khớp
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE second_of_day >= 48480 AND second_of_day < 48540 ORDER BY created_at DESC LIMIT 20;
+
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM sensor_data WHERE TIME_FORMAT(created_at, '%H:%i') = '13:28';
+EXPLAIN ANALYZE
+SELECT COUNT(*) FROM sensor_data WHERE second_of_day >= 48480 AND second_of_day < 48540;
+
+-- =================== HOUR_MINUTE_SECOND "13:28:45" + LED 2 (trang action-history) ===================
+-- Cũ: type=ALL
+EXPLAIN ANALYZE
+SELECT * FROM led_events
+WHERE TIME_FORMAT(created_at, '%H:%i:%s') = '13:28:45' AND led_number = 2
+ORDER BY created_at DESC LIMIT 20;
+
+-- Mới: type=range trên idx_led_events_led_second (led_number = const, second_of_day range);
+-- filesort chỉ trên vài trăm dòng khớp thay vì 10M
+EXPLAIN ANALYZE
+SELECT * FROM led_events
+WHERE second_of_day >= 48525 AND second_of_day < 48526 AND led_number = 2
+ORDER BY created_at DESC LIMIT 20;
@@ -0,0 +1,47 @@
+-- Benchmark: STR(x) LIKE '%term%' vs. range trên cột số có index (MySQL 8)
+--
+-- Dùng lại schema iot_bench của time-range-queries.sql (10M dòng sensor_data), chạy file đó trước:
+--   mysql -u root -p iot_bench < src/test/resources/benchmarks/time-range-queries.sql
+--   mysql -u root -p iot_bench < src/test/resources/benchmarks/value-search-queries.sql
+--
+-- Query "mới" là đúng SQL Hibernate sinh ra từ SensorDataSpecification.withValue / withAnyValue.
+
+ALTER TABLE sensor_data
+    ADD KEY idx_sensor_data_temperature (temperature),
+    ADD KEY idx_sensor_data_humidity (humidity),
+    ADD KEY idx_sensor_data_light_level (light_level);
+ANALYZE TABLE sensor_data;
+
+-- =================== Temperature "23.5" ===================
+-- Cũ: CAST từng dòng sang chuỗi, LIKE có wildcard đầu => type=ALL (10M dòng) + filesort;
+-- còn khớp nhầm 123.5, 23.15, ...
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE CAST(temperature AS CHAR) LIKE '%23.5%' ORDER BY created_at DESC, id DESC LIMIT 20;
+
+-- Mới: [23.5, 23.6) => type=range trên idx_sensor_data_temperature, filesort chỉ trên các dòng khớp
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE temperature >= 23.5 AND temperature < 23.6 ORDER BY created_at DESC, id DESC LIMIT 20;
+
+-- =================== Humidity ">75" và "50..70" ===================
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE humidity > 75 ORDER BY created_at DESC, id DESC LIMIT 20;
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data WHERE humidity >= 50 AND humidity <= 70 ORDER BY created_at DESC, id DESC LIMIT 20;
+-- Lưu ý: khoảng rộng (vài triệu dòng) thì optimizer có thể chọn đọc ngược idx_sensor_data_created_at
+-- và dừng sau 20 dòng khớp, cũng nhanh; index cột chỉ có lợi khi khoảng hẹp.
+
+-- =================== Auto Detect "42" ===================
+-- Cũ: 4 cột LIKE OR nhau, type=ALL
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data
+WHERE CAST(id AS CHAR) LIKE '%42%' OR CAST(temperature AS CHAR) LIKE '%42%'
+   OR CAST(humidity AS CHAR) LIKE '%42%' OR CAST(light_level AS CHAR) LIKE '%42%'
+ORDER BY created_at DESC, id DESC LIMIT 20;
+
+-- Mới: type=index_merge (union của PRIMARY, idx_sensor_data_temperature, idx_sensor_data_humidity,
+-- idx_sensor_data_light_level)
+EXPLAIN ANALYZE
+SELECT * FROM sensor_data
+WHERE id = 42 OR (temperature >= 42 AND temperature < 43)
+   OR (humidity >= 42 AND humidity < 43) OR light_level = 42
+ORDER BY created_at DESC, id DESC LIMIT 20;